@@ -60,6 +60,8 @@ import org.apache.lucene.util.packed.DirectWriter;
 import static org.apache.lucene.codecs.lucene80.Lucene80DocValuesFormat.DIRECT_MONOTONIC_BLOCK_SHIFT;
 import static org.apache.lucene.codecs.lucene80.Lucene80DocValuesFormat.NUMERIC_BLOCK_SHIFT;
 import static org.apache.lucene.codecs.lucene80.Lucene80DocValuesFormat.NUMERIC_BLOCK_SIZE;
+import static org.apache.lucene.codecs.lucene80.Lucene80DocValuesFormat.SKIP_INDEX_BLOCK_SHIFT;
+import static org.apache.lucene.codecs.lucene80.Lucene80DocValuesFormat.SKIP_INDEX_BLOCK_SIZE;
 
 /** writer for {@link Lucene80DocValuesFormat} */
 final class Lucene80DocValuesConsumer extends DocValuesConsumer implements Closeable {
@@ -67,18 +69,22 @@ final class Lucene80DocValuesConsumer extends DocValuesConsumer implements Close
   IndexOutput data, meta;
   final int maxDoc;
   private final SegmentWriteState state;
+  private final boolean skipIndex;
 
   /** expert: Creates a new writer */
-  public Lucene80DocValuesConsumer(SegmentWriteState state, String dataCodec, String dataExtension, String metaCodec, String metaExtension) throws IOException {
+  public Lucene80DocValuesConsumer(SegmentWriteState state, String dataCodec, String dataExtension, String metaCodec, String metaExtension, boolean skipIndex) throws IOException {
     boolean success = false;
     try {
       this.state = state;
+      this.skipIndex = skipIndex;
+      // without a skip index, write the same files as before skip indexes were introduced
+      final int version = skipIndex ? Lucene80DocValuesFormat.VERSION_SKIP_INDEX : Lucene80DocValuesFormat.VERSION_BIN_COMPRESSED;
       String dataName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix, dataExtension);
       data = state.directory.createOutput(dataName, state.context);
-      CodecUtil.writeIndexHeader(data, dataCodec, Lucene80DocValuesFormat.VERSION_CURRENT, state.segmentInfo.getId(), state.segmentSuffix);
+      CodecUtil.writeIndexHeader(data, dataCodec, version, state.segmentInfo.getId(), state.segmentSuffix);
       String metaName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix, metaExtension);
       meta = state.directory.createOutput(metaName, state.context);
-      CodecUtil.writeIndexHeader(meta, metaCodec, Lucene80DocValuesFormat.VERSION_CURRENT, state.segmentInfo.getId(), state.segmentSuffix);
+      CodecUtil.writeIndexHeader(meta, metaCodec, version, state.segmentInfo.getId(), state.segmentSuffix);
       maxDoc = state.segmentInfo.maxDoc();
       success = true;
     } finally {
@@ -115,12 +121,49 @@ final class Lucene80DocValuesConsumer extends DocValuesConsumer implements Close
     meta.writeInt(field.number);
     meta.writeByte(Lucene80DocValuesFormat.NUMERIC);
 
-    writeValues(field, new EmptyDocValuesProducer() {
+    DocValuesProducer producer = new EmptyDocValuesProducer() {
       @Override
       public SortedNumericDocValues getSortedNumeric(FieldInfo field) throws IOException {
         return DocValues.singleton(valuesProducer.getNumeric(field));
       }
-    });
+    };
+    writeValues(field, producer);
+    if (skipIndex) {
+      writeSkipIndex(producer.getSortedNumeric(field));
+    }
+  }
+
+  private void writeSkipIndex(SortedNumericDocValues values) throws IOException {
+    final int numBlocks = (int) ((maxDoc + (long) SKIP_INDEX_BLOCK_SIZE - 1) >>> SKIP_INDEX_BLOCK_SHIFT);
+    final long start = data.getFilePointer();
+    meta.writeLong(start); // skipIndexOffset
+    int block = 0;
+    MinMaxTracker blockMinMax = new MinMaxTracker();
+    int blockDocCount = 0;
+    for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+      for (final int docBlock = doc >>> SKIP_INDEX_BLOCK_SHIFT; block < docBlock; ++block) {
+        writeSkipIndexBlock(blockMinMax, blockDocCount);
+        blockMinMax.reset();
+        blockDocCount = 0;
+      }
+      for (int i = 0, count = values.docValueCount(); i < count; ++i) {
+        blockMinMax.update(values.nextValue());
+      }
+      blockDocCount++;
+    }
+    for (; block < numBlocks; ++block) {
+      writeSkipIndexBlock(blockMinMax, blockDocCount);
+      blockMinMax.reset();
+      blockDocCount = 0;
+    }
+    meta.writeLong(data.getFilePointer() - start); // skipIndexLength
+  }
+
+  private void writeSkipIndexBlock(MinMaxTracker blockMinMax, int docCount) throws IOException {
+    // min is Long.MAX_VALUE and max is Long.MIN_VALUE if no document of the block has a value
+    data.writeLong(blockMinMax.min);
+    data.writeLong(blockMinMax.max);
+    data.writeInt(docCount);
   }
 
   private static class MinMaxTracker {
@@ -724,6 +767,9 @@ final class Lucene80DocValuesConsumer extends DocValuesConsumer implements Close
       addressesWriter.finish();
       meta.writeLong(data.getFilePointer() - start);
     }
+    if (skipIndex) {
+      writeSkipIndex(valuesProducer.getSortedNumeric(field));
+    }
   }
 
   @Override
@@ -122,6 +122,17 @@ import org.apache.lucene.util.packed.DirectWriter;
  *        strategies above.
  * </ul>
  * <p>
+ * If the format is {@link #Lucene80DocValuesFormat(boolean) created} with a skip index,
+ * {@link DocValuesType#NUMERIC NUMERIC} and {@link DocValuesType#SORTED_NUMERIC SORTED_NUMERIC} fields
+ * also record a skip index: the doc ID space is split into blocks of 4096 documents, and the minimum
+ * value, maximum value and number of documents with a value are written for every block. Range queries
+ * on doc values use it through {@link org.apache.lucene.index.DocValuesSkipper} in order to skip blocks
+ * of documents that can't match, which works especially well on segments that are sorted on the field.
+ * The skip index is disabled by default, so the default format is unchanged. It can be enabled for
+ * some fields only by returning a format with a skip index from
+ * {@link org.apache.lucene.codecs.perfield.PerFieldDocValuesFormat#getDocValuesFormatForField(String)}.
+ * </p>
+ * <p>
  * Files:
  * <ol>
  *   <li><code>.dvd</code>: DocValues data</li>
@@ -131,14 +142,25 @@ import org.apache.lucene.util.packed.DirectWriter;
  */
 public final class Lucene80DocValuesFormat extends DocValuesFormat {
 
-  /** Sole Constructor */
+  private final boolean skipIndex;
+
+  /** Creates a format that doesn't write a skip index */
   public Lucene80DocValuesFormat() {
+    this(false);
+  }
+
+  /**
+   * Creates a format that writes a skip index of numeric and sorted numeric fields if {@code skipIndex} is true.
+   * Segments can be read by any instance, with or without the skip index.
+   */
+  public Lucene80DocValuesFormat(boolean skipIndex) {
     super("Lucene80");
+    this.skipIndex = skipIndex;
   }
 
   @Override
   public DocValuesConsumer fieldsConsumer(SegmentWriteState state) throws IOException {
-    return new Lucene80DocValuesConsumer(state, DATA_CODEC, DATA_EXTENSION, META_CODEC, META_EXTENSION);
+    return new Lucene80DocValuesConsumer(state, DATA_CODEC, DATA_EXTENSION, META_CODEC, META_EXTENSION, skipIndex);
   }
 
   @Override
@@ -152,7 +174,8 @@ public final class Lucene80DocValuesFormat extends DocValuesFormat {
   static final String META_EXTENSION = "dvm";
   static final int VERSION_START = 0;
   static final int VERSION_BIN_COMPRESSED = 1;  
-  static final int VERSION_CURRENT = VERSION_BIN_COMPRESSED;
+  static final int VERSION_SKIP_INDEX = 2;
+  static final int VERSION_CURRENT = VERSION_SKIP_INDEX;
 
   // indicates docvalues type
   static final byte NUMERIC = 0;
@@ -166,6 +189,10 @@ public final class Lucene80DocValuesFormat extends DocValuesFormat {
   static final int NUMERIC_BLOCK_SHIFT = 14;
   static final int NUMERIC_BLOCK_SIZE = 1 << NUMERIC_BLOCK_SHIFT;
 
+  static final int SKIP_INDEX_BLOCK_SHIFT = 12;
+  static final int SKIP_INDEX_BLOCK_SIZE = 1 << SKIP_INDEX_BLOCK_SHIFT;
+  static final int SKIP_INDEX_BLOCK_BYTES = Long.BYTES + Long.BYTES + Integer.BYTES;
+
   static final int BINARY_BLOCK_SHIFT = 5;
   static final int BINARY_DOCS_PER_COMPRESSED_BLOCK = 1 << BINARY_BLOCK_SHIFT;
   
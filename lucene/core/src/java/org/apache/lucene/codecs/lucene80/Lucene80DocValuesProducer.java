@@ -27,6 +27,8 @@ import org.apache.lucene.index.BaseTermsEnum;
 import org.apache.lucene.index.BinaryDocValues;
 import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.DocValuesSkipper;
+import org.apache.lucene.index.DocValuesType;
 import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.FieldInfos;
 import org.apache.lucene.index.ImpactsEnum;
@@ -39,6 +41,7 @@ import org.apache.lucene.index.SortedNumericDocValues;
 import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.index.TermsEnum.SeekStatus;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.store.ChecksumIndexInput;
 import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.RandomAccessInput;
@@ -121,7 +124,9 @@ final class Lucene80DocValuesProducer extends DocValuesProducer implements Close
       }
       byte type = meta.readByte();
       if (type == Lucene80DocValuesFormat.NUMERIC) {
-        numerics.put(info.name, readNumeric(meta));
+        NumericEntry entry = readNumeric(meta);
+        readSkipIndex(meta, entry);
+        numerics.put(info.name, entry);
       } else if (type == Lucene80DocValuesFormat.BINARY) {
         binaries.put(info.name, readBinary(meta));
       } else if (type == Lucene80DocValuesFormat.SORTED) {
@@ -278,9 +283,19 @@ final class Lucene80DocValuesProducer extends DocValuesProducer implements Close
       ramBytesUsed += entry.addressesMeta.ramBytesUsed();
       entry.addressesLength = meta.readLong();
     }
+    readSkipIndex(meta, entry);
     return entry;
   }
 
+  private void readSkipIndex(ChecksumIndexInput meta, NumericEntry entry) throws IOException {
+    if (version >= Lucene80DocValuesFormat.VERSION_SKIP_INDEX) {
+      entry.skipIndexOffset = meta.readLong();
+      entry.skipIndexLength = meta.readLong();
+    } else {
+      entry.skipIndexOffset = -1;
+    }
+  }
+
   @Override
   public void close() throws IOException {
     data.close();
@@ -300,6 +315,8 @@ final class Lucene80DocValuesProducer extends DocValuesProducer implements Close
     long valuesOffset;
     long valuesLength;
     long valueJumpTableOffset; // -1 if no jump-table
+    long skipIndexOffset; // -1 if no skip index
+    long skipIndexLength;
   }
 
   private static class BinaryEntry {
@@ -1249,6 +1266,71 @@ final class Lucene80DocValuesProducer extends DocValuesProducer implements Close
     }
   }
 
+  @Override
+  public DocValuesSkipper getSkipper(FieldInfo field) throws IOException {
+    final NumericEntry entry;
+    if (field.getDocValuesType() == DocValuesType.NUMERIC) {
+      entry = numerics.get(field.name);
+    } else if (field.getDocValuesType() == DocValuesType.SORTED_NUMERIC) {
+      entry = sortedNumerics.get(field.name);
+    } else {
+      entry = null;
+    }
+    if (entry == null || entry.skipIndexOffset == -1) {
+      return null;
+    }
+    final RandomAccessInput slice = data.randomAccessSlice(entry.skipIndexOffset, entry.skipIndexLength);
+    return new DocValuesSkipper() {
+      int minDocID = -1;
+      int maxDocID = -1;
+      long minValue, maxValue;
+      int docCount;
+
+      @Override
+      public void advance(int target) throws IOException {
+        if (target >= maxDoc) {
+          minDocID = maxDocID = DocIdSetIterator.NO_MORE_DOCS;
+          minValue = Long.MAX_VALUE;
+          maxValue = Long.MIN_VALUE;
+          docCount = 0;
+          return;
+        }
+        final int block = target >>> Lucene80DocValuesFormat.SKIP_INDEX_BLOCK_SHIFT;
+        final long offset = (long) block * Lucene80DocValuesFormat.SKIP_INDEX_BLOCK_BYTES;
+        minValue = slice.readLong(offset);
+        maxValue = slice.readLong(offset + Long.BYTES);
+        docCount = slice.readInt(offset + 2 * Long.BYTES);
+        minDocID = block << Lucene80DocValuesFormat.SKIP_INDEX_BLOCK_SHIFT;
+        maxDocID = Math.min(maxDoc - 1, minDocID + Lucene80DocValuesFormat.SKIP_INDEX_BLOCK_SIZE - 1);
+      }
+
+      @Override
+      public int minDocID() {
+        return minDocID;
+      }
+
+      @Override
+      public int maxDocID() {
+        return maxDocID;
+      }
+
+      @Override
+      public long minValue() {
+        return minValue;
+      }
+
+      @Override
+      public long maxValue() {
+        return maxValue;
+      }
+
+      @Override
+      public int docCount() {
+        return docCount;
+      }
+    };
+  }
+
   @Override
   public SortedNumericDocValues getSortedNumeric(FieldInfo field) throws IOException {
     SortedNumericEntry entry = sortedNumerics.get(field.name);
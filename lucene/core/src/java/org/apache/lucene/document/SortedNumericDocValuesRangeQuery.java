@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.util.Objects;
 
 import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.DocValuesSkipper;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
@@ -27,6 +28,7 @@ import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.index.SortedNumericDocValues;
 import org.apache.lucene.search.ConstantScoreScorer;
 import org.apache.lucene.search.ConstantScoreWeight;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.DocValuesFieldExistsQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
@@ -116,11 +118,24 @@ abstract class SortedNumericDocValuesRangeQuery extends Query {
           return null;
         }
         final NumericDocValues singleton = DocValues.unwrapSingleton(values);
+        final DocValuesSkipper skipper = DocValues.getSkipper(context.reader(), field);
+        final SkippingApproximation skippingApproximation;
+        final DocIdSetIterator approximation;
+        if (skipper == null) {
+          skippingApproximation = null;
+          approximation = singleton != null ? singleton : values;
+        } else {
+          skippingApproximation = new SkippingApproximation(singleton != null ? singleton : values, skipper, lowerValue, upperValue);
+          approximation = skippingApproximation;
+        }
         final TwoPhaseIterator iterator;
         if (singleton != null) {
-          iterator = new TwoPhaseIterator(singleton) {
+          iterator = new TwoPhaseIterator(approximation) {
             @Override
             public boolean matches() throws IOException {
+              if (skippingApproximation != null && skippingApproximation.blockFullyMatches) {
+                return true;
+              }
               final long value = singleton.longValue();
               return value >= lowerValue && value <= upperValue;
             }
@@ -131,9 +146,12 @@ abstract class SortedNumericDocValuesRangeQuery extends Query {
             }
           };
         } else {
-          iterator = new TwoPhaseIterator(values) {
+          iterator = new TwoPhaseIterator(approximation) {
             @Override
             public boolean matches() throws IOException {
+              if (skippingApproximation != null && skippingApproximation.blockFullyMatches) {
+                return true;
+              }
               for (int i = 0, count = values.docValueCount(); i < count; ++i) {
                 final long value = values.nextValue();
                 if (value < lowerValue) {
@@ -157,4 +175,79 @@ abstract class SortedNumericDocValuesRangeQuery extends Query {
     };
   }
 
+  /**
+   * An approximation over the documents that have a value, which uses a
+   * {@link DocValuesSkipper} to jump over blocks of documents whose values are
+   * all out of the range. It also tracks whether all values of the current
+   * block are in the range, in which case documents don't need to be checked.
+   */
+  static final class SkippingApproximation extends DocIdSetIterator {
+
+    private final DocIdSetIterator in;
+    private final DocValuesSkipper skipper;
+    private final long lowerValue;
+    private final long upperValue;
+    private int doc = -1;
+    // true if all values of the current block of the skipper are in the range
+    boolean blockFullyMatches;
+
+    SkippingApproximation(DocIdSetIterator in, DocValuesSkipper skipper, long lowerValue, long upperValue) {
+      this.in = in;
+      this.skipper = skipper;
+      this.lowerValue = lowerValue;
+      this.upperValue = upperValue;
+    }
+
+    @Override
+    public int docID() {
+      return doc;
+    }
+
+    @Override
+    public int nextDoc() throws IOException {
+      return advance(doc + 1);
+    }
+
+    @Override
+    public int advance(int target) throws IOException {
+      while (true) {
+        target = advanceSkipper(target);
+        if (target == NO_MORE_DOCS) {
+          return doc = NO_MORE_DOCS;
+        }
+        int next = in.docID();
+        if (next < target) {
+          next = in.advance(target);
+        }
+        if (next == NO_MORE_DOCS || next <= skipper.maxDocID()) {
+          return doc = next;
+        }
+        // the next document with a value is in a later block, check whether it may match
+        target = next;
+      }
+    }
+
+    /** Return the first doc ID that is greater than or equal to target in a block that may match. */
+    private int advanceSkipper(int target) throws IOException {
+      while (true) {
+        if (target > skipper.maxDocID()) {
+          skipper.advance(target);
+          if (skipper.minDocID() == NO_MORE_DOCS) {
+            return NO_MORE_DOCS;
+          }
+        }
+        if (skipper.docCount() > 0 && skipper.minValue() <= upperValue && skipper.maxValue() >= lowerValue) {
+          blockFullyMatches = skipper.minValue() >= lowerValue && skipper.maxValue() <= upperValue;
+          return target;
+        }
+        target = skipper.maxDocID() + 1;
+      }
+    }
+
+    @Override
+    public long cost() {
+      return in.cost();
+    }
+  }
+
 }
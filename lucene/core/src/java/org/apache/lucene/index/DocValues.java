@@ -20,6 +20,7 @@ package org.apache.lucene.index;
 import java.io.IOException;
 import java.util.Arrays;
 
+import org.apache.lucene.codecs.DocValuesProducer;
 import org.apache.lucene.util.BytesRef;
 
 /** 
@@ -426,4 +427,30 @@ public final class DocValues {
     }
     return true;
   }
+
+  /**
+   * Returns a {@link DocValuesSkipper} for the given numeric or sorted numeric
+   * field, or {@code null} if the field has no such doc values or if the
+   * reader doesn't give access to per-block statistics. Only {@link CodecReader}s
+   * whose doc values format records these statistics return a skipper, wrapped
+   * readers never do since they may change the values of the field.
+   */
+  public static DocValuesSkipper getSkipper(LeafReader reader, String field) throws IOException {
+    if (reader instanceof CodecReader == false) {
+      return null;
+    }
+    FieldInfo fi = reader.getFieldInfos().fieldInfo(field);
+    if (fi == null) {
+      return null;
+    }
+    DocValuesType type = fi.getDocValuesType();
+    if (type != DocValuesType.NUMERIC && type != DocValuesType.SORTED_NUMERIC) {
+      return null;
+    }
+    DocValuesProducer producer = ((CodecReader) reader).getDocValuesReader();
+    if (producer == null) {
+      return null;
+    }
+    return producer.getSkipper(fi);
+  }
 }
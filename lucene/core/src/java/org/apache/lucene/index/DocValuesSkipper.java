@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.index;
+
+import java.io.IOException;
+
+import org.apache.lucene.search.DocIdSetIterator;
+
+/**
+ * Per-block statistics of {@link NumericDocValues numeric} or
+ * {@link SortedNumericDocValues sorted numeric} doc values. The doc ID space is
+ * split into contiguous blocks, and for every block the minimum and maximum
+ * values as well as the number of documents that have a value are recorded.
+ * This allows queries to skip over whole blocks of documents that can't
+ * match without decoding values, which is especially efficient on segments
+ * that are sorted on the field.
+ * <p>
+ * Skippers are unpositioned when created, {@link #advance(int)} must be
+ * called before the statistics of a block can be read.
+ *
+ * @see DocValues#getSkipper(LeafReader, String)
+ * @lucene.experimental
+ */
+public abstract class DocValuesSkipper {
+
+  /** Sole constructor. (For invocation by subclass
+   *  constructors, typically implicit.) */
+  protected DocValuesSkipper() {}
+
+  /**
+   * Move to the block that contains {@code target}. If {@code target} is
+   * greater than or equal to the number of documents of the segment, then
+   * {@link #minDocID()} and {@link #maxDocID()} both return
+   * {@link DocIdSetIterator#NO_MORE_DOCS}.
+   */
+  public abstract void advance(int target) throws IOException;
+
+  /** Return the first doc ID of the current block, or -1 if unpositioned. */
+  public abstract int minDocID();
+
+  /** Return the last doc ID of the current block, inclusive, or -1 if unpositioned. */
+  public abstract int maxDocID();
+
+  /**
+   * Return the minimum value of the current block, or {@link Long#MAX_VALUE}
+   * if no document of the block has a value.
+   */
+  public abstract long minValue();
+
+  /**
+   * Return the maximum value of the current block, or {@link Long#MIN_VALUE}
+   * if no document of the block has a value.
+   */
+  public abstract long maxValue();
+
+  /** Return the number of documents of the current block that have a value. */
+  public abstract int docCount();
+
+}
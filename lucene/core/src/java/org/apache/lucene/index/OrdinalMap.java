@@ -25,6 +25,7 @@ import java.util.List;
 
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.Accountables;
+import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.lucene.util.InPlaceMergeSorter;
@@ -98,7 +99,11 @@ public class OrdinalMap implements Accountable {
     private final int[] newToOld, oldToNew;
 
     SegmentMap(long[] weights) {
-      newToOld = map(weights);
+      this(map(weights));
+    }
+
+    SegmentMap(int[] newToOld) {
+      this.newToOld = newToOld;
       oldToNew = inverse(newToOld);
       assert Arrays.equals(newToOld, inverse(oldToNew));
     }
@@ -168,6 +173,95 @@ public class OrdinalMap implements Accountable {
     return new OrdinalMap(owner, subs, segmentMap, acceptableOverheadRatio);
   }
 
+  /**
+   * Create an ordinal map from a previous map that uses the number of unique values of each
+   * {@link SortedDocValues} instance as a weight.
+   * @see #build(IndexReader.CacheKey, OrdinalMap, int[], TermsEnum[], long[], float)
+   */
+  public static OrdinalMap build(IndexReader.CacheKey owner, OrdinalMap previous, int[] previousSegments,
+                                 SortedDocValues[] values, float acceptableOverheadRatio) throws IOException {
+    final TermsEnum[] subs = new TermsEnum[values.length];
+    final long[] weights = new long[values.length];
+    for (int i = 0; i < values.length; ++i) {
+      subs[i] = values[i].termsEnum();
+      weights[i] = values[i].getValueCount();
+    }
+    return build(owner, previous, previousSegments, subs, weights, acceptableOverheadRatio);
+  }
+
+  /**
+   * Create an ordinal map from a previous map that uses the number of unique values of each
+   * {@link SortedSetDocValues} instance as a weight.
+   * @see #build(IndexReader.CacheKey, OrdinalMap, int[], TermsEnum[], long[], float)
+   */
+  public static OrdinalMap build(IndexReader.CacheKey owner, OrdinalMap previous, int[] previousSegments,
+                                 SortedSetDocValues[] values, float acceptableOverheadRatio) throws IOException {
+    final TermsEnum[] subs = new TermsEnum[values.length];
+    final long[] weights = new long[values.length];
+    for (int i = 0; i < values.length; ++i) {
+      subs[i] = values[i].termsEnum();
+      weights[i] = values[i].getValueCount();
+    }
+    return build(owner, previous, previousSegments, subs, weights, acceptableOverheadRatio);
+  }
+
+  /**
+   * Creates an ordinal map for <code>subs</code> from the map of a previous set of subs, which must all
+   * be part of <code>subs</code> with the same terms, typically the segments of a reader before it was
+   * reopened with new segments. Only the terms of the new subs are merged, into the global term space
+   * of <code>previous</code>, so this is much faster than building a new map when the new subs are small
+   * compared to the previous ones.
+   * @param owner a cache key
+   * @param previous the ordinal map of the previous subs
+   * @param previousSegments for every sub, the index of the same sub in <code>previous</code>, or -1 if
+   *             it is a new sub
+   * @param subs TermsEnums that support {@link TermsEnum#ord()}, and {@link TermsEnum#seekExact(long)}
+   *             for the subs of <code>previous</code>
+   * @param weights a weight for each sub, only used to sort the new subs
+   * @throws IOException if an I/O error occurred.
+   */
+  public static OrdinalMap build(IndexReader.CacheKey owner, OrdinalMap previous, int[] previousSegments,
+                                 TermsEnum subs[], long[] weights, float acceptableOverheadRatio) throws IOException {
+    if (subs.length != weights.length || subs.length != previousSegments.length) {
+      throw new IllegalArgumentException("subs, weights and previousSegments must have the same length");
+    }
+    final int numPrevious = previous.segmentToGlobalOrds.length;
+    final int[] previousToNew = new int[numPrevious];
+    Arrays.fill(previousToNew, -1);
+    final List<Integer> newSubs = new ArrayList<>();
+    for (int i = 0; i < subs.length; ++i) {
+      final int previousSegment = previousSegments[i];
+      if (previousSegment < 0) {
+        newSubs.add(i);
+      } else if (previousSegment >= numPrevious || previousToNew[previousSegment] != -1) {
+        throw new IllegalArgumentException("Invalid previous segment " + previousSegment + " for sub " + i);
+      } else {
+        previousToNew[previousSegment] = i;
+      }
+    }
+    if (subs.length - newSubs.size() != numPrevious) {
+      throw new IllegalArgumentException("All segments of the previous map must be part of subs");
+    }
+
+    // previous subs keep their position in the sorted segment space, so that first segments of previous
+    // terms don't change, and new subs are sorted after them
+    final long[] newWeights = new long[newSubs.size()];
+    for (int i = 0; i < newWeights.length; ++i) {
+      newWeights[i] = weights[newSubs.get(i)];
+    }
+    final int[] newOrder = SegmentMap.map(newWeights);
+    final int[] newToOld = new int[subs.length];
+    for (int i = 0; i < numPrevious; ++i) {
+      newToOld[i] = previousToNew[previous.segmentMap.newToOld(i)];
+    }
+    for (int i = 0; i < newOrder.length; ++i) {
+      newToOld[numPrevious + i] = newSubs.get(newOrder[i]);
+    }
+    final SegmentMap segmentMap = new SegmentMap(newToOld);
+    return new OrdinalMap(owner, segmentMap, mergeNewTerms(previous, subs, segmentMap, acceptableOverheadRatio),
+        acceptableOverheadRatio);
+  }
+
   private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(OrdinalMap.class);
 
   /** Cache key of whoever asked for this awful thing */
@@ -180,24 +274,44 @@ public class OrdinalMap implements Accountable {
   final LongValues segmentToGlobalOrds[];
   // the map from/to segment ids
   final SegmentMap segmentMap;
+  // for every segment, the number of segment ords
+  final long[] segmentOrdCounts;
   // ram usage
   final long ramBytesUsed;
     
+  /** The values of an ordinal map being built, in sorted segment space. */
+  private static class Builders {
+    final PackedLongValues.Builder globalOrdDeltas;
+    final PackedLongValues.Builder firstSegments;
+    final PackedLongValues.Builder[] ordDeltas;
+    final long[] ordDeltaBits;
+
+    Builders(int numSegments, float acceptableOverheadRatio) {
+      // even though we accept an overhead ratio, we keep these ones with COMPACT
+      // since they are only used to resolve values given a global ord, which is
+      // slow anyway
+      globalOrdDeltas = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
+      firstSegments = PackedLongValues.packedBuilder(PackedInts.COMPACT);
+      ordDeltas = new PackedLongValues.Builder[numSegments];
+      for (int i = 0; i < ordDeltas.length; i++) {
+        ordDeltas[i] = PackedLongValues.monotonicBuilder(acceptableOverheadRatio);
+      }
+      ordDeltaBits = new long[numSegments];
+    }
+  }
+
   OrdinalMap(IndexReader.CacheKey owner, TermsEnum subs[], SegmentMap segmentMap, float acceptableOverheadRatio) throws IOException {
+    this(owner, segmentMap, mergeTerms(subs, segmentMap, acceptableOverheadRatio), acceptableOverheadRatio);
+  }
+
+  private static Builders mergeTerms(TermsEnum subs[], SegmentMap segmentMap, float acceptableOverheadRatio) throws IOException {
     // create the ordinal mappings by pulling a termsenum over each sub's 
     // unique terms, and walking a multitermsenum over those
-    this.owner = owner;
-    this.segmentMap = segmentMap;
-    // even though we accept an overhead ratio, we keep these ones with COMPACT
-    // since they are only used to resolve values given a global ord, which is
-    // slow anyway
-    PackedLongValues.Builder globalOrdDeltas = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
-    PackedLongValues.Builder firstSegments = PackedLongValues.packedBuilder(PackedInts.COMPACT);
-    final PackedLongValues.Builder[] ordDeltas = new PackedLongValues.Builder[subs.length];
-    for (int i = 0; i < ordDeltas.length; i++) {
-      ordDeltas[i] = PackedLongValues.monotonicBuilder(acceptableOverheadRatio);
-    }
-    long[] ordDeltaBits = new long[subs.length];
+    final Builders builders = new Builders(subs.length, acceptableOverheadRatio);
+    final PackedLongValues.Builder globalOrdDeltas = builders.globalOrdDeltas;
+    final PackedLongValues.Builder firstSegments = builders.firstSegments;
+    final PackedLongValues.Builder[] ordDeltas = builders.ordDeltas;
+    long[] ordDeltaBits = builders.ordDeltaBits;
     long[] segmentOrds = new long[subs.length];
 
     // Just merge-sorts by term:
@@ -271,15 +385,184 @@ public class OrdinalMap implements Accountable {
       globalOrd++;
     }
 
+    return builders;
+  }
+
+  /**
+   * Merges the terms of the subs that come after the subs of <code>previous</code> in the sorted segment
+   * space into the global term space of <code>previous</code>.
+   */
+  private static Builders mergeNewTerms(OrdinalMap previous, TermsEnum subs[], SegmentMap segmentMap,
+                                        float acceptableOverheadRatio) throws IOException {
+    final Builders builders = new Builders(subs.length, acceptableOverheadRatio);
+    final int numPrevious = previous.segmentToGlobalOrds.length;
+    final long previousValueCount = previous.getValueCount();
+    final long[] segmentOrds = new long[subs.length];
+
+    // the new terms that are not in the previous term space, by the previous global ord they are inserted before
+    long[] insertedBefore = new long[0];
+    int[] insertedFirstSegments = new int[0];
+    long[] insertedFirstSegmentOrds = new long[0];
+    int numInserted = 0;
+
+    PriorityQueue<TermsEnumIndex> queue = new PriorityQueue<TermsEnumIndex>(Math.max(1, subs.length - numPrevious)) {
+        @Override
+        protected boolean lessThan(TermsEnumIndex a, TermsEnumIndex b) {
+          return a.currentTerm.compareTo(b.currentTerm) < 0;
+        }
+      };
+
+    for (int i = numPrevious; i < subs.length; i++) {
+      TermsEnumIndex sub = new TermsEnumIndex(subs[segmentMap.newToOld(i)], i);
+      if (sub.next() != null) {
+        queue.add(sub);
+      }
+    }
+
+    BytesRefBuilder scratch = new BytesRefBuilder();
+
+    long previousOrd = 0;
+    while (queue.size() != 0) {
+      TermsEnumIndex top = queue.top();
+      scratch.copyBytes(top.currentTerm);
+
+      // terms come in order, so the position of this term can only be after the position of the last one
+      previousOrd = previous.ceilOrd(subs, segmentMap, previousOrd, scratch.get());
+      final boolean isPrevious = previousOrd < previousValueCount
+          && previous.lookupTerm(subs, segmentMap, previousOrd).equals(scratch.get());
+      final long globalOrd = previousOrd + numInserted;
+
+      int firstSegmentIndex = Integer.MAX_VALUE;
+      long firstSegmentOrd = -1;
+
+      // Advance past this term, recording the per-segment ord deltas:
+      while (true) {
+        top = queue.top();
+        long segmentOrd = top.termsEnum.ord();
+        long delta = globalOrd - segmentOrd;
+        int segmentIndex = top.subIndex;
+        if (segmentIndex < firstSegmentIndex) {
+          firstSegmentIndex = segmentIndex;
+          firstSegmentOrd = segmentOrd;
+        }
+        builders.ordDeltaBits[segmentIndex] |= delta;
+
+        assert segmentOrds[segmentIndex] <= segmentOrd;
+        do {
+          builders.ordDeltas[segmentIndex].add(delta);
+          segmentOrds[segmentIndex]++;
+        } while (segmentOrds[segmentIndex] <= segmentOrd);
+
+        if (top.next() == null) {
+          queue.pop();
+          if (queue.size() == 0) {
+            break;
+          }
+        } else {
+          queue.updateTop();
+        }
+        if (queue.top().currentTerm.equals(scratch.get()) == false) {
+          break;
+        }
+      }
+
+      if (isPrevious == false) {
+        if (numInserted == insertedBefore.length) {
+          insertedBefore = ArrayUtil.grow(insertedBefore, numInserted + 1);
+          insertedFirstSegments = ArrayUtil.growExact(insertedFirstSegments, insertedBefore.length);
+          insertedFirstSegmentOrds = ArrayUtil.growExact(insertedFirstSegmentOrds, insertedBefore.length);
+        }
+        insertedBefore[numInserted] = previousOrd;
+        insertedFirstSegments[numInserted] = firstSegmentIndex;
+        insertedFirstSegmentOrds[numInserted] = firstSegmentOrd;
+        numInserted++;
+      }
+    }
+
+    // the global term space is the previous one with new terms inserted, shifting previous global ords
+    int inserted = 0;
+    for (long ord = 0; ord <= previousValueCount; ++ord) {
+      for (; inserted < numInserted && insertedBefore[inserted] == ord; ++inserted) {
+        builders.firstSegments.add(insertedFirstSegments[inserted]);
+        builders.globalOrdDeltas.add(ord + inserted - insertedFirstSegmentOrds[inserted]);
+      }
+      if (ord < previousValueCount) {
+        builders.firstSegments.add(previous.firstSegments.get(ord));
+        builders.globalOrdDeltas.add(ord + inserted - previous.getFirstSegmentOrd(ord));
+      }
+    }
+    assert inserted == numInserted;
+
+    // previous segments keep their ords, but their global ords are shifted by the terms inserted before them
+    for (int i = 0; i < numPrevious; ++i) {
+      final LongValues previousGlobalOrds = previous.segmentToGlobalOrds[i];
+      final long segmentOrdCount = previous.segmentOrdCounts[i];
+      final PackedLongValues.Builder ordDeltas = builders.ordDeltas[i];
+      long ordDeltaBits = 0L;
+      inserted = 0;
+      for (long segmentOrd = 0; segmentOrd < segmentOrdCount; ++segmentOrd) {
+        final long previousGlobalOrd = previousGlobalOrds.get(segmentOrd);
+        while (inserted < numInserted && insertedBefore[inserted] <= previousGlobalOrd) {
+          inserted++;
+        }
+        final long delta = previousGlobalOrd + inserted - segmentOrd;
+        ordDeltas.add(delta);
+        ordDeltaBits |= delta;
+      }
+      builders.ordDeltaBits[i] = ordDeltaBits;
+    }
+    return builders;
+  }
+
+  /** Returns the term of the given global ord, which is read from the first segment that contains it. */
+  private BytesRef lookupTerm(TermsEnum subs[], SegmentMap newSegmentMap, long globalOrd) throws IOException {
+    // subs of this map have the same position in the sorted segment space of the new map
+    final TermsEnum termsEnum = subs[newSegmentMap.newToOld((int) firstSegments.get(globalOrd))];
+    termsEnum.seekExact(getFirstSegmentOrd(globalOrd));
+    return termsEnum.term();
+  }
+
+  /** Returns the least global ord that is greater than or equal to <code>from</code> and whose term is greater than or equal to <code>term</code>. */
+  private long ceilOrd(TermsEnum subs[], SegmentMap newSegmentMap, long from, BytesRef term) throws IOException {
+    final long valueCount = getValueCount();
+    // gallop to find an upper bound, then binary search
+    long lo = from;
+    long hi = from;
+    for (long step = 1; hi < valueCount && lookupTerm(subs, newSegmentMap, hi).compareTo(term) < 0; step <<= 1) {
+      lo = hi + 1;
+      hi = lo + step;
+    }
+    hi = Math.min(hi, valueCount);
+    while (lo < hi) {
+      final long mid = (lo + hi) >>> 1;
+      if (lookupTerm(subs, newSegmentMap, mid).compareTo(term) < 0) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  private OrdinalMap(IndexReader.CacheKey owner, SegmentMap segmentMap, Builders builders, float acceptableOverheadRatio) {
+    this.owner = owner;
+    this.segmentMap = segmentMap;
+    final PackedLongValues.Builder globalOrdDeltas = builders.globalOrdDeltas;
+    final PackedLongValues.Builder firstSegments = builders.firstSegments;
+    final PackedLongValues.Builder[] ordDeltas = builders.ordDeltas;
+    final long[] ordDeltaBits = builders.ordDeltaBits;
+
     this.firstSegments = firstSegments.build();
     this.globalOrdDeltas = globalOrdDeltas.build();
     // ordDeltas is typically the bottleneck, so let's see what we can do to make it faster
-    segmentToGlobalOrds = new LongValues[subs.length];
+    segmentToGlobalOrds = new LongValues[ordDeltas.length];
+    segmentOrdCounts = new long[ordDeltas.length];
     long ramBytesUsed = BASE_RAM_BYTES_USED + this.globalOrdDeltas.ramBytesUsed()
       + this.firstSegments.ramBytesUsed() + RamUsageEstimator.shallowSizeOf(segmentToGlobalOrds)
-      + segmentMap.ramBytesUsed();
+      + RamUsageEstimator.sizeOf(segmentOrdCounts) + segmentMap.ramBytesUsed();
     for (int i = 0; i < ordDeltas.length; ++i) {
       final PackedLongValues deltas = ordDeltas[i].build();
+      segmentOrdCounts[i] = deltas.size();
       if (ordDeltaBits[i] == 0L) {
         // segment ords perfectly match global ordinals
         // likely in case of low cardinalities and large segments
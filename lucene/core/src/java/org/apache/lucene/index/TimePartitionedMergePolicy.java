@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.index;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.PointsReader;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.NumericUtils;
+
+/**
+ * A {@link MergePolicy} that keeps segments partitioned by time, so that
+ * queries on a recent time range only need to visit a few segments.
+ * <p>
+ * Every segment is assigned to a partition based on the maximum value of a
+ * 1-dimension {@code long} point field, typically a timestamp indexed with
+ * {@link org.apache.lucene.document.LongPoint}: the partition is
+ * {@code floor(maxValue / partitionSize)}. The wrapped merge policy is then
+ * called for each partition separately, so that segments of different
+ * partitions never get merged together and the point bounds of merged
+ * segments remain tight. Point range queries rule out segments whose bounds
+ * don't intersect the range without doing any other per-segment work.
+ * <p>
+ * This works best with append-only time-series data that is indexed in
+ * roughly chronological order, so that flushed segments already contain a
+ * narrow range of values. Segments that don't have values for the field are
+ * grouped in their own partition. Forced merges merge every partition
+ * separately, so an index may keep one segment per partition after
+ * {@link IndexWriter#forceMerge(int) forceMerge(1)}.
+ *
+ * @lucene.experimental
+ */
+public class TimePartitionedMergePolicy extends FilterMergePolicy {
+
+  private final String field;
+  private final long partitionSize;
+  // partitions never change for a given segment, keyed by segment name
+  private final Map<String, Long> partitions = new ConcurrentHashMap<>();
+
+  /**
+   * Create a new instance.
+   *
+   * @param in            the merge policy to use within each partition
+   * @param field         a {@code long} point field, typically a timestamp
+   * @param partitionSize the range of values of a partition, eg. {@code 86400000} to partition by day
+   *                      if the field holds a number of milliseconds since the epoch
+   */
+  public TimePartitionedMergePolicy(MergePolicy in, String field, long partitionSize) {
+    super(in);
+    if (partitionSize <= 0) {
+      throw new IllegalArgumentException("partitionSize must be > 0, got " + partitionSize);
+    }
+    this.field = field;
+    this.partitionSize = partitionSize;
+  }
+
+  /** Return the field that segments are partitioned on. */
+  public String getField() {
+    return field;
+  }
+
+  /** Return the range of values of a partition. */
+  public long getPartitionSize() {
+    return partitionSize;
+  }
+
+  @Override
+  public MergeSpecification findMerges(MergeTrigger mergeTrigger, SegmentInfos segmentInfos, MergeContext mergeContext)
+      throws IOException {
+    MergeSpecification spec = null;
+    for (SegmentInfos partition : partition(segmentInfos)) {
+      spec = combine(spec, in.findMerges(mergeTrigger, partition, mergeContext));
+    }
+    return spec;
+  }
+
+  @Override
+  public MergeSpecification findForcedMerges(SegmentInfos segmentInfos, int maxSegmentCount,
+                                             Map<SegmentCommitInfo,Boolean> segmentsToMerge, MergeContext mergeContext) throws IOException {
+    MergeSpecification spec = null;
+    for (SegmentInfos partition : partition(segmentInfos)) {
+      spec = combine(spec, in.findForcedMerges(partition, maxSegmentCount, segmentsToMerge, mergeContext));
+    }
+    return spec;
+  }
+
+  @Override
+  public MergeSpecification findForcedDeletesMerges(SegmentInfos segmentInfos, MergeContext mergeContext) throws IOException {
+    MergeSpecification spec = null;
+    for (SegmentInfos partition : partition(segmentInfos)) {
+      spec = combine(spec, in.findForcedDeletesMerges(partition, mergeContext));
+    }
+    return spec;
+  }
+
+  @Override
+  public MergeSpecification findFullFlushMerges(MergeTrigger mergeTrigger, SegmentInfos segmentInfos, MergeContext mergeContext) throws IOException {
+    MergeSpecification spec = null;
+    for (SegmentInfos partition : partition(segmentInfos)) {
+      spec = combine(spec, in.findFullFlushMerges(mergeTrigger, partition, mergeContext));
+    }
+    return spec;
+  }
+
+  private static MergeSpecification combine(MergeSpecification spec, MergeSpecification other) {
+    if (other == null || other.merges.isEmpty()) {
+      return spec;
+    }
+    if (spec == null) {
+      return other;
+    }
+    for (OneMerge merge : other.merges) {
+      spec.add(merge);
+    }
+    return spec;
+  }
+
+  /** Split the given segments into one {@link SegmentInfos} per partition, preserving their order. */
+  private Iterable<SegmentInfos> partition(SegmentInfos segmentInfos) throws IOException {
+    final Map<Long, SegmentInfos> partitioned = new TreeMap<>();
+    final Set<String> segmentNames = new HashSet<>();
+    for (SegmentCommitInfo info : segmentInfos) {
+      segmentNames.add(info.info.name);
+      final long partition = getPartition(info);
+      SegmentInfos infos = partitioned.get(partition);
+      if (infos == null) {
+        infos = new SegmentInfos(segmentInfos.getIndexCreatedVersionMajor());
+        partitioned.put(partition, infos);
+      }
+      infos.add(info);
+    }
+    // forget about segments that have been merged away
+    partitions.keySet().retainAll(segmentNames);
+    return partitioned.values();
+  }
+
+  private long getPartition(SegmentCommitInfo info) throws IOException {
+    Long partition = partitions.get(info.info.name);
+    if (partition == null) {
+      final long maxValue = getMaxValue(info);
+      // segments that have no values sort first
+      partition = maxValue == Long.MIN_VALUE ? Long.MIN_VALUE : Math.floorDiv(maxValue, partitionSize);
+      partitions.put(info.info.name, partition);
+    }
+    return partition;
+  }
+
+  /** Read the maximum value of the field from the points of the segment, or {@link Long#MIN_VALUE} if it has none. */
+  private long getMaxValue(SegmentCommitInfo info) throws IOException {
+    final FieldInfos fieldInfos = IndexWriter.readFieldInfos(info);
+    final FieldInfo fieldInfo = fieldInfos.fieldInfo(field);
+    if (fieldInfo == null || fieldInfo.getPointDimensionCount() == 0) {
+      return Long.MIN_VALUE;
+    }
+    if (fieldInfo.getPointDimensionCount() != 1 || fieldInfo.getPointNumBytes() != Long.BYTES) {
+      throw new IllegalArgumentException("field=\"" + field + "\" must be indexed as a 1-dimension long point, but got numDims="
+          + fieldInfo.getPointDimensionCount() + " and bytesPerDim=" + fieldInfo.getPointNumBytes());
+    }
+
+    final Codec codec = info.info.getCodec();
+    Directory cfs = null;
+    try {
+      Directory dir = info.info.dir;
+      if (info.info.getUseCompoundFile()) {
+        dir = cfs = codec.compoundFormat().getCompoundReader(info.info.dir, info.info, IOContext.DEFAULT);
+      }
+      try (PointsReader reader = codec.pointsFormat().fieldsReader(new SegmentReadState(dir, info.info, fieldInfos, IOContext.READONCE))) {
+        final PointValues values = reader.getValues(field);
+        if (values == null) {
+          return Long.MIN_VALUE;
+        }
+        return NumericUtils.sortableBytesToLong(values.getMaxPackedValue(), 0);
+      }
+    } finally {
+      IOUtils.close(cfs);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "(field=" + field + ",partitionSize=" + partitionSize + "," + in + ")";
+  }
+}
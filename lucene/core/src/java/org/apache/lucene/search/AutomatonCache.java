@@ -0,0 +1,318 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
+
+/**
+ * A cache for compiled automata, keyed by the pattern they were built from
+ * and the parameters that were used to build them.
+ * <p>
+ * {@link RegexpQuery}, {@link WildcardQuery} and {@link FuzzyQuery} need to
+ * determinize and compile an automaton every time they are created, which can
+ * take several milliseconds for complex patterns. Applications that run the
+ * same patterns over and over, eg. type-ahead or {@code *foo*} filters, can
+ * save this work by sharing compiled automata through this cache. Compiled
+ * automata are immutable and are safely shared across queries and threads.
+ * <p>
+ * The cache is bounded both by a number of entries and by a total amount of
+ * memory, and evicts least-recently used entries first. There is no default
+ * instance, so caching is disabled until an application opts in through
+ * {@link #setDefault(AutomatonCache)}:
+ * <pre class="prettyprint">
+ *   final int maxSize = 1000;
+ *   final long maxRamBytesUsed = 16 * 1024L * 1024L; // 16MB
+ *   AutomatonCache.setDefault(new AutomatonCache(maxSize, maxRamBytesUsed));
+ * </pre>
+ * <p>
+ * This cache exposes some global statistics ({@link #getHitCount() hit count},
+ * {@link #getMissCount() miss count}, {@link #getCacheSize() number of cache
+ * entries}, {@link #getCacheCount() total number of automata that have ever
+ * been cached}, {@link #getEvictionCount() number of evicted entries}).
+ *
+ * @lucene.experimental
+ */
+public final class AutomatonCache implements Accountable {
+
+  /** Suggested maximum number of entries of the default cache. */
+  public static final int DEFAULT_MAX_SIZE = 1000;
+
+  /** Suggested maximum memory usage of the default cache: min of 16MB or 2% of the heap size. */
+  public static final long DEFAULT_MAX_RAM_BYTES_USED = Math.min(1L << 24, Runtime.getRuntime().maxMemory() / 50);
+
+  private static volatile AutomatonCache DEFAULT_CACHE = null;
+
+  /**
+   * Expert: Get the default {@link AutomatonCache} or {@code null} if caching
+   * of automata is disabled, which is the default.
+   * @lucene.internal
+   */
+  public static AutomatonCache getDefault() {
+    return DEFAULT_CACHE;
+  }
+
+  /**
+   * Expert: set the default {@link AutomatonCache} instance, {@code null}
+   * disables caching of automata.
+   * @lucene.internal
+   */
+  public static void setDefault(AutomatonCache defaultCache) {
+    DEFAULT_CACHE = defaultCache;
+  }
+
+  // per-entry overhead of the LinkedHashMap, the key and the entry
+  private static final long ENTRY_BASE_RAM_BYTES = 2 * RamUsageEstimator.NUM_BYTES_OBJECT_HEADER
+      + 8 * RamUsageEstimator.NUM_BYTES_OBJECT_REF;
+
+  private final int maxSize;
+  private final long maxRamBytesUsed;
+  private final Map<Key, Entry> cache;
+  private final ReentrantLock lock;
+
+  // these variables are volatile so that we do not need to sync reads
+  // but increments need to be performed under the lock
+  private volatile long ramBytesUsed;
+  private volatile long hitCount;
+  private volatile long missCount;
+  private volatile long cacheCount;
+  private volatile long cacheSize;
+
+  /**
+   * Create a new instance that will cache at most <code>maxSize</code>
+   * automata with at most <code>maxRamBytesUsed</code> bytes of memory.
+   */
+  public AutomatonCache(int maxSize, long maxRamBytesUsed) {
+    if (maxSize < 0) {
+      throw new IllegalArgumentException("maxSize must be >= 0, got " + maxSize);
+    }
+    if (maxRamBytesUsed < 0) {
+      throw new IllegalArgumentException("maxRamBytesUsed must be >= 0, got " + maxRamBytesUsed);
+    }
+    this.maxSize = maxSize;
+    this.maxRamBytesUsed = maxRamBytesUsed;
+    this.cache = new LinkedHashMap<>(16, 0.75f, true);
+    this.lock = new ReentrantLock();
+  }
+
+  /**
+   * Return the cached value for the given key, or compute it with the given
+   * supplier and cache it. The supplier is called outside of the lock, so
+   * several threads may compute the same value concurrently on a cache miss,
+   * in which case only one of the values is kept. Exceptions thrown by the
+   * supplier are propagated and nothing gets cached.
+   */
+  public <T extends Accountable> T computeIfAbsent(Key key, Supplier<T> supplier) {
+    Objects.requireNonNull(key);
+    lock.lock();
+    try {
+      final Entry entry = cache.get(key);
+      if (entry != null) {
+        hitCount += 1;
+        @SuppressWarnings("unchecked")
+        final T value = (T) entry.value;
+        return value;
+      }
+      missCount += 1;
+    } finally {
+      lock.unlock();
+    }
+
+    final T value = Objects.requireNonNull(supplier.get());
+    final long entryRamBytesUsed = ENTRY_BASE_RAM_BYTES + key.ramBytesUsed() + value.ramBytesUsed();
+    if (entryRamBytesUsed > maxRamBytesUsed || maxSize == 0) {
+      // would evict everything else
+      return value;
+    }
+
+    lock.lock();
+    try {
+      final Entry existing = cache.get(key);
+      if (existing != null) {
+        // another thread computed the same value in the meantime
+        @SuppressWarnings("unchecked")
+        final T existingValue = (T) existing.value;
+        return existingValue;
+      }
+      cache.put(key, new Entry(value, entryRamBytesUsed));
+      ramBytesUsed += entryRamBytesUsed;
+      cacheSize += 1;
+      cacheCount += 1;
+      evictIfNecessary();
+      return value;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void evictIfNecessary() {
+    assert lock.isHeldByCurrentThread();
+    for (Iterator<Entry> iterator = cache.values().iterator();
+        iterator.hasNext() && (cacheSize > maxSize || ramBytesUsed > maxRamBytesUsed); ) {
+      final Entry eldest = iterator.next();
+      iterator.remove();
+      ramBytesUsed -= eldest.ramBytesUsed;
+      cacheSize -= 1;
+    }
+  }
+
+  /** Remove all entries from this cache. */
+  public void clear() {
+    lock.lock();
+    try {
+      cache.clear();
+      ramBytesUsed = 0;
+      cacheSize = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    return ramBytesUsed;
+  }
+
+  /**
+   * Return the total number of times that an automaton has been looked up in
+   * this cache.
+   * @see #getHitCount()
+   * @see #getMissCount()
+   */
+  public long getTotalCount() {
+    return getHitCount() + getMissCount();
+  }
+
+  /**
+   * Over the {@link #getTotalCount() total} number of times that an automaton
+   * has been looked up, return how many times it was found in the cache.
+   */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Over the {@link #getTotalCount() total} number of times that an automaton
+   * has been looked up, return how many times it had to be compiled.
+   */
+  public long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * Return the number of automata which are currently stored in the cache.
+   */
+  public long getCacheSize() {
+    return cacheSize;
+  }
+
+  /**
+   * Return the total number of automata that have ever been put in the cache.
+   */
+  public long getCacheCount() {
+    return cacheCount;
+  }
+
+  /**
+   * Return the number of cache entries that have been removed from the cache
+   * in order to stay under the maximum configured size/ram usage.
+   */
+  public long getEvictionCount() {
+    return getCacheCount() - getCacheSize();
+  }
+
+  /** Return the maximum number of entries of this cache. */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /** Return the maximum amount of memory that this cache may use. */
+  public long getMaxRamBytesUsed() {
+    return maxRamBytesUsed;
+  }
+
+  private static class Entry {
+    final Object value;
+    final long ramBytesUsed;
+
+    Entry(Object value, long ramBytesUsed) {
+      this.value = value;
+      this.ramBytesUsed = ramBytesUsed;
+    }
+  }
+
+  /**
+   * Key of an {@link AutomatonCache} entry: a type, which identifies how the
+   * automaton is built from the pattern, eg. {@code "regexp"}, the pattern
+   * itself and the integer parameters that were used to build the automaton.
+   * The field is deliberately not part of the key since compiled automata do
+   * not depend on it.
+   */
+  public static final class Key implements Accountable {
+
+    private static final long BASE_RAM_BYTES = RamUsageEstimator.shallowSizeOfInstance(Key.class);
+
+    private final String type;
+    private final String pattern;
+    private final int[] params;
+    private final int hashCode;
+
+    /** Sole constructor. */
+    public Key(String type, String pattern, int... params) {
+      this.type = Objects.requireNonNull(type);
+      this.pattern = Objects.requireNonNull(pattern);
+      this.params = params.clone();
+      this.hashCode = 31 * (31 * type.hashCode() + pattern.hashCode()) + Arrays.hashCode(params);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj == null || obj.getClass() != getClass()) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return hashCode == other.hashCode
+          && type.equals(other.type)
+          && pattern.equals(other.pattern)
+          && Arrays.equals(params, other.params);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+      // the type is generally a constant
+      return BASE_RAM_BYTES + RamUsageEstimator.sizeOf(pattern) + RamUsageEstimator.sizeOf(params);
+    }
+
+    @Override
+    public String toString() {
+      return type + ":" + pattern + Arrays.toString(params);
+    }
+  }
+}
@@ -18,6 +18,7 @@ package org.apache.lucene.search;
 
 
 import java.io.IOException;
+import java.util.function.Supplier;
 
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.Terms;
@@ -56,6 +57,8 @@ public class AutomatonQuery extends MultiTermQuery implements Accountable {
   /** term containing the field, and possibly some pattern structure */
   protected final Term term;
   protected final boolean automatonIsBinary;
+  // whether the automaton may be shared with other queries through an AutomatonCache
+  private final boolean automatonIsShared;
 
   private final long ramBytesUsed; // cache
 
@@ -102,14 +105,61 @@ public class AutomatonQuery extends MultiTermQuery implements Accountable {
    *   will not go through the UTF32ToUTF8 conversion
    */
   public AutomatonQuery(final Term term, Automaton automaton, int maxDeterminizedStates, boolean isBinary) {
+    this(term, new AutomatonAndCompiled(automaton, maxDeterminizedStates, isBinary), isBinary);
+  }
+
+  /**
+   * Create a new AutomatonQuery from an automaton that has already been
+   * compiled, typically because it was found in an {@link AutomatonCache}.
+   */
+  AutomatonQuery(final Term term, AutomatonAndCompiled automaton, boolean isBinary) {
     super(term.field());
     this.term = term;
-    this.automaton = automaton;
+    this.automaton = automaton.automaton;
+    this.automatonIsShared = automaton.shared;
     this.automatonIsBinary = isBinary;
-    // TODO: we could take isFinite too, to save a bit of CPU in CompiledAutomaton ctor?:
-    this.compiled = new CompiledAutomaton(automaton, null, true, maxDeterminizedStates, isBinary);
+    this.compiled = automaton.compiled;
+
+    this.ramBytesUsed = BASE_RAM_BYTES + term.ramBytesUsed() + automaton.ramBytesUsed();
+  }
+
+  /**
+   * Return the compiled automaton for the given key from the
+   * {@link AutomatonCache#getDefault() default cache}, or build and compile it
+   * if it is not cached yet or if caching is disabled. The key must identify the
+   * automaton as well as the maxDeterminizedStates and isBinary parameters.
+   */
+  static AutomatonAndCompiled compile(AutomatonCache.Key key, Supplier<Automaton> automaton,
+                                      int maxDeterminizedStates, boolean isBinary) {
+    final AutomatonCache cache = AutomatonCache.getDefault();
+    if (cache == null) {
+      return new AutomatonAndCompiled(automaton.get(), maxDeterminizedStates, isBinary, false);
+    }
+    return cache.computeIfAbsent(key, () -> new AutomatonAndCompiled(automaton.get(), maxDeterminizedStates, isBinary, true));
+  }
+
+  /** An automaton together with its compiled form. */
+  static final class AutomatonAndCompiled implements Accountable {
+    final Automaton automaton;
+    final CompiledAutomaton compiled;
+    // whether other queries may hold the same instance, eg. because it is cached
+    final boolean shared;
+
+    AutomatonAndCompiled(Automaton automaton, int maxDeterminizedStates, boolean isBinary) {
+      this(automaton, maxDeterminizedStates, isBinary, false);
+    }
+
+    AutomatonAndCompiled(Automaton automaton, int maxDeterminizedStates, boolean isBinary, boolean shared) {
+      this.automaton = automaton;
+      this.shared = shared;
+      // TODO: we could take isFinite too, to save a bit of CPU in CompiledAutomaton ctor?:
+      this.compiled = new CompiledAutomaton(automaton, null, true, maxDeterminizedStates, isBinary);
+    }
 
-    this.ramBytesUsed = BASE_RAM_BYTES + term.ramBytesUsed() + automaton.ramBytesUsed() + compiled.ramBytesUsed();
+    @Override
+    public long ramBytesUsed() {
+      return automaton.ramBytesUsed() + compiled.ramBytesUsed();
+    }
   }
 
   @Override
@@ -167,8 +217,17 @@ public class AutomatonQuery extends MultiTermQuery implements Accountable {
     }
   }
 
-  /** Returns the automaton used to create this query */
+  /**
+   * Returns the automaton used to create this query. If the automaton is
+   * shared with other queries through an {@link AutomatonCache}, a copy is
+   * returned so that modifications do not leak to these queries.
+   */
   public Automaton getAutomaton() {
+    if (automatonIsShared) {
+      Automaton copy = new Automaton();
+      copy.copy(automaton);
+      return copy;
+    }
     return automaton;
   }
 
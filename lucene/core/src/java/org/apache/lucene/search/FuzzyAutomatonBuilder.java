@@ -17,6 +17,8 @@
 
 package org.apache.lucene.search;
 
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
 import org.apache.lucene.util.UnicodeUtil;
 import org.apache.lucene.util.automaton.CompiledAutomaton;
 import org.apache.lucene.util.automaton.LevenshteinAutomata;
@@ -31,6 +33,8 @@ class FuzzyAutomatonBuilder {
 
   private final String term;
   private final int maxEdits;
+  private final int prefixLength;
+  private final boolean transpositions;
   private final LevenshteinAutomata levBuilder;
   private final String prefix;
   private final int termLength;
@@ -44,6 +48,8 @@ class FuzzyAutomatonBuilder {
     }
     this.term = term;
     this.maxEdits = maxEdits;
+    this.prefixLength = prefixLength;
+    this.transpositions = transpositions;
     int[] codePoints = stringToUTF32(term);
     this.termLength = codePoints.length;
     prefixLength = Math.min(prefixLength, codePoints.length);
@@ -54,6 +60,15 @@ class FuzzyAutomatonBuilder {
   }
 
   CompiledAutomaton[] buildAutomatonSet() {
+    final AutomatonCache cache = AutomatonCache.getDefault();
+    if (cache == null) {
+      return doBuildAutomatonSet().automata;
+    }
+    final AutomatonCache.Key key = new AutomatonCache.Key("fuzzy", term, maxEdits, prefixLength, transpositions ? 1 : 0);
+    return cache.computeIfAbsent(key, this::doBuildAutomatonSet).automata;
+  }
+
+  private AutomatonSet doBuildAutomatonSet() {
     CompiledAutomaton[] compiled = new CompiledAutomaton[maxEdits + 1];
     for (int i = 0; i <= maxEdits; i++) {
       try {
@@ -63,10 +78,14 @@ class FuzzyAutomatonBuilder {
         throw new FuzzyTermsEnum.FuzzyTermsException(term, e);
       }
     }
-    return compiled;
+    return new AutomatonSet(compiled);
   }
 
   CompiledAutomaton buildMaxEditAutomaton() {
+    if (AutomatonCache.getDefault() != null) {
+      // share automata with FuzzyTermsEnum, which needs all edit distances
+      return buildAutomatonSet()[maxEdits];
+    }
     try {
       return new CompiledAutomaton(levBuilder.toAutomaton(maxEdits, prefix), true, false);
     } catch (TooComplexToDeterminizeException e) {
@@ -78,6 +97,20 @@ class FuzzyAutomatonBuilder {
     return this.termLength;
   }
 
+  /** The compiled automata for all edit distances up to maxEdits, as cached in an {@link AutomatonCache}. */
+  private static class AutomatonSet implements Accountable {
+    final CompiledAutomaton[] automata;
+
+    AutomatonSet(CompiledAutomaton[] automata) {
+      this.automata = automata;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+      return RamUsageEstimator.sizeOf(automata);
+    }
+  }
+
   private static int[] stringToUTF32(String text) {
     int[] termText = new int[text.codePointCount(0, text.length())];
     for (int cp, i = 0, j = 0; i < text.length(); i += Character.charCount(cp)) {
@@ -253,6 +253,12 @@ public abstract class PointRangeQuery extends Query {
           throw new IllegalArgumentException("field=\"" + field + "\" was indexed with bytesPerDim=" + values.getBytesPerDimension() + " but this query has bytesPerDim=" + bytesPerDim);
         }
 
+        if (relate(values.getMinPackedValue(), values.getMaxPackedValue()) == Relation.CELL_OUTSIDE_QUERY) {
+          // The range doesn't intersect the bounds of the segment, eg. a time range on a
+          // segment that only has older data: rule out the segment before visiting the tree
+          return null;
+        }
+
         boolean allDocsMatch;
         if (values.getDocCount() == reader.maxDoc()) {
           final byte[] fieldPackedLower = values.getMinPackedValue();
@@ -17,6 +17,8 @@
 package org.apache.lucene.search;
 
 
+import java.util.function.Supplier;
+
 import org.apache.lucene.index.Term;
 import org.apache.lucene.util.automaton.Automaton;
 import org.apache.lucene.util.automaton.AutomatonProvider;
@@ -104,9 +106,19 @@ public class RegexpQuery extends AutomatonQuery {
    */
   public RegexpQuery(Term term, int flags, AutomatonProvider provider,
       int maxDeterminizedStates) {
-    super(term,
-          new RegExp(term.text(), flags).toAutomaton(
-                       provider, maxDeterminizedStates), maxDeterminizedStates);
+    super(term, compile(term, flags, provider, maxDeterminizedStates), false);
+  }
+
+  private static AutomatonAndCompiled compile(Term term, int flags, AutomatonProvider provider,
+                                              int maxDeterminizedStates) {
+    final Supplier<Automaton> automaton =
+        () -> new RegExp(term.text(), flags).toAutomaton(provider, maxDeterminizedStates);
+    if (provider != defaultProvider) {
+      // the automaton depends on the provider, which can't be part of the cache key
+      return new AutomatonAndCompiled(automaton.get(), maxDeterminizedStates, false);
+    }
+    final AutomatonCache.Key key = new AutomatonCache.Key("regexp", term.text(), flags, maxDeterminizedStates);
+    return AutomatonQuery.compile(key, automaton, maxDeterminizedStates, false);
   }
 
   /** Returns the regexp of this query wrapped in a Term. */
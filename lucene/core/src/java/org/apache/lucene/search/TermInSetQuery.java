@@ -74,6 +74,9 @@ public class TermInSetQuery extends Query implements Accountable {
   private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(TermInSetQuery.class);
   // Same threshold as MultiTermQueryConstantScoreWrapper
   static final int BOOLEAN_REWRITE_TERM_COUNT_THRESHOLD = 16;
+  // Number of calls to TermsEnum#next we try before falling back to a seek when
+  // looking up the next query term
+  static final int MAX_NEXT_BEFORE_SEEK = 8;
 
   private final String field;
   private final PrefixCodedTerms termData;
@@ -270,26 +273,58 @@ public class TermInSetQuery extends Query implements Accountable {
         List<TermAndState> matchingTerms = new ArrayList<>(threshold);
         DocIdSetBuilder builder = null;
 
+        // Both the query terms and the terms dictionary are sorted, so we leapfrog
+        // over them: query terms that sort before the current term of the dictionary
+        // can be skipped without seeking, and the dictionary is advanced with next()
+        // when the target is likely close, which is cheaper than a seek.
+        BytesRef indexTerm = null; // the current term of termsEnum, null if unpositioned
+        termsLoop:
         for (BytesRef term = iterator.next(); term != null; term = iterator.next()) {
           assert field.equals(iterator.field());
-          if (termsEnum.seekExact(term)) {
-            if (matchingTerms == null) {
-              docs = termsEnum.postings(docs, PostingsEnum.NONE);
-              builder.add(docs);
-            } else if (matchingTerms.size() < threshold) {
-              matchingTerms.add(new TermAndState(field, termsEnum));
-            } else {
-              assert matchingTerms.size() == threshold;
-              builder = new DocIdSetBuilder(reader.maxDoc(), terms);
-              docs = termsEnum.postings(docs, PostingsEnum.NONE);
+          int cmp = indexTerm == null ? -1 : indexTerm.compareTo(term);
+          if (cmp > 0) {
+            // the query term falls in a gap of the terms dictionary
+            continue;
+          }
+          for (int i = 0; cmp < 0 && indexTerm != null && i < MAX_NEXT_BEFORE_SEEK; ++i) {
+            indexTerm = termsEnum.next();
+            if (indexTerm == null) {
+              // exhausted the terms dictionary, no more query terms may match
+              break termsLoop;
+            }
+            cmp = indexTerm.compareTo(term);
+          }
+          if (cmp < 0) {
+            if (termsEnum.seekCeil(term) == TermsEnum.SeekStatus.END) {
+              break;
+            }
+            indexTerm = termsEnum.term();
+            cmp = indexTerm.compareTo(term);
+          }
+          if (cmp > 0) {
+            continue;
+          }
+
+          if (matchingTerms == null) {
+            docs = termsEnum.postings(docs, PostingsEnum.NONE);
+            builder.add(docs);
+          } else if (matchingTerms.size() < threshold) {
+            matchingTerms.add(new TermAndState(field, termsEnum));
+          } else {
+            assert matchingTerms.size() == threshold;
+            builder = new DocIdSetBuilder(reader.maxDoc(), terms);
+            docs = termsEnum.postings(docs, PostingsEnum.NONE);
+            builder.add(docs);
+            final TermAndState current = new TermAndState(field, termsEnum);
+            for (TermAndState t : matchingTerms) {
+              t.termsEnum.seekExact(t.term, t.state);
+              docs = t.termsEnum.postings(docs, PostingsEnum.NONE);
               builder.add(docs);
-              for (TermAndState t : matchingTerms) {
-                t.termsEnum.seekExact(t.term, t.state);
-                docs = t.termsEnum.postings(docs, PostingsEnum.NONE);
-                builder.add(docs);
-              }
-              matchingTerms = null;
             }
+            // restore the position of the terms enum, this doesn't need any I/O
+            termsEnum.seekExact(current.term, current.state);
+            indexTerm = termsEnum.term();
+            matchingTerms = null;
           }
         }
         if (matchingTerms != null) {
@@ -336,6 +371,45 @@ public class TermInSetQuery extends Query implements Accountable {
         }
       }
 
+      @Override
+      public ScorerSupplier scorerSupplier(LeafReaderContext context) throws IOException {
+        final Terms indexTerms = context.reader().terms(field);
+        if (indexTerms == null) {
+          return null;
+        }
+
+        // Estimate the cost without looking up any term: every query term is assumed
+        // to match at least one document, and the number of documents beyond the first
+        // one of each term of the dictionary bounds the number of extra matches. This
+        // is still a worst-case cost, but much tighter than the sum of doc freqs on
+        // primary-key-like fields, which allows IndexOrDocValuesQuery to make a
+        // sensible decision before doing the actual work.
+        final long queryTermsCount = termData.size();
+        long potentialExtraCost = indexTerms.getSumDocFreq();
+        final long indexedTermCount = indexTerms.size();
+        if (indexedTermCount != -1) {
+          potentialExtraCost -= indexedTermCount;
+        }
+        final long cost = Math.min(context.reader().maxDoc(), queryTermsCount + potentialExtraCost);
+
+        final Weight weight = this;
+        return new ScorerSupplier() {
+          @Override
+          public Scorer get(long leadCost) throws IOException {
+            final Scorer scorer = weight.scorer(context);
+            if (scorer == null) {
+              return new ConstantScoreScorer(weight, score(), scoreMode, DocIdSetIterator.empty());
+            }
+            return scorer;
+          }
+
+          @Override
+          public long cost() {
+            return cost;
+          }
+        };
+      }
+
       @Override
       public Scorer scorer(LeafReaderContext context) throws IOException {
         final WeightOrDocIdSet weightOrBitSet = rewrite(context);
@@ -53,7 +53,7 @@ public class WildcardQuery extends AutomatonQuery {
    * Constructs a query for terms matching <code>term</code>. 
    */
   public WildcardQuery(Term term) {
-    super(term, toAutomaton(term));
+    this(term, Operations.DEFAULT_MAX_DETERMINIZED_STATES);
   }
   
   /**
@@ -64,7 +64,8 @@ public class WildcardQuery extends AutomatonQuery {
    *   space but can process more complex automata.
    */
   public WildcardQuery(Term term, int maxDeterminizedStates) {
-    super(term, toAutomaton(term), maxDeterminizedStates);
+    super(term, compile(new AutomatonCache.Key("wildcard", term.text(), maxDeterminizedStates),
+        () -> toAutomaton(term), maxDeterminizedStates, false), false);
   }
 
   /**
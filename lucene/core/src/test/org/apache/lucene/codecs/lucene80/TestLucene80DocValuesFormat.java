@@ -45,6 +45,7 @@ import org.apache.lucene.index.BaseCompressingDocValuesFormatTestCase;
 import org.apache.lucene.index.BinaryDocValues;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.DocValuesSkipper;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
@@ -61,6 +62,7 @@ import org.apache.lucene.index.Term;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.index.TermsEnum.SeekStatus;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.store.ByteBuffersDataInput;
 import org.apache.lucene.store.ByteBuffersDataOutput;
 import org.apache.lucene.store.Directory;
@@ -744,4 +746,100 @@ public class TestLucene80DocValuesFormat extends BaseCompressingDocValuesFormatT
     ir.close();
   }
 
+
+  public void testNumericSkipper() throws IOException {
+    doTestSkipper(false);
+  }
+
+  public void testSortedNumericSkipper() throws IOException {
+    doTestSkipper(true);
+  }
+
+  private void doTestSkipper(boolean multiValued) throws IOException {
+    Directory dir = newDirectory();
+    IndexWriterConfig conf = newIndexWriterConfig(new MockAnalyzer(random()));
+    conf.setCodec(TestUtil.alwaysDocValuesFormat(new Lucene80DocValuesFormat(true)));
+    IndexWriter writer = new IndexWriter(dir, conf);
+    final int numDocs = atLeast(Lucene80DocValuesFormat.SKIP_INDEX_BLOCK_SIZE * 3);
+    final double density = random().nextDouble();
+    final long[][] values = new long[numDocs][];
+    // some blocks have no values at all
+    final boolean[] emptyBlocks = new boolean[(numDocs >>> Lucene80DocValuesFormat.SKIP_INDEX_BLOCK_SHIFT) + 1];
+    for (int i = 0; i < emptyBlocks.length; ++i) {
+      emptyBlocks[i] = random().nextInt(4) == 0;
+    }
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      if (emptyBlocks[i >>> Lucene80DocValuesFormat.SKIP_INDEX_BLOCK_SHIFT] == false && random().nextDouble() < density) {
+        final int numValues = multiValued ? TestUtil.nextInt(random(), 1, 3) : 1;
+        values[i] = new long[numValues];
+        for (int j = 0; j < numValues; ++j) {
+          values[i][j] = TestUtil.nextLong(random(), -1000, 1000);
+          if (multiValued) {
+            doc.add(new SortedNumericDocValuesField("dv", values[i][j]));
+          } else {
+            doc.add(new NumericDocValuesField("dv", values[i][j]));
+          }
+        }
+      }
+      writer.addDocument(doc);
+    }
+    writer.forceMerge(1);
+    writer.close();
+
+    DirectoryReader reader = DirectoryReader.open(dir);
+    LeafReader leaf = getOnlyLeafReader(reader);
+    DocValuesSkipper skipper = DocValues.getSkipper(leaf, "dv");
+    assertNotNull(skipper);
+    assertEquals(-1, skipper.minDocID());
+    for (int target = 0; target < numDocs; target = skipper.maxDocID() + 1) {
+      skipper.advance(target);
+      assertTrue(skipper.minDocID() <= target);
+      assertTrue(skipper.maxDocID() >= target);
+      long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+      int docCount = 0;
+      for (int doc = skipper.minDocID(); doc <= skipper.maxDocID(); ++doc) {
+        if (values[doc] != null) {
+          docCount++;
+          for (long v : values[doc]) {
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+          }
+        }
+      }
+      assertEquals(docCount, skipper.docCount());
+      assertEquals(min, skipper.minValue());
+      assertEquals(max, skipper.maxValue());
+    }
+    skipper.advance(numDocs);
+    assertEquals(DocIdSetIterator.NO_MORE_DOCS, skipper.minDocID());
+    assertEquals(DocIdSetIterator.NO_MORE_DOCS, skipper.maxDocID());
+
+    // no skip index on other doc values types
+    assertNull(DocValues.getSkipper(leaf, "missing"));
+    reader.close();
+    dir.close();
+  }
+
+  public void testNoSkipperByDefault() throws IOException {
+    Directory dir = newDirectory();
+    IndexWriterConfig conf = newIndexWriterConfig(new MockAnalyzer(random()));
+    conf.setCodec(getCodec());
+    IndexWriter writer = new IndexWriter(dir, conf);
+    Document doc = new Document();
+    doc.add(new NumericDocValuesField("dv", 42L));
+    doc.add(new SortedNumericDocValuesField("sdv", 42L));
+    writer.addDocument(doc);
+    writer.close();
+
+    DirectoryReader reader = DirectoryReader.open(dir);
+    LeafReader leaf = getOnlyLeafReader(reader);
+    assertNull(DocValues.getSkipper(leaf, "dv"));
+    assertNull(DocValues.getSkipper(leaf, "sdv"));
+    NumericDocValues values = DocValues.getNumeric(leaf, "dv");
+    assertEquals(0, values.nextDoc());
+    assertEquals(42L, values.longValue());
+    reader.close();
+    dir.close();
+  }
 }
@@ -20,17 +20,20 @@ package org.apache.lucene.index;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.lucene.analysis.MockAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.SortedDocValuesField;
 import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StringField;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.LongValues;
 import org.apache.lucene.util.LuceneTestCase;
 import org.apache.lucene.util.RamUsageTester;
 import org.apache.lucene.util.TestUtil;
+import org.apache.lucene.util.packed.PackedInts;
 
 public class TestOrdinalMap extends LuceneTestCase {
 
@@ -95,4 +98,96 @@ public class TestOrdinalMap extends LuceneTestCase {
     dir.close();
   }
 
+  public void testIncrementalBuild() throws IOException {
+    Directory dir = newDirectory();
+    IndexWriter w = new IndexWriter(dir, newIndexWriterConfig(new MockAnalyzer(random())).setMergePolicy(NoMergePolicy.INSTANCE));
+    final int numTerms = TestUtil.nextInt(random(), 1, 1000);
+    final int numSegments = TestUtil.nextInt(random(), 1, 5);
+    for (int i = 0; i < numSegments; ++i) {
+      addSegment(w, numTerms);
+    }
+    DirectoryReader reader = DirectoryReader.open(w);
+    final OrdinalMap previous = OrdinalMap.build(null, sortedSetValues(reader), PackedInts.DEFAULT);
+
+    final int numNewSegments = random().nextInt(4);
+    for (int i = 0; i < numNewSegments; ++i) {
+      // new segments may have new terms
+      addSegment(w, numTerms * TestUtil.nextInt(random(), 1, 2));
+    }
+    if (random().nextBoolean()) {
+      w.deleteDocuments(new Term("id", "0"));
+    }
+    DirectoryReader newReader = DirectoryReader.openIfChanged(reader, w);
+    if (newReader == null) {
+      newReader = reader;
+    }
+
+    final Map<IndexReader.CacheKey,Integer> previousSegmentsByKey = new HashMap<>();
+    for (LeafReaderContext context : reader.leaves()) {
+      previousSegmentsByKey.put(context.reader().getCoreCacheHelper().getKey(), context.ord);
+    }
+    final int[] previousSegments = new int[newReader.leaves().size()];
+    for (LeafReaderContext context : newReader.leaves()) {
+      previousSegments[context.ord] = previousSegmentsByKey.getOrDefault(context.reader().getCoreCacheHelper().getKey(), -1);
+    }
+
+    final OrdinalMap incremental = OrdinalMap.build(null, previous, previousSegments, sortedSetValues(newReader), PackedInts.DEFAULT);
+    final OrdinalMap expected = OrdinalMap.build(null, sortedSetValues(newReader), PackedInts.DEFAULT);
+    assertEquals(expected.getValueCount(), incremental.getValueCount());
+    assertEquals(RamUsageTester.sizeOf(incremental, ORDINAL_MAP_ACCUMULATOR), incremental.ramBytesUsed());
+
+    final SortedSetDocValues[] values = sortedSetValues(newReader);
+    for (int i = 0; i < values.length; ++i) {
+      for (long ord = 0; ord < values[i].getValueCount(); ++ord) {
+        assertEquals(expected.getGlobalOrds(i).get(ord), incremental.getGlobalOrds(i).get(ord));
+      }
+    }
+    for (long globalOrd = 0; globalOrd < incremental.getValueCount(); ++globalOrd) {
+      final int segment = incremental.getFirstSegmentNumber(globalOrd);
+      final long segmentOrd = incremental.getFirstSegmentOrd(globalOrd);
+      assertEquals(globalOrd, incremental.getGlobalOrds(segment).get(segmentOrd));
+      assertEquals(BytesRef.deepCopyOf(values[expected.getFirstSegmentNumber(globalOrd)].lookupOrd(expected.getFirstSegmentOrd(globalOrd))),
+          values[segment].lookupOrd(segmentOrd));
+    }
+
+    // previous segments must all be there
+    if (numSegments > 1) {
+      final int[] missingSegment = previousSegments.clone();
+      missingSegment[random().nextInt(numSegments)] = -1;
+      expectThrows(IllegalArgumentException.class,
+          () -> OrdinalMap.build(null, previous, missingSegment, sortedSetValues(newReader), PackedInts.DEFAULT));
+    }
+
+    if (newReader != reader) {
+      newReader.close();
+    }
+    reader.close();
+    w.close();
+    dir.close();
+  }
+
+  private static void addSegment(IndexWriter w, int numTerms) throws IOException {
+    final int numDocs = TestUtil.nextInt(random(), 1, 50);
+    for (int i = 0; i < numDocs; ++i) {
+      Document d = new Document();
+      // the first document is never deleted so that deletes can't drop the segment
+      final String id = i == 0 ? "keep" : Integer.toString(random().nextInt(5));
+      d.add(new StringField("id", id, org.apache.lucene.document.Field.Store.NO));
+      final int numValues = random().nextInt(3);
+      for (int j = 0; j < numValues; ++j) {
+        d.add(new SortedSetDocValuesField("ssdv", new BytesRef(Integer.toString(random().nextInt(numTerms)))));
+      }
+      w.addDocument(d);
+    }
+    w.flush();
+  }
+
+  private static SortedSetDocValues[] sortedSetValues(IndexReader reader) throws IOException {
+    final SortedSetDocValues[] values = new SortedSetDocValues[reader.leaves().size()];
+    for (LeafReaderContext context : reader.leaves()) {
+      values[context.ord] = DocValues.getSortedSet(context.reader(), "ssdv");
+    }
+    return values;
+  }
+
 }
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.index;
+
+import java.io.IOException;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
+
+public class TestTimePartitionedMergePolicy extends LuceneTestCase {
+
+  public void testSegmentsStayPartitioned() throws IOException {
+    final long partitionSize = 100;
+    Directory dir = newDirectory();
+    TieredMergePolicy tmp = new TieredMergePolicy();
+    tmp.setSegmentsPerTier(2);
+    tmp.setMaxMergeAtOnce(2);
+    TimePartitionedMergePolicy mp = new TimePartitionedMergePolicy(tmp, "timestamp", partitionSize);
+    IndexWriterConfig iwc = newIndexWriterConfig()
+        .setMergePolicy(mp)
+        .setMaxBufferedDocs(IndexWriterConfig.DISABLE_AUTO_FLUSH)
+        .setRAMBufferSizeMB(IndexWriterConfig.DEFAULT_RAM_BUFFER_SIZE_MB);
+    IndexWriter w = new IndexWriter(dir, iwc);
+
+    // flush every 10 units of time, so that flushed segments never span partitions
+    final int numFlushes = atLeast(50);
+    int numDocs = 0;
+    for (int i = 0; i < numFlushes; ++i) {
+      final int docsPerFlush = TestUtil.nextInt(random(), 1, 20);
+      for (int j = 0; j < docsPerFlush; ++j) {
+        Document doc = new Document();
+        doc.add(new LongPoint("timestamp", i * 10 + random().nextInt(10)));
+        w.addDocument(doc);
+        numDocs++;
+      }
+      if (random().nextInt(10) == 0) {
+        // documents that have no timestamp
+        Document doc = new Document();
+        doc.add(new StringField("id", Integer.toString(i), Store.NO));
+        w.addDocument(doc);
+        w.flush();
+      }
+      w.flush();
+    }
+    if (random().nextBoolean()) {
+      w.forceMerge(1);
+    }
+
+    DirectoryReader reader = DirectoryReader.open(w);
+    for (LeafReaderContext ctx : reader.leaves()) {
+      PointValues values = ctx.reader().getPointValues("timestamp");
+      if (values == null) {
+        continue;
+      }
+      final long min = LongPoint.decodeDimension(values.getMinPackedValue(), 0);
+      final long max = LongPoint.decodeDimension(values.getMaxPackedValue(), 0);
+      assertEquals(ctx.reader() + " spans several partitions", min / partitionSize, max / partitionSize);
+    }
+    IndexSearcher searcher = newSearcher(reader);
+    assertEquals(numDocs, searcher.count(LongPoint.newRangeQuery("timestamp", Long.MIN_VALUE, Long.MAX_VALUE)));
+
+    reader.close();
+    w.close();
+    dir.close();
+  }
+
+  public void testForceMergeMergesPartitions() throws IOException {
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = newIndexWriterConfig()
+        .setMergePolicy(new TimePartitionedMergePolicy(new LogDocMergePolicy(), "timestamp", 1000));
+    IndexWriter w = new IndexWriter(dir, iwc);
+    for (int i = 0; i < 10; ++i) {
+      Document doc = new Document();
+      doc.add(new LongPoint("timestamp", i < 5 ? i : 1000 + i));
+      w.addDocument(doc);
+      w.flush();
+    }
+    w.forceMerge(1);
+    DirectoryReader reader = DirectoryReader.open(w);
+    // one segment per partition
+    assertEquals(2, reader.leaves().size());
+    reader.close();
+    w.close();
+    dir.close();
+  }
+
+  public void testIllegalPartitionSize() {
+    expectThrows(IllegalArgumentException.class, () -> new TimePartitionedMergePolicy(newMergePolicy(), "timestamp", 0));
+  }
+}
@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
@@ -33,6 +34,8 @@ import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.FilterDirectoryReader;
 import org.apache.lucene.index.FilterLeafReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.index.Term;
@@ -103,6 +106,81 @@ public class TermInSetQueryTest extends LuceneTestCase {
     }
   }
 
+  public void testDuelPrimaryKeys() throws IOException {
+    // dense sorted ids, so that the leapfrog over the terms dictionary alternates
+    // between next() calls, seeks and skipped query terms
+    final String field = "id";
+    Directory dir = newDirectory();
+    RandomIndexWriter iw = new RandomIndexWriter(random(), dir);
+    final int numDocs = atLeast(1000);
+    for (int i = 0; i < numDocs; ++i) {
+      if (random().nextInt(5) == 0) {
+        continue; // leave gaps in the terms dictionary
+      }
+      Document doc = new Document();
+      doc.add(new StringField(field, String.format(Locale.ROOT, "%06d", i), Store.NO));
+      iw.addDocument(doc);
+    }
+    final IndexReader reader = iw.getReader();
+    final IndexSearcher searcher = newSearcher(reader);
+    iw.close();
+
+    for (int i = 0; i < 20; ++i) {
+      final int numQueryTerms = TestUtil.nextInt(random(), TermInSetQuery.BOOLEAN_REWRITE_TERM_COUNT_THRESHOLD + 1, 500);
+      final int maxGap = TestUtil.nextInt(random(), 1, 2 * TermInSetQuery.MAX_NEXT_BEFORE_SEEK + 1);
+      List<BytesRef> queryTerms = new ArrayList<>();
+      final BooleanQuery.Builder bq = new BooleanQuery.Builder();
+      for (int j = 0, id = random().nextInt(numDocs); j < numQueryTerms && id < numDocs + 10; ++j, id += TestUtil.nextInt(random(), 1, maxGap)) {
+        final BytesRef term = new BytesRef(String.format(Locale.ROOT, "%06d", id));
+        queryTerms.add(term);
+        bq.add(new TermQuery(new Term(field, term)), Occur.SHOULD);
+      }
+      final Query q1 = new ConstantScoreQuery(bq.build());
+      final Query q2 = new TermInSetQuery(field, queryTerms);
+      assertSameMatches(searcher, q1, q2, false);
+    }
+
+    reader.close();
+    dir.close();
+  }
+
+  public void testCostEstimate() throws IOException {
+    Directory dir = newDirectory();
+    IndexWriter iw = new IndexWriter(dir, newIndexWriterConfig());
+    final int numDocs = atLeast(100);
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      doc.add(new StringField("id", Integer.toString(i), Store.NO));
+      doc.add(new StringField("color", i % 2 == 0 ? "red" : "blue", Store.NO));
+      iw.addDocument(doc);
+    }
+    iw.forceMerge(1);
+    final IndexReader reader = DirectoryReader.open(iw);
+    iw.close();
+    final IndexSearcher searcher = new IndexSearcher(reader);
+    searcher.setQueryCache(null);
+    final LeafReaderContext context = reader.leaves().get(0);
+
+    List<BytesRef> terms = new ArrayList<>();
+    for (int i = 0; i < 50; ++i) {
+      terms.add(new BytesRef(Integer.toString(i)));
+    }
+    // primary key: the estimate is the number of query terms
+    Weight weight = searcher.createWeight(new TermInSetQuery("id", terms), ScoreMode.COMPLETE_NO_SCORES, 1f);
+    assertEquals(50, weight.scorerSupplier(context).cost());
+
+    // the estimate never exceeds maxDoc
+    weight = searcher.createWeight(new TermInSetQuery("color", terms), ScoreMode.COMPLETE_NO_SCORES, 1f);
+    assertEquals(numDocs, weight.scorerSupplier(context).cost());
+
+    // missing field
+    weight = searcher.createWeight(new TermInSetQuery("missing", terms), ScoreMode.COMPLETE_NO_SCORES, 1f);
+    assertNull(weight.scorerSupplier(context));
+
+    reader.close();
+    dir.close();
+  }
+
   private void assertSameMatches(IndexSearcher searcher, Query q1, Query q2, boolean scores) throws IOException {
     final int maxDoc = searcher.getIndexReader().maxDoc();
     final TopDocs td1 = searcher.search(q1, maxDoc, scores ? Sort.RELEVANCE : Sort.INDEXORDER);
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.automaton.Automaton;
+import org.apache.lucene.util.automaton.CompiledAutomaton;
+import org.apache.lucene.util.automaton.Operations;
+import org.apache.lucene.util.automaton.RegExp;
+import org.apache.lucene.util.automaton.TooComplexToDeterminizeException;
+
+public class TestAutomatonCache extends LuceneTestCase {
+
+  private static class DummyValue implements Accountable {
+    private final long ramBytesUsed;
+
+    DummyValue(long ramBytesUsed) {
+      this.ramBytesUsed = ramBytesUsed;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+      return ramBytesUsed;
+    }
+  }
+
+  public void testHitAndMissCounts() {
+    AutomatonCache cache = new AutomatonCache(10, Long.MAX_VALUE);
+    AtomicInteger computations = new AtomicInteger();
+    DummyValue v1 = cache.computeIfAbsent(new AutomatonCache.Key("test", "foo", 1), () -> {
+      computations.incrementAndGet();
+      return new DummyValue(10);
+    });
+    DummyValue v2 = cache.computeIfAbsent(new AutomatonCache.Key("test", "foo", 1), () -> {
+      computations.incrementAndGet();
+      return new DummyValue(10);
+    });
+    assertSame(v1, v2);
+    assertEquals(1, computations.get());
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(2, cache.getTotalCount());
+    assertEquals(1, cache.getCacheSize());
+    assertEquals(1, cache.getCacheCount());
+    assertTrue(cache.ramBytesUsed() > 10);
+
+    // different parameters
+    DummyValue v3 = cache.computeIfAbsent(new AutomatonCache.Key("test", "foo", 2), () -> new DummyValue(10));
+    assertNotSame(v1, v3);
+    // different type
+    DummyValue v4 = cache.computeIfAbsent(new AutomatonCache.Key("other", "foo", 1), () -> new DummyValue(10));
+    assertNotSame(v1, v4);
+    assertEquals(3, cache.getMissCount());
+    assertEquals(3, cache.getCacheSize());
+
+    cache.clear();
+    assertEquals(0, cache.getCacheSize());
+    assertEquals(0, cache.ramBytesUsed());
+  }
+
+  public void testEvictionBySize() {
+    AutomatonCache cache = new AutomatonCache(2, Long.MAX_VALUE);
+    DummyValue a = cache.computeIfAbsent(new AutomatonCache.Key("test", "a"), () -> new DummyValue(1));
+    cache.computeIfAbsent(new AutomatonCache.Key("test", "b"), () -> new DummyValue(1));
+    // makes "b" the least recently used entry
+    assertSame(a, cache.computeIfAbsent(new AutomatonCache.Key("test", "a"), () -> new DummyValue(1)));
+    cache.computeIfAbsent(new AutomatonCache.Key("test", "c"), () -> new DummyValue(1));
+    assertEquals(2, cache.getCacheSize());
+    assertEquals(3, cache.getCacheCount());
+    assertEquals(1, cache.getEvictionCount());
+    assertSame(a, cache.computeIfAbsent(new AutomatonCache.Key("test", "a"), () -> new DummyValue(1)));
+    final long misses = cache.getMissCount();
+    cache.computeIfAbsent(new AutomatonCache.Key("test", "b"), () -> new DummyValue(1));
+    assertEquals(misses + 1, cache.getMissCount());
+  }
+
+  public void testEvictionByRamBytesUsed() {
+    AutomatonCache cache = new AutomatonCache(100, 1000);
+    for (int i = 0; i < 10; ++i) {
+      final String pattern = Integer.toString(i);
+      cache.computeIfAbsent(new AutomatonCache.Key("test", pattern), () -> new DummyValue(300));
+      assertTrue(cache.ramBytesUsed() <= 1000);
+    }
+    assertTrue(cache.getCacheSize() < 10);
+    assertTrue(cache.getEvictionCount() > 0);
+
+    // values that are larger than the cache are returned but not cached
+    final long count = cache.getCacheCount();
+    DummyValue large = cache.computeIfAbsent(new AutomatonCache.Key("test", "large"), () -> new DummyValue(2000));
+    assertNotNull(large);
+    assertEquals(count, cache.getCacheCount());
+  }
+
+  public void testExceptionsAreNotCached() {
+    AutomatonCache cache = new AutomatonCache(10, Long.MAX_VALUE);
+    expectThrows(IllegalStateException.class, () ->
+        cache.computeIfAbsent(new AutomatonCache.Key("test", "foo"), () -> { throw new IllegalStateException(); }));
+    assertEquals(0, cache.getCacheSize());
+    DummyValue value = new DummyValue(1);
+    assertSame(value, cache.computeIfAbsent(new AutomatonCache.Key("test", "foo"), () -> value));
+  }
+
+  public void testQueriesShareCompiledAutomata() {
+    final AutomatonCache defaultCache = AutomatonCache.getDefault();
+    try {
+      final AutomatonCache cache = new AutomatonCache(100, Long.MAX_VALUE);
+      AutomatonCache.setDefault(cache);
+
+      RegexpQuery r1 = new RegexpQuery(new Term("f1", "[a-c]+.*foo"));
+      RegexpQuery r2 = new RegexpQuery(new Term("f2", "[a-c]+.*foo"));
+      assertSame(r1.compiled, r2.compiled);
+      assertNotEquals(r1, r2); // different fields
+      RegexpQuery r3 = new RegexpQuery(new Term("f1", "[a-c]+.*foo"), RegExp.NONE);
+      assertNotSame(r1.compiled, r3.compiled);
+
+      WildcardQuery w1 = new WildcardQuery(new Term("f", "*foo*"));
+      WildcardQuery w2 = new WildcardQuery(new Term("f", "*foo*"));
+      assertSame(w1.compiled, w2.compiled);
+      assertEquals(w1, w2);
+      // same text, but not the same syntax
+      RegexpQuery r4 = new RegexpQuery(new Term("f", "*foo*"), RegExp.NONE);
+      assertNotSame(w1.compiled, r4.compiled);
+
+      FuzzyQuery f1 = new FuzzyQuery(new Term("f", "lucene"), 2);
+      FuzzyQuery f2 = new FuzzyQuery(new Term("f", "lucene"), 2);
+      assertSame(f1.getAutomata(), f2.getAutomata());
+      FuzzyQuery f3 = new FuzzyQuery(new Term("f", "lucene"), 1);
+      assertNotSame(f1.getAutomata(), f3.getAutomata());
+
+      assertTrue(cache.getHitCount() > 0);
+
+      // the shared automaton is never handed out, so callers cannot corrupt other queries
+      Automaton a1 = r1.getAutomaton();
+      assertNotSame(a1, r2.getAutomaton());
+      assertNotSame(a1, r1.getAutomaton());
+      assertEquals(r1.automaton.getNumStates(), a1.getNumStates());
+      assertEquals(r1.automaton.getNumTransitions(), a1.getNumTransitions());
+      a1.createState();
+      assertEquals(r1.automaton.getNumStates() + 1, a1.getNumStates());
+
+      // compiling automata that are too complex still fails
+      expectThrows(TooComplexToDeterminizeException.class, () ->
+          new RegexpQuery(new Term("f", "[ac]*a[ac]{50,200}")));
+    } finally {
+      AutomatonCache.setDefault(defaultCache);
+    }
+  }
+
+  public void testDisabledByDefault() {
+    assertNull(AutomatonCache.getDefault());
+  }
+
+  public void testDisabled() {
+    final AutomatonCache defaultCache = AutomatonCache.getDefault();
+    try {
+      AutomatonCache.setDefault(null);
+      RegexpQuery r1 = new RegexpQuery(new Term("f", "[a-c]+.*foo"));
+      RegexpQuery r2 = new RegexpQuery(new Term("f", "[a-c]+.*foo"));
+      assertNotSame(r1.compiled, r2.compiled);
+      assertEquals(r1, r2);
+
+      CompiledAutomaton c1 = new FuzzyQuery(new Term("f", "lucene"), 2).getAutomata();
+      CompiledAutomaton c2 = new FuzzyQuery(new Term("f", "lucene"), 2).getAutomata();
+      assertNotSame(c1, c2);
+      assertEquals(c1, c2);
+    } finally {
+      AutomatonCache.setDefault(defaultCache);
+    }
+  }
+
+  public void testKeyEquality() {
+    assertEquals(new AutomatonCache.Key("regexp", "foo", 1, Operations.DEFAULT_MAX_DETERMINIZED_STATES),
+        new AutomatonCache.Key("regexp", "foo", 1, Operations.DEFAULT_MAX_DETERMINIZED_STATES));
+    assertEquals(new AutomatonCache.Key("regexp", "foo", 1).hashCode(),
+        new AutomatonCache.Key("regexp", "foo", 1).hashCode());
+    assertNotEquals(new AutomatonCache.Key("regexp", "foo", 1), new AutomatonCache.Key("regexp", "foo", 2));
+    assertNotEquals(new AutomatonCache.Key("regexp", "foo", 1), new AutomatonCache.Key("regexp", "bar", 1));
+    assertNotEquals(new AutomatonCache.Key("regexp", "foo", 1), new AutomatonCache.Key("wildcard", "foo", 1));
+  }
+}
@@ -19,6 +19,7 @@ package org.apache.lucene.search;
 import java.io.IOException;
 import java.util.Arrays;
 
+import org.apache.lucene.codecs.lucene80.Lucene80DocValuesFormat;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.document.NumericDocValuesField;
@@ -26,6 +27,7 @@ import org.apache.lucene.document.SortedDocValuesField;
 import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.BytesRef;
@@ -92,6 +94,65 @@ public class TestDocValuesQueries extends LuceneTestCase {
     }
   }
 
+  public void testDuelPointRangeNumericRangeQueryOnSortedIndex() throws IOException {
+    doTestDuelPointRangeNumericRangeQueryOnSortedIndex(false);
+  }
+
+  public void testDuelPointRangeSortedNumericRangeQueryOnSortedIndex() throws IOException {
+    doTestDuelPointRangeNumericRangeQueryOnSortedIndex(true);
+  }
+
+  // large enough to have several blocks of the doc values skip index, which is
+  // enabled on the format, so that slow range queries skip over blocks and match entire blocks
+  private void doTestDuelPointRangeNumericRangeQueryOnSortedIndex(boolean sortedNumeric) throws IOException {
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = newIndexWriterConfig();
+    iwc.setCodec(TestUtil.alwaysDocValuesFormat(new Lucene80DocValuesFormat(true)));
+    if (sortedNumeric) {
+      iwc.setIndexSort(new Sort(new SortedNumericSortField("dv", SortField.Type.LONG)));
+    } else {
+      iwc.setIndexSort(new Sort(new SortField("dv", SortField.Type.LONG)));
+    }
+    RandomIndexWriter iw = new RandomIndexWriter(random(), dir, iwc);
+    final int numDocs = atLeast(10000);
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      if (random().nextInt(10) != 0) {
+        final long value = TestUtil.nextLong(random(), -100, 10000);
+        if (sortedNumeric) {
+          doc.add(new SortedNumericDocValuesField("dv", value));
+        } else {
+          doc.add(new NumericDocValuesField("dv", value));
+        }
+        doc.add(new LongPoint("idx", value));
+      }
+      iw.addDocument(doc);
+    }
+    if (random().nextBoolean()) {
+      iw.deleteDocuments(LongPoint.newRangeQuery("idx", 0L, 10L));
+    }
+    iw.forceMerge(1);
+    final IndexReader reader = iw.getReader();
+    final IndexSearcher searcher = newSearcher(reader, false);
+    iw.close();
+
+    for (int i = 0; i < 20; ++i) {
+      final long min = random().nextBoolean() ? Long.MIN_VALUE : TestUtil.nextLong(random(), -100, 10000);
+      final long max = random().nextBoolean() ? Long.MAX_VALUE : TestUtil.nextLong(random(), -100, 10000);
+      final Query q1 = LongPoint.newRangeQuery("idx", min, max);
+      final Query q2;
+      if (sortedNumeric) {
+        q2 = SortedNumericDocValuesField.newSlowRangeQuery("dv", min, max);
+      } else {
+        q2 = NumericDocValuesField.newSlowRangeQuery("dv", min, max);
+      }
+      assertSameMatches(searcher, q1, q2, false);
+    }
+
+    reader.close();
+    dir.close();
+  }
+
   private void doTestDuelPointRangeSortedRangeQuery(boolean sortedSet, int maxValuesPerDoc) throws IOException {
     final int iters = atLeast(10);
     for (int iter = 0; iter < iters; ++iter) {
@@ -56,6 +56,7 @@ import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.MultiDocValues;
+import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.index.PointValues;
 import org.apache.lucene.index.RandomIndexWriter;
@@ -1981,6 +1982,40 @@ public class TestPointQueries extends LuceneTestCase {
     dir.close();
   }
 
+  public void testRangeSkipsSegmentsOutsideOfBounds() throws IOException {
+    Directory dir = newDirectory();
+    IndexWriter w = new IndexWriter(dir, newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE));
+    // two segments with disjoint ranges of values, like time-based data
+    for (int segment = 0; segment < 2; ++segment) {
+      for (int i = 0; i < 100; ++i) {
+        Document doc = new Document();
+        doc.add(new LongPoint("timestamp", segment * 1000 + i));
+        w.addDocument(doc);
+      }
+      w.commit();
+    }
+    IndexReader reader = DirectoryReader.open(w);
+    IndexSearcher searcher = new IndexSearcher(reader);
+    searcher.setQueryCache(null);
+    assertEquals(2, reader.leaves().size());
+
+    Query query = LongPoint.newRangeQuery("timestamp", 1050, 2000);
+    Weight weight = searcher.createWeight(searcher.rewrite(query), ScoreMode.COMPLETE_NO_SCORES, 1);
+    assertNull(weight.scorerSupplier(reader.leaves().get(0)));
+    assertNotNull(weight.scorerSupplier(reader.leaves().get(1)));
+    assertEquals(50, searcher.count(query));
+
+    query = LongPoint.newRangeQuery("timestamp", -10, -1);
+    weight = searcher.createWeight(searcher.rewrite(query), ScoreMode.COMPLETE_NO_SCORES, 1);
+    assertNull(weight.scorerSupplier(reader.leaves().get(0)));
+    assertNull(weight.scorerSupplier(reader.leaves().get(1)));
+    assertEquals(0, searcher.count(query));
+
+    reader.close();
+    w.close();
+    dir.close();
+  }
+
   public void testPointRangeEquals() {
     Query q1, q2;
 
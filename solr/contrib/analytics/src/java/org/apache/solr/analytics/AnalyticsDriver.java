@@ -32,6 +32,11 @@ import org.apache.solr.search.SolrIndexSearcher;
 
 public class AnalyticsDriver {
 
+  /**
+   * The number of documents that are collected at once when there are no streaming facets.
+   */
+  static final int BLOCK_SIZE = 1024;
+
   /**
    * Drive the collection of reduction data. This includes overall data as well as faceted data.
    *
@@ -51,6 +56,9 @@ public class AnalyticsDriver {
     // Streaming phase (Overall results & Value/Pivot Facets)
     // Loop through all documents and collect reduction data for streaming facets and overall results
     if (collectionManager.needsCollection()) {
+      // Without streaming facets, all documents are collected into the same overall results,
+      // so they can be collected in blocks
+      final int[] docBlock = streamingInfo.streamingFacets.isEmpty() ? new int[BLOCK_SIZE] : null;
       List<LeafReaderContext> contexts = searcher.getTopReaderContext().leaves();
       for (int leafNum = 0; leafNum < contexts.size(); leafNum++) {
         LeafReaderContext context = contexts.get(leafNum);
@@ -61,13 +69,17 @@ public class AnalyticsDriver {
         DocIdSetIterator disi = dis.iterator();
         if (disi != null) {
           collectionManager.doSetNextReader(context);
-          int doc = disi.nextDoc();
-          while( doc != DocIdSetIterator.NO_MORE_DOCS){
-            // Add a document to the statistics being generated
-            collectionManager.collect(doc);
-            streamingFacets.forEach( facet -> facet.addFacetValueCollectionTargets() );
-            collectionManager.apply();
-            doc = disi.nextDoc();
+          if (docBlock != null) {
+            collectBlocks(collectionManager, disi, docBlock);
+          } else {
+            int doc = disi.nextDoc();
+            while( doc != DocIdSetIterator.NO_MORE_DOCS){
+              // Add a document to the statistics being generated
+              collectionManager.collect(doc);
+              streamingFacets.forEach( facet -> facet.addFacetValueCollectionTargets() );
+              collectionManager.apply();
+              doc = disi.nextDoc();
+            }
           }
         }
       }
@@ -79,4 +91,18 @@ public class AnalyticsDriver {
       executer.execute(searcher);
     }
   }
+
+  private static void collectBlocks(ReductionCollectionManager collectionManager, DocIdSetIterator disi, int[] docBlock) throws IOException {
+    int numDocs = 0;
+    for (int doc = disi.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = disi.nextDoc()) {
+      docBlock[numDocs++] = doc;
+      if (numDocs == docBlock.length) {
+        collectionManager.collectBlock(docBlock, numDocs);
+        numDocs = 0;
+      }
+    }
+    if (numDocs > 0) {
+      collectionManager.collectBlock(docBlock, numDocs);
+    }
+  }
 }
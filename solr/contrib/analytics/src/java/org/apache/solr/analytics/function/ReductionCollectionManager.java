@@ -27,12 +27,15 @@ import java.util.List;
 
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.solr.analytics.function.field.AnalyticsField;
+import org.apache.solr.analytics.function.field.NumericBlockField;
 import org.apache.solr.analytics.function.reduction.data.ReductionData;
 import org.apache.solr.analytics.function.reduction.data.ReductionDataCollector;
 import org.apache.solr.analytics.stream.reservation.ReductionDataReservation;
 import org.apache.solr.analytics.stream.reservation.read.ReductionDataReader;
 import org.apache.solr.analytics.stream.reservation.write.ReductionDataWriter;
 import org.apache.solr.analytics.value.AnalyticsValue;
+import org.apache.solr.analytics.value.BlockValue;
+import org.apache.solr.analytics.value.DoubleBlockValue;
 
 /**
  * The manager of reduction collection.
@@ -49,6 +52,12 @@ public class ReductionCollectionManager {
 
   private final Iterable<AnalyticsField> fields;
 
+  // for the collection of blocks of documents
+  private final NumericBlockField[] blockFields;
+  private final AnalyticsField[] otherFields;
+  private final ReductionDataCollector<?>[] blockCollectors;
+  private final ReductionDataCollector<?>[] otherCollectors;
+
   public ReductionCollectionManager() {
     this(new ReductionDataCollector<?>[0], new ArrayList<>(0));
   }
@@ -70,6 +79,29 @@ public class ReductionCollectionManager {
 
     this.fields = fields;
 
+    List<NumericBlockField> blockFields = new ArrayList<>();
+    List<AnalyticsField> otherFields = new ArrayList<>();
+    for (AnalyticsField field : fields) {
+      if (field instanceof NumericBlockField) {
+        blockFields.add((NumericBlockField)field);
+      } else {
+        otherFields.add(field);
+      }
+    }
+    this.blockFields = blockFields.toArray(new NumericBlockField[0]);
+    this.otherFields = otherFields.toArray(new AnalyticsField[0]);
+    List<ReductionDataCollector<?>> blockCollectors = new ArrayList<>();
+    List<ReductionDataCollector<?>> otherCollectors = new ArrayList<>();
+    for (ReductionDataCollector<?> collector : reductionDataCollectors) {
+      if (collector.supportsBlocks()) {
+        blockCollectors.add(collector);
+      } else {
+        otherCollectors.add(collector);
+      }
+    }
+    this.blockCollectors = blockCollectors.toArray(new ReductionDataCollector<?>[0]);
+    this.otherCollectors = otherCollectors.toArray(new ReductionDataCollector<?>[0]);
+
     this.readers = new ArrayList<>();
     this.writers = new ArrayList<>();
   }
@@ -154,6 +186,57 @@ public class ReductionCollectionManager {
     }
   }
 
+  /**
+   * Collect a block of documents and apply their values to the lasting collection targets.
+   * This gives the same results as calling {@link #collect(int)} and {@link #apply()} for each document,
+   * but {@link NumericBlockField}s read the values of the whole block at once, and the collectors that
+   * {@link ReductionDataCollector#supportsBlocks() support it} reduce them without going through
+   * the per-document value streams.
+   * <p>
+   * The reductions that are computed over the whole block are:
+   * <ul>
+   * <li>{@code count}, {@code doc_count} and {@code missing}, with no parameter or of a {@link BlockValue},
+   * <li>{@code sum} and {@code mean} of a {@link DoubleBlockValue},
+   * <li>{@code min} and {@code max} of a single-valued int, long, float or date field, or of a {@link DoubleBlockValue}.
+   * </ul>
+   * The {@link DoubleBlockValue}s are single-valued int, long, float and double fields, numeric constants,
+   * and the single-valued mapping functions on doubles whose parameters are all {@link DoubleBlockValue}s:
+   * {@code add}, {@code sub}, {@code mult}, {@code div}, {@code pow} and {@code log}, as well as {@code neg}
+   * and {@code abs} of a double, eg. {@code sum(mult(a,b))} or {@code max(div(add(a,b,c),3))}.
+   * The only other {@link BlockValue}s are single-valued date fields.
+   * <p>
+   * Any other reduction, or reduction of any other expression, is computed one document of the block
+   * at a time.
+   * <p>
+   * Since every document of the block is applied to the same targets, this must not be used along
+   * with non-lasting collection targets, such as the ones of streaming facets.
+   *
+   * @param docs IDs of the documents to collect, in increasing order
+   * @param numDocs the number of documents in the block
+   * @throws IOException if an error occurs during field collection
+   */
+  public void collectBlock(int[] docs, int numDocs) throws IOException {
+    for (NumericBlockField field : blockFields) {
+      field.collectBlock(docs, numDocs);
+    }
+    for (ReductionDataCollector<?> collector : blockCollectors) {
+      collector.collectAndApplyBlock(numDocs);
+    }
+    if (otherCollectors.length > 0) {
+      for (int i = 0; i < numDocs; i++) {
+        for (NumericBlockField field : blockFields) {
+          field.setBlockDoc(i);
+        }
+        for (AnalyticsField field : otherFields) {
+          field.collect(docs[i]);
+        }
+        for (ReductionDataCollector<?> collector : otherCollectors) {
+          collector.collectAndApply();
+        }
+      }
+    }
+  }
+
   /**
    * Add a {@link ReductionDataCollection} to target while collecting documents.
    * This target is valid until the lasting targets are cleared.
@@ -16,15 +16,11 @@
  */
 package org.apache.solr.analytics.function.field;
 
-import java.io.IOException;
 import java.time.Instant;
 import java.util.Date;
 import java.util.function.Consumer;
 import java.util.function.LongConsumer;
 
-import org.apache.lucene.index.DocValues;
-import org.apache.lucene.index.LeafReaderContext;
-import org.apache.lucene.index.NumericDocValues;
 import org.apache.solr.analytics.facet.compare.ExpressionComparator;
 import org.apache.solr.analytics.value.DateValue.CastingDateValue;
 import org.apache.solr.schema.DatePointField;
@@ -33,26 +29,16 @@ import org.apache.solr.schema.TrieDateField;
 /**
  * An analytics wrapper for a single-valued {@link TrieDateField} or {@link DatePointField} with DocValues enabled.
  */
-public class DateField extends AnalyticsField implements CastingDateValue {
-  private NumericDocValues docValues;
+public class DateField extends NumericBlockField implements CastingDateValue {
   private long value;
-  private boolean exists;
 
   public DateField(String fieldName) {
     super(fieldName);
   }
 
   @Override
-  public void doSetNextReader(LeafReaderContext context) throws IOException {
-    docValues = DocValues.getNumeric(context.reader(), fieldName);
-  }
-
-  @Override
-  public void collect(int doc) throws IOException {
-    exists = docValues.advanceExact(doc);
-    if (exists) {
-      value = docValues.longValue();
-    }
+  protected void setValue(long docValue) {
+    value = docValue;
   }
 
   @Override
@@ -101,6 +87,11 @@ public class DateField extends AnalyticsField implements CastingDateValue {
     }
   }
 
+  @Override
+  public long blockLong(int index) {
+    return blockDocValue(index);
+  }
+
   @Override
   public ExpressionComparator<Date> getObjectComparator(String expression) {
     return new ExpressionComparator<>(expression);
@@ -16,14 +16,11 @@
  */
 package org.apache.solr.analytics.function.field;
 
-import java.io.IOException;
 import java.util.function.Consumer;
 import java.util.function.DoubleConsumer;
 
-import org.apache.lucene.index.DocValues;
-import org.apache.lucene.index.LeafReaderContext;
-import org.apache.lucene.index.NumericDocValues;
 import org.apache.solr.analytics.facet.compare.ExpressionComparator;
+import org.apache.solr.analytics.value.DoubleBlockValue;
 import org.apache.solr.analytics.value.DoubleValue.CastingDoubleValue;
 import org.apache.solr.schema.DoublePointField;
 import org.apache.solr.schema.TrieDoubleField;
@@ -31,26 +28,16 @@ import org.apache.solr.schema.TrieDoubleField;
 /**
  * An analytics wrapper for a single-valued {@link TrieDoubleField} or {@link DoublePointField} with DocValues enabled.
  */
-public class DoubleField extends AnalyticsField implements CastingDoubleValue {
-  private NumericDocValues docValues;
+public class DoubleField extends NumericBlockField implements CastingDoubleValue, DoubleBlockValue {
   private double value;
-  private boolean exists;
 
   public DoubleField(String fieldName) {
     super(fieldName);
   }
 
   @Override
-  public void doSetNextReader(LeafReaderContext context) throws IOException {
-    docValues = DocValues.getNumeric(context.reader(), fieldName);
-  }
-
-  @Override
-  public void collect(int doc) throws IOException {
-    exists = docValues.advanceExact(doc);
-    if (exists) {
-      value = Double.longBitsToDouble(docValues.longValue());
-    }
+  protected void setValue(long docValue) {
+    value = Double.longBitsToDouble(docValue);
   }
 
   @Override
@@ -89,6 +76,11 @@ public class DoubleField extends AnalyticsField implements CastingDoubleValue {
     }
   }
 
+  @Override
+  public double blockDouble(int index) {
+    return Double.longBitsToDouble(blockDocValue(index));
+  }
+
   @Override
   public ExpressionComparator<Double> getObjectComparator(String expression) {
     return new ExpressionComparator<>(expression);
@@ -16,15 +16,12 @@
  */
 package org.apache.solr.analytics.function.field;
 
-import java.io.IOException;
 import java.util.function.Consumer;
 import java.util.function.DoubleConsumer;
 
-import org.apache.lucene.index.DocValues;
-import org.apache.lucene.index.LeafReaderContext;
-import org.apache.lucene.index.NumericDocValues;
 import org.apache.solr.analytics.facet.compare.ExpressionComparator;
 import org.apache.solr.analytics.util.function.FloatConsumer;
+import org.apache.solr.analytics.value.DoubleBlockValue;
 import org.apache.solr.analytics.value.FloatValue.CastingFloatValue;
 import org.apache.solr.schema.FloatPointField;
 import org.apache.solr.schema.TrieFloatField;
@@ -32,26 +29,16 @@ import org.apache.solr.schema.TrieFloatField;
 /**
  * An analytics wrapper for a single-valued {@link TrieFloatField} or {@link FloatPointField} with DocValues enabled.
  */
-public class FloatField extends AnalyticsField implements CastingFloatValue {
-  private NumericDocValues docValues;
+public class FloatField extends NumericBlockField implements CastingFloatValue, DoubleBlockValue {
   private float value;
-  private boolean exists;
 
   public FloatField(String fieldName) {
     super(fieldName);
   }
 
   @Override
-  public void doSetNextReader(LeafReaderContext context) throws IOException {
-    docValues = DocValues.getNumeric(context.reader(), fieldName);
-  }
-
-  @Override
-  public void collect(int doc) throws IOException {
-    exists = docValues.advanceExact(doc);
-    if (exists) {
-      value = Float.intBitsToFloat((int)docValues.longValue());
-    }
+  protected void setValue(long docValue) {
+    value = Float.intBitsToFloat((int)docValue);
   }
 
   @Override
@@ -100,6 +87,15 @@ public class FloatField extends AnalyticsField implements CastingFloatValue {
     }
   }
 
+  @Override
+  public float blockFloat(int index) {
+    return Float.intBitsToFloat((int)blockDocValue(index));
+  }
+  @Override
+  public double blockDouble(int index) {
+    return (double)Float.intBitsToFloat((int)blockDocValue(index));
+  }
+
   @Override
   public ExpressionComparator<Float> getObjectComparator(String expression) {
     return new ExpressionComparator<>(expression);
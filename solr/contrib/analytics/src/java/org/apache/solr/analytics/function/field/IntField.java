@@ -16,17 +16,14 @@
  */
 package org.apache.solr.analytics.function.field;
 
-import java.io.IOException;
 import java.util.function.Consumer;
 import java.util.function.DoubleConsumer;
 import java.util.function.IntConsumer;
 import java.util.function.LongConsumer;
 
-import org.apache.lucene.index.DocValues;
-import org.apache.lucene.index.LeafReaderContext;
-import org.apache.lucene.index.NumericDocValues;
 import org.apache.solr.analytics.facet.compare.ExpressionComparator;
 import org.apache.solr.analytics.util.function.FloatConsumer;
+import org.apache.solr.analytics.value.DoubleBlockValue;
 import org.apache.solr.analytics.value.IntValue.CastingIntValue;
 import org.apache.solr.schema.IntPointField;
 import org.apache.solr.schema.TrieIntField;
@@ -34,26 +31,16 @@ import org.apache.solr.schema.TrieIntField;
 /**
  * An analytics wrapper for a single-valued {@link TrieIntField} or {@link IntPointField} with DocValues enabled.
  */
-public class IntField extends AnalyticsField implements CastingIntValue {
-  private NumericDocValues docValues;
+public class IntField extends NumericBlockField implements CastingIntValue, DoubleBlockValue {
   private int value;
-  private boolean exists;
 
   public IntField(String fieldName) {
     super(fieldName);
   }
 
   @Override
-  public void doSetNextReader(LeafReaderContext context) throws IOException {
-    docValues = DocValues.getNumeric(context.reader(), fieldName);
-  }
-
-  @Override
-  public void collect(int doc) throws IOException {
-    exists = docValues.advanceExact(doc);
-    if (exists) {
-      value = (int)docValues.longValue();
-    }
+  protected void setValue(long docValue) {
+    value = (int)docValue;
   }
 
   @Override
@@ -122,6 +109,23 @@ public class IntField extends AnalyticsField implements CastingIntValue {
     }
   }
 
+  @Override
+  public int blockInt(int index) {
+    return (int)blockDocValue(index);
+  }
+  @Override
+  public long blockLong(int index) {
+    return (long)(int)blockDocValue(index);
+  }
+  @Override
+  public float blockFloat(int index) {
+    return (float)(int)blockDocValue(index);
+  }
+  @Override
+  public double blockDouble(int index) {
+    return (double)(int)blockDocValue(index);
+  }
+
   @Override
   public ExpressionComparator<Integer> getObjectComparator(String expression) {
     return new ExpressionComparator<>(expression);
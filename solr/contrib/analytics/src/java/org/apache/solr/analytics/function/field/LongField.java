@@ -16,15 +16,12 @@
  */
 package org.apache.solr.analytics.function.field;
 
-import java.io.IOException;
 import java.util.function.Consumer;
 import java.util.function.DoubleConsumer;
 import java.util.function.LongConsumer;
 
-import org.apache.lucene.index.DocValues;
-import org.apache.lucene.index.LeafReaderContext;
-import org.apache.lucene.index.NumericDocValues;
 import org.apache.solr.analytics.facet.compare.ExpressionComparator;
+import org.apache.solr.analytics.value.DoubleBlockValue;
 import org.apache.solr.analytics.value.LongValue.CastingLongValue;
 import org.apache.solr.schema.LongPointField;
 import org.apache.solr.schema.TrieLongField;
@@ -32,26 +29,16 @@ import org.apache.solr.schema.TrieLongField;
 /**
  * An analytics wrapper for a single-valued {@link TrieLongField} or {@link LongPointField} with DocValues enabled.
  */
-public class LongField extends AnalyticsField implements CastingLongValue {
-  private NumericDocValues docValues;
+public class LongField extends NumericBlockField implements CastingLongValue, DoubleBlockValue {
   private long value;
-  private boolean exists;
 
   public LongField(String fieldName) {
     super(fieldName);
   }
 
   @Override
-  public void doSetNextReader(LeafReaderContext context) throws IOException {
-    docValues = DocValues.getNumeric(context.reader(), fieldName);
-  }
-
-  @Override
-  public void collect(int doc) throws IOException {
-    exists = docValues.advanceExact(doc);
-    if (exists) {
-      value = docValues.longValue();
-    }
+  protected void setValue(long docValue) {
+    value = docValue;
   }
 
   @Override
@@ -100,6 +87,15 @@ public class LongField extends AnalyticsField implements CastingLongValue {
     }
   }
 
+  @Override
+  public long blockLong(int index) {
+    return blockDocValue(index);
+  }
+  @Override
+  public double blockDouble(int index) {
+    return (double)blockDocValue(index);
+  }
+
   @Override
   public ExpressionComparator<Long> getObjectComparator(String expression) {
     return new ExpressionComparator<>(expression);
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.analytics.function.field;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.solr.analytics.function.reduction.data.ReductionDataCollector;
+import org.apache.solr.analytics.value.BlockValue;
+
+/**
+ * An analytics wrapper for a single-valued numeric field, which can also read the values of a whole block of documents
+ * into primitive arrays.
+ * <p>
+ * {@link ReductionDataCollector}s that reduce such a field directly can process a block with a loop over
+ * these arrays, see {@link ReductionDataCollector#collectAndApplyBlock(int)}. Other expressions
+ * using the field read its values one document of the block at a time, after {@link #setBlockDoc(int)}.
+ */
+public abstract class NumericBlockField extends AnalyticsField implements BlockValue {
+  private NumericDocValues docValues;
+  protected boolean exists;
+
+  private boolean[] blockExists = new boolean[0];
+  private long[] blockValues = new long[0];
+
+  protected NumericBlockField(String fieldName) {
+    super(fieldName);
+  }
+
+  @Override
+  public void doSetNextReader(LeafReaderContext context) throws IOException {
+    docValues = DocValues.getNumeric(context.reader(), fieldName);
+  }
+
+  @Override
+  public void collect(int doc) throws IOException {
+    exists = docValues.advanceExact(doc);
+    if (exists) {
+      setValue(docValues.longValue());
+    }
+  }
+
+  /**
+   * Set the current value of the field from the value of the doc values.
+   *
+   * @param docValue the doc value of the current document
+   */
+  protected abstract void setValue(long docValue);
+
+  /**
+   * Collect the values of the wrapped field for a block of documents.
+   *
+   * @param docs IDs of the documents to collect, in increasing order
+   * @param numDocs the number of documents in the block
+   * @throws IOException if an error occurs while reading the documents.
+   */
+  public void collectBlock(int[] docs, int numDocs) throws IOException {
+    if (blockExists.length < numDocs) {
+      blockExists = new boolean[ArrayUtil.oversize(numDocs, 1)];
+      blockValues = new long[blockExists.length];
+    }
+    final NumericDocValues docValues = this.docValues;
+    final boolean[] blockExists = this.blockExists;
+    final long[] blockValues = this.blockValues;
+    for (int i = 0; i < numDocs; i++) {
+      blockExists[i] = docValues.advanceExact(docs[i]);
+      if (blockExists[i]) {
+        blockValues[i] = docValues.longValue();
+      }
+    }
+  }
+
+  /**
+   * Make a document of the last collected block the current document, as if it had been collected with {@link #collect(int)}.
+   *
+   * @param index the index of the document in the block
+   */
+  public void setBlockDoc(int index) {
+    exists = blockExists[index];
+    if (exists) {
+      setValue(blockValues[index]);
+    }
+  }
+
+  @Override
+  public boolean blockExists(int index) {
+    return blockExists[index];
+  }
+
+  /**
+   * The doc value of a document of the last collected block, only valid if {@link #blockExists(int)}.
+   *
+   * @param index the index of the document in the block
+   * @return the doc value
+   */
+  protected long blockDocValue(int index) {
+    return blockValues[index];
+  }
+
+  /**
+   * The value of a document of the last collected block as an int. Only supported if the field is an {@code IntValueStream}.
+   *
+   * @param index the index of the document in the block
+   * @return the value
+   */
+  public int blockInt(int index) {
+    throw new UnsupportedOperationException(getClass().getSimpleName() + " has no int values");
+  }
+
+  /**
+   * The value of a document of the last collected block as a long. Only supported if the field is a {@code LongValueStream}.
+   *
+   * @param index the index of the document in the block
+   * @return the value
+   */
+  public long blockLong(int index) {
+    throw new UnsupportedOperationException(getClass().getSimpleName() + " has no long values");
+  }
+
+  /**
+   * The value of a document of the last collected block as a float. Only supported if the field is a {@code FloatValueStream}.
+   *
+   * @param index the index of the document in the block
+   * @return the value
+   */
+  public float blockFloat(int index) {
+    throw new UnsupportedOperationException(getClass().getSimpleName() + " has no float values");
+  }
+
+  /**
+   * The value of a document of the last collected block as a double. Only supported if the field is a {@code DoubleValueStream}.
+   *
+   * @param index the index of the document in the block
+   * @return the value
+   */
+  public double blockDouble(int index) {
+    throw new UnsupportedOperationException(getClass().getSimpleName() + " has no double values");
+  }
+}
@@ -28,6 +28,7 @@ import org.apache.solr.analytics.value.BooleanValue;
 import org.apache.solr.analytics.value.BooleanValueStream;
 import org.apache.solr.analytics.value.DateValue;
 import org.apache.solr.analytics.value.DateValueStream;
+import org.apache.solr.analytics.value.DoubleBlockValue;
 import org.apache.solr.analytics.value.DoubleValue;
 import org.apache.solr.analytics.value.DoubleValueStream;
 import org.apache.solr.analytics.value.FloatValue;
@@ -496,7 +497,9 @@ public class LambdaFunction {
    * @return an expression the same type as was given with the lambda applied
    */
   public static DoubleValueStream createDoubleLambdaFunction(String name, DoubleInDoubleOutLambda lambda, DoubleValueStream param) {
-    if (param instanceof DoubleValue) {
+    if (param instanceof DoubleBlockValue) {
+      return new DoubleBlockValueInDoubleBlockValueOutFunction(name,lambda,(DoubleBlockValue)param);
+    } else if (param instanceof DoubleValue) {
       return new DoubleValueInDoubleValueOutFunction(name,lambda,(DoubleValue)param);
     } else {
       return new DoubleStreamInDoubleStreamOutFunction(name,lambda,param);
@@ -534,7 +537,9 @@ public class LambdaFunction {
    * @throws SolrException if neither parameter is single-valued
    */
   public static DoubleValueStream createDoubleLambdaFunction(String name, TwoDoubleInDoubleOutLambda lambda, DoubleValueStream param1, DoubleValueStream param2) throws SolrException {
-    if (param1 instanceof DoubleValue && param2 instanceof DoubleValue) {
+    if (param1 instanceof DoubleBlockValue && param2 instanceof DoubleBlockValue) {
+      return new TwoDoubleBlockValueInDoubleBlockValueOutFunction(name,lambda,(DoubleBlockValue)param1,(DoubleBlockValue)param2);
+    } else if (param1 instanceof DoubleValue && param2 instanceof DoubleValue) {
       return new TwoDoubleValueInDoubleValueOutFunction(name,lambda,(DoubleValue)param1,(DoubleValue)param2);
     } else if (param1 instanceof DoubleValue) {
       return new DoubleValueDoubleStreamInDoubleStreamOutFunction(name,lambda,(DoubleValue)param1,param2);
@@ -570,10 +575,16 @@ public class LambdaFunction {
    * @return a single-value expression that reduces the parameters with the given lambda
    */
   public static DoubleValue createDoubleLambdaFunction(String name, TwoDoubleInDoubleOutLambda lambda, DoubleValue[] params, boolean allMustExist) {
+    boolean blockParams = true;
+    for (DoubleValue param : params) {
+      blockParams &= param instanceof DoubleBlockValue;
+    }
     if (allMustExist) {
-      return new MultiDoubleValueInDoubleValueOutRequireAllFunction(name,lambda,params);
+      return blockParams ? new MultiDoubleBlockValueInDoubleBlockValueOutRequireAllFunction(name,lambda,params)
+          : new MultiDoubleValueInDoubleValueOutRequireAllFunction(name,lambda,params);
     } else {
-      return new MultiDoubleValueInDoubleValueOutRequireOneFunction(name,lambda,params);
+      return blockParams ? new MultiDoubleBlockValueInDoubleBlockValueOutRequireOneFunction(name,lambda,params)
+          : new MultiDoubleValueInDoubleValueOutRequireOneFunction(name,lambda,params);
     }
   }
 
@@ -2272,8 +2283,8 @@ public class LambdaFunction {
   }
 
   static class DoubleValueInDoubleValueOutFunction extends AbstractDoubleValue {
-    private final DoubleValue param;
-    private final DoubleInDoubleOutLambda lambda;
+    protected final DoubleValue param;
+    protected final DoubleInDoubleOutLambda lambda;
     private final String name;
     private final String exprStr;
     private final ExpressionType funcType;
@@ -2313,6 +2324,24 @@ public class LambdaFunction {
     }
   }
 
+  static class DoubleBlockValueInDoubleBlockValueOutFunction extends DoubleValueInDoubleValueOutFunction implements DoubleBlockValue {
+    private final DoubleBlockValue blockParam;
+
+    public DoubleBlockValueInDoubleBlockValueOutFunction(String name, DoubleInDoubleOutLambda lambda, DoubleBlockValue param) {
+      super(name, lambda, param);
+      this.blockParam = param;
+    }
+
+    @Override
+    public boolean blockExists(int index) {
+      return blockParam.blockExists(index);
+    }
+    @Override
+    public double blockDouble(int index) {
+      return lambda.apply(blockParam.blockDouble(index));
+    }
+  }
+
   static class DoubleStreamInDoubleStreamOutFunction extends AbstractDoubleValueStream {
     private final DoubleValueStream param;
     private final DoubleInDoubleOutLambda lambda;
@@ -2399,9 +2428,9 @@ public class LambdaFunction {
   }
 
   static class TwoDoubleValueInDoubleValueOutFunction extends AbstractDoubleValue {
-    private final DoubleValue param1;
-    private final DoubleValue param2;
-    private final TwoDoubleInDoubleOutLambda lambda;
+    protected final DoubleValue param1;
+    protected final DoubleValue param2;
+    protected final TwoDoubleInDoubleOutLambda lambda;
     private final String name;
     private final String exprStr;
     private final ExpressionType funcType;
@@ -2442,6 +2471,26 @@ public class LambdaFunction {
     }
   }
 
+  static class TwoDoubleBlockValueInDoubleBlockValueOutFunction extends TwoDoubleValueInDoubleValueOutFunction implements DoubleBlockValue {
+    private final DoubleBlockValue blockParam1;
+    private final DoubleBlockValue blockParam2;
+
+    public TwoDoubleBlockValueInDoubleBlockValueOutFunction(String name, TwoDoubleInDoubleOutLambda lambda, DoubleBlockValue param1, DoubleBlockValue param2) {
+      super(name, lambda, param1, param2);
+      this.blockParam1 = param1;
+      this.blockParam2 = param2;
+    }
+
+    @Override
+    public boolean blockExists(int index) {
+      return blockParam1.blockExists(index) && blockParam2.blockExists(index);
+    }
+    @Override
+    public double blockDouble(int index) {
+      return lambda.apply(blockParam1.blockDouble(index), blockParam2.blockDouble(index));
+    }
+  }
+
   static class DoubleValueDoubleStreamInDoubleStreamOutFunction extends AbstractDoubleValueStream {
     private final DoubleValue param1;
     private final DoubleValueStream param2;
@@ -2601,6 +2650,77 @@ public class LambdaFunction {
       return value;
     }
   }
+
+  static class MultiDoubleBlockValueInDoubleBlockValueOutRequireAllFunction extends MultiDoubleValueInDoubleValueOutRequireAllFunction implements DoubleBlockValue {
+    private final DoubleBlockValue[] blockParams;
+
+    public MultiDoubleBlockValueInDoubleBlockValueOutRequireAllFunction(String name, TwoDoubleInDoubleOutLambda lambda, DoubleValue[] params) {
+      super(name, lambda, params);
+      this.blockParams = toBlockValues(params);
+    }
+
+    @Override
+    public boolean blockExists(int index) {
+      for (DoubleBlockValue param : blockParams) {
+        if (!param.blockExists(index)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    @Override
+    public double blockDouble(int index) {
+      double value = blockParams[0].blockDouble(index);
+      for (int i = 1; i < blockParams.length; ++i) {
+        value = lambda.apply(value, blockParams[i].blockDouble(index));
+      }
+      return value;
+    }
+  }
+
+  static class MultiDoubleBlockValueInDoubleBlockValueOutRequireOneFunction extends MultiDoubleValueInDoubleValueOutRequireOneFunction implements DoubleBlockValue {
+    private final DoubleBlockValue[] blockParams;
+
+    public MultiDoubleBlockValueInDoubleBlockValueOutRequireOneFunction(String name, TwoDoubleInDoubleOutLambda lambda, DoubleValue[] params) {
+      super(name, lambda, params);
+      this.blockParams = toBlockValues(params);
+    }
+
+    @Override
+    public boolean blockExists(int index) {
+      for (DoubleBlockValue param : blockParams) {
+        if (param.blockExists(index)) {
+          return true;
+        }
+      }
+      return false;
+    }
+    @Override
+    public double blockDouble(int index) {
+      int i = -1;
+      double value = 0;
+      while (++i < blockParams.length) {
+        if (blockParams[i].blockExists(index)) {
+          value = blockParams[i].blockDouble(index);
+          break;
+        }
+      }
+      while (++i < blockParams.length) {
+        if (blockParams[i].blockExists(index)) {
+          value = lambda.apply(value, blockParams[i].blockDouble(index));
+        }
+      }
+      return value;
+    }
+  }
+
+  private static DoubleBlockValue[] toBlockValues(DoubleValue[] params) {
+    DoubleBlockValue[] blockParams = new DoubleBlockValue[params.length];
+    for (int i = 0; i < params.length; i++) {
+      blockParams[i] = (DoubleBlockValue)params[i];
+    }
+    return blockParams;
+  }
   static class DateValueInDateValueOutFunction extends AbstractDateValue {
     private final DateValue param;
     private final LongInLongOutLambda lambda;
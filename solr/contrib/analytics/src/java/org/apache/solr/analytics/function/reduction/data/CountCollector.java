@@ -21,6 +21,7 @@ import java.util.function.Consumer;
 import org.apache.solr.analytics.stream.reservation.LongReservation;
 import org.apache.solr.analytics.stream.reservation.ReductionDataReservation;
 import org.apache.solr.analytics.value.AnalyticsValueStream;
+import org.apache.solr.analytics.value.BlockValue;
 
 public abstract class CountCollector extends ReductionDataCollector<CountCollector.CountData> {
   public static final String name = "count";
@@ -158,6 +159,26 @@ public abstract class CountCollector extends ReductionDataCollector<CountCollect
       data.docCount += tempDocCount;
     }
 
+    @Override
+    public boolean supportsBlocks() {
+      return param instanceof BlockValue;
+    }
+    @Override
+    public void collectAndApplyBlock(int numDocs) {
+      final BlockValue value = (BlockValue)param;
+      int blockCount = 0;
+      for (int i = 0; i < numDocs; i++) {
+        if (value.blockExists(i)) {
+          ++blockCount;
+        }
+      }
+      for (CountData data : lastingTargets) {
+        data.count += blockCount;
+        data.missing += numDocs - blockCount;
+        data.docCount += blockCount;
+      }
+    }
+
     @Override
     public void submitReservations(Consumer<ReductionDataReservation<?,?>> consumer) {
       super.submitReservations(consumer);
@@ -183,5 +204,17 @@ public abstract class CountCollector extends ReductionDataCollector<CountCollect
       data.count += 1;
       data.docCount += 1;
     }
+
+    @Override
+    public boolean supportsBlocks() {
+      return true;
+    }
+    @Override
+    public void collectAndApplyBlock(int numDocs) {
+      for (CountData data : lastingTargets) {
+        data.count += numDocs;
+        data.docCount += numDocs;
+      }
+    }
   }
 }
\ No newline at end of file
@@ -18,6 +18,7 @@ package org.apache.solr.analytics.function.reduction.data;
 
 import java.util.function.Consumer;
 
+import org.apache.solr.analytics.function.field.NumericBlockField;
 import org.apache.solr.analytics.stream.reservation.DoubleCheckedReservation;
 import org.apache.solr.analytics.stream.reservation.FloatCheckedReservation;
 import org.apache.solr.analytics.stream.reservation.IntCheckedReservation;
@@ -25,6 +26,7 @@ import org.apache.solr.analytics.stream.reservation.LongCheckedReservation;
 import org.apache.solr.analytics.stream.reservation.ReductionDataReservation;
 import org.apache.solr.analytics.stream.reservation.StringCheckedReservation;
 import org.apache.solr.analytics.value.AnalyticsValueStream;
+import org.apache.solr.analytics.value.DoubleBlockValue;
 import org.apache.solr.analytics.value.DoubleValueStream;
 import org.apache.solr.analytics.value.FloatValueStream;
 import org.apache.solr.analytics.value.IntValueStream;
@@ -130,6 +132,26 @@ public abstract class MinCollector<T extends ReductionData> extends ReductionDat
       }
     }
 
+    @Override
+    public boolean supportsBlocks() {
+      return param instanceof NumericBlockField;
+    }
+    @Override
+    public void collectAndApplyBlock(int numDocs) {
+      final NumericBlockField field = (NumericBlockField)param;
+      for (MinData data : lastingTargets) {
+        for (int i = 0; i < numDocs; i++) {
+          if (field.blockExists(i)) {
+            int val = field.blockInt(i);
+            if (!data.exists || val < data.val) {
+              data.val = val;
+              data.exists = true;
+            }
+          }
+        }
+      }
+    }
+
     @Override
     public void submitReservations(Consumer<ReductionDataReservation<?,?>> consumer) {
       consumer.accept(new IntCheckedReservation(
@@ -209,6 +231,26 @@ public abstract class MinCollector<T extends ReductionData> extends ReductionDat
       }
     }
 
+    @Override
+    public boolean supportsBlocks() {
+      return param instanceof NumericBlockField;
+    }
+    @Override
+    public void collectAndApplyBlock(int numDocs) {
+      final NumericBlockField field = (NumericBlockField)param;
+      for (MinData data : lastingTargets) {
+        for (int i = 0; i < numDocs; i++) {
+          if (field.blockExists(i)) {
+            long val = field.blockLong(i);
+            if (!data.exists || val < data.val) {
+              data.val = val;
+              data.exists = true;
+            }
+          }
+        }
+      }
+    }
+
     @Override
     public void submitReservations(Consumer<ReductionDataReservation<?,?>> consumer) {
       consumer.accept(new LongCheckedReservation(
@@ -286,6 +328,26 @@ public abstract class MinCollector<T extends ReductionData> extends ReductionDat
       }
     }
 
+    @Override
+    public boolean supportsBlocks() {
+      return param instanceof NumericBlockField;
+    }
+    @Override
+    public void collectAndApplyBlock(int numDocs) {
+      final NumericBlockField field = (NumericBlockField)param;
+      for (MinData data : lastingTargets) {
+        for (int i = 0; i < numDocs; i++) {
+          if (field.blockExists(i)) {
+            float val = field.blockFloat(i);
+            if (!data.exists || val < data.val) {
+              data.val = val;
+              data.exists = true;
+            }
+          }
+        }
+      }
+    }
+
     @Override
     public void submitReservations(Consumer<ReductionDataReservation<?,?>> consumer) {
       consumer.accept(new FloatCheckedReservation(
@@ -363,6 +425,26 @@ public abstract class MinCollector<T extends ReductionData> extends ReductionDat
       }
     }
 
+    @Override
+    public boolean supportsBlocks() {
+      return param instanceof DoubleBlockValue;
+    }
+    @Override
+    public void collectAndApplyBlock(int numDocs) {
+      final DoubleBlockValue value = (DoubleBlockValue)param;
+      for (MinData data : lastingTargets) {
+        for (int i = 0; i < numDocs; i++) {
+          if (value.blockExists(i)) {
+            double val = value.blockDouble(i);
+            if (!data.exists || val < data.val) {
+              data.val = val;
+              data.exists = true;
+            }
+          }
+        }
+      }
+    }
+
     @Override
     public void submitReservations(Consumer<ReductionDataReservation<?,?>> consumer) {
       consumer.accept(new DoubleCheckedReservation(
@@ -22,6 +22,7 @@ import java.util.function.Consumer;
 import org.apache.solr.analytics.function.ReductionFunction;
 import org.apache.solr.analytics.stream.reservation.ReductionDataReservation;
 import org.apache.solr.analytics.value.AnalyticsValue;
+import org.apache.solr.analytics.value.BlockValue;
 
 /**
  * Manager of a specific instance of {@link ReductionData} collection.
@@ -113,6 +114,27 @@ public abstract class ReductionDataCollector<T extends ReductionData> {
    */
   protected void collect() { }
 
+  /**
+   * Whether this collector can collect whole blocks of documents through {@link #collectAndApplyBlock(int)}.
+   * This is usually the case when the reduced expression is a {@link BlockValue}.
+   *
+   * @return true if blocks of documents are supported
+   */
+  public boolean supportsBlocks() {
+    return false;
+  }
+
+  /**
+   * Collect the info for a block of documents, whose values the reduced {@link BlockValue} gives,
+   * and apply the results to the lasting targets. This must give the same results as calling
+   * {@link #collectAndApply()} for each document of the block, without any other targets.
+   *
+   * @param numDocs the number of documents in the block
+   */
+  public void collectAndApplyBlock(int numDocs) {
+    throw new UnsupportedOperationException(getClass().getSimpleName() + " doesn't support blocks");
+  }
+
   /**
    * Apply the collected info to the given reduction data.
    * Should always be called after a {@link #collect()} call.
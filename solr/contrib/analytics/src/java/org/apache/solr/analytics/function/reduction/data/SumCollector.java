@@ -21,6 +21,7 @@ import java.util.function.Consumer;
 import org.apache.solr.analytics.stream.reservation.DoubleCheckedReservation;
 import org.apache.solr.analytics.stream.reservation.ReductionDataReservation;
 import org.apache.solr.analytics.value.AnalyticsValueStream;
+import org.apache.solr.analytics.value.DoubleBlockValue;
 import org.apache.solr.analytics.value.DoubleValueStream;
 
 /**
@@ -84,6 +85,23 @@ public class SumCollector extends ReductionDataCollector<SumCollector.SumData> {
     data.exists |= tempExists;
   }
 
+  @Override
+  public boolean supportsBlocks() {
+    return param instanceof DoubleBlockValue;
+  }
+  @Override
+  public void collectAndApplyBlock(int numDocs) {
+    final DoubleBlockValue value = (DoubleBlockValue)param;
+    for (SumData data : lastingTargets) {
+      for (int i = 0; i < numDocs; i++) {
+        if (value.blockExists(i)) {
+          data.sum += value.blockDouble(i);
+          data.exists = true;
+        }
+      }
+    }
+  }
+
   @Override
   public void submitReservations(Consumer<ReductionDataReservation<?,?>> consumer) {
     consumer.accept(new DoubleCheckedReservation(
@@ -0,0 +1,33 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.analytics.value;
+
+import org.apache.solr.analytics.function.ReductionCollectionManager;
+
+/**
+ * A single-valued analytics value that can give its values for a whole block of documents at once,
+ * after the block has been collected through {@link ReductionCollectionManager#collectBlock(int[], int)}.
+ */
+public interface BlockValue extends AnalyticsValue {
+  /**
+   * Whether the value exists for a document of the last collected block.
+   *
+   * @param index the index of the document in the block
+   * @return true if the document has a value
+   */
+  boolean blockExists(int index);
+}
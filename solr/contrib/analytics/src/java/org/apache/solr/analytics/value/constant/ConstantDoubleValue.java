@@ -20,13 +20,14 @@ import java.util.function.Consumer;
 import java.util.function.DoubleConsumer;
 
 import org.apache.solr.analytics.facet.compare.ConstantComparator;
+import org.apache.solr.analytics.value.DoubleBlockValue;
 import org.apache.solr.analytics.value.DoubleValue;
 import org.apache.solr.analytics.value.DoubleValue.CastingDoubleValue;
 
 /**
  * A constant {@link DoubleValue}. Every call to {@link #getDouble()} and other methods will return the same constant value.
  */
-public class ConstantDoubleValue extends ConstantValue implements CastingDoubleValue {
+public class ConstantDoubleValue extends ConstantValue implements CastingDoubleValue, DoubleBlockValue {
   private final double value;
   private final String valueStr;
   public static final String name = "const_double";
@@ -55,6 +56,15 @@ public class ConstantDoubleValue extends ConstantValue implements CastingDoubleV
     return true;
   }
 
+  @Override
+  public boolean blockExists(int index) {
+    return true;
+  }
+  @Override
+  public double blockDouble(int index) {
+    return value;
+  }
+
   @Override
   public void streamDoubles(DoubleConsumer cons) {
     cons.accept(value);
@@ -21,13 +21,14 @@ import java.util.function.DoubleConsumer;
 
 import org.apache.solr.analytics.facet.compare.ConstantComparator;
 import org.apache.solr.analytics.util.function.FloatConsumer;
+import org.apache.solr.analytics.value.DoubleBlockValue;
 import org.apache.solr.analytics.value.FloatValue;
 import org.apache.solr.analytics.value.FloatValue.CastingFloatValue;
 
 /**
  * A constant {@link FloatValue}. Every call to {@link #getFloat()} and other methods will return the same constant value.
  */
-public class ConstantFloatValue extends ConstantValue implements CastingFloatValue {
+public class ConstantFloatValue extends ConstantValue implements CastingFloatValue, DoubleBlockValue {
   private final float value;
   private final String valueStr;
   public static final String name = "const_float";
@@ -60,6 +61,15 @@ public class ConstantFloatValue extends ConstantValue implements CastingFloatVal
     return true;
   }
 
+  @Override
+  public boolean blockExists(int index) {
+    return true;
+  }
+  @Override
+  public double blockDouble(int index) {
+    return value;
+  }
+
   @Override
   public void streamFloats(FloatConsumer cons) {
     cons.accept(value);
@@ -23,13 +23,14 @@ import java.util.function.LongConsumer;
 
 import org.apache.solr.analytics.facet.compare.ConstantComparator;
 import org.apache.solr.analytics.util.function.FloatConsumer;
+import org.apache.solr.analytics.value.DoubleBlockValue;
 import org.apache.solr.analytics.value.IntValue;
 import org.apache.solr.analytics.value.IntValue.CastingIntValue;
 
 /**
  * A constant {@link IntValue}. Every call to {@link #getInt()} and other methods will return the same constant value.
  */
-public class ConstantIntValue extends ConstantValue implements CastingIntValue {
+public class ConstantIntValue extends ConstantValue implements CastingIntValue, DoubleBlockValue {
   private final int value;
   private final String valueStr;
   public static final String name = "const_int";
@@ -71,6 +72,15 @@ public class ConstantIntValue extends ConstantValue implements CastingIntValue {
     return true;
   }
 
+  @Override
+  public boolean blockExists(int index) {
+    return true;
+  }
+  @Override
+  public double blockDouble(int index) {
+    return value;
+  }
+
   @Override
   public void streamInts(IntConsumer cons) {
     cons.accept(value);
@@ -21,13 +21,14 @@ import java.util.function.DoubleConsumer;
 import java.util.function.LongConsumer;
 
 import org.apache.solr.analytics.facet.compare.ConstantComparator;
+import org.apache.solr.analytics.value.DoubleBlockValue;
 import org.apache.solr.analytics.value.LongValue;
 import org.apache.solr.analytics.value.LongValue.CastingLongValue;
 
 /**
  * A constant {@link LongValue}. Every call to {@link #getLong()} and other methods will return the same constant value.
  */
-public class ConstantLongValue extends ConstantValue implements CastingLongValue {
+public class ConstantLongValue extends ConstantValue implements CastingLongValue, DoubleBlockValue {
   private final long value;
   private final String valueStr;
   public static final String name = "const_long";
@@ -61,6 +62,15 @@ public class ConstantLongValue extends ConstantValue implements CastingLongValue
     return true;
   }
 
+  @Override
+  public boolean blockExists(int index) {
+    return true;
+  }
+  @Override
+  public double blockDouble(int index) {
+    return value;
+  }
+
   @Override
   public void streamLongs(LongConsumer cons) {
     cons.accept(value);
@@ -24,6 +24,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BiPredicate;
 import java.util.function.Predicate;
 
 import org.apache.lucene.index.LeafReaderContext;
@@ -291,4 +292,45 @@ public class AbstractAnalyticsFieldTest extends SolrTestCaseJ4 {
     }
     return missing;
   }
+
+  /**
+   * Collects the field in blocks of random sizes, calling the filler with the id and the index in the block of each
+   * document, after {@link NumericBlockField#setBlockDoc(int)}.
+   */
+  protected Set<String> collectFieldValuesInBlocks(NumericBlockField testField, BiPredicate<String,Integer> valuesFiller) throws IOException {
+    StringField idField = new StringField("id");
+    Set<String> missing = new HashSet<>();
+    int[] docs = new int[random().nextInt(5) + 1];
+
+    List<LeafReaderContext> contexts = searcher.getTopReaderContext().leaves();
+    for (LeafReaderContext context : contexts) {
+      testField.doSetNextReader(context);
+      idField.doSetNextReader(context);
+      Bits liveDocs = context.reader().getLiveDocs();
+      int numDocs = 0;
+      for (int doc = 0; doc <= context.reader().maxDoc(); doc++) {
+        if (doc < context.reader().maxDoc()) {
+          if (liveDocs != null && !liveDocs.get(doc)) {
+            continue;
+          }
+          docs[numDocs++] = doc;
+        }
+        if (numDocs == docs.length || (doc == context.reader().maxDoc() && numDocs > 0)) {
+          testField.collectBlock(docs, numDocs);
+          for (int i = 0; i < numDocs; i++) {
+            testField.setBlockDoc(i);
+            assertEquals(testField.blockExists(i), testField.exists());
+            idField.collect(docs[i]);
+
+            String id = idField.getString();
+            if (!valuesFiller.test(id, i)) {
+              missing.add(id);
+            }
+          }
+          numDocs = 0;
+        }
+      }
+    }
+    return missing;
+  }
 }
@@ -68,6 +68,23 @@ public class DateFieldsTest extends AbstractAnalyticsFieldTest {
     checkSingleFieldValues(singleDates, values, missing);
   }
 
+  @Test
+  public void singleValuedBlockDateTest() throws IOException {
+    DateField valueField = new DateField(random().nextBoolean() ? "date_dt_t" : "date_dt_p");
+    Map<String,Long> values = new HashMap<>();
+
+    Set<String> missing = collectFieldValuesInBlocks(valueField, (id, index) -> {
+      if (valueField.blockExists(index)) {
+        long value = valueField.blockLong(index);
+        assertEquals(valueField.getLong(), value);
+        values.put(id, value);
+      }
+      return valueField.blockExists(index);
+    });
+
+    checkSingleFieldValues(singleDates, values, missing);
+  }
+
   @Test
   public void multiValuedTrieDateTest() throws IOException {
     DateMultiTrieField valueField = new DateMultiTrieField("date_dtm_t");
@@ -22,6 +22,11 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.solr.analytics.ExpressionFactory;
+import org.apache.solr.analytics.function.mapping.AddFunction;
+import org.apache.solr.analytics.function.mapping.MultFunction;
+import org.apache.solr.analytics.value.AnalyticsValueStream;
+import org.apache.solr.analytics.value.DoubleBlockValue;
+import org.apache.solr.analytics.value.constant.ConstantIntValue;
 import org.junit.Test;
 
 public class DoubleFieldsTest extends AbstractAnalyticsFieldTest {
@@ -68,6 +73,48 @@ public class DoubleFieldsTest extends AbstractAnalyticsFieldTest {
     checkSingleFieldValues(singleDoubles, values, missing);
   }
 
+  @Test
+  public void singleValuedBlockDoubleTest() throws IOException {
+    DoubleField valueField = new DoubleField(random().nextBoolean() ? "double_d_t" : "double_d_p");
+    Map<String,Double> values = new HashMap<>();
+
+    Set<String> missing = collectFieldValuesInBlocks(valueField, (id, index) -> {
+      if (valueField.blockExists(index)) {
+        double value = valueField.blockDouble(index);
+        assertEquals(valueField.getDouble(), value, 0.0);
+        values.put(id, value);
+      }
+      return valueField.blockExists(index);
+    });
+
+    checkSingleFieldValues(singleDoubles, values, missing);
+  }
+
+  @Test
+  public void singleValuedBlockMappingTest() throws IOException {
+    DoubleField valueField = new DoubleField(random().nextBoolean() ? "double_d_t" : "double_d_p");
+    AnalyticsValueStream added = AddFunction.creatorFunction.apply(new AnalyticsValueStream[] {valueField, new ConstantIntValue(2)});
+    AnalyticsValueStream uncasted = MultFunction.creatorFunction.apply(new AnalyticsValueStream[] {valueField, added});
+    assertTrue(uncasted instanceof DoubleBlockValue);
+    DoubleBlockValue func = (DoubleBlockValue) uncasted;
+    Map<String,Double> values = new HashMap<>();
+
+    Set<String> missing = collectFieldValuesInBlocks(valueField, (id, index) -> {
+      double expected = func.getDouble();
+      assertEquals(func.exists(), func.blockExists(index));
+      if (func.blockExists(index)) {
+        double value = func.blockDouble(index);
+        assertEquals(expected, value, 0.0);
+        values.put(id, value);
+      }
+      return func.blockExists(index);
+    });
+
+    Map<String,Double> expectedValues = new HashMap<>();
+    singleDoubles.forEach((id, value) -> expectedValues.put(id, value * (value + 2)));
+    checkSingleFieldValues(expectedValues, values, missing);
+  }
+
   @Test
   public void multiValuedTrieDoubleTest() throws IOException {
     DoubleMultiTrieField valueField = new DoubleMultiTrieField("double_dm_t");
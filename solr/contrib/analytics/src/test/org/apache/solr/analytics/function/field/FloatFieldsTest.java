@@ -68,6 +68,23 @@ public class FloatFieldsTest extends AbstractAnalyticsFieldTest {
     checkSingleFieldValues(singleFloats, values, missing);
   }
 
+  @Test
+  public void singleValuedBlockFloatTest() throws IOException {
+    FloatField valueField = new FloatField(random().nextBoolean() ? "float_f_t" : "float_f_p");
+    Map<String,Float> values = new HashMap<>();
+
+    Set<String> missing = collectFieldValuesInBlocks(valueField, (id, index) -> {
+      if (valueField.blockExists(index)) {
+        float value = valueField.blockFloat(index);
+        assertEquals(valueField.getFloat(), value, 0.0);
+        values.put(id, value);
+      }
+      return valueField.blockExists(index);
+    });
+
+    checkSingleFieldValues(singleFloats, values, missing);
+  }
+
   @Test
   public void multiValuedTrieFloatTest() throws IOException {
     FloatMultiTrieField valueField = new FloatMultiTrieField("float_fm_t");
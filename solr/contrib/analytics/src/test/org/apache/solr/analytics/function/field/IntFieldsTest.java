@@ -68,6 +68,23 @@ public class IntFieldsTest extends AbstractAnalyticsFieldTest {
     checkSingleFieldValues(singleInts, values, missing);
   }
 
+  @Test
+  public void singleValuedBlockIntTest() throws IOException {
+    IntField valueField = new IntField(random().nextBoolean() ? "int_i_t" : "int_i_p");
+    Map<String,Integer> values = new HashMap<>();
+
+    Set<String> missing = collectFieldValuesInBlocks(valueField, (id, index) -> {
+      if (valueField.blockExists(index)) {
+        int value = valueField.blockInt(index);
+        assertEquals(valueField.getInt(), value);
+        values.put(id, value);
+      }
+      return valueField.blockExists(index);
+    });
+
+    checkSingleFieldValues(singleInts, values, missing);
+  }
+
   @Test
   public void multiValuedTrieIntTest() throws IOException {
     IntMultiTrieField valueField = new IntMultiTrieField("int_im_t");
@@ -68,6 +68,23 @@ public class LongFieldsTest extends AbstractAnalyticsFieldTest {
     checkSingleFieldValues(singleLongs, values, missing);
   }
 
+  @Test
+  public void singleValuedBlockLongTest() throws IOException {
+    LongField valueField = new LongField(random().nextBoolean() ? "long_l_t" : "long_l_p");
+    Map<String,Long> values = new HashMap<>();
+
+    Set<String> missing = collectFieldValuesInBlocks(valueField, (id, index) -> {
+      if (valueField.blockExists(index)) {
+        long value = valueField.blockLong(index);
+        assertEquals(valueField.getLong(), value);
+        values.put(id, value);
+      }
+      return valueField.blockExists(index);
+    });
+
+    checkSingleFieldValues(singleLongs, values, missing);
+  }
+
   @Test
   public void multiValuedTrieLongTest() throws IOException {
     LongMultiTrieField valueField = new LongMultiTrieField("long_lm_t");
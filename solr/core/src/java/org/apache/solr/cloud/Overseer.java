@@ -24,11 +24,14 @@ import java.lang.invoke.MethodHandles;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 
 import org.apache.lucene.util.Version;
@@ -60,10 +63,12 @@ import org.apache.solr.common.cloud.ZkNodeProps;
 import org.apache.solr.common.cloud.ZkStateReader;
 import org.apache.solr.common.params.CollectionAdminParams;
 import org.apache.solr.common.params.CollectionParams;
+import org.apache.solr.common.util.ExecutorUtil;
 import org.apache.solr.common.util.IOUtils;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.ObjectReleaseTracker;
 import org.apache.solr.common.util.Pair;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
 import org.apache.solr.common.util.Utils;
 import org.apache.solr.core.CloudConfig;
 import org.apache.solr.core.CoreContainer;
@@ -142,6 +147,7 @@ public class Overseer implements SolrCloseable {
   public static final int STATE_UPDATE_DELAY = ZkStateReader.STATE_UPDATE_DELAY;
   public static final int STATE_UPDATE_BATCH_SIZE = Integer.getInteger("solr.OverseerStateUpdateBatchSize", 10000);
   public static final int STATE_UPDATE_MAX_QUEUE = 20000;
+  public static final int STATE_UPDATE_THREADS = Integer.getInteger("solr.OverseerStateUpdateThreads", 4);
 
   public static final int NUM_RESPONSES_TO_STORE = 10000;
   public static final String OVERSEER_ELECT = "/overseer_elect";
@@ -176,6 +182,9 @@ public class Overseer implements SolrCloseable {
 
     private final Stats zkStats;
 
+    // writes the state.json of different collections concurrently, null if they are written one at a time
+    private final ExecutorService stateWriteExecutor;
+
     private boolean isClosed = false;
 
     public ClusterStateUpdater(final ZkStateReader reader, final String myId, Stats zkStats) {
@@ -188,6 +197,8 @@ public class Overseer implements SolrCloseable {
       this.completedMap = getCompletedMap(zkClient);
       this.myId = myId;
       this.reader = reader;
+      this.stateWriteExecutor = STATE_UPDATE_THREADS > 1 ?
+          ExecutorUtil.newMDCAwareFixedThreadPool(STATE_UPDATE_THREADS, new SolrNamedThreadFactory("overseerStateWriter")) : null;
     }
 
     public Stats getStateUpdateQueueStats() {
@@ -234,7 +245,7 @@ public class Overseer implements SolrCloseable {
             try {
               reader.forciblyRefreshAllClusterStateSlow();
               clusterState = reader.getClusterState();
-              zkStateWriter = new ZkStateWriter(reader, stats);
+              zkStateWriter = new ZkStateWriter(reader, stats, stateWriteExecutor);
               refreshClusterState = false;
 
               // if there were any errors while processing
@@ -297,8 +308,10 @@ public class Overseer implements SolrCloseable {
             log.error("Exception in Overseer main queue loop", e);
           }
           try {
-            Set<String> processedNodes = new HashSet<>();
+            // the nodes whose messages were applied but not yet written, with the time they were read at
+            Map<String, Long> processedNodes = new LinkedHashMap<>();
             while (queue != null && !queue.isEmpty()) {
+              long readTime = System.nanoTime();
               for (Pair<String, byte[]> head : queue) {
                 byte[] data = head.second();
                 final ZkNodeProps message = ZkNodeProps.load(data);
@@ -306,25 +319,21 @@ public class Overseer implements SolrCloseable {
                   log.debug("processMessage: queueSize: {}, message = {}", stateUpdateQueue.getZkStats().getQueueLength(), message);
                 }
 
-                processedNodes.add(head.first());
+                processedNodes.put(head.first(), readTime);
                 fallbackQueueSize = processedNodes.size();
                 // The callback always be called on this thread
-                clusterState = processQueueItem(message, clusterState, zkStateWriter, true, () -> {
-                  stateUpdateQueue.remove(processedNodes);
-                  processedNodes.clear();
-                });
+                clusterState = processQueueItem(message, clusterState, zkStateWriter, true, () -> removeProcessed(processedNodes));
               }
               if (isClosed) break;
               // if an event comes in the next 100ms batch it together
-              queue = new LinkedList<>(stateUpdateQueue.peekElements(1000, 100, node -> !processedNodes.contains(node)));
+              queue = new LinkedList<>(stateUpdateQueue.peekElements(1000, 100, node -> !processedNodes.containsKey(node)));
             }
             fallbackQueueSize = processedNodes.size();
             // we should force write all pending updates because the next iteration might sleep until there
             // are more items in the main queue
             clusterState = zkStateWriter.writePendingUpdates();
             // clean work queue
-            stateUpdateQueue.remove(processedNodes);
-            processedNodes.clear();
+            removeProcessed(processedNodes);
           } catch (KeeperException.SessionExpiredException e) {
             log.warn("Solr cannot talk to ZK, exiting Overseer main queue loop", e);
             return;
@@ -342,11 +351,27 @@ public class Overseer implements SolrCloseable {
         if (log.isInfoEnabled()) {
           log.info("Overseer Loop exiting : {}", LeaderElector.getNodeName(myId));
         }
+        if (stateWriteExecutor != null) {
+          ExecutorUtil.shutdownAndAwaitTermination(stateWriteExecutor);
+        }
         //do this in a separate thread because any wait is interrupted in this main thread
         new Thread(this::checkIfIamStillLeader, "OverseerExitThread").start();
       }
     }
 
+    /**
+     * Removes the messages whose updates were written from the queue, recording how long it took to apply them
+     * since they were read.
+     */
+    private void removeProcessed(Map<String, Long> processedNodes) throws KeeperException, InterruptedException {
+      stateUpdateQueue.remove(processedNodes.keySet());
+      long now = System.nanoTime();
+      for (long readTime : processedNodes.values()) {
+        stats.update("state_update_apply", now - readTime, TimeUnit.NANOSECONDS);
+      }
+      processedNodes.clear();
+    }
+
     // Return true whenever the exception thrown by ZkStateWriter is correspond
     // to a invalid state or 'bad' message (in this case, we should remove that message from queue)
     private boolean isBadMessage(Exception e) {
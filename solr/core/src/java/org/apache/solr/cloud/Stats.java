@@ -22,8 +22,11 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Timer;
 import org.apache.solr.client.solrj.SolrResponse;
 import org.apache.solr.common.cloud.ZkNodeProps;
@@ -38,6 +41,7 @@ public class Stats {
 
   final Map<String, Stat> stats = new ConcurrentHashMap<>();
   private volatile int queueLength;
+  private final Map<String, Histogram> queueDepths = new ConcurrentHashMap<>();
 
   public Map<String, Stat> getStats() {
     return stats;
@@ -55,41 +59,36 @@ public class Stats {
 
   public void success(String operation) {
     String op = operation.toLowerCase(Locale.ROOT);
-    Stat stat = stats.get(op);
-    if (stat == null) {
-      stat = new Stat();
-      stats.put(op, stat);
-    }
+    Stat stat = stats.computeIfAbsent(op, k -> new Stat());
     stat.success.incrementAndGet();
   }
 
   public void error(String operation) {
     String op = operation.toLowerCase(Locale.ROOT);
-    Stat stat = stats.get(op);
-    if (stat == null) {
-      stat = new Stat();
-      stats.put(op, stat);
-    }
+    Stat stat = stats.computeIfAbsent(op, k -> new Stat());
     stat.errors.incrementAndGet();
   }
 
   public Timer.Context time(String operation) {
     String op = operation.toLowerCase(Locale.ROOT);
-    Stat stat = stats.get(op);
-    if (stat == null) {
-      stat = new Stat();
-      stats.put(op, stat);
-    }
+    Stat stat = stats.computeIfAbsent(op, k -> new Stat());
     return stat.requestTime.time();
   }
 
+  /**
+   * Records a successful operation that took the given time, for operations that are not timed
+   * with {@link #time(String)} because they don't start and end on the same thread.
+   */
+  public void update(String operation, long duration, TimeUnit unit) {
+    String op = operation.toLowerCase(Locale.ROOT);
+    Stat stat = stats.computeIfAbsent(op, k -> new Stat());
+    stat.success.incrementAndGet();
+    stat.requestTime.update(duration, unit);
+  }
+
   public void storeFailureDetails(String operation, ZkNodeProps request, SolrResponse resp) {
     String op = operation.toLowerCase(Locale.ROOT);
-    Stat stat = stats.get(op);
-    if (stat == null) {
-      stat = new Stat();
-      stats.put(op, stat);
-    }
+    Stat stat = stats.computeIfAbsent(op, k -> new Stat());
     LinkedList<FailedOp> failedOps = stat.failureDetails;
     synchronized (failedOps)  {
       if (failedOps.size() >= MAX_STORED_FAILURES)  {
@@ -117,8 +116,21 @@ public class Stats {
     this.queueLength = queueLength;
   }
 
+  /**
+   * Records the number of items found in a queue when a batch of them is read, to track how far
+   * behind the consumer of the queue is.
+   */
+  public void recordQueueDepth(String queue, int depth) {
+    queueDepths.computeIfAbsent(queue, k -> new Histogram(new ExponentiallyDecayingReservoir())).update(depth);
+  }
+
+  public Map<String, Histogram> getQueueDepths() {
+    return queueDepths;
+  }
+
   public void clear() {
     stats.clear();
+    queueDepths.clear();
   }
 
   public static class Stat  {
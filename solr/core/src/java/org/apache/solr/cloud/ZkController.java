@@ -77,6 +77,7 @@ import org.apache.solr.common.cloud.DocCollectionWatcher;
 import org.apache.solr.common.cloud.LiveNodesListener;
 import org.apache.solr.common.cloud.NodesSysPropsCacher;
 import org.apache.solr.common.cloud.OnReconnect;
+import org.apache.solr.common.cloud.PerReplicaStates;
 import org.apache.solr.common.cloud.Replica;
 import org.apache.solr.common.cloud.Replica.Type;
 import org.apache.solr.common.cloud.Slice;
@@ -1649,12 +1650,42 @@ public class ZkController implements Closeable {
       if (updateLastState) {
         cd.getCloudDescriptor().setLastPublished(state);
       }
+      if (canPublishPerReplicaState(collection, shardId, coreNodeName, cd.getName(), props)) {
+        // the replica is registered already, only its state changes: skip the Overseer and the rewrite of state.json
+        PerReplicaStates.persist(ZkStateReader.getCollectionPath(collection),
+            Collections.singletonMap(coreNodeName, state), zkClient);
+        return;
+      }
       overseerJobQueue.offer(Utils.toJSON(m));
     } finally {
       MDCLoggingContext.clear();
     }
   }
 
+  /**
+   * @return true if the state message with the given props would only change the state of an existing replica of
+   * a collection that keeps per-replica states
+   */
+  private boolean canPublishPerReplicaState(String collection, String shardId, String coreNodeName, String coreName,
+                                            Map<String, Object> props) {
+    DocCollection coll = zkStateReader.getClusterState().getCollectionOrNull(collection);
+    if (coll == null || !coll.isPerReplicaState() || shardId == null || coreNodeName == null
+        || props.containsKey(ZkStateReader.SHARED_STORAGE_PROP)) {
+      return false;
+    }
+    Slice slice = coll.getSlice(shardId);
+    if (slice == null || slice.getState() != Slice.State.ACTIVE) {
+      // the Overseer completes shard splits when the replicas of sub shards become active
+      return false;
+    }
+    Replica replica = slice.getReplica(coreNodeName);
+    return replica != null
+        && coreName.equals(replica.getCoreName())
+        && getNodeName().equals(replica.getNodeName())
+        && getBaseUrl().equals(replica.getBaseUrl())
+        && replica.getType().toString().equals(props.get(ZkStateReader.REPLICA_TYPE));
+  }
+
   public ZkShardTerms getShardTerms(String collection, String shardId) {
     return getCollectionTerms(collection).getShard(shardId);
   }
@@ -2670,6 +2701,15 @@ public class ZkController implements Closeable {
    */
   public void publishNodeAsDown(String nodeName) {
     log.info("Publish node={} as DOWN", nodeName);
+    try {
+      publishPerReplicaStatesAsDown(nodeName);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.debug("Publish node as down was interrupted.");
+      return;
+    } catch (KeeperException e) {
+      log.warn("Could not publish the per-replica states of node as down: {}", e.getMessage());
+    }
     ZkNodeProps m = new ZkNodeProps(Overseer.QUEUE_OPERATION, OverseerAction.DOWNNODE.toLower(),
         ZkStateReader.NODE_NAME_PROP, nodeName);
     try {
@@ -2684,6 +2724,28 @@ public class ZkController implements Closeable {
     }
   }
 
+  /**
+   * Marks the replicas of the node down in the collections that keep per-replica states. The Overseer leaves these
+   * collections out of DOWNNODE, so that a down state it applies late can't override a state the replica has
+   * published itself since.
+   */
+  private void publishPerReplicaStatesAsDown(String nodeName) throws KeeperException, InterruptedException {
+    for (DocCollection coll : zkStateReader.getClusterState().getCollectionsMap().values()) {
+      if (!coll.isPerReplicaState()) {
+        continue;
+      }
+      Map<String, Replica.State> states = new HashMap<>();
+      for (Replica replica : coll.getReplicas()) {
+        if (nodeName.equals(replica.getNodeName())) {
+          states.put(replica.getName(), Replica.State.DOWN);
+        }
+      }
+      if (!states.isEmpty()) {
+        PerReplicaStates.persist(ZkStateReader.getCollectionPath(coll.getName()), states, zkClient);
+      }
+    }
+  }
+
   /**
    * Ensures that a searcher is registered for the given core and if not, waits until one is registered
    */
@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
@@ -483,19 +484,43 @@ public class ZkDistributedQueue implements DistributedQueue {
         break;
       }
     }
+    stats.recordQueueDepth(dir, foundChildren.size());
 
     // Technically we could restart the method if we fail to actually obtain any valid children
     // from ZK, but this is a super rare case, and the latency of the ZK fetches would require
     // much more sophisticated waitNanos tracking.
-    List<Pair<String, byte[]>> result = new ArrayList<>();
-    for (String child : foundChildren) {
-      if (result.size() >= max) {
-        break;
+    List<String> toRead = foundChildren.size() > max ? foundChildren.subList(0, max) : foundChildren;
+    // pipeline the reads rather than waiting for a round trip per child, reads that fail for any other reason than
+    // a deleted node are retried one by one below
+    int[] rcs = new int[toRead.size()];
+    byte[][] datas = new byte[toRead.size()][];
+    CountDownLatch latch = new CountDownLatch(toRead.size());
+    for (int i = 0; i < toRead.size(); i++) {
+      final int index = i;
+      zookeeper.getSolrZooKeeper().getData(dir + "/" + toRead.get(i), false, (rc, path, ctx, data, stat) -> {
+        rcs[index] = rc;
+        datas[index] = data;
+        latch.countDown();
+      }, null);
+    }
+    latch.await();
+
+    List<Pair<String, byte[]>> result = new ArrayList<>(toRead.size());
+    for (int i = 0; i < toRead.size(); i++) {
+      String child = toRead.get(i);
+      KeeperException.Code code = KeeperException.Code.get(rcs[i]);
+      byte[] data = datas[i];
+      if (code != KeeperException.Code.OK && code != KeeperException.Code.NONODE) {
+        try {
+          data = zookeeper.getData(dir + "/" + child, null, null, true);
+          code = KeeperException.Code.OK;
+        } catch (KeeperException.NoNodeException e) {
+          code = KeeperException.Code.NONODE;
+        }
       }
-      try {
-        byte[] data = zookeeper.getData(dir + "/" + child, null, null, true);
+      if (code == KeeperException.Code.OK) {
         result.add(new Pair<>(child, data));
-      } catch (KeeperException.NoNodeException e) {
+      } else {
         // Another client deleted the node first, remove the in-memory and continue.
         updateLock.lockInterruptibly();
         try {
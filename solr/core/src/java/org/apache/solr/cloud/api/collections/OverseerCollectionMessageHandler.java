@@ -148,6 +148,7 @@ public class OverseerCollectionMessageHandler implements OverseerMessageHandler,
       ZkStateReader.PULL_REPLICAS, "0",
       ZkStateReader.MAX_SHARDS_PER_NODE, "1",
       ZkStateReader.AUTO_ADD_REPLICAS, "false",
+      ZkStateReader.PER_REPLICA_STATE, null,
       DocCollection.RULE, null,
       POLICY, null,
       SNITCH, null,
@@ -23,6 +23,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Snapshot;
 import com.codahale.metrics.Timer;
 import org.apache.solr.cloud.OverseerTaskProcessor;
 import org.apache.solr.cloud.Stats;
@@ -114,5 +116,18 @@ public class OverseerStatusCmd implements OverseerCollectionMessageHandler.Cmd {
     results.add("overseer_internal_queue", workQueueStats);
     results.add("collection_queue", collectionQueueStats);
 
+    @SuppressWarnings({"rawtypes"})
+    NamedList queueDepths = new NamedList();
+    for (Map.Entry<String, Histogram> entry : stats.getQueueDepths().entrySet()) {
+      NamedList<Object> lst = new SimpleOrderedMap<>();
+      Snapshot snapshot = entry.getValue().getSnapshot();
+      lst.add("mean", snapshot.getMean());
+      lst.add("median", snapshot.getMedian());
+      lst.add("99thPc", snapshot.get99thPercentile());
+      lst.add("max", snapshot.getMax());
+      queueDepths.add(entry.getKey(), lst);
+    }
+    results.add("queue_depths", queueDepths);
+
   }
 }
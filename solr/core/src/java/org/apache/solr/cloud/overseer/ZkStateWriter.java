@@ -18,15 +18,25 @@ package org.apache.solr.cloud.overseer;
 
 import java.lang.invoke.MethodHandles;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import com.codahale.metrics.Timer;
 import org.apache.solr.cloud.Overseer;
 import org.apache.solr.cloud.Stats;
+import org.apache.solr.common.SolrException;
 import org.apache.solr.common.cloud.ClusterState;
 import org.apache.solr.common.cloud.DocCollection;
+import org.apache.solr.common.cloud.PerReplicaStates;
+import org.apache.solr.common.cloud.Replica;
 import org.apache.solr.common.cloud.ZkStateReader;
 import org.apache.solr.common.util.Utils;
 import org.apache.zookeeper.CreateMode;
@@ -62,8 +72,12 @@ public class ZkStateWriter {
 
   protected final ZkStateReader reader;
   protected final Stats stats;
+  // writes the state of different collections concurrently when not null
+  protected final ExecutorService writeExecutor;
 
   protected Map<String, DocCollection> updates = new HashMap<>();
+  // replica states to store as per-replica states, by collection, for collections that keep them
+  protected Map<String, Map<String, Replica.State>> replicaStateUpdates = new HashMap<>();
   private int numUpdates = 0;
   protected ClusterState clusterState = null;
   protected long lastUpdatedTime = 0;
@@ -75,10 +89,18 @@ public class ZkStateWriter {
   protected boolean invalidState = false;
 
   public ZkStateWriter(ZkStateReader zkStateReader, Stats stats) {
+    this(zkStateReader, stats, null);
+  }
+
+  /**
+   * @param writeExecutor if not null, used to write the pending updates of different collections concurrently
+   */
+  public ZkStateWriter(ZkStateReader zkStateReader, Stats stats, ExecutorService writeExecutor) {
     assert zkStateReader != null;
 
     this.reader = zkStateReader;
     this.stats = stats;
+    this.writeExecutor = writeExecutor;
     this.clusterState = zkStateReader.getClusterState();
   }
 
@@ -115,6 +137,11 @@ public class ZkStateWriter {
       if (cmd == NO_OP) continue;
       prevState = prevState.copyWith(cmd.name, cmd.collection);
       updates.put(cmd.name, cmd.collection);
+      if (cmd.collection == null) {
+        replicaStateUpdates.remove(cmd.name);
+      } else if (cmd.collection.isPerReplicaState() && !cmd.replicaStates.isEmpty()) {
+        replicaStateUpdates.computeIfAbsent(cmd.name, k -> new HashMap<>()).putAll(cmd.replicaStates);
+      }
       numUpdates++;
     }
     clusterState = prevState;
@@ -166,37 +193,39 @@ public class ZkStateWriter {
     Timer.Context timerContext = stats.time("update_state");
     boolean success = false;
     try {
-      if (!updates.isEmpty()) {
-        for (Map.Entry<String, DocCollection> entry : updates.entrySet()) {
-          String name = entry.getKey();
-          String path = ZkStateReader.getCollectionPath(name);
-          DocCollection c = entry.getValue();
-
-          if (c == null) {
-            // let's clean up the state.json of this collection only, the rest should be clean by delete collection cmd
-            log.debug("going to delete state.json {}", path);
-            reader.getZkClient().clean(path);
-          } else {
-            byte[] data = Utils.toJSON(singletonMap(c.getName(), c));
-            if (reader.getZkClient().exists(path, true)) {
-              if (log.isDebugEnabled()) {
-                log.debug("going to update_collection {} version: {}", path, c.getZNodeVersion());
+      Set<String> names = new LinkedHashSet<>(updates.keySet());
+      names.addAll(replicaStateUpdates.keySet());
+      if (writeExecutor == null || names.size() < 2) {
+        for (String name : names) {
+          updateClusterState(name, writeCollection(name));
+        }
+      } else {
+        // each collection has its own state.json, and at most one pending write, so collections are written
+        // concurrently while the writes of a given collection still happen in the order they were enqueued
+        Map<String, Future<DocCollection>> futures = new LinkedHashMap<>();
+        for (String name : names) {
+          futures.put(name, writeExecutor.submit(() -> writeCollection(name)));
+        }
+        try {
+          for (Map.Entry<String, Future<DocCollection>> entry : futures.entrySet()) {
+            updateClusterState(entry.getKey(), getWriteResult(entry.getValue()));
+          }
+        } finally {
+          // don't leave writes running behind a failure, the caller will start over from the state in ZK
+          for (Future<DocCollection> future : futures.values()) {
+            if (!future.cancel(false)) {
+              try {
+                future.get();
+              } catch (ExecutionException | CancellationException e) {
+                // already reported by the first failure
               }
-              Stat stat = reader.getZkClient().setData(path, data, c.getZNodeVersion(), true);
-              DocCollection newCollection = new DocCollection(name, c.getSlicesMap(), c.getProperties(), c.getRouter(), stat.getVersion());
-              clusterState = clusterState.copyWith(name, newCollection);
-            } else {
-              log.debug("going to create_collection {}", path);
-              reader.getZkClient().create(path, data, CreateMode.PERSISTENT, true);
-              DocCollection newCollection = new DocCollection(name, c.getSlicesMap(), c.getProperties(), c.getRouter(), 0);
-              clusterState = clusterState.copyWith(name, newCollection);
             }
           }
         }
-
-        updates.clear();
-        numUpdates = 0;
       }
+      updates.clear();
+      replicaStateUpdates.clear();
+      numUpdates = 0;
 
       lastUpdatedTime = System.nanoTime();
       success = true;
@@ -217,6 +246,71 @@ public class ZkStateWriter {
     return clusterState;
   }
 
+  /**
+   * Writes the pending state.json update of the given collection, then its pending per-replica states.
+   *
+   * @return the written collection with its new znode version, or null if there was no state.json to write
+   */
+  private DocCollection writeCollection(String name) throws KeeperException, InterruptedException {
+    String path = ZkStateReader.getCollectionPath(name);
+    DocCollection written = null;
+    if (updates.containsKey(name)) {
+      DocCollection c = updates.get(name);
+      if (c == null) {
+        // let's clean up the state.json of this collection only, the rest should be clean by delete collection cmd
+        log.debug("going to delete state.json {}", path);
+        reader.getZkClient().clean(path);
+      } else {
+        byte[] data = Utils.toJSON(singletonMap(c.getName(), c));
+        if (reader.getZkClient().exists(path, true)) {
+          if (log.isDebugEnabled()) {
+            log.debug("going to update_collection {} version: {}", path, c.getZNodeVersion());
+          }
+          Stat stat = reader.getZkClient().setData(path, data, c.getZNodeVersion(), true);
+          written = new DocCollection(name, c.getSlicesMap(), c.getProperties(), c.getRouter(), stat.getVersion());
+        } else {
+          log.debug("going to create_collection {}", path);
+          reader.getZkClient().create(path, data, CreateMode.PERSISTENT, true);
+          written = new DocCollection(name, c.getSlicesMap(), c.getProperties(), c.getRouter(), 0);
+        }
+      }
+    }
+
+    // after state.json, so that it exists, and in a multi operation per collection
+    Map<String, Replica.State> replicaStates = replicaStateUpdates.get(name);
+    if (replicaStates != null) {
+      if (log.isDebugEnabled()) {
+        log.debug("going to update per-replica states of {}: {}", name, replicaStates);
+      }
+      PerReplicaStates.persist(path, replicaStates, reader.getZkClient());
+    }
+    return written;
+  }
+
+  private void updateClusterState(String name, DocCollection written) {
+    if (written != null) {
+      clusterState = clusterState.copyWith(name, written);
+    }
+  }
+
+  private static DocCollection getWriteResult(Future<DocCollection> future) throws KeeperException, InterruptedException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof KeeperException) {
+        throw (KeeperException) cause;
+      } else if (cause instanceof InterruptedException) {
+        throw (InterruptedException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, cause);
+    }
+  }
+
   /**
    * @return the most up-to-date cluster state until the last enqueueUpdate operation
    */
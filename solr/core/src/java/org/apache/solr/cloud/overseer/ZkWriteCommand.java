@@ -16,17 +16,31 @@
  */
 package org.apache.solr.cloud.overseer;
 
+import java.util.Collections;
+import java.util.Map;
+
 import org.apache.solr.common.cloud.DocCollection;
+import org.apache.solr.common.cloud.Replica;
 
 public class ZkWriteCommand {
   public final String name;
   public final DocCollection collection;
   public final boolean noop;
+  /**
+   * The replica states set by this command, which are also stored as per-replica states if the collection
+   * keeps them, see {@link DocCollection#isPerReplicaState()}
+   */
+  public final Map<String, Replica.State> replicaStates;
 
   public ZkWriteCommand(String name, DocCollection collection) {
+    this(name, collection, Collections.emptyMap());
+  }
+
+  public ZkWriteCommand(String name, DocCollection collection, Map<String, Replica.State> replicaStates) {
     this.name = name;
     this.collection = collection;
     this.noop = false;
+    this.replicaStates = replicaStates;
   }
 
   /**
@@ -36,6 +50,7 @@ public class ZkWriteCommand {
     this.noop = true;
     this.name = null;
     this.collection = null;
+    this.replicaStates = Collections.emptyMap();
   }
 
   public static ZkWriteCommand noop() {
@@ -30,6 +30,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
@@ -52,6 +53,7 @@ import org.apache.http.client.CredentialsProvider;
 import org.apache.http.config.Lookup;
 import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.search.AutomatonCache;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.store.Directory;
 import org.apache.solr.api.CustomContainerPlugins;
@@ -343,6 +345,13 @@ public class CoreContainer {
     if (null != this.cfg.getBooleanQueryMaxClauseCount()) {
       IndexSearcher.setMaxClauseCount(this.cfg.getBooleanQueryMaxClauseCount());
     }
+    if (null != this.cfg.getAutomatonCacheSize()) {
+      final int automatonCacheSize = this.cfg.getAutomatonCacheSize();
+      final AutomatonCache defaultAutomatonCache = AutomatonCache.getDefault();
+      final long maxRamBytesUsed = defaultAutomatonCache == null ? AutomatonCache.DEFAULT_MAX_RAM_BYTES_USED
+          : defaultAutomatonCache.getMaxRamBytesUsed();
+      AutomatonCache.setDefault(automatonCacheSize > 0 ? new AutomatonCache(automatonCacheSize, maxRamBytesUsed) : null);
+    }
     this.coresLocator = locator;
     this.containerProperties = new Properties(config.getSolrProperties());
     this.asyncSolrCoreLoad = asyncSolrCoreLoad;
@@ -799,6 +808,23 @@ public class CoreContainer {
         true, "specification", SolrInfoBean.Category.CONTAINER.toString(), "version");
     solrMetricsContext.gauge(() -> this.getClass().getPackage().getImplementationVersion(),
         true, "implementation", SolrInfoBean.Category.CONTAINER.toString(), "version");
+    // process-wide cache of compiled automata used by regexp, wildcard and fuzzy queries
+    solrMetricsContext.gauge(() -> {
+          AutomatonCache automatonCache = AutomatonCache.getDefault();
+          Map<String, Object> map = new LinkedHashMap<>();
+          if (automatonCache != null) {
+            map.put("lookups", automatonCache.getTotalCount());
+            map.put("hits", automatonCache.getHitCount());
+            map.put("hitratio", automatonCache.getTotalCount() == 0 ? 0.0d
+                : (double) automatonCache.getHitCount() / automatonCache.getTotalCount());
+            map.put("size", automatonCache.getCacheSize());
+            map.put("maxSize", automatonCache.getMaxSize());
+            map.put("evictions", automatonCache.getEvictionCount());
+            map.put("ramBytesUsed", automatonCache.ramBytesUsed());
+          }
+          return map;
+        },
+        true, "automatonCache", SolrInfoBean.Category.CACHE.toString(), "node");
 
     SolrFieldCacheBean fieldCacheBean = new SolrFieldCacheBean();
     fieldCacheBean.initializeMetrics(solrMetricsContext, null);
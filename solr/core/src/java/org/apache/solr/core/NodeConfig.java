@@ -23,6 +23,7 @@ import java.util.HashSet;
 import java.util.Properties;
 import java.util.Set;
 
+import org.apache.lucene.search.AutomatonCache;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.logging.LogWatcherConfig;
@@ -39,6 +40,8 @@ public class NodeConfig {
   private final Path solrDataHome;
 
   private final Integer booleanQueryMaxClauseCount;
+
+  private final Integer automatonCacheSize;
   
   private final Path configSetBaseDirectory;
 
@@ -89,7 +92,7 @@ public class NodeConfig {
   private final boolean fromZookeeper;
 
   private NodeConfig(String nodeName, Path coreRootDirectory, Path solrDataHome, Integer booleanQueryMaxClauseCount,
-                     Path configSetBaseDirectory, String sharedLibDirectory,
+                     Integer automatonCacheSize, Path configSetBaseDirectory, String sharedLibDirectory,
                      PluginInfo shardHandlerFactoryConfig, UpdateShardHandlerConfig updateShardHandlerConfig,
                      String coreAdminHandlerClass, String collectionsAdminHandlerClass,
                      String healthCheckHandlerClass, String infoHandlerClass, String configSetsHandlerClass,
@@ -104,6 +107,7 @@ public class NodeConfig {
     this.coreRootDirectory = coreRootDirectory;
     this.solrDataHome = solrDataHome;
     this.booleanQueryMaxClauseCount = booleanQueryMaxClauseCount;
+    this.automatonCacheSize = automatonCacheSize;
     this.configSetBaseDirectory = configSetBaseDirectory;
     this.sharedLibDirectory = sharedLibDirectory;
     this.shardHandlerFactoryConfig = shardHandlerFactoryConfig;
@@ -158,6 +162,16 @@ public class NodeConfig {
   public Integer getBooleanQueryMaxClauseCount() {
     return booleanQueryMaxClauseCount;
   }
+
+  /**
+   * Maximum number of compiled automata that regexp, wildcard and fuzzy queries may share through
+   * the process-wide cache, 0 disables the cache. If null, the lucene default, which is not to cache automata, will not be overridden
+   *
+   * @see AutomatonCache#setDefault
+   */
+  public Integer getAutomatonCacheSize() {
+    return automatonCacheSize;
+  }
   
   public PluginInfo getShardHandlerFactoryPluginInfo() {
     return shardHandlerFactoryConfig;
@@ -279,6 +293,7 @@ public class NodeConfig {
     private Path coreRootDirectory;
     private Path solrDataHome;
     private Integer booleanQueryMaxClauseCount;
+    private Integer automatonCacheSize;
     private Path configSetBaseDirectory;
     private String sharedLibDirectory;
     private PluginInfo shardHandlerFactoryConfig;
@@ -356,6 +371,11 @@ public class NodeConfig {
       return this;
     }
 
+    public NodeConfigBuilder setAutomatonCacheSize(Integer automatonCacheSize) {
+      this.automatonCacheSize = automatonCacheSize;
+      return this;
+    }
+
     public NodeConfigBuilder setConfigSetBaseDirectory(String configSetBaseDirectory) {
       this.configSetBaseDirectory = solrHome.resolve(configSetBaseDirectory);
       return this;
@@ -479,7 +499,7 @@ public class NodeConfig {
         loader = new SolrResourceLoader(solrHome);
       }
       return new NodeConfig(nodeName, coreRootDirectory, solrDataHome, booleanQueryMaxClauseCount,
-                            configSetBaseDirectory, sharedLibDirectory, shardHandlerFactoryConfig,
+                            automatonCacheSize, configSetBaseDirectory, sharedLibDirectory, shardHandlerFactoryConfig,
                             updateShardHandlerConfig, coreAdminHandlerClass, collectionsAdminHandlerClass, healthCheckHandlerClass, infoHandlerClass, configSetsHandlerClass,
                             logWatcherConfig, cloudConfig, coreLoadThreads, replayUpdatesThreads, transientCacheSize, useSchemaCache, managementPath,
                             solrHome, loader, solrProperties,
@@ -240,6 +240,15 @@ public class SolrConfig extends XmlConfigFile implements MapSerializable {
       conf = new CacheConfig(CaffeineCache.class, args, null);
     }
     fieldValueCacheConfig = conf;
+    conf = CacheConfig.getConfig(this, "query/rangeRollupCache");
+    if (conf == null) {
+      Map<String, String> args = new HashMap<>();
+      args.put(NAME, "rangeRollupCache");
+      args.put("maxRamMB", "64");
+      args.put("autowarmCount", "100%");
+      conf = new CacheConfig(CaffeineCache.class, args, null);
+    }
+    rangeRollupCacheConfig = conf;
     useColdSearcher = getBool("query/useColdSearcher", false);
     dataDir = get("dataDir", null);
     if (dataDir != null && dataDir.length() == 0) dataDir = null;
@@ -516,6 +525,7 @@ public class SolrConfig extends XmlConfigFile implements MapSerializable {
   public final CacheConfig queryResultCacheConfig;
   public final CacheConfig documentCacheConfig;
   public final CacheConfig fieldValueCacheConfig;
+  public final CacheConfig rangeRollupCacheConfig;
   public final Map<String, CacheConfig> userCacheConfigs;
   // SolrIndexSearcher - more...
   public final boolean useFilterForSortedQuery;
@@ -901,7 +911,7 @@ public class SolrConfig extends XmlConfigFile implements MapSerializable {
     }
 
 
-    addCacheConfig(m, filterCacheConfig, queryResultCacheConfig, documentCacheConfig, fieldValueCacheConfig);
+    addCacheConfig(m, filterCacheConfig, queryResultCacheConfig, documentCacheConfig, fieldValueCacheConfig, rangeRollupCacheConfig);
     m = new LinkedHashMap();
     result.put("requestDispatcher", m);
     m.put("handleSelect", handleSelect);
@@ -275,6 +275,9 @@ public class SolrXmlConfig {
         case "maxBooleanClauses":
           builder.setBooleanQueryMaxClauseCount(parseInt(name, value));
           break;
+        case "automatonCacheSize":
+          builder.setAutomatonCacheSize(parseInt(name, value));
+          break;
         case "managementPath":
           builder.setManagementPath(value);
           break;
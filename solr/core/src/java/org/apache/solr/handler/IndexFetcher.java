@@ -46,8 +46,10 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -169,6 +171,8 @@ public class IndexFetcher {
 
   private boolean downloadTlogFiles = false;
 
+  private int fetchThreads = 1;
+
   private boolean skipCommitOnMasterVersionZero = true;
 
   private boolean clearLocalIndexFirst = false;
@@ -267,6 +271,16 @@ public class IndexFetcher {
       downloadTlogFiles = initArgs.getBooleanArg(TLOG_FILES);
     }
 
+    // number of index files downloaded concurrently, the request params of fetchindex hold strings
+    Object fetchThreads = initArgs.get(FETCH_THREADS);
+    if (fetchThreads == null) {
+      this.fetchThreads = Integer.getInteger("solr.indexfetcher.threads", 1);
+    } else if (fetchThreads instanceof Number) {
+      this.fetchThreads = ((Number) fetchThreads).intValue();
+    } else {
+      this.fetchThreads = Integer.parseInt(fetchThreads.toString());
+    }
+
     String httpBasicAuthUser = (String) initArgs.get(HttpClientUtil.PROP_BASIC_AUTH_USER);
     String httpBasicAuthPassword = (String) initArgs.get(HttpClientUtil.PROP_BASIC_AUTH_PASS);
     myHttpClient = createHttpClient(solrCore, httpBasicAuthUser, httpBasicAuthPassword, useExternalCompression);
@@ -1052,6 +1066,7 @@ public class IndexFetcher {
       deleteFilesInAdvance(indexDir, indexDirPath, totalSpaceRequired, usableSpace);
     }
 
+    List<Map<String,Object>> filesToFetch = new ArrayList<>();
     for (Map<String,Object> file : filesToDownload) {
       String filename = (String) file.get(NAME);
       long size = (Long) file.get(SIZE);
@@ -1072,28 +1087,106 @@ public class IndexFetcher {
           // compared to a file copy. TODO: Maybe we could do a move safely here?
           Files.createLink(new File(tmpIndexDirPath, filename).toPath(), localFile.toPath());
           bytesSkippedCopying += localFile.length();
+          filesDownloaded.add(new HashMap<>(file));
         } else {
-          dirFileFetcher = new DirectoryFileFetcher(tmpIndexDir, file,
-              (String) file.get(NAME), FILE, latestGeneration);
-          currentFile = file;
-          dirFileFetcher.fetchFile();
-          bytesDownloaded += dirFileFetcher.getBytesDownloaded();
+          filesToFetch.add(file);
         }
-        filesDownloaded.add(new HashMap<>(file));
       } else {
         if (log.isDebugEnabled()) {
           log.debug("Skipping download for {} because it already exists", file.get(NAME));
         }
       }
     }
+    bytesDownloaded += fetchIndexFiles(tmpIndexDir, filesToFetch, latestGeneration);
     log.info("Bytes downloaded: {}, Bytes skipped downloading: {}", bytesDownloaded, bytesSkippedCopying);
     return bytesDownloaded;
   }
 
+  /**
+   * Downloads the given index files, {@link #fetchThreads} files at a time.
+   *
+   * @return number of bytes downloaded
+   */
+  private long fetchIndexFiles(Directory tmpIndexDir, List<Map<String, Object>> files, long latestGeneration)
+      throws Exception {
+    long bytesDownloaded = 0;
+    if (fetchThreads <= 1 || files.size() <= 1) {
+      for (Map<String, Object> file : files) {
+        bytesDownloaded += fetchIndexFile(tmpIndexDir, file, latestGeneration);
+      }
+      return bytesDownloaded;
+    }
+
+    // largest files first, so that the last running downloads are short ones
+    List<Map<String, Object>> bySize = new ArrayList<>(files);
+    bySize.sort((a, b) -> Long.compare((Long) b.get(SIZE), (Long) a.get(SIZE)));
+    ExecutorService executor = ExecutorUtil.newMDCAwareFixedThreadPool(Math.min(fetchThreads, files.size()),
+        new SolrNamedThreadFactory("indexFetcher"));
+    try {
+      CompletionService<Long> completionService = new ExecutorCompletionService<>(executor);
+      List<Future<Long>> futures = new ArrayList<>(bySize.size());
+      for (Map<String, Object> file : bySize) {
+        futures.add(completionService.submit(() -> fetchIndexFile(tmpIndexDir, file, latestGeneration)));
+      }
+      for (int i = 0; i < futures.size(); i++) {
+        try {
+          bytesDownloaded += completionService.take().get();
+        } catch (ExecutionException e) {
+          // the fetch failed, running downloads stop at their next packet like on abort, and
+          // the files that are still waiting don't start. stop is reset by cleanup.
+          stop = true;
+          for (Future<Long> f : futures) {
+            f.cancel(false);
+          }
+          if (e.getCause() instanceof Exception) {
+            throw (Exception) e.getCause();
+          }
+          throw e;
+        }
+      }
+      return bytesDownloaded;
+    } finally {
+      // downloads that are running write to tmpIndexDir, wait for them before it gets cleaned up
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+    }
+  }
+
+  /**
+   * Downloads a single index file. Downloads that had to be resumed from an offset are verified against the
+   * checksum of the file list, since their content was read from more than one stream.
+   *
+   * @return number of bytes downloaded
+   */
+  private long fetchIndexFile(Directory tmpIndexDir, Map<String, Object> file, long latestGeneration) throws Exception {
+    String filename = (String) file.get(NAME);
+    DirectoryFileFetcher fileFetcher = new DirectoryFileFetcher(tmpIndexDir, file, filename, FILE, latestGeneration);
+    dirFileFetcher = fileFetcher;
+    currentFile = file;
+    fileFetcher.fetchFile();
+    Long checksum = (Long) file.get(CHECKSUM);
+    if (fileFetcher.isResumed() && checksum != null) {
+      try (IndexInput in = tmpIndexDir.openInput(filename, IOContext.READONCE)) {
+        long actualChecksum = CodecUtil.checksumEntireFile(in);
+        if (actualChecksum != checksum) {
+          throw new SolrException(ErrorCode.SERVER_ERROR, "Resumed download of file " + filename
+              + " has checksum " + actualChecksum + " but expected " + checksum);
+        }
+      }
+    }
+    filesDownloaded.add(new HashMap<>(file));
+    return fileFetcher.getBytesDownloaded();
+  }
+
   //only for testing purposes. do not use this anywhere else
   //-----------START----------------------
   static BooleanSupplier testWait = () -> true;
   static Function<String, Long> usableDiskSpaceProvider = dir -> getUsableSpace(dir);
+  static FileStreamWrapper testFileStreamWrapper = (fileName, offset, in) -> in;
+
+  /** Wraps the stream of a file download, which starts at the given offset of the file */
+  interface FileStreamWrapper {
+    InputStream wrap(String fileName, long offset, InputStream in) throws IOException;
+  }
   //------------ END---------------------
 
 
@@ -1659,6 +1752,7 @@ public class IndexFetcher {
     private final Checksum checksum;
     private int errorCount = 0;
     private boolean aborted = false;
+    private volatile boolean resumed = false;
 
     FileFetcher(FileInterface file, Map<String, Object> fileDetails, String saveAs,
                 String solrParamOutput, long latestGen) throws IOException {
@@ -1680,28 +1774,42 @@ public class IndexFetcher {
       return bytesDownloaded;
     }
 
+    /**
+     * @return true if some of the file was downloaded by a request that started at an offset
+     */
+    public boolean isResumed() {
+      return resumed;
+    }
+
     /**
      * The main method which downloads file
      */
     public void fetchFile() throws Exception {
       bytesDownloaded = 0;
-      try {
-        fetch();
-      } catch(Exception e) {
-        if (!aborted) {
-          SolrException.log(IndexFetcher.log, "Error fetching file, doing one retry...", e);
-          // one retry
-          fetch();
-        } else {
-          throw e;
-        }
-      }
+      fetch();
     }
     
     private void fetch() throws Exception {
       try {
         while (true) {
-          final FastInputStream is = getStream();
+          final FastInputStream is;
+          try {
+            is = getStream();
+          } catch (IOException e) {
+            // the connection dropped or the peer is not reachable for a moment, try again from where it broke
+            errorCount++;
+            if (errorCount > MAX_RETRIES) {
+              throw e;
+            }
+            if (stop) {
+              aborted = true;
+              throw new ReplicationHandlerException("User aborted replication");
+            }
+            log.warn("Error opening stream for file: {} (downloaded {} of {} bytes), retry {} of {}",
+                fileName, bytesDownloaded, size, errorCount, MAX_RETRIES, e);
+            Thread.sleep(RETRY_WAIT_MS * errorCount);
+            continue;
+          }
           int result;
           try {
             //fetch packets one by one in a single request
@@ -1734,7 +1842,7 @@ public class IndexFetcher {
       try {
         while (true) {
           if (stop) {
-            stop = false;
+            // stop is reset by cleanup, after all concurrent fetchers have seen it
             aborted = true;
             throw new ReplicationHandlerException("User aborted replication");
           }
@@ -1868,6 +1976,7 @@ public class IndexFetcher {
       // the server starts from the offset
       if (bytesDownloaded > 0) {
         params.set(OFFSET, Long.toString(bytesDownloaded));
+        resumed = true;
       }
 
 
@@ -1888,6 +1997,7 @@ public class IndexFetcher {
         if(useInternalCompression) {
           is = new InflaterInputStream(is);
         }
+        is = testFileStreamWrapper.wrap(fileName, bytesDownloaded, is);
         return new FastInputStream(is);
       } catch (Exception e) {
         //close stream on error
@@ -2010,6 +2120,8 @@ public class IndexFetcher {
 
   private static final int MAX_RETRIES = 5;
 
+  private static final long RETRY_WAIT_MS = 250;
+
   private static final int NO_CONTENT = 1;
 
   private static final int ERR = 2;
@@ -1848,6 +1848,8 @@ public class ReplicationHandler extends RequestHandlerBase implements SolrCoreAw
 
   public static final String TLOG_FILES = "tlogFiles";
 
+  public static final String FETCH_THREADS = "fetchThreads";
+
   public static final String REPLICATE_AFTER = "replicateAfter";
 
   public static final String FILE_STREAM = "filestream";
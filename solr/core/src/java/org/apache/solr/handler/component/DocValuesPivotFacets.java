@@ -0,0 +1,420 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler.component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.carrotsearch.hppc.LongIntHashMap;
+import com.carrotsearch.hppc.cursors.LongIntCursor;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiDocValues;
+import org.apache.lucene.index.OrdinalMap;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.LongValues;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.FacetParams;
+import org.apache.solr.common.params.GroupParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.schema.StrField;
+import org.apache.solr.search.DocSet;
+import org.apache.solr.search.Filter;
+import org.apache.solr.search.SolrIndexSearcher;
+
+/**
+ * Computes all the levels of a pivot over string fields with docValues in a single pass over the
+ * documents, instead of intersecting a {@link DocSet} and faceting again for every parent value.
+ * <p>
+ * Every document increments the count of each of its paths of values, one per level of the pivot.
+ * A path is keyed by the global ordinals of its values, plus one so that 0 stands for a missing
+ * value, combined in a mixed radix number. The paths under a parent are thus a contiguous range of
+ * the sorted keys of the next level, in index order. Segments are collected by separate tasks
+ * whose counts are then merged. The response is then built level by level, with the same
+ * sort, offset, limit, mincount and missing semantics as {@link PivotFacetProcessor}.
+ * <p>
+ * Since every path is counted, and not only those under the values kept at every level, memory grows
+ * with the number of distinct paths of the documents. Collection is therefore given up once the
+ * segment tasks have counted more paths than the <code>solr.pivot.maxPaths</code> system property
+ * allows, 1000000 by default, and the pivot is then computed one value at a time instead.
+ */
+final class DocValuesPivotFacets {
+
+  static final String MAX_PATHS_PROP = "solr.pivot.maxPaths";
+  static final long DEFAULT_MAX_PATHS = 1000000;
+  // the number of new paths a task counts before it adds them to the shared count
+  private static final int PATHS_PER_CHECK = 1024;
+
+  private final SolrIndexSearcher searcher;
+  private final SchemaField[] fields;
+  private final SortedSetDocValues[] topValues; // for term lookups only
+  private final OrdinalMap[] ordinalMaps;
+  /** The number of values of every field, plus one for documents that are missing a value */
+  private final long[] radix;
+  private final long maxPaths;
+
+  private final int[] offsets;
+  private final int[] limits;
+  private final int[] minCounts;
+  private final int[] pivotMinCounts;
+  private final boolean[] missing;
+  private final boolean[] sortByCount;
+
+  /** For every level, the sorted keys of the paths and their counts */
+  private long[][] keys;
+  private int[][] counts;
+
+  private DocValuesPivotFacets(SolrIndexSearcher searcher, SchemaField[] fields, SortedSetDocValues[] topValues,
+                               OrdinalMap[] ordinalMaps, long[] radix, SolrParams params, SolrParams pivotParams) {
+    this.searcher = searcher;
+    this.maxPaths = Long.getLong(MAX_PATHS_PROP, DEFAULT_MAX_PATHS);
+    this.fields = fields;
+    this.topValues = topValues;
+    this.ordinalMaps = ordinalMaps;
+    this.radix = radix;
+    final int numLevels = fields.length;
+    offsets = new int[numLevels];
+    limits = new int[numLevels];
+    minCounts = new int[numLevels];
+    pivotMinCounts = new int[numLevels];
+    missing = new boolean[numLevels];
+    sortByCount = new boolean[numLevels];
+    for (int level = 0; level < numLevels; level++) {
+      final String field = fields[level].getName();
+      offsets[level] = params.getFieldInt(field, FacetParams.FACET_OFFSET, 0);
+      limits[level] = params.getFieldInt(field, FacetParams.FACET_LIMIT, 100);
+      minCounts[level] = params.getFieldInt(field, FacetParams.FACET_PIVOT_MINCOUNT, 1);
+      pivotMinCounts[level] = pivotParams.getFieldInt(field, FacetParams.FACET_PIVOT_MINCOUNT, 1);
+      missing[level] = params.getFieldBool(field, FacetParams.FACET_MISSING, false);
+      final String sort = params.getFieldParam(field, FacetParams.FACET_SORT,
+          limits[level] > 0 ? FacetParams.FACET_SORT_COUNT : FacetParams.FACET_SORT_INDEX);
+      sortByCount[level] = sort.equals(FacetParams.FACET_SORT_COUNT) || sort.equals(FacetParams.FACET_SORT_COUNT_LEGACY);
+    }
+  }
+
+  /**
+   * Returns an instance to compute the given pivot with, or null if the pivot has to be computed one
+   * value at a time because some fields are not string fields with docValues, use options that
+   * filter terms, or have too many values to combine their ordinals.
+   *
+   * @param params the params to select the values of every field with
+   * @param pivotParams the params to get the minimum count of the returned pivot values from
+   */
+  static DocValuesPivotFacets create(SolrIndexSearcher searcher, List<String> pivotFields,
+                                     SolrParams params, SolrParams pivotParams) throws IOException {
+    final int numLevels = pivotFields.size();
+    final SchemaField[] fields = new SchemaField[numLevels];
+    final SortedSetDocValues[] topValues = new SortedSetDocValues[numLevels];
+    final OrdinalMap[] ordinalMaps = new OrdinalMap[numLevels];
+    final long[] radix = new long[numLevels];
+    long numKeys = 1;
+    for (int level = 0; level < numLevels; level++) {
+      final String field = pivotFields.get(level);
+      final SchemaField sf = searcher.getSchema().getField(field);
+      if (!(sf.getType() instanceof StrField) || !sf.hasDocValues()
+          || params.getFieldParam(field, FacetParams.FACET_PREFIX) != null
+          || params.getFieldParam(field, FacetParams.FACET_CONTAINS) != null
+          || params.getFieldParam(field, FacetParams.FACET_MATCHES) != null
+          || params.getFieldParam(field, FacetParams.FACET_EXCLUDETERMS) != null
+          || params.getFieldBool(field, FacetParams.FACET_EXISTS, false)
+          || params.getFieldBool(field, GroupParams.GROUP_FACET, false)
+          // values with a count of 0 are never collected
+          || params.getFieldInt(field, FacetParams.FACET_PIVOT_MINCOUNT, 1) < 1) {
+        return null;
+      }
+      fields[level] = sf;
+
+      if (sf.multiValued() || sf.getType().multiValuedFieldCache()) {
+        final SortedSetDocValues values = searcher.getSlowAtomicReader().getSortedSetDocValues(field);
+        topValues[level] = values == null ? DocValues.emptySortedSet() : values;
+        if (values instanceof MultiDocValues.MultiSortedSetDocValues) {
+          ordinalMaps[level] = ((MultiDocValues.MultiSortedSetDocValues) values).mapping;
+        }
+      } else {
+        final SortedDocValues values = searcher.getSlowAtomicReader().getSortedDocValues(field);
+        topValues[level] = values == null ? DocValues.emptySortedSet() : DocValues.singleton(values);
+        if (values instanceof MultiDocValues.MultiSortedDocValues) {
+          ordinalMaps[level] = ((MultiDocValues.MultiSortedDocValues) values).mapping;
+        }
+      }
+
+      radix[level] = topValues[level].getValueCount() + 1;
+      try {
+        numKeys = Math.multiplyExact(numKeys, radix[level]);
+      } catch (ArithmeticException e) {
+        return null;
+      }
+    }
+    return new DocValuesPivotFacets(searcher, fields, topValues, ordinalMaps, radix, params, pivotParams);
+  }
+
+  /**
+   * Collects the given documents and returns the pivot response, or null if they have too many paths
+   * to be counted at once.
+   *
+   * @param docs the documents to compute the pivot for
+   * @param threads the maximum number of segments to collect concurrently, or a negative number for no limit
+   * @param executor the executor to collect segments with
+   */
+  List<NamedList<Object>> process(DocSet docs, int threads, Executor executor) throws IOException {
+    final LongIntHashMap[] levelCounts;
+    try {
+      levelCounts = collect(docs, threads, executor);
+    } catch (TooManyPathsException e) {
+      return null;
+    }
+    keys = new long[fields.length][];
+    counts = new int[fields.length][];
+    for (int level = 0; level < fields.length; level++) {
+      keys[level] = levelCounts[level].keys().toArray();
+      Arrays.sort(keys[level]);
+      counts[level] = new int[keys[level].length];
+      for (int i = 0; i < keys[level].length; i++) {
+        counts[level][i] = levelCounts[level].get(keys[level][i]);
+      }
+    }
+    return pivots(0, 0, selectValues(0, 0));
+  }
+
+  private LongIntHashMap[] collect(DocSet docs, int threads, Executor executor) throws IOException {
+    final CompletionService<LongIntHashMap[]> completionService = new ExecutorCompletionService<>(executor);
+    final Filter filter = docs.getTopFilter();
+    final List<LeafReaderContext> leaves = searcher.getTopReaderContext().leaves();
+    final LinkedList<Callable<LongIntHashMap[]>> pending = new LinkedList<>();
+    // the paths counted by all the tasks, which bounds the size of the merged counts too
+    final AtomicLong totalPaths = new AtomicLong();
+    int maxTasks = threads <= 0 ? Integer.MAX_VALUE : threads;
+    for (LeafReaderContext leaf : leaves) {
+      final Callable<LongIntHashMap[]> task = () -> collect(leaf, filter, totalPaths);
+      if (--maxTasks >= 0) {
+        completionService.submit(task);
+      } else {
+        pending.add(task);
+      }
+    }
+
+    final LongIntHashMap[] levelCounts = newLevelCounts();
+    for (int i = 0; i < leaves.size(); i++) {
+      final LongIntHashMap[] segmentCounts;
+      try {
+        segmentCounts = completionService.take().get();
+        if (!pending.isEmpty()) {
+          completionService.submit(pending.removeFirst());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, e);
+      } catch (ExecutionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, "Error in pivot faceting", cause);
+      }
+      for (int level = 0; level < fields.length; level++) {
+        if (levelCounts[level].isEmpty()) {
+          levelCounts[level] = segmentCounts[level];
+        } else {
+          for (LongIntCursor cursor : segmentCounts[level]) {
+            levelCounts[level].addTo(cursor.key, cursor.value);
+          }
+        }
+      }
+    }
+    return levelCounts;
+  }
+
+  private LongIntHashMap[] newLevelCounts() {
+    final LongIntHashMap[] levelCounts = new LongIntHashMap[fields.length];
+    for (int level = 0; level < fields.length; level++) {
+      levelCounts[level] = new LongIntHashMap();
+    }
+    return levelCounts;
+  }
+
+  private LongIntHashMap[] collect(LeafReaderContext leaf, Filter filter, AtomicLong totalPaths) throws IOException {
+    final LongIntHashMap[] levelCounts = newLevelCounts();
+    final DocIdSet docIdSet = filter.getDocIdSet(leaf, null); // solr docsets already exclude any deleted docs
+    final DocIdSetIterator disi = docIdSet == null ? null : docIdSet.iterator();
+    if (disi == null) {
+      return levelCounts;
+    }
+
+    final SortedSetDocValues[] values = new SortedSetDocValues[fields.length];
+    final LongValues[] globalOrds = new LongValues[fields.length];
+    for (int level = 0; level < fields.length; level++) {
+      values[level] = DocValues.getSortedSet(leaf.reader(), fields[level].getName());
+      globalOrds[level] = ordinalMaps[level] == null ? LongValues.IDENTITY : ordinalMaps[level].getGlobalOrds(leaf.ord);
+    }
+
+    // the keys of the paths of the current document at the previous and at the current level
+    long[] parentKeys = new long[1];
+    long[] pathKeys = new long[1];
+    long[] docOrds = new long[1];
+    int newPaths = 0;
+    for (int doc = disi.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = disi.nextDoc()) {
+      parentKeys[0] = 0;
+      int numParents = 1;
+      for (int level = 0; level < fields.length; level++) {
+        int numOrds = 0;
+        if (values[level].advanceExact(doc)) {
+          for (long ord = values[level].nextOrd(); ord != SortedSetDocValues.NO_MORE_ORDS; ord = values[level].nextOrd()) {
+            if (numOrds == docOrds.length) {
+              docOrds = Arrays.copyOf(docOrds, numOrds * 2);
+            }
+            docOrds[numOrds++] = globalOrds[level].get(ord) + 1;
+          }
+        } else {
+          docOrds[numOrds++] = 0;
+        }
+
+        final int numPaths = numParents * numOrds;
+        if (pathKeys.length < numPaths) {
+          pathKeys = new long[numPaths];
+        }
+        int numPathKeys = 0;
+        for (int p = 0; p < numParents; p++) {
+          for (int o = 0; o < numOrds; o++) {
+            final long key = parentKeys[p] * radix[level] + docOrds[o];
+            if (levelCounts[level].addTo(key, 1) == 1 && ++newPaths == PATHS_PER_CHECK) {
+              checkTotalPaths(totalPaths.addAndGet(newPaths));
+              newPaths = 0;
+            }
+            pathKeys[numPathKeys++] = key;
+          }
+        }
+
+        final long[] tmp = parentKeys;
+        parentKeys = pathKeys;
+        pathKeys = tmp;
+        numParents = numPaths;
+      }
+    }
+    checkTotalPaths(totalPaths.addAndGet(newPaths));
+    return levelCounts;
+  }
+
+  private void checkTotalPaths(long totalPaths) {
+    if (totalPaths > maxPaths) {
+      throw new TooManyPathsException();
+    }
+  }
+
+  /** Stops the collection of all segments once they have too many paths. */
+  private static class TooManyPathsException extends RuntimeException {
+    TooManyPathsException() {
+      super(null, null, false, false);
+    }
+  }
+
+  /**
+   * Returns the indexes in the keys of the given level of the values to return under the parent,
+   * the same way {@link org.apache.solr.request.SimpleFacets#getTermCountsForPivots} does, or -1 for
+   * the missing value.
+   */
+  private int[] selectValues(int level, long parentKey) {
+    final long[] levelKeys = keys[level];
+    final int[] levelCounts = counts[level];
+    final long firstKey = parentKey * radix[level];
+    int from = lowerBound(levelKeys, firstKey);
+    final int to = lowerBound(levelKeys, firstKey + radix[level]);
+    if (from < to && levelKeys[from] == firstKey) {
+      from++; // skip the missing value
+    }
+
+    final int limit = limits[level];
+    if (limit == 0 && !missing[level]) {
+      return new int[0];
+    }
+
+    // sorts in index order by default, and in count order with the first value first on ties
+    final long[] candidates = new long[to - from];
+    int numCandidates = 0;
+    for (int i = from; i < to; i++) {
+      final int count = levelCounts[i];
+      if (count >= minCounts[level]) {
+        candidates[numCandidates++] = sortByCount[level] ? (((long) count) << 32) + (Integer.MAX_VALUE - (i - from)) : -(i - from);
+      }
+    }
+    Arrays.sort(candidates, 0, numCandidates);
+
+    final int offset = Math.min(offsets[level], numCandidates);
+    final int numSelected = Math.min(numCandidates - offset, limit < 0 ? Integer.MAX_VALUE : limit);
+    final int[] selected = new int[numSelected + (missing[level] ? 1 : 0)];
+    for (int i = 0; i < numSelected; i++) {
+      final long candidate = candidates[numCandidates - 1 - offset - i];
+      selected[i] = from + (sortByCount[level] ? Integer.MAX_VALUE - (int) candidate : (int) -candidate);
+    }
+    if (missing[level]) {
+      selected[numSelected] = -1;
+    }
+    return selected;
+  }
+
+  private List<NamedList<Object>> pivots(int level, long parentKey, int[] selected) throws IOException {
+    final SchemaField sf = fields[level];
+    final long missingKey = parentKey * radix[level];
+    final int missingIndex = Arrays.binarySearch(keys[level], missingKey);
+
+    final List<NamedList<Object>> values = new ArrayList<>(selected.length);
+    for (int index : selected) {
+      final long key = index < 0 ? missingKey : keys[level][index];
+      final int count = index >= 0 ? counts[level][index] : (missingIndex >= 0 ? counts[level][missingIndex] : 0);
+      if (count < pivotMinCounts[level]) {
+        continue;
+      }
+
+      final SimpleOrderedMap<Object> pivot = new SimpleOrderedMap<>();
+      pivot.add("field", sf.getName());
+      if (index < 0) {
+        pivot.add("value", null);
+      } else {
+        pivot.add("value", sf.getType().toObject(sf, topValues[level].lookupOrd(key - missingKey - 1)));
+      }
+      pivot.add("count", count);
+
+      if (level + 1 < fields.length) {
+        final int[] subSelected = selectValues(level + 1, key);
+        if (subSelected.length >= 1) {
+          pivot.add("pivot", pivots(level + 1, key, subSelected));
+        }
+      }
+      values.add(pivot);
+    }
+    return values;
+  }
+
+  private static int lowerBound(long[] keys, long key) {
+    final int index = Arrays.binarySearch(keys, key);
+    return index >= 0 ? index : -1 - index;
+  }
+}
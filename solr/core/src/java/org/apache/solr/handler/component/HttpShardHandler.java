@@ -17,12 +17,18 @@
 package org.apache.solr.handler.component;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import org.apache.solr.client.solrj.SolrRequest;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.Http2SolrClient;
@@ -33,6 +39,7 @@ import org.apache.solr.cloud.ZkController;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.cloud.Replica;
 import org.apache.solr.common.cloud.ZkCoreNodeProps;
+import org.apache.solr.common.params.CoreAdminParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.params.ShardParams;
 import org.apache.solr.common.params.SolrParams;
@@ -54,6 +61,13 @@ public class HttpShardHandler extends ShardHandler {
   private Set<Future<ShardResponse>> pending;
   private Http2SolrClient httpClient;
 
+  // the collection to hedge slow requests of, null when they aren't hedged; not private for tests
+  String hedgedCollection;
+  // the requests that have more than one replica to go to, by the futures of their attempts
+  private Map<Future<ShardResponse>, HedgedRequest> hedgeable = new HashMap<>();
+  // the requests that weren't hedged yet, in the order they were sent
+  private Deque<HedgedRequest> toHedge = new ArrayDeque<>();
+
   public HttpShardHandler(HttpShardHandlerFactory httpShardHandlerFactory, Http2SolrClient httpClient) {
     this.httpClient = httpClient;
     this.httpShardHandlerFactory = httpShardHandlerFactory;
@@ -65,9 +79,26 @@ public class HttpShardHandler extends ShardHandler {
   @Override
   public void submit(final ShardRequest sreq, final String shard, final ModifiableSolrParams params) {
     ShardRequestor shardRequestor = new ShardRequestor(sreq, shard, params, this);
+    HedgedRequest hedged = null;
+    if (hedgedCollection != null && shardRequestor.getURLs().size() > 1) {
+      // copy the params, the requestor modifies them when it runs
+      hedged = new HedgedRequest(sreq, shard, new ModifiableSolrParams(params), shardRequestor.getURLs());
+      httpShardHandlerFactory.hedgingPolicy.requestSent();
+    }
+    Future<ShardResponse> future = submit(shardRequestor);
+    if (hedged != null) {
+      hedged.attempts.add(future);
+      hedgeable.put(future, hedged);
+      toHedge.add(hedged);
+    }
+  }
+
+  private Future<ShardResponse> submit(ShardRequestor shardRequestor) {
     try {
       shardRequestor.init();
-      pending.add(completionService.submit(shardRequestor));
+      Future<ShardResponse> future = completionService.submit(shardRequestor);
+      pending.add(future);
+      return future;
     } finally {
       shardRequestor.end();
     }
@@ -116,15 +147,25 @@ public class HttpShardHandler extends ShardHandler {
 
     while (pending.size() > 0) {
       try {
-        Future<ShardResponse> future = completionService.take();
-        pending.remove(future);
+        Future<ShardResponse> future = toHedge.isEmpty() ? completionService.take() : takeOrHedge();
+        if (future == null || !pending.remove(future)) {
+          // time to hedge requests, or an attempt that was cancelled
+          continue;
+        }
+        HedgedRequest hedged = hedgeable.remove(future);
         ShardResponse rsp = future.get();
+        if (hedged != null && !completeAttempt(hedged, future, rsp)) {
+          continue;
+        }
         if (bailOnError && rsp.getException() != null) return rsp; // if exception, return immediately
         // add response to the response list... we do this after the take() and
         // not after the completion of "call" so we know when the last response
         // for a request was received.  Otherwise we might return the same
         // request more than once.
         rsp.getShardRequest().responses.add(rsp);
+        if (rsp.getShardRequest().responseListener != null) {
+          rsp.getShardRequest().responseListener.accept(rsp);
+        }
         if (rsp.getShardRequest().responses.size() == rsp.getShardRequest().actualShards.length) {
           return rsp;
         }
@@ -139,12 +180,86 @@ public class HttpShardHandler extends ShardHandler {
     return null;
   }
 
+  /**
+   * Hedges the requests that have been waiting for longer than the hedging delay, then waits for the next
+   * response until the next request is due to be hedged.
+   *
+   * @return the next completed attempt, or null if requests are due to be hedged
+   */
+  private Future<ShardResponse> takeOrHedge() throws InterruptedException {
+    ShardHedgingPolicy policy = httpShardHandlerFactory.hedgingPolicy;
+    long delayMs = policy.getDelayMs(hedgedCollection);
+    if (delayMs < 0) {
+      return completionService.take();
+    }
+    long delayNanos = TimeUnit.MILLISECONDS.toNanos(delayMs);
+    long now = System.nanoTime();
+    // all the requests share the delay, so the first one is the next to hedge
+    while (!toHedge.isEmpty()) {
+      HedgedRequest hedged = toHedge.peek();
+      if (hedged.attempts.isEmpty()) {
+        toHedge.poll();
+      } else if (now - hedged.startNanos >= delayNanos) {
+        toHedge.poll();
+        if (policy.tryHedge()) {
+          hedge(hedged);
+        }
+      } else {
+        return completionService.poll(hedged.startNanos + delayNanos - now, TimeUnit.NANOSECONDS);
+      }
+    }
+    return completionService.take();
+  }
+
+  private void hedge(HedgedRequest hedged) {
+    // go through the replicas in the same order, starting with the one after the first attempt's
+    List<String> urls = new ArrayList<>(hedged.urls.subList(1, hedged.urls.size()));
+    urls.add(hedged.urls.get(0));
+    ModifiableSolrParams params = new ModifiableSolrParams(hedged.params);
+    if (hedged.sreq.resendListener != null) {
+      hedged.sreq.resendListener.accept(params);
+    }
+    Future<ShardResponse> future = submit(new ShardRequestor(hedged.sreq, hedged.shard, params, this, urls));
+    hedged.hedge = future;
+    hedged.attempts.add(future);
+    hedgeable.put(future, hedged);
+  }
+
+  /**
+   * Handles the response of an attempt of a request that could be hedged. The first successful response wins
+   * and the other attempt is cancelled, while an error is only returned if no other attempt is running.
+   *
+   * @return whether the response is the one of the request
+   */
+  private boolean completeAttempt(HedgedRequest hedged, Future<ShardResponse> future, ShardResponse rsp) {
+    hedged.attempts.remove(future);
+    if (rsp.getException() != null && !hedged.attempts.isEmpty()) {
+      return false;
+    }
+    for (Future<ShardResponse> other : hedged.attempts) {
+      pending.remove(other);
+      hedgeable.remove(other);
+      other.cancel(true);
+    }
+    hedged.attempts.clear();
+    if (rsp.getException() == null) {
+      ShardHedgingPolicy policy = httpShardHandlerFactory.hedgingPolicy;
+      policy.recordLatency(hedgedCollection, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - hedged.startNanos));
+      if (future == hedged.hedge) {
+        policy.hedgeWon();
+      }
+    }
+    return true;
+  }
+
 
   @Override
   public void cancelAll() {
     for (Future<ShardResponse> future : pending) {
       future.cancel(false);
     }
+    hedgeable.clear();
+    toHedge.clear();
   }
 
   @Override
@@ -208,6 +323,16 @@ public class HttpShardHandler extends ShardHandler {
       rb.shards[i] = createSliceShardsStr(replicaSource.getReplicasBySlice(i));
     }
 
+    if (params.getBool(ShardParams.SHARDS_HEDGE, httpShardHandlerFactory.hedgingPolicy.enabled)) {
+      String collection = zkController != null
+          ? params.get(CoreAdminParams.COLLECTION, cloudDescriptor.getCollectionName())
+          : coreDescriptor.getName();
+      // latencies are kept per collection, the shards of several collections don't share a hedging delay
+      if (collection.indexOf(',') < 0) {
+        hedgedCollection = collection;
+      }
+    }
+
     String shards_rows = params.get(ShardParams.SHARDS_ROWS);
     if (shards_rows != null) {
       rb.shards_rows = Integer.parseInt(shards_rows);
@@ -256,4 +381,22 @@ public class HttpShardHandler extends ShardHandler {
     return httpShardHandlerFactory;
   }
 
+  /** A shard request, along with the futures of its attempts that are still running. */
+  private static class HedgedRequest {
+    final ShardRequest sreq;
+    final String shard;
+    final ModifiableSolrParams params;
+    final List<String> urls;
+    final long startNanos = System.nanoTime();
+    final List<Future<ShardResponse>> attempts = new ArrayList<>(2);
+    Future<ShardResponse> hedge;
+
+    HedgedRequest(ShardRequest sreq, String shard, ModifiableSolrParams params, List<String> urls) {
+      this.sreq = sreq;
+      this.shard = shard;
+      this.params = params;
+      this.urls = urls;
+    }
+  }
+
 }
@@ -46,6 +46,7 @@ import org.apache.solr.client.solrj.impl.HttpClientUtil;
 import org.apache.solr.client.solrj.impl.HttpSolrClient;
 import org.apache.solr.client.solrj.impl.LBHttp2SolrClient;
 import org.apache.solr.client.solrj.impl.LBSolrClient;
+import org.apache.solr.client.solrj.routing.AdaptiveReplicaListTransformerFactory;
 import org.apache.solr.client.solrj.routing.AffinityReplicaListTransformerFactory;
 import org.apache.solr.client.solrj.routing.ReplicaListTransformer;
 import org.apache.solr.client.solrj.routing.ReplicaListTransformerFactory;
@@ -116,6 +117,11 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
 
   private RequestReplicaListTransformerGenerator requestReplicaListTransformerGenerator = new RequestReplicaListTransformerGenerator();
 
+  // fed with the latency of shard requests, to route them by it
+  AdaptiveReplicaListTransformerFactory adaptiveRltFactory = new AdaptiveReplicaListTransformerFactory();
+
+  ShardHedgingPolicy hedgingPolicy = new ShardHedgingPolicy();
+
   // URL scheme to be used in distributed search.
   static final String INIT_URL_SCHEME = "urlScheme";
 
@@ -216,6 +222,7 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
   private void initReplicaListTransformers(@SuppressWarnings({"rawtypes"})NamedList routingConfig) {
     String defaultRouting = null;
     ReplicaListTransformerFactory stableRltFactory = null;
+    AdaptiveReplicaListTransformerFactory adaptiveRltFactory = null;
     ReplicaListTransformerFactory defaultRltFactory;
     if (routingConfig != null && routingConfig.size() > 0) {
       Iterator<Entry<String,?>> iter = routingConfig.iterator();
@@ -235,6 +242,11 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
             defaultRouting = checkDefaultReplicaListTransformer(c, key, defaultRouting);
             stableRltFactory = new AffinityReplicaListTransformerFactory(c);
             break;
+          case ShardParams.REPLICA_ADAPTIVE:
+            NamedList<?> ac = getNamedList(e.getValue());
+            defaultRouting = checkDefaultReplicaListTransformer(ac, key, defaultRouting);
+            adaptiveRltFactory = new AdaptiveReplicaListTransformerFactory(ac);
+            break;
           default:
             throw new IllegalArgumentException("invalid replica routing spec name: " + key);
         }
@@ -243,12 +255,19 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
     if (stableRltFactory == null) {
       stableRltFactory = new AffinityReplicaListTransformerFactory();
     }
+    if (adaptiveRltFactory == null) {
+      adaptiveRltFactory = new AdaptiveReplicaListTransformerFactory();
+    }
     if (ShardParams.REPLICA_STABLE.equals(defaultRouting)) {
       defaultRltFactory = stableRltFactory;
+    } else if (ShardParams.REPLICA_ADAPTIVE.equals(defaultRouting)) {
+      defaultRltFactory = adaptiveRltFactory;
     } else {
       defaultRltFactory = RequestReplicaListTransformerGenerator.RANDOM_RLTF;
     }
-    this.requestReplicaListTransformerGenerator = new RequestReplicaListTransformerGenerator(defaultRltFactory, stableRltFactory);
+    this.adaptiveRltFactory = adaptiveRltFactory;
+    this.requestReplicaListTransformerGenerator = new RequestReplicaListTransformerGenerator(defaultRltFactory, stableRltFactory,
+        adaptiveRltFactory, null, null, null, null);
   }
 
   @Override
@@ -324,6 +343,14 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
 
     initReplicaListTransformers(getParameter(args, "replicaRouting", null, sb));
 
+    Object hedgingConfig = getParameter(args, "hedging", null, sb);
+    if (hedgingConfig != null) {
+      if (!(hedgingConfig instanceof NamedList)) {
+        throw new IllegalArgumentException("Invalid config for hedging; expected NamedList, but got " + hedgingConfig);
+      }
+      this.hedgingPolicy = new ShardHedgingPolicy((NamedList<?>) hedgingConfig);
+    }
+
     log.debug("created with {}",sb);
   }
 
@@ -458,6 +485,8 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
     commExecutor = MetricUtils.instrumentedExecutorService(commExecutor, null,
         solrMetricsContext.getMetricRegistry(),
         SolrMetricManager.mkName("httpShardExecutor", expandedScope, "threadPool"));
+    solrMetricsContext.gauge(() -> adaptiveRltFactory.getStats(), true, "replicaLatency", expandedScope, "adaptiveRouting");
+    hedgingPolicy.initializeMetrics(solrMetricsContext, expandedScope);
   }
 
   /**
@@ -191,6 +191,17 @@ public class PivotFacetProcessor extends SimpleFacets
     SolrIndexSearcher searcher = rb.req.getSearcher();
     SimpleOrderedMap<List<NamedList<Object>>> pivotResponse = new SimpleOrderedMap<>();
 
+    if (null == refinements && statsFields.isEmpty() && facetQueries.isEmpty() && facetRanges.isEmpty()) {
+      // collect all levels at once if the fields allow it
+      DocValuesPivotFacets dvPivots = DocValuesPivotFacets.create(searcher, pivotFields, parsed.params, params);
+      List<NamedList<Object>> pivots = null == dvPivots ? null
+          : dvPivots.process(parsed.docs, parsed.threads, getFacetExecutor(parsed.threads));
+      if (null != pivots) {
+        pivotResponse.add(parsed.key, pivots);
+        return pivotResponse;
+      }
+    }
+
     String field = pivotFields.get(0);
     SchemaField sfield = searcher.getSchema().getField(field);
       
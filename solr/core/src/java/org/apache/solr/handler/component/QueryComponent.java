@@ -30,6 +30,8 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import org.apache.lucene.index.ExitableDirectoryReader;
 import org.apache.lucene.index.IndexReaderContext;
@@ -367,6 +369,9 @@ public class QueryComponent extends SearchComponent
     QueryCommand cmd = rb.createQueryCommand();
     cmd.setTimeAllowed(timeAllowed);
     cmd.setMinExactCount(getMinExactCount(params));
+    if (params.getBool(ShardParams.IS_SHARD, false)) {
+      cmd.setMinCompetitiveScore(params.getFloat(ShardParams.DISTRIB_MIN_SCORE, 0f));
+    }
 
     req.getContext().put(SolrIndexSearcher.STATS_SOURCE, statsCache.get(req));
     
@@ -722,8 +727,10 @@ public class QueryComponent extends SearchComponent
     // one-pass algorithm if only id and score fields are requested, but not if fl=score since that's the same as fl=*,score
     ReturnFields fields = rb.rsp.getReturnFields();
 
-    // distrib.singlePass=true forces a one-pass query regardless of requested fields
-    boolean distribSinglePass = rb.req.getParams().getBool(ShardParams.DISTRIB_SINGLE_PASS, false);
+    // distrib.singlePass=true forces a one-pass query regardless of requested fields,
+    // otherwise it is picked when fetching the fields from each shard is cheap enough
+    Boolean singlePassParam = rb.req.getParams().getBool(ShardParams.DISTRIB_SINGLE_PASS);
+    boolean distribSinglePass = singlePassParam != null ? singlePassParam : isSinglePassCheaper(rb, fields, keyFieldName);
 
     if(distribSinglePass || (fields != null && fields.wantsField(keyFieldName)
         && fields.getRequestedFieldNames() != null  
@@ -797,9 +804,69 @@ public class QueryComponent extends SearchComponent
 
     if (additionalAdded) sreq.params.add(CommonParams.FL, additionalFL.toString());
 
+    if (rb.getMergeStrategies() == null) {
+      // merge the ids of each shard as soon as they arrive instead of once the slowest shard responded
+      IdsMerger idsMerger = new IdsMerger(rb);
+      sreq.responseListener = idsMerger;
+      if (isSortedByScoreOnly(rb.getSortSpec()) && rb.getRankQuery() == null
+          && getMinExactCount(rb.req.getParams()) < Integer.MAX_VALUE) {
+        // shards that are asked again can skip what scores below the top documents merged so far
+        sreq.resendListener = idsMerger::setMinScore;
+      }
+    }
+
     rb.addRequest(this, sreq);
   }
   
+  /**
+   * A single pass fetches the fields of the top documents of every shard, rows * shards documents, while two passes
+   * fetch the fields of the merged top documents only, at the cost of another round trip to the shards. The
+   * single pass is cheaper when few documents are requested, and shards can read all their fields from docValues
+   * without loading stored documents.
+   *
+   * @return whether the query should run in a single pass, as per {@link ShardParams#DISTRIB_SINGLE_PASS_MAX_DOCS}
+   */
+  protected boolean isSinglePassCheaper(ResponseBuilder rb, ReturnFields fields, String keyFieldName) {
+    int maxDocs = rb.req.getParams().getInt(ShardParams.DISTRIB_SINGLE_PASS_MAX_DOCS, 0);
+    if (maxDocs <= 0 || fields == null || rb.shards == null) {
+      return false;
+    }
+    // highlighting, explaining or re-ranking every shard's top documents costs more than a round trip
+    if (rb.doHighlights || rb.isDebugResults() || rb.getMergeStrategies() != null) {
+      return false;
+    }
+    long rows = rb.shards_rows > -1 ? rb.shards_rows : (long) rb.getSortSpec().getOffset() + rb.getSortSpec().getCount();
+    if (rows * rb.shards.length > maxDocs) {
+      return false;
+    }
+    Set<String> requested = fields.getRequestedFieldNames();
+    if (requested == null || fields.hasPatternMatching()) {
+      return false;
+    }
+    IndexSchema schema = rb.req.getSchema();
+    for (String name : requested) {
+      // the unique key is read by the first pass anyway
+      if (!"score".equals(name) && !name.equals(keyFieldName) && !isReadFromDocValues(schema.getFieldOrNull(name))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // see SolrDocumentFetcher, multi-valued fields are read from stored fields when they are stored
+  private static boolean isReadFromDocValues(SchemaField field) {
+    return field != null && field.hasDocValues() && !(field.stored() && field.multiValued());
+  }
+
+  private static boolean isSortedByScoreOnly(SortSpec sortSpec) {
+    Sort sort = sortSpec.getSort();
+    if (sort == null) {
+      return true;
+    }
+    SortField[] sortFields = sort.getSort();
+    return sortFields.length == 1 && sortFields[0].getType() == SortField.Type.SCORE && !sortFields[0].getReverse();
+  }
+
   protected boolean addFL(StringBuilder fl, String field, boolean additionalAdded) {
     if (additionalAdded) fl.append(",");
     fl.append(field);
@@ -824,7 +891,40 @@ public class QueryComponent extends SearchComponent
         }
       }
 
-      SortSpec ss = rb.getSortSpec();
+      IdsMerger merger = sreq.responseListener instanceof IdsMerger ? (IdsMerger) sreq.responseListener : new IdsMerger(rb);
+      merger.mergeResponses(sreq);
+      merger.finish();
+  }
+
+  /**
+   * Merges the top ids returned by the shards. When used as the {@link ShardRequest#responseListener} of the
+   * request, the response of each shard is merged as soon as it arrives, while waiting for the slower shards.
+   */
+  private class IdsMerger implements Consumer<ShardResponse> {
+    private final ResponseBuilder rb;
+    private final SortSpec ss;
+    private final IndexSchema schema;
+    private final SchemaField uniqueKeyField;
+
+    // id to shard mapping, to eliminate any accidental dups
+    private final HashMap<Object,String> uniqueDoc = new HashMap<>();
+
+    // Merge the docs via a priority queue so we don't have to sort *all* of the
+    // documents... we only need to order the top (rows+start)
+    private final ShardFieldSortedHitQueue queue;
+
+    private final NamedList<Object> shardInfo;
+
+    private int numMerged = 0; // number of responses of the request merged so far
+    private long numFound = 0;
+    private boolean hitCountIsExact = true;
+    private Float maxScore=null;
+    private boolean thereArePartialResults = false;
+    private Boolean segmentTerminatedEarly = null;
+
+    IdsMerger(ResponseBuilder rb) {
+      this.rb = rb;
+      this.ss = rb.getSortSpec();
       Sort sort = ss.getSort();
 
       SortField[] sortFields = null;
@@ -832,153 +932,169 @@ public class QueryComponent extends SearchComponent
       else {
         sortFields = new SortField[]{SortField.FIELD_SCORE};
       }
- 
-      IndexSchema schema = rb.req.getSchema();
-      SchemaField uniqueKeyField = schema.getUniqueKeyField();
-
 
-      // id to shard mapping, to eliminate any accidental dups
-      HashMap<Object,String> uniqueDoc = new HashMap<>();
+      this.schema = rb.req.getSchema();
+      this.uniqueKeyField = schema.getUniqueKeyField();
+      this.queue = new ShardFieldSortedHitQueue(sortFields, ss.getOffset() + ss.getCount(), rb.req.getSearcher());
+      this.shardInfo = rb.req.getParams().getBool(ShardParams.SHARDS_INFO, false) ? new SimpleOrderedMap<>() : null;
+    }
 
-      // Merge the docs via a priority queue so we don't have to sort *all* of the
-      // documents... we only need to order the top (rows+start)
-      final ShardFieldSortedHitQueue queue = new ShardFieldSortedHitQueue(sortFields, ss.getOffset() + ss.getCount(), rb.req.getSearcher());
+    @Override
+    public void accept(ShardResponse srsp) {
+      mergeResponses(srsp.getShardRequest());
+    }
 
-      NamedList<Object> shardInfo = null;
-      if(rb.req.getParams().getBool(ShardParams.SHARDS_INFO, false)) {
-        shardInfo = new SimpleOrderedMap<>();
-        rb.rsp.getValues().add(ShardParams.SHARDS_INFO,shardInfo);
+    /** Merges the responses of the request that were not merged yet, in the order they were received. */
+    void mergeResponses(ShardRequest sreq) {
+      for (; numMerged < sreq.responses.size(); numMerged++) {
+        merge(sreq.responses.get(numMerged));
       }
-      
-      long numFound = 0;
-      boolean hitCountIsExact = true;
-      Float maxScore=null;
-      boolean thereArePartialResults = false;
-      Boolean segmentTerminatedEarly = null;
-      for (ShardResponse srsp : sreq.responses) {
-        SolrDocumentList docs = null;
-        NamedList<?> responseHeader = null;
+    }
 
-        if(shardInfo!=null) {
-          SimpleOrderedMap<Object> nl = new SimpleOrderedMap<>();
-          
-          if (srsp.getException() != null) {
-            Throwable t = srsp.getException();
-            if(t instanceof SolrServerException) {
-              t = ((SolrServerException)t).getCause();
-            }
-            nl.add("error", t.toString() );
-            StringWriter trace = new StringWriter();
-            t.printStackTrace(new PrintWriter(trace));
-            nl.add("trace", trace.toString() );
-            if (srsp.getShardAddress() != null) {
-              nl.add("shardAddress", srsp.getShardAddress());
-            }
+    @SuppressWarnings({"unchecked"})
+    private void merge(ShardResponse srsp) {
+      SolrDocumentList docs = null;
+      NamedList<?> responseHeader = null;
+
+      if(shardInfo!=null) {
+        SimpleOrderedMap<Object> nl = new SimpleOrderedMap<>();
+        
+        if (srsp.getException() != null) {
+          Throwable t = srsp.getException();
+          if(t instanceof SolrServerException) {
+            t = ((SolrServerException)t).getCause();
           }
-          else {
-            responseHeader = (NamedList<?>)srsp.getSolrResponse().getResponse().get("responseHeader");
-            final Object rhste = responseHeader.get(SolrQueryResponse.RESPONSE_HEADER_SEGMENT_TERMINATED_EARLY_KEY);
-            if (rhste != null) {
-              nl.add(SolrQueryResponse.RESPONSE_HEADER_SEGMENT_TERMINATED_EARLY_KEY, rhste);
-            }
-            docs = (SolrDocumentList)srsp.getSolrResponse().getResponse().get("response");
-            nl.add("numFound", docs.getNumFound());
-            nl.add("numFoundExact", docs.getNumFoundExact());
-            nl.add("maxScore", docs.getMaxScore());
+          nl.add("error", t.toString() );
+          StringWriter trace = new StringWriter();
+          t.printStackTrace(new PrintWriter(trace));
+          nl.add("trace", trace.toString() );
+          if (srsp.getShardAddress() != null) {
             nl.add("shardAddress", srsp.getShardAddress());
           }
-          if(srsp.getSolrResponse()!=null) {
-            nl.add("time", srsp.getSolrResponse().getElapsedTime());
+        }
+        else {
+          responseHeader = (NamedList<?>)srsp.getSolrResponse().getResponse().get("responseHeader");
+          final Object rhste = responseHeader.get(SolrQueryResponse.RESPONSE_HEADER_SEGMENT_TERMINATED_EARLY_KEY);
+          if (rhste != null) {
+            nl.add(SolrQueryResponse.RESPONSE_HEADER_SEGMENT_TERMINATED_EARLY_KEY, rhste);
           }
-
-          shardInfo.add(srsp.getShard(), nl);
+          docs = (SolrDocumentList)srsp.getSolrResponse().getResponse().get("response");
+          nl.add("numFound", docs.getNumFound());
+          nl.add("numFoundExact", docs.getNumFoundExact());
+          nl.add("maxScore", docs.getMaxScore());
+          nl.add("shardAddress", srsp.getShardAddress());
         }
-        // now that we've added the shard info, let's only proceed if we have no error.
-        if (srsp.getException() != null) {
-          thereArePartialResults = true;
-          continue;
+        if(srsp.getSolrResponse()!=null) {
+          nl.add("time", srsp.getSolrResponse().getElapsedTime());
         }
 
-        if (docs == null) { // could have been initialized in the shards info block above
-          docs = (SolrDocumentList)srsp.getSolrResponse().getResponse().get("response");
+        shardInfo.add(srsp.getShard(), nl);
+      }
+      // now that we've added the shard info, let's only proceed if we have no error.
+      if (srsp.getException() != null) {
+        thereArePartialResults = true;
+        return;
+      }
+
+      if (docs == null) { // could have been initialized in the shards info block above
+        docs = (SolrDocumentList)srsp.getSolrResponse().getResponse().get("response");
+      }
+      
+      if (responseHeader == null) { // could have been initialized in the shards info block above
+        responseHeader = (NamedList<?>)srsp.getSolrResponse().getResponse().get("responseHeader");
+      }
+
+      final boolean thisResponseIsPartial;
+      thisResponseIsPartial = Boolean.TRUE.equals(responseHeader.getBooleanArg(SolrQueryResponse.RESPONSE_HEADER_PARTIAL_RESULTS_KEY));
+      thereArePartialResults |= thisResponseIsPartial;
+      
+      if (!Boolean.TRUE.equals(segmentTerminatedEarly)) {
+        final Object ste = responseHeader.get(SolrQueryResponse.RESPONSE_HEADER_SEGMENT_TERMINATED_EARLY_KEY);
+        if (Boolean.TRUE.equals(ste)) {
+          segmentTerminatedEarly = Boolean.TRUE;
+        } else if (Boolean.FALSE.equals(ste)) {
+          segmentTerminatedEarly = Boolean.FALSE;
         }
-        
-        if (responseHeader == null) { // could have been initialized in the shards info block above
-          responseHeader = (NamedList<?>)srsp.getSolrResponse().getResponse().get("responseHeader");
+      }
+      
+      // calculate global maxScore and numDocsFound
+      if (docs.getMaxScore() != null) {
+        maxScore = maxScore==null ? docs.getMaxScore() : Math.max(maxScore, docs.getMaxScore());
+      }
+      numFound += docs.getNumFound();
+      
+      if (hitCountIsExact && Boolean.FALSE.equals(docs.getNumFoundExact())) {
+        hitCountIsExact = false;
+      }
+
+      @SuppressWarnings({"rawtypes"})
+      NamedList sortFieldValues = (NamedList)(srsp.getSolrResponse().getResponse().get("sort_values"));
+      if (sortFieldValues.size()==0 && // we bypass merging this response only if it's partial itself
+                          thisResponseIsPartial) { // but not the previous one!!
+        return; //fsv timeout yields empty sort_vlaues
+      }
+      @SuppressWarnings({"rawtypes"})
+      NamedList unmarshalledSortFieldValues = unmarshalSortValues(ss, sortFieldValues, schema);
+
+      // go through every doc in this response, construct a ShardDoc, and
+      // put it in the priority queue so it can be ordered.
+      for (int i=0; i<docs.size(); i++) {
+        SolrDocument doc = docs.get(i);
+        Object id = doc.getFieldValue(uniqueKeyField.getName());
+
+        String prevShard = uniqueDoc.put(id, srsp.getShard());
+        if (prevShard != null) {
+          // duplicate detected
+          numFound--;
+
+          // For now, just always use the first encountered since we can't currently
+          // remove the previous one added to the priority queue.  If we switched
+          // to the Java5 PriorityQueue, this would be easier.
+          continue;
+          // make which duplicate is used deterministic based on shard
+          // if (prevShard.compareTo(srsp.shard) >= 0) {
+          //  TODO: remove previous from priority queue
+          //  continue;
+          // }
         }
 
-        final boolean thisResponseIsPartial;
-        thisResponseIsPartial = Boolean.TRUE.equals(responseHeader.getBooleanArg(SolrQueryResponse.RESPONSE_HEADER_PARTIAL_RESULTS_KEY));
-        thereArePartialResults |= thisResponseIsPartial;
-        
-        if (!Boolean.TRUE.equals(segmentTerminatedEarly)) {
-          final Object ste = responseHeader.get(SolrQueryResponse.RESPONSE_HEADER_SEGMENT_TERMINATED_EARLY_KEY);
-          if (Boolean.TRUE.equals(ste)) {
-            segmentTerminatedEarly = Boolean.TRUE;
-          } else if (Boolean.FALSE.equals(ste)) {
-            segmentTerminatedEarly = Boolean.FALSE;
+        ShardDoc shardDoc = new ShardDoc();
+        shardDoc.id = id;
+        shardDoc.shard = srsp.getShard();
+        shardDoc.orderInShard = i;
+        Object scoreObj = doc.getFieldValue("score");
+        if (scoreObj != null) {
+          if (scoreObj instanceof String) {
+            shardDoc.score = Float.parseFloat((String)scoreObj);
+          } else {
+            shardDoc.score = (Float)scoreObj;
           }
         }
-        
-        // calculate global maxScore and numDocsFound
-        if (docs.getMaxScore() != null) {
-          maxScore = maxScore==null ? docs.getMaxScore() : Math.max(maxScore, docs.getMaxScore());
-        }
-        numFound += docs.getNumFound();
-        
-        if (hitCountIsExact && Boolean.FALSE.equals(docs.getNumFoundExact())) {
-          hitCountIsExact = false;
-        }
 
-        @SuppressWarnings({"rawtypes"})
-        NamedList sortFieldValues = (NamedList)(srsp.getSolrResponse().getResponse().get("sort_values"));
-        if (sortFieldValues.size()==0 && // we bypass merging this response only if it's partial itself
-                            thisResponseIsPartial) { // but not the previous one!!
-          continue; //fsv timeout yields empty sort_vlaues
-        }
-        @SuppressWarnings({"rawtypes"})
-        NamedList unmarshalledSortFieldValues = unmarshalSortValues(ss, sortFieldValues, schema);
-
-        // go through every doc in this response, construct a ShardDoc, and
-        // put it in the priority queue so it can be ordered.
-        for (int i=0; i<docs.size(); i++) {
-          SolrDocument doc = docs.get(i);
-          Object id = doc.getFieldValue(uniqueKeyField.getName());
-
-          String prevShard = uniqueDoc.put(id, srsp.getShard());
-          if (prevShard != null) {
-            // duplicate detected
-            numFound--;
-
-            // For now, just always use the first encountered since we can't currently
-            // remove the previous one added to the priority queue.  If we switched
-            // to the Java5 PriorityQueue, this would be easier.
-            continue;
-            // make which duplicate is used deterministic based on shard
-            // if (prevShard.compareTo(srsp.shard) >= 0) {
-            //  TODO: remove previous from priority queue
-            //  continue;
-            // }
-          }
+        shardDoc.sortFieldValues = unmarshalledSortFieldValues;
 
-          ShardDoc shardDoc = new ShardDoc();
-          shardDoc.id = id;
-          shardDoc.shard = srsp.getShard();
-          shardDoc.orderInShard = i;
-          Object scoreObj = doc.getFieldValue("score");
-          if (scoreObj != null) {
-            if (scoreObj instanceof String) {
-              shardDoc.score = Float.parseFloat((String)scoreObj);
-            } else {
-              shardDoc.score = (Float)scoreObj;
-            }
-          }
+        queue.insertWithOverflow(shardDoc);
+      } // end for-each-doc-in-response
+    }
 
-          shardDoc.sortFieldValues = unmarshalledSortFieldValues;
+    /**
+     * Once the top documents merged so far fill the queue, a document can only make it into the queue if it
+     * scores at least as high as the least competitive one it holds.
+     */
+    void setMinScore(ModifiableSolrParams params) {
+      int size = ss.getOffset() + ss.getCount();
+      if (size <= 0 || queue.size() < size) {
+        return;
+      }
+      // documents that tie with it may still make it on the tie break
+      params.set(ShardParams.DISTRIB_MIN_SCORE, Float.toString(Math.nextDown(queue.top().score)));
+    }
+
+    void finish() {
+      if (shardInfo != null) {
+        rb.rsp.getValues().add(ShardParams.SHARDS_INFO,shardInfo);
+      }
 
-          queue.insertWithOverflow(shardDoc);
-        } // end for-each-doc-in-response
-      } // end for-each-response
       
       // The queue now has 0 -> queuesize docs, where queuesize <= start + rows
       // So we want to pop the last documents off the queue to get
@@ -1028,6 +1144,7 @@ public class QueryComponent extends SearchComponent
           rb.rsp.getResponseHeader().add(SolrQueryResponse.RESPONSE_HEADER_SEGMENT_TERMINATED_EARLY_KEY, segmentTerminatedEarly);
         }
       }
+    }
   }
 
   /**
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler.component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.metrics.SolrMetricsContext;
+
+/**
+ * Decides when a shard request that is slow to respond is sent again to another replica of the shard, so that a
+ * single slow replica doesn't hold up the whole distributed request. The first of the two requests to respond
+ * successfully is used, and the other one is cancelled.
+ * <p>
+ * A request is hedged once it has been outstanding for longer than a percentile of the latencies recently observed
+ * for shard requests of the same collection. Hedges are limited to a ratio of the requests sent, so that hedging
+ * doesn't add to the load of replicas that all slow down, e.g. during an outage.
+ * <p>
+ * Configured by the <code>hedging</code> entry of the {@link HttpShardHandlerFactory} config, hedging is disabled
+ * by default, and may also be enabled or disabled per request with <code>shards.hedge</code>.
+ */
+class ShardHedgingPolicy {
+
+  static final String ENABLED = "enabled";
+  static final String PERCENTILE = "percentile";
+  static final String MIN_DELAY_MS = "minDelayMs";
+  static final String MAX_RATIO = "maxRatio";
+  static final String MIN_SAMPLES = "minSamples";
+
+  // how many hedges may be sent in a row, once budget was accumulated
+  private static final double MAX_BURST = 10;
+  private static final long DELAY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  final boolean enabled;
+  private final double percentile;
+  private final long minDelayMs;
+  private final double maxRatio;
+  private final int minSamples;
+
+  private final Map<String, Latencies> latencies = new ConcurrentHashMap<>();
+  private double budget;
+
+  private Meter requests = new Meter();
+  private Meter hedges = new Meter();
+  private Meter wins = new Meter();
+  private Meter rejected = new Meter();
+
+  ShardHedgingPolicy() {
+    this(false, 0.95, 10, 0.05, 100);
+  }
+
+  /**
+   * @param percentile the percentile of the latencies after which requests are hedged, between 0 and 1
+   * @param minDelayMs the minimum time after which requests are hedged
+   * @param maxRatio   the maximum ratio of hedges to requests sent
+   * @param minSamples how many latencies must have been observed for a collection before its requests are hedged
+   */
+  ShardHedgingPolicy(boolean enabled, double percentile, long minDelayMs, double maxRatio, int minSamples) {
+    if (percentile <= 0 || percentile >= 1) {
+      throw new IllegalArgumentException(PERCENTILE + " must be in (0, 1): " + percentile);
+    }
+    if (maxRatio < 0 || maxRatio > 1) {
+      throw new IllegalArgumentException(MAX_RATIO + " must be in [0, 1]: " + maxRatio);
+    }
+    this.enabled = enabled;
+    this.percentile = percentile;
+    this.minDelayMs = minDelayMs;
+    this.maxRatio = maxRatio;
+    this.minSamples = minSamples;
+  }
+
+  ShardHedgingPolicy(NamedList<?> c) {
+    this(Boolean.TRUE.equals(c.getBooleanArg(ENABLED)), getNumber(c, PERCENTILE, 0.95).doubleValue(),
+        getNumber(c, MIN_DELAY_MS, 10).longValue(), getNumber(c, MAX_RATIO, 0.05).doubleValue(),
+        getNumber(c, MIN_SAMPLES, 100).intValue());
+  }
+
+  private static Number getNumber(NamedList<?> c, String name, Number def) {
+    Object val = c.get(name);
+    return val == null ? def : val instanceof Number ? (Number) val : Double.valueOf(val.toString());
+  }
+
+  void initializeMetrics(SolrMetricsContext solrMetricsContext, String scope) {
+    requests = solrMetricsContext.meter("requests", scope, "hedging");
+    hedges = solrMetricsContext.meter("hedges", scope, "hedging");
+    wins = solrMetricsContext.meter("wins", scope, "hedging");
+    rejected = solrMetricsContext.meter("rejected", scope, "hedging");
+  }
+
+  /**
+   * @return how long to wait for a response to a request to the given collection before hedging it, or -1 if
+   * not enough latencies were observed yet
+   */
+  long getDelayMs(String collection) {
+    Latencies l = latencies.get(collection);
+    if (l == null || l.histogram.getCount() < minSamples) {
+      return -1;
+    }
+    long now = System.nanoTime();
+    // computing the snapshot sorts the samples, don't do it for every request
+    if (l.delayMs < 0 || now - l.refreshedAt > DELAY_REFRESH_NANOS) {
+      l.delayMs = Math.max(minDelayMs, (long) Math.ceil(l.histogram.getSnapshot().getValue(percentile)));
+      l.refreshedAt = now;
+    }
+    return l.delayMs;
+  }
+
+  /** Records the time it took to get a successful response to a request to the given collection. */
+  void recordLatency(String collection, long elapsedMs) {
+    latencies.computeIfAbsent(collection, k -> new Latencies()).histogram.update(elapsedMs);
+  }
+
+  /** Records that a hedgeable request was sent, which adds to the budget for hedges. */
+  synchronized void requestSent() {
+    requests.mark();
+    budget = Math.min(MAX_BURST, budget + maxRatio);
+  }
+
+  /**
+   * @return whether a hedge may be sent, in which case it is taken from the budget
+   */
+  synchronized boolean tryHedge() {
+    if (budget < 1) {
+      rejected.mark();
+      return false;
+    }
+    budget -= 1;
+    hedges.mark();
+    return true;
+  }
+
+  /** Records that a hedge responded before the request it was sent for. */
+  void hedgeWon() {
+    wins.mark();
+  }
+
+  private static class Latencies {
+    final Histogram histogram = new Histogram(new ExponentiallyDecayingReservoir());
+    volatile long delayMs = -1;
+    volatile long refreshedAt;
+  }
+}
@@ -20,6 +20,7 @@ import org.apache.solr.common.params.ModifiableSolrParams;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 
 // todo... when finalized make accessors
@@ -59,6 +60,19 @@ public class ShardRequest {
   /** may be null */
   public String nodeName;
 
+  /**
+   * if not null, called by the framework with each response as soon as it is received, before the
+   * responses of the other shards.  Components still get all responses in
+   * {@link SearchComponent#handleResponses(ResponseBuilder, ShardRequest)} once the request is complete.
+   */
+  public Consumer<ShardResponse> responseListener;
+
+  /**
+   * if not null, called with a copy of the params of this request when it is sent again to another replica of
+   * a shard that didn't respond yet, e.g. when hedging, to adapt them to the responses received in the meantime.
+   */
+  public Consumer<ModifiableSolrParams> resendListener;
+
   // TODO: one could store a list of numbers to correlate where returned docs
   // go in the top-level response rather than looking up by id...
   // this would work well if we ever transitioned to using internal ids and
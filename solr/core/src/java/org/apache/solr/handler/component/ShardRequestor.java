@@ -29,6 +29,7 @@ import org.apache.solr.client.solrj.SolrRequest;
 import org.apache.solr.client.solrj.SolrResponse;
 import org.apache.solr.client.solrj.impl.LBSolrClient;
 import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.client.solrj.routing.AdaptiveReplicaListTransformerFactory;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
@@ -46,6 +47,7 @@ class ShardRequestor implements Callable<ShardResponse> {
   private final Span span;
   private final List<String> urls;
   private final HttpShardHandler httpShardHandler;
+  private final AdaptiveReplicaListTransformerFactory latencyTracker;
 
   // maps "localhost:8983|localhost:7574" to a shuffled List("http://localhost:8983","http://localhost:7574")
   // This is primarily to keep track of what order we should use to query the replicas of a shard
@@ -53,12 +55,21 @@ class ShardRequestor implements Callable<ShardResponse> {
   private Map<String, List<String>> shardToURLs = new HashMap<>();
 
   public ShardRequestor(ShardRequest sreq, String shard, ModifiableSolrParams params, HttpShardHandler httpShardHandler) {
+    this(sreq, shard, params, httpShardHandler, null);
+  }
+
+  /**
+   * @param urls the urls to send the request to in that order, or null to use the replicas of the shard
+   */
+  ShardRequestor(ShardRequest sreq, String shard, ModifiableSolrParams params, HttpShardHandler httpShardHandler,
+                 List<String> urls) {
     this.sreq = sreq;
     this.shard = shard;
     this.params = params;
     this.httpShardHandler = httpShardHandler;
+    this.latencyTracker = httpShardHandler.httpShardHandlerFactory.adaptiveRltFactory;
     // do this before call() for thread safety reasons
-    this.urls = getURLs(shard);
+    this.urls = urls != null ? urls : getURLs(shard);
     tracer = GlobalTracer.getTracer();
     span = tracer != null ? tracer.activeSpan() : null;
   }
@@ -75,6 +86,10 @@ class ShardRequestor implements Callable<ShardResponse> {
     return urls;
   }
 
+  List<String> getURLs() {
+    return urls;
+  }
+
   void init() {
     if (shard != null) {
       MDC.put("ShardRequest.shards", shard);
@@ -101,6 +116,7 @@ class ShardRequestor implements Callable<ShardResponse> {
     SimpleSolrResponse ssr = new SimpleSolrResponse();
     srsp.setSolrResponse(ssr);
     long startTime = System.nanoTime();
+    boolean tracked = false;
 
     try {
       params.remove(CommonParams.WT); // use default (currently javabin)
@@ -124,6 +140,11 @@ class ShardRequestor implements Callable<ShardResponse> {
         throw new SolrException(SolrException.ErrorCode.SERVICE_UNAVAILABLE, "no servers hosting shard: " + shard);
       }
 
+      // only worth the bookkeeping while replicas are ordered by their latency
+      if (latencyTracker.isActive()) {
+        latencyTracker.requestStarted(urls.get(0));
+        tracked = true;
+      }
       if (urls.size() <= 1) {
         String url = urls.get(0);
         srsp.setShardAddress(url);
@@ -145,10 +166,20 @@ class ShardRequestor implements Callable<ShardResponse> {
     }
 
     ssr.elapsedTime = TimeUnit.MILLISECONDS.convert(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+    if (tracked) {
+      latencyTracker.requestFinished(urls.get(0), srsp.getShardAddress(), ssr.elapsedTime, getQTime(ssr.nl),
+          srsp.getException() == null);
+    }
 
     return httpShardHandler.transfomResponse(sreq, srsp, shard);
   }
 
+  private static long getQTime(NamedList<Object> rsp) {
+    Object header = rsp == null ? null : rsp.get("responseHeader");
+    Object qTime = header instanceof NamedList ? ((NamedList<?>) header).get("QTime") : null;
+    return qTime instanceof Number ? ((Number) qTime).longValue() : -1;
+  }
+
   static class SimpleSolrResponse extends SolrResponse {
 
     long elapsedTime;
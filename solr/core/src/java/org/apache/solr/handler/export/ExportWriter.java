@@ -40,6 +40,7 @@ import org.apache.solr.client.solrj.io.comp.ComparatorOrder;
 import org.apache.solr.client.solrj.io.comp.FieldComparator;
 import org.apache.solr.client.solrj.io.comp.MultipleFieldComparator;
 import org.apache.solr.client.solrj.io.comp.StreamComparator;
+import org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter;
 import org.apache.solr.client.solrj.io.stream.StreamContext;
 import org.apache.solr.client.solrj.io.stream.TupleStream;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation;
@@ -264,7 +265,7 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
 
   @Override
   public String getContentType() {
-    if ("javabin".equals(wt)) {
+    if ("javabin".equals(wt) || CommonParams.COLUMNAR.equals(wt)) {
       return BinaryResponseParser.BINARY_CONTENT_TYPE;
     } else return "json";
   }
@@ -293,7 +294,9 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
 
   public void write(OutputStream os) throws IOException {
     QueryResponseWriter rw = req.getCore().getResponseWriters().get(wt);
-    if (rw instanceof BinaryResponseWriter) {
+    if (CommonParams.COLUMNAR.equals(wt)) {
+      writer = new ColumnarTupleWriter(os);
+    } else if (rw instanceof BinaryResponseWriter) {
       //todo add support for other writers after testing
       writer = new JavaBinCodec(os, null);
     } else {
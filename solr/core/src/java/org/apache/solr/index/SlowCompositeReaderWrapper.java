@@ -18,13 +18,17 @@ package org.apache.solr.index;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.lucene.index.*;
 import org.apache.lucene.index.MultiDocValues.MultiSortedDocValues;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.Version;
+import org.apache.lucene.util.packed.PackedInts;
 
 /**
  * This class forces a composite reader (eg a {@link
@@ -54,10 +58,19 @@ public final class SlowCompositeReaderWrapper extends LeafReader {
 
   final Map<String,Terms> cachedTerms = new ConcurrentHashMap<>();
 
-  // TODO: consider ConcurrentHashMap ?
   // TODO: this could really be a weak map somewhere else on the coreCacheKey,
   // but do we really need to optimize slow-wrapper any more?
-  final Map<String,OrdinalMap> cachedOrdMaps = new HashMap<>();
+  final Map<String,OrdinalMap> cachedOrdMaps = new ConcurrentHashMap<>();
+  // ordinal maps are built under a per-field lock, so that a slow build doesn't block other fields
+  private final Map<String,Object> ordMapLocks = new ConcurrentHashMap<>();
+  private final LongAdder ordMapBuilds = new LongAdder();
+  private final LongAdder ordMapBuildNanos = new LongAdder();
+  private final LongAdder reusedOrdMaps = new LongAdder();
+  private final LongAdder incrementalOrdMapBuilds = new LongAdder();
+  // ordinal maps of a previous reader whose segments are all still part of this reader, consumed by the
+  // first incremental build of each field; previousSegments maps our segments to the previous ones
+  private final Map<String,OrdinalMap> previousOrdMaps = new ConcurrentHashMap<>();
+  private volatile int[] previousSegments;
 
   /** This method is sugar for getting an {@link LeafReader} from
    * an {@link IndexReader} of any kind. If the reader is already atomic,
@@ -151,29 +164,45 @@ public final class SlowCompositeReaderWrapper extends LeafReader {
   @Override
   public SortedDocValues getSortedDocValues(String field) throws IOException {
     ensureOpen();
-    OrdinalMap map = null;
-    synchronized (cachedOrdMaps) {
-      map = cachedOrdMaps.get(field);
-      if (map == null) {
-        // uncached, or not a multi dv
-        SortedDocValues dv = MultiDocValues.getSortedValues(in, field);
-        if (dv instanceof MultiSortedDocValues) {
-          map = ((MultiSortedDocValues)dv).mapping;
-          IndexReader.CacheHelper cacheHelper = getReaderCacheHelper();
-          if (cacheHelper != null && map.owner == cacheHelper.getKey()) {
-            cachedOrdMaps.put(field, map);
+    OrdinalMap map = cachedOrdMaps.get(field);
+    if (map == null) {
+      synchronized (ordMapLocks.computeIfAbsent(field, f -> new Object())) {
+        map = cachedOrdMaps.get(field);
+        if (map == null) {
+          final long startNanos = System.nanoTime();
+          final OrdinalMap previousMap = previousOrdMaps.remove(field);
+          if (previousMap != null) {
+            final SortedDocValues[] values = getLeafSortedValues(field);
+            if (values == null) {
+              return null;
+            }
+            map = OrdinalMap.build(getReaderCacheHelper().getKey(), previousMap, previousSegments, values, PackedInts.DEFAULT);
+            incrementalOrdMapBuilds.increment();
+            cacheOrdMap(field, map, startNanos);
+            return newMultiSortedValues(values, map);
           }
+          // uncached, or not a multi dv
+          SortedDocValues dv = MultiDocValues.getSortedValues(in, field);
+          if (dv instanceof MultiSortedDocValues) {
+            cacheOrdMap(field, ((MultiSortedDocValues)dv).mapping, startNanos);
+          }
+          return dv;
         }
-        return dv;
       }
     }
+    final SortedDocValues[] values = getLeafSortedValues(field);
+    if (values == null) {
+      return null;
+    }
+    return newMultiSortedValues(values, map);
+  }
+
+  /** Returns the sorted doc values of each segment, or null if a segment has another doc values type. */
+  private SortedDocValues[] getLeafSortedValues(String field) throws IOException {
     int size = in.leaves().size();
     final SortedDocValues[] values = new SortedDocValues[size];
-    final int[] starts = new int[size+1];
-    long totalCost = 0;
     for (int i = 0; i < size; i++) {
-      LeafReaderContext context = in.leaves().get(i);
-      final LeafReader reader = context.reader();
+      final LeafReader reader = in.leaves().get(i).reader();
       final FieldInfo fieldInfo = reader.getFieldInfos().fieldInfo(field);
       if (fieldInfo != null && fieldInfo.getDocValuesType() != DocValuesType.SORTED) {
         return null;
@@ -182,9 +211,18 @@ public final class SlowCompositeReaderWrapper extends LeafReader {
       if (v == null) {
         v = DocValues.emptySorted();
       }
-      totalCost += v.cost();
       values[i] = v;
-      starts[i] = context.docBase;
+    }
+    return values;
+  }
+
+  private SortedDocValues newMultiSortedValues(SortedDocValues[] values, OrdinalMap map) throws IOException {
+    int size = values.length;
+    final int[] starts = new int[size+1];
+    long totalCost = 0;
+    for (int i = 0; i < size; i++) {
+      totalCost += values[i].cost();
+      starts[i] = in.leaves().get(i).docBase;
     }
     starts[size] = maxDoc();
     return new MultiSortedDocValues(values, starts, map, totalCost);
@@ -193,31 +231,47 @@ public final class SlowCompositeReaderWrapper extends LeafReader {
   @Override
   public SortedSetDocValues getSortedSetDocValues(String field) throws IOException {
     ensureOpen();
-    OrdinalMap map = null;
-    synchronized (cachedOrdMaps) {
-      map = cachedOrdMaps.get(field);
-      if (map == null) {
-        // uncached, or not a multi dv
-        SortedSetDocValues dv = MultiDocValues.getSortedSetValues(in, field);
-        if (dv instanceof MultiDocValues.MultiSortedSetDocValues) {
-          map = ((MultiDocValues.MultiSortedSetDocValues)dv).mapping;
-          IndexReader.CacheHelper cacheHelper = getReaderCacheHelper();
-          if (cacheHelper != null && map.owner == cacheHelper.getKey()) {
-            cachedOrdMaps.put(field, map);
+    OrdinalMap map = cachedOrdMaps.get(field);
+    if (map == null) {
+      synchronized (ordMapLocks.computeIfAbsent(field, f -> new Object())) {
+        map = cachedOrdMaps.get(field);
+        if (map == null) {
+          final long startNanos = System.nanoTime();
+          final OrdinalMap previousMap = previousOrdMaps.remove(field);
+          if (previousMap != null) {
+            final SortedSetDocValues[] values = getLeafSortedSetValues(field);
+            if (values == null) {
+              return null;
+            }
+            map = OrdinalMap.build(getReaderCacheHelper().getKey(), previousMap, previousSegments, values, PackedInts.DEFAULT);
+            incrementalOrdMapBuilds.increment();
+            cacheOrdMap(field, map, startNanos);
+            return newMultiSortedSetValues(values, map);
           }
+          // uncached, or not a multi dv
+          SortedSetDocValues dv = MultiDocValues.getSortedSetValues(in, field);
+          if (dv instanceof MultiDocValues.MultiSortedSetDocValues) {
+            cacheOrdMap(field, ((MultiDocValues.MultiSortedSetDocValues)dv).mapping, startNanos);
+          }
+          return dv;
         }
-        return dv;
       }
     }
    
     assert map != null;
+    final SortedSetDocValues[] values = getLeafSortedSetValues(field);
+    if (values == null) {
+      return null;
+    }
+    return newMultiSortedSetValues(values, map);
+  }
+
+  /** Returns the sorted set doc values of each segment, or null if a segment has another doc values type. */
+  private SortedSetDocValues[] getLeafSortedSetValues(String field) throws IOException {
     int size = in.leaves().size();
     final SortedSetDocValues[] values = new SortedSetDocValues[size];
-    final int[] starts = new int[size+1];
-    long cost = 0;
     for (int i = 0; i < size; i++) {
-      LeafReaderContext context = in.leaves().get(i);
-      final LeafReader reader = context.reader();
+      final LeafReader reader = in.leaves().get(i).reader();
       final FieldInfo fieldInfo = reader.getFieldInfos().fieldInfo(field);
       if(fieldInfo != null && fieldInfo.getDocValuesType() != DocValuesType.SORTED_SET){
         return null;
@@ -227,13 +281,145 @@ public final class SlowCompositeReaderWrapper extends LeafReader {
         v = DocValues.emptySortedSet();
       }
       values[i] = v;
-      starts[i] = context.docBase;
-      cost += v.cost();
+    }
+    return values;
+  }
+
+  private SortedSetDocValues newMultiSortedSetValues(SortedSetDocValues[] values, OrdinalMap map) throws IOException {
+    int size = values.length;
+    final int[] starts = new int[size+1];
+    long cost = 0;
+    for (int i = 0; i < size; i++) {
+      starts[i] = in.leaves().get(i).docBase;
+      cost += values[i].cost();
     }
     starts[size] = maxDoc();
     return new MultiDocValues.MultiSortedSetDocValues(values, starts, map, cost);
   }
 
+  private void cacheOrdMap(String field, OrdinalMap map, long startNanos) {
+    ordMapBuilds.increment();
+    ordMapBuildNanos.add(System.nanoTime() - startNanos);
+    IndexReader.CacheHelper cacheHelper = getReaderCacheHelper();
+    if (cacheHelper != null && map.owner == cacheHelper.getKey()) {
+      cachedOrdMaps.put(field, map);
+    }
+  }
+
+  /**
+   * Adds the cached ordinal maps of a wrapper of a previous reader to the cache of this wrapper, if both
+   * readers have the same segments. This is the case when a reader is reopened after deletions only: the
+   * terms of doc values don't change with deletions, so the mapping from segment to global ordinals
+   * still applies.
+   * <p>
+   * Otherwise, if all segments of the previous reader are still part of this reader, eg. after new
+   * segments got flushed, the ordinal maps of the previous reader are remembered so that the first
+   * request for the ordinal map of a field only needs to merge the terms of the new segments, see
+   * {@link OrdinalMap#build(IndexReader.CacheKey, OrdinalMap, int[], SortedSetDocValues[], float)}.
+   *
+   * @return the number of ordinal maps that were reused
+   */
+  public int reuseOrdinalMaps(SlowCompositeReaderWrapper previous) {
+    final boolean sameSegments = sameSegments(in.leaves(), previous.in.leaves());
+    final int[] previousSegments = sameSegments ? null : previousSegments(in.leaves(), previous.in.leaves());
+    if (sameSegments == false && (previousSegments == null || getReaderCacheHelper() == null)) {
+      return 0;
+    }
+    this.previousSegments = previousSegments;
+    int reused = 0;
+    for (Map.Entry<String,OrdinalMap> entry : previous.cachedOrdMaps.entrySet()) {
+      final FieldInfo fieldInfo = fieldInfos.fieldInfo(entry.getKey());
+      final FieldInfo previousFieldInfo = previous.fieldInfos.fieldInfo(entry.getKey());
+      if (fieldInfo == null || previousFieldInfo == null
+          || fieldInfo.getDocValuesType() != previousFieldInfo.getDocValuesType()) {
+        continue;
+      }
+      if (sameSegments == false) {
+        previousOrdMaps.putIfAbsent(entry.getKey(), entry.getValue());
+      } else if (cachedOrdMaps.putIfAbsent(entry.getKey(), entry.getValue()) == null) {
+        reused++;
+      }
+    }
+    reusedOrdMaps.add(reused);
+    return reused;
+  }
+
+  private static boolean sameSegments(List<LeafReaderContext> leaves, List<LeafReaderContext> previousLeaves) {
+    if (leaves.size() != previousLeaves.size()) {
+      return false;
+    }
+    for (int i = 0; i < leaves.size(); i++) {
+      final CacheHelper cacheHelper = leaves.get(i).reader().getCoreCacheHelper();
+      final CacheHelper previousCacheHelper = previousLeaves.get(i).reader().getCoreCacheHelper();
+      if (cacheHelper == null || previousCacheHelper == null || cacheHelper.getKey() != previousCacheHelper.getKey()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns, for each of the given leaves, the index of the previous leaf with the same core, or -1 for a
+   * new segment. Returns null if a previous segment is gone, typically because it got merged away.
+   */
+  private static int[] previousSegments(List<LeafReaderContext> leaves, List<LeafReaderContext> previousLeaves) {
+    final Map<IndexReader.CacheKey,Integer> previousOrds = new HashMap<>();
+    for (LeafReaderContext context : previousLeaves) {
+      final CacheHelper cacheHelper = context.reader().getCoreCacheHelper();
+      if (cacheHelper == null) {
+        return null;
+      }
+      previousOrds.put(cacheHelper.getKey(), context.ord);
+    }
+    final int[] previousSegments = new int[leaves.size()];
+    int numPrevious = 0;
+    for (LeafReaderContext context : leaves) {
+      final CacheHelper cacheHelper = context.reader().getCoreCacheHelper();
+      final Integer previousOrd = cacheHelper == null ? null : previousOrds.get(cacheHelper.getKey());
+      if (previousOrd == null) {
+        previousSegments[context.ord] = -1;
+      } else {
+        previousSegments[context.ord] = previousOrd;
+        numPrevious++;
+      }
+    }
+    return numPrevious == previousLeaves.size() ? previousSegments : null;
+  }
+
+  /** Returns the number of cached ordinal maps. */
+  public int getNumOrdinalMaps() {
+    return cachedOrdMaps.size();
+  }
+
+  /** Returns the memory used by the cached ordinal maps. */
+  public long getOrdinalMapsRamBytesUsed() {
+    long bytes = 0;
+    for (OrdinalMap map : cachedOrdMaps.values()) {
+      bytes += map.ramBytesUsed();
+    }
+    return bytes;
+  }
+
+  /** Returns the number of ordinal maps built by this wrapper. */
+  public long getNumOrdinalMapBuilds() {
+    return ordMapBuilds.sum();
+  }
+
+  /** Returns the total time spent building ordinal maps, in milliseconds. */
+  public long getOrdinalMapBuildTime() {
+    return TimeUnit.NANOSECONDS.toMillis(ordMapBuildNanos.sum());
+  }
+
+  /** Returns the number of ordinal maps reused from a previous reader. */
+  public long getNumReusedOrdinalMaps() {
+    return reusedOrdMaps.sum();
+  }
+
+  /** Returns the number of ordinal maps built from the ordinal map of a previous reader. */
+  public long getNumIncrementalOrdinalMapBuilds() {
+    return incrementalOrdMapBuilds.sum();
+  }
+
   @Override
   public NumericDocValues getNormValues(String field) throws IOException {
     ensureOpen();
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.index;
+
+import org.apache.lucene.index.MergePolicy;
+import org.apache.lucene.index.TimePartitionedMergePolicy;
+import org.apache.solr.core.SolrResourceLoader;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.schema.NumberType;
+import org.apache.solr.schema.SchemaField;
+
+/**
+ * A {@link MergePolicyFactory} for {@link TimePartitionedMergePolicy} objects, which never merge
+ * segments whose values of a date or long point field fall into different partitions.
+ * The {@code partitionSize} is expressed in milliseconds for date fields.
+ */
+public class TimePartitionedMergePolicyFactory extends WrapperMergePolicyFactory {
+
+  public static final String FIELD = "field";
+  public static final String PARTITION_SIZE = "partitionSize";
+
+  protected final String field;
+  protected final long partitionSize;
+
+  public TimePartitionedMergePolicyFactory(SolrResourceLoader resourceLoader, MergePolicyFactoryArgs args, IndexSchema schema) {
+    super(resourceLoader, args, schema);
+    final Object fieldArg = args.remove(FIELD);
+    if (fieldArg == null) {
+      throw new IllegalArgumentException(TimePartitionedMergePolicyFactory.class.getSimpleName()+" requires a '"+ FIELD + "' argument.");
+    }
+    final Object partitionSizeArg = args.remove(PARTITION_SIZE);
+    if (partitionSizeArg == null) {
+      throw new IllegalArgumentException(TimePartitionedMergePolicyFactory.class.getSimpleName()+" requires a '"+ PARTITION_SIZE + "' argument.");
+    }
+    this.field = fieldArg.toString();
+    this.partitionSize = partitionSizeArg instanceof Number
+        ? ((Number) partitionSizeArg).longValue()
+        : Long.parseLong(partitionSizeArg.toString());
+    if (schema != null) {
+      final SchemaField schemaField = schema.getField(field);
+      final NumberType numberType = schemaField.getType().getNumberType();
+      if (schemaField.getType().isPointField() == false || schemaField.indexed() == false
+          || (numberType != NumberType.LONG && numberType != NumberType.DATE)) {
+        throw new IllegalArgumentException(TimePartitionedMergePolicyFactory.class.getSimpleName()
+            + " requires an indexed date or long point field, got " + schemaField);
+      }
+    }
+  }
+
+  @Override
+  protected MergePolicy getMergePolicyInstance(MergePolicy wrappedMP) {
+    return new TimePartitionedMergePolicy(wrappedMP, field, partitionSize);
+  }
+
+}
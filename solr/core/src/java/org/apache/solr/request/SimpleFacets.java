@@ -531,7 +531,7 @@ public class SimpleFacets {
             counts = NumericFacets.getCounts(searcher, docs, field, offset, limit, mincount, missing, sort);
           } else {
             PerSegmentSingleValuedFaceting ps = new PerSegmentSingleValuedFaceting(searcher, docs, field, offset, limit, mincount, missing, sort, prefix, termFilter);
-            Executor executor = threads == 0 ? directExecutor : facetExecutor;
+            Executor executor = getFacetExecutor(threads);
             ps.setNumThreads(threads);
             counts = ps.getFacetCounts(executor);
           }
@@ -778,6 +778,14 @@ public class SimpleFacets {
   };
 
   private final Executor facetExecutor;
+
+  /**
+   * Returns the executor to run the tasks of a facet with, given the number of threads it may use:
+   * the calling thread if 0, or else the shared facet executor.
+   */
+  protected Executor getFacetExecutor(int threads) {
+    return threads == 0 ? directExecutor : facetExecutor;
+  }
   
   /**
    * Returns a list of value constraints and the associated facet counts 
@@ -20,6 +20,7 @@ package org.apache.solr.schema;
 import java.time.Instant;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Map;
 
 import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.document.StoredField;
@@ -34,6 +35,7 @@ import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.lucene.util.mutable.MutableValueDate;
 import org.apache.lucene.util.mutable.MutableValueLong;
+import org.apache.solr.common.SolrException;
 import org.apache.solr.search.QParser;
 import org.apache.solr.uninverting.UninvertingReader;
 import org.apache.solr.update.processor.TimestampUpdateProcessorFactory;
@@ -83,6 +85,12 @@ import org.apache.solr.util.DateMathParser;
  * since each replica of the document may compute a slightly different value.
  * {@link TimestampUpdateProcessorFactory} is recommended instead.
  * </p>
+ * <p>
+ * The optional <code>rollupInterval</code> attribute, a fixed length of time such as
+ * "<code>+1MINUTE</code>", lets JSON range facets on single-valued fields of this type with
+ * docValues count and sum documents per interval once per segment, and then answer ranges
+ * that are made of whole intervals from these rollups.
+ * </p>
  *
  * <p>
  * Explanation of "UTC"...
@@ -102,10 +110,41 @@ import org.apache.solr.util.DateMathParser;
  */
 public class DatePointField extends PointField implements DateValueFieldType {
 
+  /** The attribute to set the interval of the buckets of range facet rollups, eg: <code>+1MINUTE</code> */
+  public static final String ROLLUP_INTERVAL = "rollupInterval";
+
+  private long rollupInterval;
+
   public DatePointField() {
     type = NumberType.DATE;
   }
 
+  @Override
+  protected void init(IndexSchema schema, Map<String, String> args) {
+    super.init(schema, args);
+    String interval = args.remove(ROLLUP_INTERVAL);
+    if (interval != null) {
+      rollupInterval = DateMathParser.parseMath(new Date(0), "NOW" + interval, DateMathParser.UTC).getTime();
+      // months and years don't have a fixed length, a leap February tells them apart
+      final Date leapFebruary = Date.from(Instant.parse("2000-02-01T00:00:00Z"));
+      final long leapInterval = DateMathParser.parseMath(leapFebruary, "NOW" + interval, DateMathParser.UTC).getTime()
+          - leapFebruary.getTime();
+      if (rollupInterval <= 0 || rollupInterval != leapInterval) {
+        throw new SolrException(SolrException.ErrorCode.SERVER_ERROR,
+            "Invalid " + ROLLUP_INTERVAL + " for field type " + typeName + ": " + interval
+                + ", it must be a fixed length of time such as +1MINUTE or +1DAY");
+      }
+    }
+  }
+
+  /**
+   * Returns the interval in milliseconds of the buckets of range facet rollups, or 0 if
+   * range facets on fields of this type don't use rollups.
+   */
+  public long getRollupInterval() {
+    return rollupInterval;
+  }
+
 
   @Override
   public Object toNativeType(Object val) {
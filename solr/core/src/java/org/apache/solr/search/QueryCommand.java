@@ -38,6 +38,7 @@ public class QueryCommand {
   private int flags;
   private long timeAllowed = -1;
   private int minExactCount = Integer.MAX_VALUE;
+  private float minCompetitiveScore;
   private CursorMark cursorMark;
   
   public CursorMark getCursorMark() {
@@ -192,6 +193,23 @@ public class QueryCommand {
     this.minExactCount = count;
     return this;
   }
+
+  public float getMinCompetitiveScore() {
+    return minCompetitiveScore;
+  }
+
+  /**
+   * Hits that score below the given score may be skipped when sorting by score, in which case the hit count is
+   * a lower bound. Only used when {@link #getMinExactCount()} allows an approximate hit count.
+   */
+  public QueryCommand setMinCompetitiveScore(float minCompetitiveScore) {
+    this.minCompetitiveScore = minCompetitiveScore;
+    if (minCompetitiveScore > 0) {
+      // the hits are not all the top hits of the query, don't cache them as such
+      this.flags |= SolrIndexSearcher.NO_SET_QCACHE;
+    }
+    return this;
+  }
   
   public boolean isNeedDocSet() {
     return (flags & SolrIndexSearcher.GET_DOCSET) != 0;
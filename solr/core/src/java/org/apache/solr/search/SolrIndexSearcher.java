@@ -74,6 +74,7 @@ import org.apache.solr.request.SolrRequestInfo;
 import org.apache.solr.response.SolrQueryResponse;
 import org.apache.solr.schema.IndexSchema;
 import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.facet.RangeRollup;
 import org.apache.solr.search.facet.UnInvertedField;
 import org.apache.solr.search.stats.StatsCache;
 import org.apache.solr.search.stats.StatsSource;
@@ -122,6 +123,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
   private final SolrCache<Query,DocSet> filterCache;
   private final SolrCache<QueryResultKey,DocList> queryResultCache;
   private final SolrCache<String,UnInvertedField> fieldValueCache;
+  private final SolrCache<RangeRollup.Key,Object> rangeRollupCache;
 
   // map of generic caches - not synchronized since it's read-only after the constructor.
   @SuppressWarnings({"rawtypes"})
@@ -174,20 +176,6 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
   private Collector buildAndRunCollectorChain(QueryResult qr, Query query, Collector collector, QueryCommand cmd,
       DelegatingCollector postFilter) throws IOException {
 
-    EarlyTerminatingSortingCollector earlyTerminatingSortingCollector = null;
-    if (cmd.getSegmentTerminateEarly()) {
-      final Sort cmdSort = cmd.getSort();
-      final int cmdLen = cmd.getLen();
-      final Sort mergeSort = core.getSolrCoreState().getMergePolicySort();
-
-      if (cmdSort == null || cmdLen <= 0 || mergeSort == null ||
-          !EarlyTerminatingSortingCollector.canEarlyTerminate(cmdSort, mergeSort)) {
-        log.warn("unsupported combination: segmentTerminateEarly=true cmdSort={} cmdLen={} mergeSort={}", cmdSort, cmdLen, mergeSort);
-      } else {
-        collector = earlyTerminatingSortingCollector = new EarlyTerminatingSortingCollector(collector, cmdSort, cmd.getLen());
-      }
-    }
-
     final boolean terminateEarly = cmd.getTerminateEarly();
     if (terminateEarly) {
       collector = new EarlyTerminatingCollector(collector, cmd.getLen());
@@ -213,10 +201,6 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
         ((DelegatingCollector) collector).finish();
       }
       throw etce;
-    } finally {
-      if (earlyTerminatingSortingCollector != null) {
-        qr.setSegmentTerminatedEarly(earlyTerminatingSortingCollector.terminatedEarly());
-      }
     }
     if (collector instanceof DelegatingCollector) {
       ((DelegatingCollector) collector).finish();
@@ -280,6 +264,9 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
       fieldValueCache = solrConfig.fieldValueCacheConfig == null ? null
           : solrConfig.fieldValueCacheConfig.newInstance();
       if (fieldValueCache != null) clist.add(fieldValueCache);
+      rangeRollupCache = solrConfig.rangeRollupCacheConfig == null ? null
+          : solrConfig.rangeRollupCacheConfig.newInstance();
+      if (rangeRollupCache != null) clist.add(rangeRollupCache);
       filterCache = solrConfig.filterCacheConfig == null ? null : solrConfig.filterCacheConfig.newInstance();
       if (filterCache != null) clist.add(filterCache);
       queryResultCache = solrConfig.queryResultCacheConfig == null ? null
@@ -306,6 +293,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
       this.filterCache = null;
       this.queryResultCache = null;
       this.fieldValueCache = null;
+      this.rangeRollupCache = null;
       this.cacheMap = NO_GENERIC_CACHES;
       this.cacheList = NO_CACHES;
     }
@@ -541,6 +529,10 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
       });
     }
 
+    if (solrConfig.rangeRollupCacheConfig != null && solrConfig.rangeRollupCacheConfig.getRegenerator() == null) {
+      solrConfig.rangeRollupCacheConfig.setRegenerator(RangeRollup.REGENERATOR);
+    }
+
     if (solrConfig.filterCacheConfig != null && solrConfig.filterCacheConfig.getRegenerator() == null) {
       solrConfig.filterCacheConfig.setRegenerator(new CacheRegenerator() {
         @Override
@@ -655,6 +647,11 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     return fieldValueCache;
   }
 
+  /** expert: internal API, subject to change */
+  public SolrCache<RangeRollup.Key,Object> getRangeRollupCache() {
+    return rangeRollupCache;
+  }
+
   /** Returns a weighted sort according to this searcher */
   public Sort weightSort(Sort sort) throws IOException {
     return (sort != null) ? sort.rewrite(this) : null;
@@ -1301,6 +1298,8 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     if (maxDocRequested < 0 || maxDocRequested > maxDoc()) maxDocRequested = maxDoc();
     int supersetMaxDoc = maxDocRequested;
     DocList superset = null;
+    // the same number of exact hits is collected and set on the cache key
+    cmd.setMinExactCount(getAppliedMinExactCount(cmd, maxDocRequested));
 
     int flags = cmd.getFlags();
     Query q = cmd.getQuery();
@@ -1331,6 +1330,9 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
           }
         }
         if (out.docList != null) {
+          if (qr.getSegmentTerminatedEarly() != null) {
+            qr.setSegmentTerminatedEarly(out.docList.hitCountRelation() == Relation.GREATER_THAN_OR_EQUAL_TO);
+          }
           // found the docList in the cache... now check if we need the docset too.
           // OPT: possible future optimization - if the doclist contains all the matches,
           // use it to make the docset instead of rerunning the query.
@@ -1516,6 +1518,47 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     }
   }
 
+  /**
+   * Returns the number of hits to count exactly for the given command, which is also part of the
+   * queryResultCache key so that a lower-bound hit count is never returned to a request that needs
+   * more exact hits. With segmentTerminateEarly and a sort that the segments are sorted by,
+   * TopFieldCollector stops collecting a segment once it has collected the requested documents,
+   * and reports the hit count as a lower bound.
+   */
+  private int getAppliedMinExactCount(QueryCommand cmd, int maxDocRequested) throws IOException {
+    if (!cmd.getSegmentTerminateEarly()) {
+      return cmd.getMinExactCount();
+    }
+    final Sort cmdSort = cmd.getSort();
+    final int cmdLen = cmd.getLen();
+    if (cmdSort == null || cmdLen <= 0 || !canEarlyTerminateOnIndexSort(weightSort(cmdSort))) {
+      final Sort mergeSort = core.getSolrCoreState().getMergePolicySort();
+      log.warn("unsupported combination: segmentTerminateEarly=true cmdSort={} cmdLen={} mergeSort={}", cmdSort, cmdLen, mergeSort);
+      return cmd.getMinExactCount();
+    }
+    return Math.min(cmd.getMinExactCount(), maxDocRequested);
+  }
+
+  /**
+   * Returns true if the given sort is a prefix of the index sort of at least one segment,
+   * in which case collecting the top hits can terminate early on such segments.
+   * The index sort is read from the segments rather than from the merge policy, so that
+   * segments that were written before the index sort was configured are detected.
+   */
+  private boolean canEarlyTerminateOnIndexSort(Sort sort) {
+    final SortField[] sortFields = sort.getSort();
+    for (LeafReaderContext leaf : leafContexts) {
+      final Sort indexSort = leaf.reader().getMetaData().getSort();
+      if (indexSort == null || sortFields.length > indexSort.getSort().length) {
+        continue;
+      }
+      if (Arrays.asList(sortFields).equals(Arrays.asList(indexSort.getSort()).subList(0, sortFields.length))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private void getDocListNC(QueryResult qr, QueryCommand cmd) throws IOException {
     int len = cmd.getSupersetMaxDoc();
     int last = len;
@@ -1593,15 +1636,33 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
         maxScoreCollector = new MaxScoreCollector();
         collector = MultiCollector.wrap(topCollector, maxScoreCollector);
       }
+      MinCompetitiveScoreCollector minScoreCollector = null;
+      if (cmd.getMinCompetitiveScore() > 0 && cmd.getSort() == null
+          && cmd.getMinExactCount() < Integer.MAX_VALUE && !(cmd.getQuery() instanceof RankQuery)) {
+        minScoreCollector = new MinCompetitiveScoreCollector(collector, cmd.getMinCompetitiveScore());
+        collector = minScoreCollector;
+      }
       ScoreMode scoreModeUsed = buildAndRunCollectorChain(qr, query, collector, cmd, pf.postFilter).scoreMode();
 
       totalHits = topCollector.getTotalHits();
       TopDocs topDocs = topCollector.topDocs(0, len);
-      if (scoreModeUsed == ScoreMode.COMPLETE || scoreModeUsed == ScoreMode.COMPLETE_NO_SCORES) {
+      final boolean terminatedEarly = topCollector instanceof TopFieldCollector
+          && ((TopFieldCollector) topCollector).isEarlyTerminated();
+      if (terminatedEarly) {
+        // the sorted collector may have stopped collecting some segments even though other
+        // collectors of the chain needed all hits, the hit count is a lower bound
+        hitsRelation = TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO;
+      } else if (scoreModeUsed == ScoreMode.COMPLETE || scoreModeUsed == ScoreMode.COMPLETE_NO_SCORES) {
         hitsRelation = TotalHits.Relation.EQUAL_TO;
+      } else if (minScoreCollector != null && minScoreCollector.isApplied()) {
+        // scorers may have skipped hits below the minimum score without the collector knowing
+        hitsRelation = TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO;
       } else {
         hitsRelation = topDocs.totalHits.relation;
       }
+      if (qr.getSegmentTerminatedEarly() != null) {
+        qr.setSegmentTerminatedEarly(terminatedEarly);
+      }
       if (cmd.getSort() != null && query instanceof RankQuery == false && (cmd.getFlags() & GET_SCORES) != 0) {
         TopFieldCollector.populateScores(topDocs.scoreDocs, this, query);
       }
@@ -1640,6 +1701,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     boolean needScores = (cmd.getFlags() & GET_SCORES) != 0;
     int maxDoc = maxDoc();
     cmd.setMinExactCount(Integer.MAX_VALUE);// We need the full DocSet
+    cmd.setSegmentTerminateEarly(false);
 
     ProcessedFilter pf = getProcessedFilter(cmd.getFilter(), cmd.getFilterList());
     final Query query = QueryUtils.combineQueryAndFilter(QueryUtils.makeQueryable(cmd.getQuery()), pf.filter);
@@ -2136,8 +2198,12 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
    */
   @SuppressWarnings({"unchecked"})
   public void warm(SolrIndexSearcher old) {
-    // Make sure this is first! filters can help queryResults execute!
     long warmingStartTime = System.nanoTime();
+    // global ordinals are expensive to build, and can be shared if only deletions changed
+    if (leafReader instanceof SlowCompositeReaderWrapper && old.leafReader instanceof SlowCompositeReaderWrapper) {
+      ((SlowCompositeReaderWrapper) leafReader).reuseOrdinalMaps((SlowCompositeReaderWrapper) old.leafReader);
+    }
+    // Make sure this is first! filters can help queryResults execute!
     // warm the caches in order...
     ModifiableSolrParams params = new ModifiableSolrParams();
     params.add("warming", "true");
@@ -2293,6 +2359,19 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
         return -1;
       }
     }, true, "indexCommitSize", Category.SEARCHER.toString(), scope);
+    // global ordinals
+    parentContext.gauge(
+        new MetricsMap((detailed, map) -> {
+          if (leafReader instanceof SlowCompositeReaderWrapper) {
+            SlowCompositeReaderWrapper wrapper = (SlowCompositeReaderWrapper) leafReader;
+            map.put("size", wrapper.getNumOrdinalMaps());
+            map.put("ramBytesUsed", wrapper.getOrdinalMapsRamBytesUsed());
+            map.put("builds", wrapper.getNumOrdinalMapBuilds());
+            map.put("buildTime", wrapper.getOrdinalMapBuildTime());
+            map.put("reused", wrapper.getNumReusedOrdinalMaps());
+            map.put("incrementalBuilds", wrapper.getNumIncrementalOrdinalMapBuilds());
+          }
+        }), true, "ordinalMaps", Category.SEARCHER.toString(), scope);
     // statsCache metrics
     parentContext.gauge(
         new MetricsMap((detailed, map) -> {
@@ -2301,6 +2380,45 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
         }), true, "statsCache", Category.CACHE.toString(), scope);
   }
 
+  /**
+   * Lets scorers skip the hits that score below a minimum known to be required to make the top hits, e.g.
+   * because enough better hits were found on other shards, by never lowering the minimum competitive score
+   * the wrapped collector sets below it. The minimum is only applied once the wrapped collector lets scorers
+   * skip hits itself, i.e. once it counted as many hits as it must count exactly.
+   */
+  private static class MinCompetitiveScoreCollector extends FilterCollector {
+    private final float minScore;
+    private boolean applied;
+
+    MinCompetitiveScoreCollector(Collector in, float minScore) {
+      super(in);
+      this.minScore = minScore;
+    }
+
+    /**
+     * @return whether scorers were allowed to skip hits, in which case the hit count is a lower bound
+     */
+    boolean isApplied() {
+      return applied;
+    }
+
+    @Override
+    public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+      return new FilterLeafCollector(super.getLeafCollector(context)) {
+        @Override
+        public void setScorer(Scorable scorer) throws IOException {
+          in.setScorer(new FilterScorable(scorer) {
+            @Override
+            public void setMinCompetitiveScore(float minScore) throws IOException {
+              applied = true;
+              in.setMinCompetitiveScore(Math.max(minScore, MinCompetitiveScoreCollector.this.minScore));
+            }
+          });
+        }
+      };
+    }
+  }
+
   private static class FilterImpl extends Filter {
     private final Filter topFilter;
     private final List<Weight> weights;
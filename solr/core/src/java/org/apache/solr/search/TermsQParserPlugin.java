@@ -49,7 +49,8 @@ import org.slf4j.LoggerFactory;
  * <br><code>f</code>: The field name (mandatory)
  * <br><code>separator</code>: the separator delimiting the values in the query string, defaulting to a comma.
  * If it's a " " then it splits on any consecutive whitespace.
- * <br><code>method</code>: Any of termsFilter (default), booleanQuery, automaton, docValuesTermsFilter.
+ * <br><code>method</code>: Any of termsFilter (default), booleanQuery, automaton, docValuesTermsFilter,
+ * indexOrDocValuesTermsFilter. The latter requires the field to be both indexed and to have docValues.
  * <p>
  * Note that if no values are specified then the query matches no documents.
  */
@@ -106,6 +107,14 @@ public class TermsQParserPlugin extends QParserPlugin {
       Query makeFilter(String fname, BytesRef[] byteRefs) {
         return disableCacheByDefault(new DocValuesTermsQuery(fname, byteRefs));
       }
+    },
+    indexOrDocValuesTermsFilter {
+      @Override
+      Query makeFilter(String fname, BytesRef[] byteRefs) {
+        // per segment, uses the terms dictionary when leading the iteration and doc values
+        // when other clauses are much more selective, based on TermInSetQuery's cost estimate
+        return new IndexOrDocValuesQuery(new TermInSetQuery(fname, byteRefs), new DocValuesTermsQuery(fname, byteRefs));
+      }
     };
 
     private static Query disableCacheByDefault(Query q) {
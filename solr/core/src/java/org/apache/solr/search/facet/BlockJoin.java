@@ -23,7 +23,6 @@ import org.apache.lucene.util.FixedBitSet;
 import org.apache.solr.search.BitDocSet;
 import org.apache.solr.search.DocIterator;
 import org.apache.solr.search.DocSet;
-import org.apache.solr.search.DocSetCollector;
 import org.apache.solr.search.QueryContext;
 
 /** @lucene.experimental */
@@ -34,7 +33,8 @@ public class BlockJoin {
    */
   public static DocSet toChildren(DocSet parentInput, BitDocSet parentList, DocSet acceptDocs, QueryContext qcontext) throws IOException {
     FixedBitSet parentBits = parentList.getBits();
-    DocSetCollector collector = new DocSetCollector(qcontext.searcher().maxDoc());
+    // children of a block are contiguous, so whole blocks are set at once rather than doc by doc
+    FixedBitSet childBits = new FixedBitSet(qcontext.searcher().maxDoc());
     DocIterator iter = parentInput.iterator();
     while (iter.hasNext()) {
       int parentDoc = iter.nextDoc();
@@ -43,33 +43,51 @@ public class BlockJoin {
         continue;
       }
       int prevParent = parentBits.prevSetBit(parentDoc - 1);
-      for (int childDoc = prevParent+1; childDoc<parentDoc; childDoc++) {
-        if (acceptDocs != null && !acceptDocs.exists(childDoc)) continue;  // only select live docs
-        collector.collect(childDoc);
-      }
+      childBits.set(prevParent + 1, parentDoc);
+    }
+    // only select live docs
+    if (acceptDocs instanceof BitDocSet) {
+      childBits.and(((BitDocSet) acceptDocs).getBits());
+    } else if (acceptDocs != null) {
+      return acceptDocs.intersection(new BitDocSet(childBits));
     }
-    return collector.getDocSet();
+    return new BitDocSet(childBits);
   }
 
   /** childInput may also contain parents (i.e. a parent or below will all roll up to that parent) */
   public static DocSet toParents(DocSet childInput, BitDocSet parentList, QueryContext qcontext) throws IOException {
     FixedBitSet parentBits = parentList.getBits();
-    DocSetCollector collector = new DocSetCollector(qcontext.searcher().maxDoc());
+    FixedBitSet parents = new FixedBitSet(qcontext.searcher().maxDoc());
+    if (childInput instanceof BitDocSet) {
+      // skip the rest of the block as soon as its parent is known
+      FixedBitSet childBits = ((BitDocSet) childInput).getBits();
+      int childDoc = childBits.length() == 0 ? DocIdSetIterator.NO_MORE_DOCS : childBits.nextSetBit(0);
+      while (childDoc != DocIdSetIterator.NO_MORE_DOCS) {
+        int parentDoc = parentBits.nextSetBit(childDoc);
+        if (parentDoc == DocIdSetIterator.NO_MORE_DOCS) {
+          break;
+        }
+        parents.set(parentDoc);
+        childDoc = parentDoc + 1 < childBits.length() ? childBits.nextSetBit(parentDoc + 1) : DocIdSetIterator.NO_MORE_DOCS;
+      }
+      return new BitDocSet(parents);
+    }
+
     DocIterator iter = childInput.iterator();
     int currentParent = -1;
     while (iter.hasNext()) {
-      int childDoc = iter.nextDoc(); // TODO: skipping
+      int childDoc = iter.nextDoc();
       if (childDoc <= currentParent) { // use <= since we also allow parents in the input
         // we already visited this parent
         continue;
       }
       currentParent = parentBits.nextSetBit(childDoc);
-      if (currentParent != DocIdSetIterator.NO_MORE_DOCS) {
-        // only collect the parent the first time we skip to it
-        collector.collect( currentParent );
+      if (currentParent == DocIdSetIterator.NO_MORE_DOCS) {
+        break;
       }
+      parents.set(currentParent);
     }
-    return collector.getDocSet();
+    return new BitDocSet(parents);
   }
 
 }
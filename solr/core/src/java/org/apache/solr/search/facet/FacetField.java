@@ -33,6 +33,8 @@ public class FacetField extends FacetRequestSorted {
   String prefix;
   FacetMethod method;
   int cacheDf;  // 0 means "default", -1 means "never cache"
+  int threads;  // number of threads to collect segments with when using the dv method, 0 or 1 means serial collection
+  int sketchSize;  // number of values tracked when using the sketch method, 0 means default
 
   // experimental - force perSeg collection when using dv method, currently for testing purposes only.
   Boolean perSeg;
@@ -49,6 +51,7 @@ public class FacetField extends FacetRequestSorted {
     DVHASH, // DocValues, collect into hash
     ENUM, // TermsEnum then intersect DocSet (stream-able)
     STREAM, // presently equivalent to ENUM
+    SKETCH, // DocValues, find top candidates with a heavy-hitters sketch then count them
     SMART,
     ;
 
@@ -60,6 +63,7 @@ public class FacetField extends FacetRequestSorted {
         case "dvhash": return DVHASH;
         case "enum": return ENUM;
         case "stream": return STREAM; // TODO replace with enum?
+        case "sketch": return SKETCH;
         case "smart": return SMART;
         default:
           throw new SolrException(SolrException.ErrorCode.BAD_REQUEST, "Unknown FacetField method " + method);
@@ -116,6 +120,10 @@ public class FacetField extends FacetRequestSorted {
       return new FacetFieldProcessorByEnumTermsStream(fcontext, this, sf);
     }
 
+    if (method == FacetMethod.SKETCH && sf.hasDocValues() && FacetFieldProcessorBySketch.supports(fcontext, this)) {
+      return new FacetFieldProcessorBySketch(fcontext, this, sf);
+    }
+
     // TODO if method=UIF and not single-valued numerics then simply choose that now? TODO add FieldType.getDocValuesType()
 
     if (!multiToken) {
@@ -321,6 +321,10 @@ abstract class FacetFieldProcessor extends FacetProcessor<FacetField> {
 
     int maxTopVals = (int) (effectiveLimit >= 0 ? Math.min(freq.offset + effectiveLimit, Integer.MAX_VALUE - 1) : Integer.MAX_VALUE - 1);
     maxTopVals = Math.min(maxTopVals, slotCardinality);
+    // with refine:sketch, shards also rank the buckets right after the top ones to compute bounds of their counts
+    final int tailSize = returnsTailSketch() && effectiveLimit > 0 && maxTopVals < slotCardinality
+        ? Math.min(TailCountSketch.tailSize(maxTopVals), slotCardinality - maxTopVals) : 0;
+    final int queueSize = maxTopVals + tailSize;
     final SlotAcc sortAcc = this.sortAcc, indexOrderAcc = this.indexOrderAcc;
     final BiPredicate<Slot,Slot> orderPredicate;
     if (indexOrderAcc != null && indexOrderAcc != sortAcc) {
@@ -334,7 +338,7 @@ abstract class FacetFieldProcessor extends FacetProcessor<FacetField> {
         return cmp == 0 ? b.slot < a.slot : cmp < 0;
       };
     }
-    final PriorityQueue<Slot> queue = new PriorityQueue<>(maxTopVals) {
+    final PriorityQueue<Slot> queue = new PriorityQueue<>(queueSize) {
       @Override
       protected boolean lessThan(Slot a, Slot b) { return orderPredicate.test(a, b); }
     };
@@ -369,12 +373,23 @@ abstract class FacetFieldProcessor extends FacetProcessor<FacetField> {
         Slot s = new Slot();
         s.slot = slotNum;
         queue.add(s);
-        if (queue.size() >= maxTopVals) {
+        if (queue.size() >= queueSize) {
           bottom = queue.top();
         }
       }
     }
 
+    TailCountSketch tailSketch = null;
+    if (queue.size() > maxTopVals) {
+      // buckets that didn't make it into the queue can't have a higher count than its bottom
+      tailSketch = new TailCountSketch(tailSize, shardHasMoreBuckets ? countAcc.getCount(queue.top().slot) : 0);
+      while (queue.size() > maxTopVals) {
+        final Slot slot = queue.pop();
+        tailSketch.add(bucketValFromSlotNumFunc.apply(slot.slot), countAcc.getCount(slot.slot));
+      }
+      shardHasMoreBuckets = true;
+    }
+
     assert queue.size() <= numBuckets;
 
     SimpleOrderedMap<Object> res = new SimpleOrderedMap<>();
@@ -455,6 +470,9 @@ abstract class FacetFieldProcessor extends FacetProcessor<FacetField> {
     if (fcontext.isShard() && shardHasMoreBuckets) {
       // Currently, "more" is an internal implementation detail and only returned for distributed sub-requests
       res.add("more", true);
+      if (tailSketch != null) {
+        res.add("tail", tailSketch.toBytes());
+      }
     }
 
     if (freq.missing) {
@@ -465,6 +483,16 @@ abstract class FacetFieldProcessor extends FacetProcessor<FacetField> {
     return res;
   }
 
+  /**
+   * Returns true if this is a shard request which should return a {@link TailCountSketch} of the buckets it
+   * doesn't return. Counts only bound the rank of buckets when they are sorted by count.
+   */
+  private boolean returnsTailSketch() {
+    return fcontext.isShard() && freq.refine == FacetRequest.RefineMethod.SKETCH
+        && freq.prelim_sort == null && FacetRequest.FacetSort.COUNT_DESC.equals(freq.sort)
+        && !freq.processEmpty;
+  }
+
   /**
    * Trivial helper method for building up a bucket query given the (Stringified) bucket value
    */
@@ -735,6 +763,24 @@ abstract class FacetFieldProcessor extends FacetProcessor<FacetField> {
       }
     }
 
+    @Override
+    boolean isMergeable() {
+      for (SlotAcc acc : subAccs) {
+        if (acc.isMergeable() == false) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    void merge(SlotAcc other) {
+      final SlotAcc[] otherSubAccs = ((MultiAcc) other).subAccs;
+      for (int i = 0; i < subAccs.length; i++) {
+        subAccs[i].merge(otherSubAccs[i]);
+      }
+    }
+
     @Override
     public void setValues(SimpleOrderedMap<Object> bucket, int slotNum) throws IOException {
       for (SlotAcc acc : subAccs) {
@@ -127,7 +127,7 @@ abstract class FacetFieldProcessorByArray extends FacetFieldProcessor {
     );
   }
 
-  private static String valueObjToString(Object obj) {
+  static String valueObjToString(Object obj) {
     return (obj instanceof Date) ? ((Date)obj).toInstant().toString() : obj.toString();
   }
 
@@ -17,8 +17,12 @@
 package org.apache.solr.search.facet;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.LeafReaderContext;
@@ -29,11 +33,13 @@ import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.search.DocIdSet;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.LongValues;
 import org.apache.lucene.util.UnicodeUtil;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.schema.SchemaField;
 import org.apache.solr.search.Filter;
+import org.apache.solr.search.QueryContext;
 import org.apache.solr.uninverting.FieldCacheImpl;
 
 /**
@@ -121,11 +127,185 @@ class FacetFieldProcessorByArrayDV extends FacetFieldProcessorByArray {
     final List<LeafReaderContext> leaves = fcontext.searcher.getIndexReader().leaves();
     Filter filter = fcontext.base.getTopFilter();
 
+    final int numThreads = Math.min(freq.threads, leaves.size());
+    if (numThreads > 1 && allBucketsAcc == null && fcontext.req != null
+        && countAcc.isMergeable() && (collectAcc == null || collectAcc.isMergeable())) {
+      collectDocsConcurrently(leaves, filter, numThreads, accumSeg, canDoPerSeg);
+      return;
+    }
+
+    SegmentCollector collector = new SegmentCollector(countAcc, collectAcc, allBucketsAcc, accumSeg, canDoPerSeg);
     for (int subIdx = 0; subIdx < leaves.size(); subIdx++) {
       LeafReaderContext subCtx = leaves.get(subIdx);
-
       setNextReaderFirstPhase(subCtx);
+      collector.collectSegment(subCtx, filter);
+    }
+  }
+
+  /**
+   * Collects segments with {@code numThreads} threads into thread-local accumulators, which are
+   * then merged into {@link #countAcc} and {@link #collectAcc} before buckets get sorted.
+   */
+  private void collectDocsConcurrently(List<LeafReaderContext> leaves, Filter filter, int numThreads,
+                                       boolean accumSeg, boolean canDoPerSeg) throws IOException {
+    // assign segments to threads, largest segments first, so that threads have about the same number of docs to visit
+    final List<List<LeafReaderContext>> groups = new ArrayList<>(numThreads);
+    final long[] groupDocs = new long[numThreads];
+    for (int i = 0; i < numThreads; i++) {
+      groups.add(new ArrayList<>());
+    }
+    final List<LeafReaderContext> bySize = new ArrayList<>(leaves);
+    bySize.sort((a, b) -> Integer.compare(b.reader().maxDoc(), a.reader().maxDoc()));
+    for (LeafReaderContext leaf : bySize) {
+      int group = 0;
+      for (int i = 1; i < numThreads; i++) {
+        if (groupDocs[i] < groupDocs[group]) {
+          group = i;
+        }
+      }
+      groups.get(group).add(leaf);
+      groupDocs[group] += leaf.reader().maxDoc();
+    }
+
+    // the first group is collected by the current thread into the main accumulators,
+    // accumulators of the other groups are created up-front by the current thread too
+    final SegmentCollector[] collectors = new SegmentCollector[numThreads];
+    final QueryContext[] qcontexts = new QueryContext[numThreads];
+    collectors[0] = new SegmentCollector(countAcc, collectAcc, null, accumSeg, canDoPerSeg);
+    try {
+      for (int i = 1; i < numThreads; i++) {
+        // FunctionValues may keep per-thread state in the query context
+        final FacetContext taskContext = copyContext(fcontext);
+        qcontexts[i] = taskContext.qcontext;
+        final SlotAcc.CountSlotAcc taskCountAcc = new SlotAcc.CountSlotArrAcc(taskContext, maxSlots);
+        final SlotAcc taskCollectAcc = collectAcc == null ? null : createTaskAcc(taskContext, collectAcc);
+        collectors[i] = new SegmentCollector(taskCountAcc, taskCollectAcc, null, accumSeg, canDoPerSeg);
+      }
+
+      final Executor executor = fcontext.req.getCore().getCoreContainer().getUpdateShardHandler().getUpdateExecutor();
+      final List<FutureTask<Void>> futures = new ArrayList<>(numThreads - 1);
+      for (int i = 1; i < numThreads; i++) {
+        final SegmentCollector collector = collectors[i];
+        final List<LeafReaderContext> group = groups.get(i);
+        FutureTask<Void> future = new FutureTask<>(() -> {
+          collector.collectSegments(group, filter);
+          return null;
+        });
+        futures.add(future);
+        executor.execute(future);
+      }
+
+      Throwable failure = null;
+      try {
+        collectors[0].collectSegments(groups.get(0), filter);
+      } catch (IOException | RuntimeException e) {
+        failure = e;
+      }
+      // always wait for all tasks, since they use accumulators and contexts that get closed below
+      for (FutureTask<Void> future : futures) {
+        try {
+          future.get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          future.cancel(true);
+          if (failure == null) failure = e;
+        } catch (ExecutionException e) {
+          if (failure == null) failure = e.getCause();
+        }
+      }
+      if (failure instanceof IOException) {
+        throw (IOException) failure;
+      } else if (failure instanceof RuntimeException) {
+        throw (RuntimeException) failure;
+      } else if (failure != null) {
+        throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, "Error while collecting facet " + freq, failure);
+      }
+
+      for (int i = 1; i < numThreads; i++) {
+        countAcc.merge(collectors[i].countAcc);
+        if (collectAcc != null) {
+          collectAcc.merge(collectors[i].collectAcc);
+        }
+      }
+    } finally {
+      for (int i = 1; i < numThreads; i++) {
+        if (collectors[i] != null && collectors[i].collectAcc != null) {
+          collectors[i].collectAcc.close();
+        }
+      }
+      IOUtils.close(qcontexts);
+    }
+  }
 
+  @SuppressWarnings({"unchecked"})
+  private static FacetContext copyContext(FacetContext fcontext) {
+    FacetContext ctx = new FacetContext();
+    ctx.processor = fcontext.processor;
+    ctx.facetInfo = fcontext.facetInfo;
+    ctx.req = fcontext.req;
+    ctx.searcher = fcontext.searcher;
+    ctx.filter = fcontext.filter;
+    ctx.base = fcontext.base;
+    ctx.parent = fcontext.parent;
+    ctx.flags = fcontext.flags;
+    ctx.debugInfo = fcontext.debugInfo;
+    ctx.qcontext = QueryContext.newContext(fcontext.qcontext.indexSearcher());
+    ctx.qcontext.putAll(fcontext.qcontext);
+    return ctx;
+  }
+
+  /** Creates an empty accumulator that collects the same stats as {@code acc}. */
+  private SlotAcc createTaskAcc(FacetContext taskContext, SlotAcc acc) throws IOException {
+    if (acc instanceof MultiAcc) {
+      final SlotAcc[] subAccs = ((MultiAcc) acc).subAccs;
+      final SlotAcc[] taskSubAccs = new SlotAcc[subAccs.length];
+      for (int i = 0; i < subAccs.length; i++) {
+        taskSubAccs[i] = createTaskAcc(taskContext, subAccs[i]);
+      }
+      return new MultiAcc(taskContext, taskSubAccs);
+    }
+    final SlotAcc taskAcc = freq.getFacetStats().get(acc.key).createSlotAcc(taskContext, nDocs, maxSlots);
+    taskAcc.key = acc.key;
+    return taskAcc;
+  }
+
+  @Override
+  protected BytesRef lookupOrd(int ord) throws IOException {
+    return si.lookupOrd(ord);
+  }
+
+  /**
+   * Collects segments into a set of accumulators.  Instances are not thread-safe, but distinct
+   * instances with their own accumulators may collect distinct segments concurrently.
+   */
+  private class SegmentCollector {
+    final SlotAcc.CountSlotAcc countAcc;
+    final SlotAcc collectAcc;
+    final SpecialSlotAcc allBucketsAcc;
+    final boolean accumSeg;
+    final boolean canDoPerSeg;
+
+    SegmentCollector(SlotAcc.CountSlotAcc countAcc, SlotAcc collectAcc, SpecialSlotAcc allBucketsAcc,
+                     boolean accumSeg, boolean canDoPerSeg) {
+      this.countAcc = countAcc;
+      this.collectAcc = collectAcc;
+      this.allBucketsAcc = allBucketsAcc;
+      this.accumSeg = accumSeg;
+      this.canDoPerSeg = canDoPerSeg;
+    }
+
+    /** Collects the given segments, in order, with accumulators that are private to this collector. */
+    void collectSegments(List<LeafReaderContext> segments, Filter filter) throws IOException {
+      segments.sort((a, b) -> Integer.compare(a.ord, b.ord)); // setNextReader expects segments in order
+      for (LeafReaderContext subCtx : segments) {
+        if (collectAcc != null) {
+          collectAcc.setNextReader(subCtx);
+        }
+        collectSegment(subCtx, filter);
+      }
+    }
+
+    void collectSegment(LeafReaderContext subCtx, Filter filter) throws IOException {
       DocIdSet dis = filter.getDocIdSet(subCtx, null); // solr docsets already exclude any deleted docs
       DocIdSetIterator disi = dis.iterator();
 
@@ -149,7 +329,7 @@ class FacetFieldProcessorByArrayDV extends FacetFieldProcessorByArray {
         }
       }
 
-      LongValues toGlobal = ordinalMap == null ? null : ordinalMap.getGlobalOrds(subIdx);
+      LongValues toGlobal = ordinalMap == null ? null : ordinalMap.getGlobalOrds(subCtx.ord);
 
       if (singleDv != null) {
         if (accumSeg) {
@@ -174,165 +354,158 @@ class FacetFieldProcessorByArrayDV extends FacetFieldProcessorByArray {
       }
     }
 
-    reuse = null;  // better GC
-  }
+    private void collectPerSeg(SortedDocValues singleDv, DocIdSetIterator disi, LongValues toGlobal) throws IOException {
+      int segMax = singleDv.getValueCount() + 1;
+      final int[] counts = getCountArr( segMax );
 
-  @Override
-  protected BytesRef lookupOrd(int ord) throws IOException {
-    return si.lookupOrd(ord);
-  }
-
-  private void collectPerSeg(SortedDocValues singleDv, DocIdSetIterator disi, LongValues toGlobal) throws IOException {
-    int segMax = singleDv.getValueCount() + 1;
-    final int[] counts = getCountArr( segMax );
-
-    /** alternate trial implementations
-     // ord
-     // FieldUtil.visitOrds(singleDv, disi,  (doc,ord)->{counts[ord+1]++;} );
+      /** alternate trial implementations
+       // ord
+       // FieldUtil.visitOrds(singleDv, disi,  (doc,ord)->{counts[ord+1]++;} );
 
-    FieldUtil.OrdValues ordValues = FieldUtil.getOrdValues(singleDv, disi);
-    while (ordValues.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
-      counts[ ordValues.getOrd() + 1]++;
-    }
-     **/
+      FieldUtil.OrdValues ordValues = FieldUtil.getOrdValues(singleDv, disi);
+      while (ordValues.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+        counts[ ordValues.getOrd() + 1]++;
+      }
+       **/
 
 
-    // calculate segment-local counts
-    int doc;
-    if (singleDv instanceof FieldCacheImpl.SortedDocValuesImpl.Iter) {
-      FieldCacheImpl.SortedDocValuesImpl.Iter fc = (FieldCacheImpl.SortedDocValuesImpl.Iter) singleDv;
-      while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
-        counts[fc.getOrd(doc) + 1]++;
-      }
-    } else {
-      while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
-        if (singleDv.advanceExact(doc)) {
-          counts[singleDv.ordValue() + 1]++;
+      // calculate segment-local counts
+      int doc;
+      if (singleDv instanceof FieldCacheImpl.SortedDocValuesImpl.Iter) {
+        FieldCacheImpl.SortedDocValuesImpl.Iter fc = (FieldCacheImpl.SortedDocValuesImpl.Iter) singleDv;
+        while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+          counts[fc.getOrd(doc) + 1]++;
+        }
+      } else {
+        while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+          if (singleDv.advanceExact(doc)) {
+            counts[singleDv.ordValue() + 1]++;
+          }
         }
       }
-    }
 
-    // convert segment-local counts to global counts
-    for (int i=1; i<segMax; i++) {
-      int segCount = counts[i];
-      if (segCount > 0) {
-        int slot = toGlobal == null ? (i - 1) : (int) toGlobal.get(i - 1);
-        countAcc.incrementCount(slot, segCount);
+      // convert segment-local counts to global counts
+      for (int i=1; i<segMax; i++) {
+        int segCount = counts[i];
+        if (segCount > 0) {
+          int slot = toGlobal == null ? (i - 1) : (int) toGlobal.get(i - 1);
+          countAcc.incrementCount(slot, segCount);
+        }
       }
     }
-  }
 
-  private void collectPerSeg(SortedSetDocValues multiDv, DocIdSetIterator disi, LongValues toGlobal) throws IOException {
-    int segMax = (int)multiDv.getValueCount();
-    final int[] counts = getCountArr( segMax );
-
-    int doc;
-    while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
-      if (multiDv.advanceExact(doc)) {
-        for(;;) {
-          int segOrd = (int)multiDv.nextOrd();
-          if (segOrd < 0) break;
-          counts[segOrd]++;
+    private void collectPerSeg(SortedSetDocValues multiDv, DocIdSetIterator disi, LongValues toGlobal) throws IOException {
+      int segMax = (int)multiDv.getValueCount();
+      final int[] counts = getCountArr( segMax );
+
+      int doc;
+      while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+        if (multiDv.advanceExact(doc)) {
+          for(;;) {
+            int segOrd = (int)multiDv.nextOrd();
+            if (segOrd < 0) break;
+            counts[segOrd]++;
+          }
         }
       }
-    }
 
-    for (int i=0; i<segMax; i++) {
-      int segCount = counts[i];
-      if (segCount > 0) {
-        int slot = toGlobal == null ? (i) : (int) toGlobal.get(i);
-        countAcc.incrementCount(slot, segCount);
+      for (int i=0; i<segMax; i++) {
+        int segCount = counts[i];
+        if (segCount > 0) {
+          int slot = toGlobal == null ? (i) : (int) toGlobal.get(i);
+          countAcc.incrementCount(slot, segCount);
+        }
       }
     }
-  }
 
-  private int[] reuse;
-  private int[] getCountArr(int maxNeeded) {
-    if (reuse == null) {
-      // make the count array large enough for any segment
-      // FUTURE: (optionally) directly use the array of the CountAcc for an optimized index..
-      reuse = new int[(int) si.getValueCount() + 1];
-    } else {
-      Arrays.fill(reuse, 0, maxNeeded, 0);
-    }
-    return reuse;
-  }
-
-  private void collectDocs(SortedDocValues singleDv, DocIdSetIterator disi, LongValues toGlobal) throws IOException {
-    int doc;
-    while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
-      if (singleDv.advanceExact(doc)) {
-        int segOrd = singleDv.ordValue();
-        collect(doc, segOrd, toGlobal);
+    private int[] reuse;
+    private int[] getCountArr(int maxNeeded) {
+      if (reuse == null) {
+        // make the count array large enough for any segment
+        // FUTURE: (optionally) directly use the array of the CountAcc for an optimized index..
+        reuse = new int[(int) si.getValueCount() + 1];
+      } else {
+        Arrays.fill(reuse, 0, maxNeeded, 0);
       }
+      return reuse;
     }
-  }
-
-  private void collectCounts(SortedDocValues singleDv, DocIdSetIterator disi, LongValues toGlobal) throws IOException {
-    int doc;
-    if (singleDv instanceof FieldCacheImpl.SortedDocValuesImpl.Iter) {
 
-      FieldCacheImpl.SortedDocValuesImpl.Iter fc = (FieldCacheImpl.SortedDocValuesImpl.Iter)singleDv;
+    private void collectDocs(SortedDocValues singleDv, DocIdSetIterator disi, LongValues toGlobal) throws IOException {
+      int doc;
       while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
-        int segOrd = fc.getOrd(doc);
-        if (segOrd < 0) continue;
-        int ord = (int)toGlobal.get(segOrd);
-        countAcc.incrementCount(ord, 1);
+        if (singleDv.advanceExact(doc)) {
+          int segOrd = singleDv.ordValue();
+          collect(doc, segOrd, toGlobal);
+        }
       }
+    }
 
-    } else {
+    private void collectCounts(SortedDocValues singleDv, DocIdSetIterator disi, LongValues toGlobal) throws IOException {
+      int doc;
+      if (singleDv instanceof FieldCacheImpl.SortedDocValuesImpl.Iter) {
 
-      while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
-        if (singleDv.advanceExact(doc)) {
-          int segOrd = singleDv.ordValue();
-          int ord = (int) toGlobal.get(segOrd);
+        FieldCacheImpl.SortedDocValuesImpl.Iter fc = (FieldCacheImpl.SortedDocValuesImpl.Iter)singleDv;
+        while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+          int segOrd = fc.getOrd(doc);
+          if (segOrd < 0) continue;
+          int ord = (int)toGlobal.get(segOrd);
           countAcc.incrementCount(ord, 1);
         }
-      }
 
+      } else {
+
+        while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+          if (singleDv.advanceExact(doc)) {
+            int segOrd = singleDv.ordValue();
+            int ord = (int) toGlobal.get(segOrd);
+            countAcc.incrementCount(ord, 1);
+          }
+        }
+
+      }
     }
-  }
 
-  private void collectDocs(SortedSetDocValues multiDv, DocIdSetIterator disi, LongValues toGlobal) throws IOException {
-    int doc;
-    while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
-      if (multiDv.advanceExact(doc)) {
-        for(;;) {
-          int segOrd = (int)multiDv.nextOrd();
-          if (segOrd < 0) break;
-          collect(doc, segOrd, toGlobal);
+    private void collectDocs(SortedSetDocValues multiDv, DocIdSetIterator disi, LongValues toGlobal) throws IOException {
+      int doc;
+      while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+        if (multiDv.advanceExact(doc)) {
+          for(;;) {
+            int segOrd = (int)multiDv.nextOrd();
+            if (segOrd < 0) break;
+            collect(doc, segOrd, toGlobal);
+          }
         }
       }
     }
-  }
 
-  private void collectCounts(SortedSetDocValues multiDv, DocIdSetIterator disi, LongValues toGlobal) throws IOException {
-    int doc;
-    while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
-      if (multiDv.advanceExact(doc)) {
-        for(;;) {
-          int segOrd = (int)multiDv.nextOrd();
-          if (segOrd < 0) break;
-          int ord = (int)toGlobal.get(segOrd);
-          countAcc.incrementCount(ord, 1);
+    private void collectCounts(SortedSetDocValues multiDv, DocIdSetIterator disi, LongValues toGlobal) throws IOException {
+      int doc;
+      while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+        if (multiDv.advanceExact(doc)) {
+          for(;;) {
+            int segOrd = (int)multiDv.nextOrd();
+            if (segOrd < 0) break;
+            int ord = (int)toGlobal.get(segOrd);
+            countAcc.incrementCount(ord, 1);
+          }
         }
       }
     }
-  }
 
-  private void collect(int doc, int segOrd, LongValues toGlobal) throws IOException {
-    int ord = (toGlobal != null && segOrd >= 0) ? (int)toGlobal.get(segOrd) : segOrd;
+    private void collect(int doc, int segOrd, LongValues toGlobal) throws IOException {
+      int ord = (toGlobal != null && segOrd >= 0) ? (int)toGlobal.get(segOrd) : segOrd;
 
-    int arrIdx = ord - startTermIndex;
-    // This code handles faceting prefixes, which narrows the range of ords we want to collect.
-    // It’s not an error for an ord to fall outside this range… we simply want to skip it.
-    if (arrIdx >= 0 && arrIdx < nTerms) {
-      countAcc.incrementCount(arrIdx, 1);
-      if (collectAcc != null) {
-        collectAcc.collect(doc, arrIdx, slotContext);
-      }
-      if (allBucketsAcc != null) {
-        allBucketsAcc.collect(doc, arrIdx, slotContext);
+      int arrIdx = ord - startTermIndex;
+      // This code handles faceting prefixes, which narrows the range of ords we want to collect.
+      // It’s not an error for an ord to fall outside this range… we simply want to skip it.
+      if (arrIdx >= 0 && arrIdx < nTerms) {
+        countAcc.incrementCount(arrIdx, 1);
+        if (collectAcc != null) {
+          collectAcc.collect(doc, arrIdx, slotContext);
+        }
+        if (allBucketsAcc != null) {
+          allBucketsAcc.collect(doc, arrIdx, slotContext);
+        }
       }
     }
   }
@@ -0,0 +1,392 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.facet;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+import java.util.function.LongConsumer;
+
+import com.carrotsearch.hppc.LongIntHashMap;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiDocValues;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.OrdinalMap;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.util.LongValues;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.schema.FieldType;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.DocSetUtil;
+import org.apache.solr.search.facet.SlotAcc.SlotContext;
+
+/**
+ * Finds the top buckets by count in memory that is bounded by the size of a heavy-hitters sketch rather
+ * than by the number of unique values of the field.  The number is either a raw numeric DocValues value,
+ * or a term global ordinal.
+ * <p>
+ * A first pass over the domain feeds all values into a {@link SpaceSaving} sketch, which keeps track of
+ * at most {@link FacetField#sketchSize} candidates.  If the sketch had to evict values, its counts may be
+ * overestimated, so a second pass counts the candidates exactly.  Values that occur more often than
+ * {@code numValues / sketchSize} are guaranteed to be candidates, less frequent values may be missed.
+ * <p>
+ * Limitations, see {@link #supports}:
+ * <ul>
+ *   <li>only sorting by count descending, which is what the sketch is about</li>
+ *   <li>doesn't handle prefix, mincount==0, allBuckets, numBuckets or limit==-1</li>
+ * </ul>
+ */
+class FacetFieldProcessorBySketch extends FacetFieldProcessor {
+  static final int MIN_SKETCH_SIZE = 1024;
+  static final int MAX_SKETCH_SIZE = 1 << 20;
+  static final int SKETCH_SIZE_FACTOR = 16; // number of candidates to track per requested bucket by default
+
+  /**
+   * The Space-Saving heavy-hitters sketch.  It monitors at most {@code capacity} values, and a value
+   * that isn't monitored replaces the least frequent monitored value and inherits its count.  Counts are
+   * therefore never underestimated, and every value that occurs more than {@code numValues / capacity}
+   * times is monitored.
+   */
+  private static class SpaceSaving {
+    final long[] vals;
+    final long[] counts;
+    final int[] heap;     // entries, ordered by count, least frequent first
+    final int[] heapPos;  // position of each entry in the heap
+    final LongIntHashMap entries; // value to entry+1, so that 0 means unmonitored
+    int size;
+    boolean evicted;
+
+    SpaceSaving(int capacity) {
+      vals = new long[capacity];
+      counts = new long[capacity];
+      heap = new int[capacity];
+      heapPos = new int[capacity];
+      entries = new LongIntHashMap(capacity);
+    }
+
+    void add(long val) {
+      int entry = entries.get(val) - 1;
+      if (entry >= 0) {
+        counts[entry]++;
+        siftDown(heapPos[entry]);
+      } else if (size < vals.length) {
+        entry = size++;
+        vals[entry] = val;
+        counts[entry] = 1;
+        entries.put(val, entry + 1);
+        heap[entry] = entry;
+        siftUp(entry);
+      } else {
+        entry = heap[0];
+        entries.remove(vals[entry]);
+        vals[entry] = val;
+        counts[entry]++;
+        entries.put(val, entry + 1);
+        siftDown(0);
+        evicted = true;
+      }
+    }
+
+    /** Returns the entry of the given value, or -1 if it isn't monitored. */
+    int entry(long val) {
+      return entries.get(val) - 1;
+    }
+
+    private void siftUp(int pos) {
+      final int entry = heap[pos];
+      final long count = counts[entry];
+      while (pos > 0) {
+        final int parent = (pos - 1) >>> 1;
+        if (counts[heap[parent]] <= count) {
+          break;
+        }
+        heap[pos] = heap[parent];
+        heapPos[heap[pos]] = pos;
+        pos = parent;
+      }
+      heap[pos] = entry;
+      heapPos[entry] = pos;
+    }
+
+    private void siftDown(int pos) {
+      final int entry = heap[pos];
+      final long count = counts[entry];
+      for (int child = 2 * pos + 1; child < size; child = 2 * pos + 1) {
+        if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) {
+          child++;
+        }
+        if (counts[heap[child]] >= count) {
+          break;
+        }
+        heap[pos] = heap[child];
+        heapPos[heap[pos]] = pos;
+        pos = child;
+      }
+      heap[pos] = entry;
+      heapPos[entry] = pos;
+    }
+  }
+
+  /** Returns true if this processor can compute the given facet request. */
+  static boolean supports(FacetContext fcontext, FacetField freq) {
+    final FacetRequest.FacetSort sort = null == freq.prelim_sort ? freq.sort : freq.prelim_sort;
+    return FacetRequest.FacetSort.COUNT_DESC.equals(sort) && freq.limit >= 0 && freq.mincount > 0
+        && freq.prefix == null && !freq.allBuckets && !freq.numBuckets;
+  }
+
+  final boolean numeric;
+  FacetRangeProcessor.Calc calc;  // only used for numbers
+  SortedSetDocValues si;  // only used for term lookups (for both single and multi-valued)
+  OrdinalMap ordinalMap = null; // maps per-segment ords to global ords
+  SpaceSaving sketch;
+
+  FacetFieldProcessorBySketch(FacetContext fcontext, FacetField freq, SchemaField sf) {
+    super(fcontext, freq, sf);
+    assert supports(fcontext, freq);
+    FieldType ft = sf.getType();
+    // multi-valued trie numbers use SortedSet docValues, like strings
+    numeric = ft.getNumberType() != null && (!sf.multiValued() || ft.isPointField());
+  }
+
+  @Override
+  public void process() throws IOException {
+    super.process();
+    response = calcFacets();
+    sketch = null; // gc
+  }
+
+  private int getSketchSize() {
+    if (freq.sketchSize > 0) {
+      // also bounded for requests that weren't parsed, so that no request may allocate an arbitrary sketch
+      return Math.min(MAX_SKETCH_SIZE, freq.sketchSize);
+    }
+    long numRequested = freq.offset + freq.limit + Math.max(0, freq.overrequest);
+    return (int) Math.min(MAX_SKETCH_SIZE, Math.max(MIN_SKETCH_SIZE, SKETCH_SIZE_FACTOR * numRequested));
+  }
+
+  @SuppressWarnings({"rawtypes"})
+  private SimpleOrderedMap<Object> calcFacets() throws IOException {
+    if (numeric) {
+      calc = FacetRangeProcessor.getNumericCalc(sf);
+    } else if (sf.multiValued() || sf.getType().multiValuedFieldCache()) {
+      si = FieldUtil.getSortedSetDocValues(fcontext.qcontext, sf, null);
+      if (si instanceof MultiDocValues.MultiSortedSetDocValues) {
+        ordinalMap = ((MultiDocValues.MultiSortedSetDocValues)si).mapping;
+      }
+    } else {
+      // multi-valued view
+      SortedDocValues single = FieldUtil.getSortedDocValues(fcontext.qcontext, sf, null);
+      si = DocValues.singleton(single);
+      if (single instanceof MultiDocValues.MultiSortedDocValues) {
+        ordinalMap = ((MultiDocValues.MultiSortedDocValues)single).mapping;
+      }
+    }
+
+    // first pass: find the candidates
+    final SpaceSaving sketch = this.sketch = new SpaceSaving(getSketchSize());
+    collectValues(sketch::add);
+
+    createCollectAcc();
+
+    // second pass: the counts of the sketch are exact unless values were evicted
+    if (sketch.evicted) {
+      Arrays.fill(sketch.counts, 0, sketch.size, 0L);
+      collectValues(val -> {
+        int entry = sketch.entry(val);
+        if (entry >= 0) {
+          sketch.counts[entry]++;
+        }
+      });
+    }
+
+    final FacetDebugInfo fdebug = fcontext.getDebugInfo();
+    if (fdebug != null) {
+      fdebug.putInfoItem("sketchSize", (long) sketch.vals.length);
+      fdebug.putInfoItem("sketchEvicted", sketch.evicted);
+    }
+
+    final long[] vals = sketch.vals;
+    if (numeric) {
+      return super.findTopSlots(sketch.size, sketch.size,
+          slotNum -> calc.bitsToValue(vals[slotNum]), // getBucketValFromSlotNum
+          val -> calc.formatValue(val)); // getFieldQueryVal
+    }
+    return super.findTopSlots(sketch.size, sketch.size,
+        slotNum -> { // getBucketValFromSlotNum
+          try {
+            return (Comparable) sf.getType().toObject(sf, si.lookupOrd(vals[slotNum]));
+          } catch (IOException e) {
+            throw new RuntimeException(e);
+          }
+        },
+        FacetFieldProcessorByArray::valueObjToString);
+  }
+
+  private void createCollectAcc() throws IOException {
+    final SpaceSaving sketch = this.sketch;
+
+    indexOrderAcc = new SlotAcc(fcontext) {
+      @Override
+      public void collect(int doc, int slot, IntFunction<SlotContext> slotContext) throws IOException {
+      }
+
+      @Override
+      public int compare(int slotA, int slotB) {
+        if (!numeric) {
+          return Long.compare(sketch.vals[slotA], sketch.vals[slotB]); // global ords
+        }
+        long s1 = calc.bitsToSortableBits(sketch.vals[slotA]);
+        long s2 = calc.bitsToSortableBits(sketch.vals[slotB]);
+        return Long.compare(s1, s2);
+      }
+
+      @Override
+      public Object getValue(int slotNum) throws IOException {
+        return null;
+      }
+
+      @Override
+      public void reset() {
+      }
+
+      @Override
+      public void resize(Resizer resizer) {
+      }
+    };
+
+    countAcc = new SlotAcc.CountSlotAcc(fcontext) {
+      @Override
+      public void incrementCount(int slot, long count) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public long getCount(int slot) {
+        return sketch.counts[slot];
+      }
+
+      @Override
+      public Object getValue(int slotNum) {
+        return getCount(slotNum);
+      }
+
+      @Override
+      public void reset() {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public void collect(int doc, int slot, IntFunction<SlotContext> slotContext) throws IOException {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public int compare(int slotA, int slotB) {
+        return Long.compare(sketch.counts[slotA], sketch.counts[slotB]);
+      }
+
+      @Override
+      public void resize(Resizer resizer) {
+        throw new UnsupportedOperationException();
+      }
+    };
+
+    // we set the countAcc & indexAcc first so generic ones won't be created for us.
+    super.createCollectAcc(fcontext.base.size(), sketch.size);
+
+    // sorting by count means that all stats are deferred to the buckets we return
+    assert collectAcc == null && allBucketsAcc == null;
+  }
+
+  /** Feeds every value of every document of the domain to the consumer. */
+  private void collectValues(LongConsumer consumer) throws IOException {
+    if (!numeric) {
+      DocSetUtil.collectSortedDocSet(fcontext.base, fcontext.searcher.getIndexReader(), new SimpleCollector() {
+        SortedSetDocValues values = null; //NN
+        LongValues toGlobal = LongValues.IDENTITY; // this segment to global ordinal. NN
+
+        @Override public ScoreMode scoreMode() { return ScoreMode.COMPLETE_NO_SCORES; }
+
+        @Override
+        protected void doSetNextReader(LeafReaderContext ctx) throws IOException {
+          values = DocValues.getSortedSet(ctx.reader(), sf.getName());
+          if (ordinalMap != null) {
+            toGlobal = ordinalMap.getGlobalOrds(ctx.ord);
+          }
+        }
+
+        @Override
+        public void collect(int segDoc) throws IOException {
+          if (values.advanceExact(segDoc)) {
+            for (long ord = values.nextOrd(); ord != SortedSetDocValues.NO_MORE_ORDS; ord = values.nextOrd()) {
+              consumer.accept(toGlobal.get(ord));
+            }
+          }
+        }
+      });
+    } else if (sf.multiValued()) {
+      DocSetUtil.collectSortedDocSet(fcontext.base, fcontext.searcher.getIndexReader(), new SimpleCollector() {
+        SortedNumericDocValues values = null; //NN
+
+        @Override public ScoreMode scoreMode() { return ScoreMode.COMPLETE_NO_SCORES; }
+
+        @Override
+        protected void doSetNextReader(LeafReaderContext ctx) throws IOException {
+          values = DocValues.getSortedNumeric(ctx.reader(), sf.getName());
+        }
+
+        @Override
+        public void collect(int segDoc) throws IOException {
+          if (values.advanceExact(segDoc)) {
+            long l = values.nextValue(); // This document must have at least one value
+            consumer.accept(l);
+            for (int i = 1, count = values.docValueCount(); i < count; i++) {
+              long lnew = values.nextValue();
+              if (lnew != l) { // Skip the value if it's equal to the last one, we don't want to double-count it
+                consumer.accept(lnew);
+              }
+              l = lnew;
+            }
+          }
+        }
+      });
+    } else {
+      DocSetUtil.collectSortedDocSet(fcontext.base, fcontext.searcher.getIndexReader(), new SimpleCollector() {
+        NumericDocValues values = null; //NN
+
+        @Override public ScoreMode scoreMode() { return ScoreMode.COMPLETE_NO_SCORES; }
+
+        @Override
+        protected void doSetNextReader(LeafReaderContext ctx) throws IOException {
+          values = DocValues.getNumeric(ctx.reader(), sf.getName());
+        }
+
+        @Override
+        public void collect(int segDoc) throws IOException {
+          if (values.advanceExact(segDoc)) {
+            consumer.accept(values.longValue());
+          }
+        }
+      });
+    }
+  }
+}
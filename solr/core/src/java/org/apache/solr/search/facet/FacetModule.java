@@ -57,6 +57,8 @@ public class FacetModule extends SearchComponent {
   // Internal information passed down from the top level to shards for distributed faceting.
   private final static String FACET_INFO = "_facet_";
   private final static String FACET_REFINE = "refine";
+  // Tells shards that the coordinator reads the compact format of percentile sketches.
+  final static String PERCENTILE_SKETCH = "_facet_percentileSketch_";
 
 
   public FacetComponentState getFacetComponentState(ResponseBuilder rb) {
@@ -245,6 +247,7 @@ public class FacetModule extends SearchComponent {
       String finfoStr = out.toString();
       // System.err.println("##################### REFINE=" + finfoStr);
       shardsRefineRequest.params.add(FACET_INFO, finfoStr);
+      shardsRefineRequest.params.set(PERCENTILE_SKETCH, true);
 
       if (newRequest) {
         rb.addRequest(this, shardsRefineRequest);
@@ -263,6 +266,7 @@ public class FacetModule extends SearchComponent {
     if ((sreq.purpose & ShardRequest.PURPOSE_GET_TOP_IDS) != 0) {
       sreq.purpose |= FacetModule.PURPOSE_GET_JSON_FACETS;
       sreq.params.set(FACET_INFO, "{}"); // The presence of FACET_INFO (_facet_) turns on json faceting
+      sreq.params.set(PERCENTILE_SKETCH, true);
     } else {
       // turn off faceting on other requests
       /*** distributedProcess will need to use other requests for refinement
@@ -543,6 +543,12 @@ abstract class FacetParser<FacetRequestT extends FacetRequest> {
         facet.allBuckets = getBoolean(m, "allBuckets", facet.allBuckets);
         facet.method = FacetField.FacetMethod.fromString(getString(m, "method", null));
         facet.cacheDf = (int)getLong(m, "cacheDf", facet.cacheDf);
+        facet.threads = (int)getLong(m, "threads", facet.threads);
+        long sketchSize = getLong(m, "sketchSize", facet.sketchSize);
+        if (sketchSize > FacetFieldProcessorBySketch.MAX_SKETCH_SIZE) {
+          throw err("'sketchSize' must be at most " + FacetFieldProcessorBySketch.MAX_SKETCH_SIZE + ", got " + sketchSize);
+        }
+        facet.sketchSize = (int) sketchSize;
 
         // TODO: pull up to higher level?
         facet.refine = FacetRequest.RefineMethod.fromObj(m.get("refine"));
@@ -18,6 +18,7 @@
 package org.apache.solr.search.facet;
 
 
+import org.apache.lucene.queries.function.ValueSource;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.util.NumericUtils;
 import org.apache.solr.common.SolrException;
@@ -26,6 +27,7 @@ import org.apache.solr.common.util.SimpleOrderedMap;
 import org.apache.solr.schema.*;
 import org.apache.solr.search.DocSet;
 import org.apache.solr.search.SyntaxError;
+import org.apache.solr.search.function.FieldNameValueSource;
 import org.apache.solr.util.DateMathParser;
 
 import java.io.IOException;
@@ -489,8 +491,11 @@ class FacetRangeProcessor extends FacetProcessor<FacetRange> {
 
     createAccs(fcontext.base.size(), slotCount);
 
+    final RangeRollup rollup = getRollup();
     for (int idx = 0; idx<rangeList.size(); idx++) {
-      rangeStats(rangeList.get(idx), idx);
+      if (rollup == null || !rollupStats(rollup, rangeList.get(idx), idx)) {
+        rangeStats(rangeList.get(idx), idx);
+      }
     }
 
     for (int idx = 0; idx<otherList.size(); idx++) {
@@ -540,6 +545,63 @@ class FacetRangeProcessor extends FacetProcessor<FacetRange> {
     countAcc.incrementCount(slot, num); // TODO: roll this into collect()
   }
 
+  /**
+   * Returns the rollup to compute the stats of the ranges from, or null if they must be computed from the documents.
+   * Rollups require a field with a rollup interval, a domain that is the whole index, no sub-facets,
+   * and stats that are all sums of fields.
+   */
+  private RangeRollup getRollup() throws IOException {
+    if (!(sf.getType() instanceof DatePointField) || sf.multiValued() || !sf.hasDocValues()) {
+      return null;
+    }
+    final long interval = ((DatePointField) sf.getType()).getRollupInterval();
+    if (interval == 0 || !freq.getSubFacets().isEmpty()) {
+      return null;
+    }
+    // the domain is a subset of the live docs, so it is the whole index if it has the same size
+    if (fcontext.base.size() != fcontext.searcher.numDocs()) {
+      return null;
+    }
+
+    final ValueSource[] sumSources = new ValueSource[accs.length];
+    int i = 0;
+    for (AggValueSource stat : freq.getFacetStats().values()) {
+      if (!(stat instanceof SumAgg) || !(((SumAgg) stat).getArg() instanceof FieldNameValueSource)
+          || accs[i].getClass() != SlotAcc.SumSlotAcc.class) {
+        return null;
+      }
+      sumSources[i] = ((SlotAcc.SumSlotAcc) accs[i]).valueSource;
+      i++;
+    }
+
+    for (Range range : rangeList) {
+      if (isRollupRange(range, interval)) {
+        return new RangeRollup(fcontext.searcher, fcontext.qcontext, sf.getName(), interval, sumSources);
+      }
+    }
+    return null;
+  }
+
+  private static boolean isRollupRange(Range range, long interval) {
+    // rollup buckets include their lower bound and exclude their upper bound
+    return range.includeLower && !range.includeUpper && range.low instanceof Date && range.high instanceof Date
+        && RangeRollup.isAligned(((Date) range.low).getTime(), ((Date) range.high).getTime(), interval);
+  }
+
+  /** Computes the stats of the range from the rollup if possible, and returns whether it was */
+  private boolean rollupStats(RangeRollup rollup, Range range, int slot) {
+    if (!isRollupRange(range, ((DatePointField) sf.getType()).getRollupInterval())) {
+      return false;
+    }
+    final long low = ((Date) range.low).getTime();
+    final long high = ((Date) range.high).getTime();
+    countAcc.incrementCount(slot, rollup.count(low, high));
+    for (int i = 0; i < accs.length; i++) {
+      ((SlotAcc.SumSlotAcc) accs[i]).result[slot] += rollup.sum(i, low, high);
+    }
+    return true;
+  }
+
   @SuppressWarnings({"unchecked", "rawtypes"})
   private void doSubs(SimpleOrderedMap bucket, int slot) throws IOException {
     // handle sub-facets for this bucket
@@ -108,7 +108,9 @@ public abstract class FacetRequest {
 
   public static enum RefineMethod {
     NONE,
-    SIMPLE;
+    SIMPLE,
+    /** like SIMPLE, but shards also return bounds of the counts they didn't return, to skip needless refinements */
+    SKETCH;
     // NONE is distinct from null since we may want to know if refinement was explicitly turned off.
     public static FacetRequest.RefineMethod fromObj(Object method) {
       if (method == null) return null;
@@ -117,6 +119,8 @@ public abstract class FacetRequest {
       }
       if ("simple".equals(method)) {
         return SIMPLE;
+      } else if ("sketch".equals(method)) {
+        return SKETCH;
       } else if ("none".equals(method)) {
         return NONE;
       } else {
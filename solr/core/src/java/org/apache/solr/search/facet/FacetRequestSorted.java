@@ -44,7 +44,7 @@ abstract class FacetRequestSorted extends FacetRequest {
    * (after refinement)
    */
   FacetSort prelim_sort;
-  RefineMethod refine; // null, NONE, or SIMPLE
+  RefineMethod refine; // null, NONE, SIMPLE or SKETCH
 
   @Override
   public RefineMethod getRefineMethod() {
@@ -35,6 +35,8 @@ abstract class FacetRequestSortedMerger<FacetRequestT extends FacetRequestSorted
   LinkedHashMap<Object,FacetBucket> buckets = new LinkedHashMap<>();
   List<FacetBucket> sortedBuckets;
   BitSet shardHasMoreBuckets;  // null, or "true" if we saw a result from this shard and it indicated that there are more results
+  BitSet shardHasResult;  // null unless refine:sketch, "true" if we saw a result from this shard
+  TailCountSketch[] shardTails;  // null unless refine:sketch, bounds of the counts of the buckets that each shard didn't return
   Context mcontext;  // HACK: this should be passed in getMergedResult as well!
 
   public FacetRequestSortedMerger(FacetRequestT freq) {
@@ -54,6 +56,17 @@ abstract class FacetRequestSortedMerger<FacetRequestT extends FacetRequestSorted
       }
       shardHasMoreBuckets.set(mcontext.shardNum);
     }
+    if (freq.refine == FacetRequest.RefineMethod.SKETCH) {
+      if (shardHasResult == null) {
+        shardHasResult = new BitSet(mcontext.numShards);
+        shardTails = new TailCountSketch[mcontext.numShards];
+      }
+      shardHasResult.set(mcontext.shardNum);
+      byte[] tail = (byte[])res.get("tail");
+      if (tail != null) {
+        shardTails[mcontext.shardNum] = TailCountSketch.fromBytes(tail);
+      }
+    }
   }
 
   private static class SortVal implements Comparable<SortVal> {
@@ -167,13 +180,44 @@ abstract class FacetRequestSortedMerger<FacetRequestT extends FacetRequestSorted
     if (mcontext.numShards <= 1 || shardHasMoreBuckets==null) return true;
     for (int shard=0; shard < mcontext.numShards; shard++) {
       // bucket is incomplete if we didn't see the bucket for this shard, and the shard has more buckets
-      if (!mcontext.getShardFlag(bucket.bucketNumber, shard) && shardHasMoreBuckets!=null && shardHasMoreBuckets.get(shard)) {
+      // (unless the shard told us it doesn't have the bucket)
+      if (!mcontext.getShardFlag(bucket.bucketNumber, shard) && shardHasMoreBuckets!=null && shardHasMoreBuckets.get(shard)
+          && (shardTails == null || shardTails[shard] == null || shardTails[shard].upperBound(bucket.bucketValue) > 0)) {
         return false;
       }
     }
     return true;
   }
 
+  /**
+   * Returns an upper bound of the count of a bucket on a shard that didn't return it, or {@link Long#MAX_VALUE} if
+   * unknown. Only called with refine:sketch.
+   */
+  private long shardUpperBound(FacetBucket bucket, int shard) {
+    if (!shardHasResult.get(shard)) {
+      return Long.MAX_VALUE; // we didn't hear from this shard, eg. it didn't have the parent bucket
+    }
+    if (shardHasMoreBuckets == null || !shardHasMoreBuckets.get(shard)) {
+      return 0;
+    }
+    return shardTails[shard] == null ? Long.MAX_VALUE : shardTails[shard].upperBound(bucket.bucketValue);
+  }
+
+  /** Returns an upper bound of the count of a bucket once refined. Only called with refine:sketch. */
+  private long upperBound(FacetBucket bucket, Context mcontext) {
+    long upperBound = bucket.count;
+    for (int shard = 0; shard < mcontext.numShards; shard++) {
+      if (!mcontext.getShardFlag(bucket.bucketNumber, shard)) {
+        final long shardUpperBound = shardUpperBound(bucket, shard);
+        if (shardUpperBound > Long.MAX_VALUE - upperBound) {
+          return Long.MAX_VALUE;
+        }
+        upperBound += shardUpperBound;
+      }
+    }
+    return upperBound;
+  }
+
   @Override
   public Map<String, Object> getRefinement(Context mcontext) {
     // step 1) If this facet request has refining, then we need to fully request top buckets that were not seen by this shard.
@@ -257,6 +301,16 @@ abstract class FacetRequestSortedMerger<FacetRequestT extends FacetRequestSorted
       bucketList = sortedBuckets;
     }
 
+    // With refine:sketch, shards returned bounds of the counts of the buckets they didn't return. Buckets need no
+    // refinement if the shard can't have them, or if even their highest possible count can't get them into the top
+    // buckets: counts only grow with refinement, so the bucket at the limit won't get a lower count than now.
+    final boolean sketchRefinement = shardHasResult != null && !freq.processEmpty
+        && freq.prelim_sort == null && FacetRequest.FacetSort.COUNT_DESC.equals(freq.sort);
+    long minCompetitiveCount = freq.mincount;
+    if (sketchRefinement && bucketList == sortedBuckets && freq.limit > 0 && freq.offset + freq.limit <= sortedBuckets.size()) {
+      minCompetitiveCount = Math.max(minCompetitiveCount, sortedBuckets.get((int) (freq.offset + freq.limit - 1)).count);
+    }
+
     ArrayList<Object> leafBuckets = null;    // "_l" missing buckets specified by bucket value only (no need to specify anything further)
     ArrayList<Object> partialBuckets = null; // "_p" missing buckets that have a partial sub-facet that need to specify those bucket values... each entry is [bucketval, subs]
     ArrayList<Object> skipBuckets = null;    // "_s" present buckets that we need to recurse into because children facets have refinement requirements. each entry is [bucketval, subs]
@@ -266,7 +320,13 @@ abstract class FacetRequestSortedMerger<FacetRequestT extends FacetRequestSorted
       // if this bucket is missing,
       assert thisMissing == false || thisMissing == true && mcontext.getShardFlag(bucket.bucketNumber) == false;
       boolean saw = !thisMissing && mcontext.getShardFlag(bucket.bucketNumber);
+      if (sketchRefinement && minCompetitiveCount > 0 && upperBound(bucket, mcontext) < minCompetitiveCount) {
+        continue;
+      }
       if (!saw && !returnedAllBuckets) {
+        if (sketchRefinement && !thisMissing && shardUpperBound(bucket, mcontext.shardNum) == 0) {
+          continue; // the shard doesn't have this bucket
+        }
         // we didn't see the bucket for this shard, and it's possible that the shard has it
         Map<String,Object> bucketRefinement = null;
 
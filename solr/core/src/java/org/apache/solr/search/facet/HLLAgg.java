@@ -150,6 +150,24 @@ public class HLLAgg extends StrAggValueSource {
 
     protected abstract void collectValues(int doc, HLL hll) throws IOException;
 
+    @Override
+    boolean isMergeable() {
+      return true;
+    }
+
+    @Override
+    void merge(SlotAcc other) {
+      final HLL[] otherSets = ((BaseNumericAcc) other).sets;
+      for (int slot = 0; slot < sets.length; slot++) {
+        if (otherSets[slot] == null) continue;
+        if (sets[slot] == null) {
+          sets[slot] = otherSets[slot];
+        } else {
+          sets[slot].union(otherSets[slot]);
+        }
+      }
+    }
+
     @Override
     public Object getValue(int slot) throws IOException {
       if (fcontext.isShard()) {
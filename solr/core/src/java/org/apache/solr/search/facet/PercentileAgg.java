@@ -18,14 +18,11 @@ package org.apache.solr.search.facet;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.function.IntFunction;
 
-import com.tdunning.math.stats.AVLTreeDigest;
 import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedNumericDocValues;
@@ -34,20 +31,38 @@ import org.apache.lucene.queries.function.ValueSource;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.NumericUtils;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.SolrParams;
 import org.apache.solr.schema.SchemaField;
 import org.apache.solr.search.FunctionQParser;
+import org.apache.solr.search.QParser;
 import org.apache.solr.search.SyntaxError;
 import org.apache.solr.search.ValueSourceParser;
 import org.apache.solr.search.function.FieldNameValueSource;
 
 public class PercentileAgg extends SimpleAggValueSource {
   List<Double> percentiles;
+  double compression = PercentileSketch.DEFAULT_COMPRESSION;
 
   public PercentileAgg(ValueSource vs, List<Double> percentiles) {
     super("percentile", vs);
     this.percentiles = percentiles;
   }
 
+  /**
+   * Reads the {@code compression} local param, which trades the accuracy of percentiles for memory
+   * and for the size of shard responses: sketches hold up to {@code 5 * compression} centroids.
+   */
+  public void setOpts(QParser parser) throws SyntaxError {
+    SolrParams opts = parser.getLocalParams();
+    if (null != opts) {
+      double compression = opts.getDouble("compression", PercentileSketch.DEFAULT_COMPRESSION);
+      if (compression < 1 || compression > 10000) {
+        throw new SyntaxError("percentile compression must be between 1 and 10000.  got " + compression);
+      }
+      this.compression = compression;
+    }
+  }
+
   @Override
   public SlotAcc createSlotAcc(FacetContext fcontext, long numDocs, int numSlots) throws IOException {
     ValueSource vs = getArg();
@@ -86,12 +101,13 @@ public class PercentileAgg extends SimpleAggValueSource {
   public boolean equals(Object o) {
     if (!(o instanceof PercentileAgg)) return false;
     PercentileAgg other = (PercentileAgg)o;
-    return this.arg.equals(other.arg) && this.percentiles.equals(other.percentiles);
+    return this.arg.equals(other.arg) && this.percentiles.equals(other.percentiles)
+        && this.compression == other.compression;
   }
 
   @Override
   public int hashCode() {
-    return super.hashCode() * 31 + percentiles.hashCode();
+    return (super.hashCode() * 31 + percentiles.hashCode()) * 31 + Double.hashCode(compression);
   }
 
   public static class Parser extends ValueSourceParser {
@@ -111,178 +127,182 @@ public class PercentileAgg extends SimpleAggValueSource {
         throw new SyntaxError("expected percentile(valsource,percent1[,percent2]*)  EXAMPLE:percentile(myfield,50)");
       }
 
-      return new PercentileAgg(vs, percentiles);
+      PercentileAgg agg = new PercentileAgg(vs, percentiles);
+      agg.setOpts(fp);
+      return agg;
     }
   }
 
-  protected Object getValueFromDigest(AVLTreeDigest digest) {
-    if (digest == null) {
+  protected Object getValueFromSketch(PercentileSketch sketch) {
+    if (sketch == null) {
       return null;
     }
 
     if (percentiles.size() == 1) {
-      return digest.quantile( percentiles.get(0) * 0.01 );
+      return sketch.quantile( percentiles.get(0) * 0.01 );
     }
 
     List<Double> lst = new ArrayList<>(percentiles.size());
     for (Double percentile : percentiles) {
-      double val = digest.quantile( percentile * 0.01 );
+      double val = sketch.quantile( percentile * 0.01 );
       lst.add( val );
     }
     return lst;
   }
 
+  PercentileSketch newSketch() {
+    return new PercentileSketch(compression);
+  }
+
+  private double[] getSortVals(PercentileSketch[] sketches) {
+    double[] sortvals = new double[ sketches.length ];
+    double sortp = percentiles.get(0) * 0.01;
+    for (int i=0; i<sketches.length; i++) {
+      PercentileSketch sketch = sketches[i];
+      if (sketch == null) {
+        sortvals[i] = Double.NEGATIVE_INFINITY;
+      } else {
+        sortvals[i] = sketch.quantile(sortp);
+      }
+    }
+    return sortvals;
+  }
+
+  private Object getValue(PercentileSketch[] sketches, double[] sortvals, int slotNum, FacetContext fcontext) throws IOException {
+    PercentileSketch sketch = sketches[slotNum];
+    if (fcontext.isShard()) {
+      if (sketch == null) {
+        return null;  // an explicit null means no values for this slot
+      }
+      // coordinators of older versions only read the AVLTreeDigest format
+      return fcontext.req.getParams().getBool(FacetModule.PERCENTILE_SKETCH, false) ? sketch.toBytes() : sketch.toLegacyBytes();
+    }
+    if (sortvals != null && percentiles.size()==1) {
+      // we've already calculated everything we need
+      return sketch != null ? sortvals[slotNum] : null;
+    }
+    return getValueFromSketch(sketch);
+  }
+
+  /** Adds the sketches of {@code other} to {@code sketches}, slot by slot */
+  private static void mergeSketches(PercentileSketch[] sketches, PercentileSketch[] other) {
+    for (int i = 0; i < sketches.length; i++) {
+      if (other[i] == null) continue;
+      if (sketches[i] == null) {
+        sketches[i] = other[i];
+      } else {
+        sketches[i].add(other[i]);
+      }
+    }
+  }
+
   class Acc extends SlotAcc.FuncSlotAcc {
-    protected AVLTreeDigest[] digests;
-    protected ByteBuffer buf;
+    protected PercentileSketch[] sketches;
     protected double[] sortvals;
 
     public Acc(ValueSource values, FacetContext fcontext, int numSlots) {
       super(values, fcontext, numSlots);
-      digests = new AVLTreeDigest[numSlots];
+      sketches = new PercentileSketch[numSlots];
     }
 
     public void collect(int doc, int slotNum, IntFunction<SlotContext> slotContext) throws IOException {
       if (!values.exists(doc)) return;
       double val = values.doubleVal(doc);
 
-      AVLTreeDigest digest = digests[slotNum];
-      if (digest == null) {
-        digests[slotNum] = digest = new AVLTreeDigest(100);   // TODO: make compression configurable
+      PercentileSketch sketch = sketches[slotNum];
+      if (sketch == null) {
+        sketches[slotNum] = sketch = newSketch();
       }
 
-      digest.add(val);
+      sketch.add(val);
     }
 
     @Override
     public int compare(int slotA, int slotB) {
       if (sortvals == null) {
-        fillSortVals();
+        sortvals = getSortVals(sketches);
       }
       return Double.compare(sortvals[slotA], sortvals[slotB]);
     }
 
-    private void fillSortVals() {
-      sortvals = new double[ digests.length ];
-      double sortp = percentiles.get(0) * 0.01;
-      for (int i=0; i<digests.length; i++) {
-        AVLTreeDigest digest = digests[i];
-        if (digest == null) {
-          sortvals[i] = Double.NEGATIVE_INFINITY;
-        } else {
-          sortvals[i] = digest.quantile(sortp);
-        }
-      }
-    }
-
     @Override
     public Object getValue(int slotNum) throws IOException {
-      if (fcontext.isShard()) {
-        return getShardValue(slotNum);
-      }
-      if (sortvals != null && percentiles.size()==1) {
-        // we've already calculated everything we need
-        return digests[slotNum] != null ? sortvals[slotNum] : null;
-      }
-      return getValueFromDigest( digests[slotNum] );
-    }
-
-    public Object getShardValue(int slot) throws IOException {
-      AVLTreeDigest digest = digests[slot];
-      if (digest == null) return null;  // no values for this slot
-
-      digest.compress();
-      int sz = digest.byteSize();
-      if (buf == null || buf.capacity() < sz) {
-        buf = ByteBuffer.allocate(sz+(sz>>1));  // oversize by 50%
-      } else {
-        buf.clear();
-      }
-      digest.asSmallBytes(buf);
-      byte[] arr = Arrays.copyOf(buf.array(), buf.position());
-      return arr;
+      return PercentileAgg.this.getValue(sketches, sortvals, slotNum, fcontext);
     }
 
     @Override
     public void reset() {
-      digests = new AVLTreeDigest[digests.length];
+      sketches = new PercentileSketch[sketches.length];
       sortvals = null;
     }
 
     @Override
     public void resize(Resizer resizer) {
-      digests = resizer.resize(digests, null);
+      sketches = resizer.resize(sketches, null);
+    }
+
+    @Override
+    boolean isMergeable() {
+      return true;
+    }
+
+    @Override
+    void merge(SlotAcc other) {
+      mergeSketches(sketches, ((Acc) other).sketches);
+      sortvals = null;
     }
   }
 
   abstract class BasePercentileDVAcc extends DocValuesAcc {
-    AVLTreeDigest[] digests;
-    protected ByteBuffer buf;
+    PercentileSketch[] sketches;
     double[] sortvals;
 
     public BasePercentileDVAcc(FacetContext fcontext, SchemaField sf, int numSlots) throws IOException {
       super(fcontext, sf);
-      digests = new AVLTreeDigest[numSlots];
+      sketches = new PercentileSketch[numSlots];
+    }
+
+    PercentileSketch getSketch(int slot) {
+      PercentileSketch sketch = sketches[slot];
+      if (sketch == null) {
+        sketches[slot] = sketch = newSketch();
+      }
+      return sketch;
     }
 
     @Override
     public int compare(int slotA, int slotB) {
       if (sortvals == null) {
-        fillSortVals();
+        sortvals = getSortVals(sketches);
       }
       return Double.compare(sortvals[slotA], sortvals[slotB]);
     }
 
-    private void fillSortVals() {
-      sortvals = new double[ digests.length ];
-      double sortp = percentiles.get(0) * 0.01;
-      for (int i=0; i<digests.length; i++) {
-        AVLTreeDigest digest = digests[i];
-        if (digest == null) {
-          sortvals[i] = Double.NEGATIVE_INFINITY;
-        } else {
-          sortvals[i] = digest.quantile(sortp);
-        }
-      }
-    }
-
     @Override
     public Object getValue(int slotNum) throws IOException {
-      if (fcontext.isShard()) {
-        return getShardValue(slotNum);
-      }
-      if (sortvals != null && percentiles.size()==1) {
-        // we've already calculated everything we need
-        return digests[slotNum] != null ? sortvals[slotNum] : null;
-      }
-      return getValueFromDigest( digests[slotNum] );
-    }
-
-    public Object getShardValue(int slot) throws IOException {
-      AVLTreeDigest digest = digests[slot];
-      if (digest == null) return null;  // no values for this slot
-
-      digest.compress();
-      int sz = digest.byteSize();
-      if (buf == null || buf.capacity() < sz) {
-        buf = ByteBuffer.allocate(sz+(sz>>1));  // oversize by 50%
-      } else {
-        buf.clear();
-      }
-      digest.asSmallBytes(buf);
-      byte[] arr = Arrays.copyOf(buf.array(), buf.position());
-      return arr;
+      return PercentileAgg.this.getValue(sketches, sortvals, slotNum, fcontext);
     }
 
     @Override
     public void reset() {
-      digests = new AVLTreeDigest[digests.length];
+      sketches = new PercentileSketch[sketches.length];
       sortvals = null;
     }
 
     @Override
     public void resize(Resizer resizer) {
-      digests = resizer.resize(digests, null);
+      sketches = resizer.resize(sketches, null);
+    }
+
+    @Override
+    boolean isMergeable() {
+      return true;
+    }
+
+    @Override
+    void merge(SlotAcc other) {
+      mergeSketches(sketches, ((BasePercentileDVAcc) other).sketches);
+      sortvals = null;
     }
   }
 
@@ -295,13 +315,10 @@ public class PercentileAgg extends SimpleAggValueSource {
 
     @Override
     protected void collectValues(int doc, int slot) throws IOException {
-      AVLTreeDigest digest = digests[slot];
-      if (digest == null) {
-        digests[slot] = digest = new AVLTreeDigest(100);
-      }
+      PercentileSketch sketch = getSketch(slot);
       for (int i = 0, count = values.docValueCount(); i < count; i++) {
         double val = getDouble(values.nextValue());
-        digest.add(val);
+        sketch.add(val);
       }
     }
 
@@ -345,16 +362,13 @@ public class PercentileAgg extends SimpleAggValueSource {
 
     @Override
     protected void collectValues(int doc, int slot) throws IOException {
-      AVLTreeDigest digest = digests[slot];
-      if (digest == null) {
-        digests[slot] = digest = new AVLTreeDigest(100);
-      }
+      PercentileSketch sketch = getSketch(slot);
       long ord;
       while ((ord = values.nextOrd()) != SortedSetDocValues.NO_MORE_ORDS) {
         BytesRef term = values.lookupOrd(ord);
         Object obj = sf.getType().toObject(sf, term);
         double val = obj instanceof Date ? ((Date)obj).getTime(): ((Number)obj).doubleValue();
-        digest.add(val);
+        sketch.add(val);
       }
     }
 
@@ -371,14 +385,13 @@ public class PercentileAgg extends SimpleAggValueSource {
   }
 
   class PercentileUnInvertedFieldAcc extends UnInvertedFieldAcc {
-    protected AVLTreeDigest[] digests;
-    protected ByteBuffer buf;
+    protected PercentileSketch[] sketches;
     protected double[] sortvals;
     private int currentSlot;
 
     public PercentileUnInvertedFieldAcc(FacetContext fcontext, SchemaField sf, int numSlots) throws IOException {
       super(fcontext, sf, numSlots);
-      digests = new AVLTreeDigest[numSlots];
+      sketches = new PercentileSketch[numSlots];
     }
 
     @Override
@@ -391,74 +404,49 @@ public class PercentileAgg extends SimpleAggValueSource {
     @Override
     public int compare(int slotA, int slotB) {
       if (sortvals == null) {
-        fillSortVals();
+        sortvals = getSortVals(sketches);
       }
       return Double.compare(sortvals[slotA], sortvals[slotB]);
     }
 
-    private void fillSortVals() {
-      sortvals = new double[ digests.length ];
-      double sortp = percentiles.get(0) * 0.01;
-      for (int i=0; i<digests.length; i++) {
-        AVLTreeDigest digest = digests[i];
-        if (digest == null) {
-          sortvals[i] = Double.NEGATIVE_INFINITY;
-        } else {
-          sortvals[i] = digest.quantile(sortp);
-        }
-      }
-    }
-
     @Override
     public Object getValue(int slotNum) throws IOException {
-      if (fcontext.isShard()) {
-        return getShardValue(slotNum);
-      }
-      if (sortvals != null && percentiles.size()==1) {
-        // we've already calculated everything we need
-        return digests[slotNum] != null ? sortvals[slotNum] : null;
-      }
-      return getValueFromDigest( digests[slotNum] );
-    }
-
-    public Object getShardValue(int slot) throws IOException {
-      AVLTreeDigest digest = digests[slot];
-      if (digest == null) return null;
-
-      digest.compress();
-      int sz = digest.byteSize();
-      if (buf == null || buf.capacity() < sz) {
-        buf = ByteBuffer.allocate(sz+(sz>>1));  // oversize by 50%
-      } else {
-        buf.clear();
-      }
-      digest.asSmallBytes(buf);
-      byte[] arr = Arrays.copyOf(buf.array(), buf.position());
-      return arr;
+      return PercentileAgg.this.getValue(sketches, sortvals, slotNum, fcontext);
     }
 
     @Override
     public void reset() {
-      digests = new AVLTreeDigest[digests.length];
+      sketches = new PercentileSketch[sketches.length];
       sortvals = null;
     }
 
     @Override
     public void resize(Resizer resizer) {
-      digests = resizer.resize(digests, null);
+      sketches = resizer.resize(sketches, null);
+    }
+
+    @Override
+    boolean isMergeable() {
+      return true;
+    }
+
+    @Override
+    void merge(SlotAcc other) {
+      mergeSketches(sketches, ((PercentileUnInvertedFieldAcc) other).sketches);
+      sortvals = null;
     }
 
     @Override
     public void call(int ord) {
-      AVLTreeDigest digest = digests[currentSlot];
-      if (digest == null) {
-        digests[currentSlot] = digest = new AVLTreeDigest(100);
+      PercentileSketch sketch = sketches[currentSlot];
+      if (sketch == null) {
+        sketches[currentSlot] = sketch = newSketch();
       }
       try {
         BytesRef term = docToTerm.lookupOrd(ord);
         Object obj = sf.getType().toObject(sf, term);
         double val = obj instanceof Date ? ((Date) obj).getTime() : ((Number) obj).doubleValue();
-        digest.add(val);
+        sketch.add(val);
       } catch (IOException e) {
         throw new UncheckedIOException(e);
       }
@@ -466,25 +454,25 @@ public class PercentileAgg extends SimpleAggValueSource {
   }
 
   class Merger extends FacetModule.FacetSortableMerger {
-    protected AVLTreeDigest digest;
-    protected Double sortVal;
+    protected PercentileSketch sketch;
+    private double sortVal;
+    private boolean hasSortVal;
 
     @Override
     public void merge(Object facetResult, Context mcontext) {
       byte[] arr = (byte[])facetResult;
       if (arr == null) return; // an explicit null can mean no values in the field
-      AVLTreeDigest subDigest = AVLTreeDigest.fromBytes(ByteBuffer.wrap(arr));
-      if (digest == null) {
-        digest = subDigest;
-      } else {
-        digest.add(subDigest);
+      if (sketch == null) {
+        sketch = newSketch();
       }
+      sketch.addBytes(arr);
+      hasSortVal = false;
     }
 
     @Override
     public Object getMergedResult() {
-      if (percentiles.size() == 1 && digest != null) return getSortVal();
-      return getValueFromDigest(digest);
+      if (percentiles.size() == 1 && sketch != null) return getSortVal();
+      return getValueFromSketch(sketch);
     }
 
     @Override
@@ -492,9 +480,10 @@ public class PercentileAgg extends SimpleAggValueSource {
       return Double.compare(getSortVal(), ((Merger) other).getSortVal());
     }
 
-    private Double getSortVal() {
-      if (sortVal == null) {
-        sortVal = digest==null ? Double.NEGATIVE_INFINITY : digest.quantile( percentiles.get(0) * 0.01 );
+    private double getSortVal() {
+      if (hasSortVal == false) {
+        sortVal = sketch==null ? Double.NEGATIVE_INFINITY : sketch.quantile( percentiles.get(0) * 0.01 );
+        hasSortVal = true;
       }
       return sortVal;
     }
@@ -0,0 +1,345 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.facet;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.tdunning.math.stats.AVLTreeDigest;
+import com.tdunning.math.stats.Centroid;
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.ByteBuffersDataOutput;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BitUtil;
+import org.apache.lucene.util.IntroSorter;
+
+/**
+ * A compact t-digest used by {@link PercentileAgg}, backed by a pair of primitive arrays of centroid
+ * means and counts.
+ * <p>
+ * Values are appended to the arrays as they are collected, and only get merged into centroids once
+ * the arrays hold {@code 5 * compression} entries, so small sketches, which are the common case
+ * when there are many buckets, use a few bytes and give exact percentiles. Merging applies the
+ * {@code k1} scale function of the t-digest paper, which keeps centroids small near the tails.
+ * Percentiles interpolate between centroids the same way as {@link AVLTreeDigest}.
+ * <p>
+ * Sketches are not thread-safe.  Threads that collect values concurrently should each use their own
+ * sketches and {@link #add(PercentileSketch) merge} them afterwards.
+ */
+final class PercentileSketch {
+
+  static final double DEFAULT_COMPRESSION = 100;
+
+  // The first byte of the binary format. Legacy AVLTreeDigest bytes start with a big-endian int
+  // of value 1 or 2, so their first byte is always 0.
+  private static final byte ENCODING = 1;
+  private static final int HAS_COUNTS = 0x01;  // otherwise every centroid has a count of 1
+  private static final int LONG_MEANS = 0x02;  // means are integers, stored as deltas
+  private static final int FLOAT_MEANS = 0x04; // means are exact floats
+
+  private static final int INITIAL_CAPACITY = 4;
+
+  private final double compression;
+  private final int maxSize;
+  private double[] means;
+  private long[] counts; // null as long as every centroid has a count of 1
+  private int size;
+  private long totalCount;
+  private boolean sorted = true;
+
+  PercentileSketch(double compression) {
+    this.compression = compression;
+    this.maxSize = (int) Math.ceil(5 * compression);
+    this.means = new double[Math.min(INITIAL_CAPACITY, maxSize)];
+  }
+
+  /** Returns the number of values added to this sketch. */
+  long count() {
+    return totalCount;
+  }
+
+  /** Adds a single value. */
+  void add(double value) {
+    add(value, 1);
+  }
+
+  /** Adds all values of {@code other}, which is left unchanged. */
+  void add(PercentileSketch other) {
+    for (int i = 0; i < other.size; i++) {
+      add(other.means[i], other.countAt(i));
+    }
+  }
+
+  private void add(double mean, long count) {
+    if (size == means.length) {
+      if (size >= maxSize) {
+        compress();
+      }
+      if (size == means.length) {
+        final int newLength = Math.max(size + 1, Math.min(maxSize, ArrayUtil.oversize(size + 1, Double.BYTES)));
+        means = ArrayUtil.growExact(means, newLength);
+        if (counts != null) {
+          counts = ArrayUtil.growExact(counts, newLength);
+        }
+      }
+    }
+    if (count != 1 && counts == null) {
+      counts = new long[means.length];
+      Arrays.fill(counts, 0, size, 1L);
+    }
+    if (sorted && size > 0 && mean < means[size - 1]) {
+      sorted = false;
+    }
+    means[size] = mean;
+    if (counts != null) {
+      counts[size] = count;
+    }
+    size++;
+    totalCount += count;
+  }
+
+  private long countAt(int i) {
+    return counts == null ? 1 : counts[i];
+  }
+
+  private void sort() {
+    if (sorted) {
+      return;
+    }
+    if (counts == null) {
+      Arrays.sort(means, 0, size);
+    } else {
+      new IntroSorter() {
+        double pivot;
+
+        @Override
+        protected void setPivot(int i) {
+          pivot = means[i];
+        }
+
+        @Override
+        protected int comparePivot(int j) {
+          return Double.compare(pivot, means[j]);
+        }
+
+        @Override
+        protected int compare(int i, int j) {
+          return Double.compare(means[i], means[j]);
+        }
+
+        @Override
+        protected void swap(int i, int j) {
+          final double mean = means[i];
+          means[i] = means[j];
+          means[j] = mean;
+          final long count = counts[i];
+          counts[i] = counts[j];
+          counts[j] = count;
+        }
+      }.sort(0, size);
+    }
+    sorted = true;
+  }
+
+  /** Merges adjacent entries into centroids whose size is bounded by the k1 scale function. */
+  private void compress() {
+    sort();
+    if (counts == null) {
+      counts = new long[means.length];
+      Arrays.fill(counts, 0, size, 1L);
+    }
+    final double total = totalCount;
+    int last = 0;
+    long weightSoFar = 0; // weight of the centroids before the last one
+    double lastK = k(0);
+    for (int i = 1; i < size; i++) {
+      final long proposedCount = counts[last] + counts[i];
+      if (k((weightSoFar + proposedCount) / total) - lastK <= 1) {
+        means[last] += (means[i] - means[last]) * counts[i] / proposedCount;
+        counts[last] = proposedCount;
+      } else {
+        weightSoFar += counts[last];
+        lastK = k(weightSoFar / total);
+        last++;
+        means[last] = means[i];
+        counts[last] = counts[i];
+      }
+    }
+    size = last + 1;
+  }
+
+  private double k(double q) {
+    return compression * (Math.asin(2 * Math.min(1, q) - 1) / Math.PI + 0.5);
+  }
+
+  /**
+   * Returns the value at the given quantile, between 0 and 1, or {@link Double#NaN} if this sketch
+   * is empty.
+   */
+  double quantile(double q) {
+    if (size == 0) {
+      return Double.NaN;
+    }
+    sort();
+    if (size == 1) {
+      return means[0];
+    }
+
+    // if values were stored in a sorted array, index would be the offset we are interested in
+    final double index = q * (totalCount - 1);
+
+    // find the last centroid whose preceding centroids have a total count <= index
+    int next = 0;
+    long total = 0;
+    while (next + 1 < size && total + countAt(next) <= (long) index) {
+      total += countAt(next);
+      next++;
+    }
+
+    double previousMean = Double.NaN;
+    double previousIndex = 0;
+    if (next > 0) {
+      previousMean = means[next - 1];
+      previousIndex = total - (countAt(next - 1) + 1.0) / 2;
+    }
+
+    while (true) {
+      final double nextIndex = total + (countAt(next) - 1.0) / 2;
+      if (nextIndex >= index) {
+        if (Double.isNaN(previousMean)) {
+          // the index is before the first centroid
+          if (nextIndex == previousIndex) {
+            return means[next];
+          }
+          // assume values grow linearly between index previousIndex=0 and nextIndex2
+          final double nextIndex2 = total + countAt(next) + (countAt(next + 1) - 1.0) / 2;
+          previousMean = (nextIndex2 * means[next] - nextIndex * means[next + 1]) / (nextIndex2 - nextIndex);
+        }
+        return interpolate(previousIndex, index, nextIndex, previousMean, means[next]);
+      } else if (next + 1 == size) {
+        // the index is beyond the last centroid, assume values grow linearly between
+        // index previousIndex and (count - 1) which is the highest possible index
+        final double nextIndex2 = totalCount - 1;
+        final double nextMean2 = (means[next] * (nextIndex2 - previousIndex) - previousMean * (nextIndex2 - nextIndex))
+            / (nextIndex - previousIndex);
+        return interpolate(nextIndex, index, nextIndex2, means[next], nextMean2);
+      }
+      total += countAt(next);
+      previousMean = means[next];
+      previousIndex = nextIndex;
+      next++;
+    }
+  }
+
+  private static double interpolate(double previousIndex, double index, double nextIndex,
+                                    double previousMean, double nextMean) {
+    final double delta = nextIndex - previousIndex;
+    final double previousWeight = (nextIndex - index) / delta;
+    final double nextWeight = (index - previousIndex) / delta;
+    return previousMean * previousWeight + nextMean * nextWeight;
+  }
+
+  /**
+   * Serializes this sketch. Counts are omitted when they are all 1, and means are written as
+   * variable-length deltas when they are integers, or as floats when no precision is lost.
+   */
+  byte[] toBytes() throws IOException {
+    sort();
+    boolean longMeans = true;
+    boolean floatMeans = true;
+    for (int i = 0; i < size && (longMeans || floatMeans); i++) {
+      final double mean = means[i];
+      longMeans &= mean == (long) mean && Math.abs(mean) < (1L << 53);
+      floatMeans &= mean == (float) mean;
+    }
+    final int flags = (counts == null ? 0 : HAS_COUNTS) | (longMeans ? LONG_MEANS : floatMeans ? FLOAT_MEANS : 0);
+
+    final ByteBuffersDataOutput out = new ByteBuffersDataOutput();
+    out.writeByte(ENCODING);
+    out.writeByte((byte) flags);
+    out.writeVInt(size);
+    long previous = 0;
+    for (int i = 0; i < size; i++) {
+      if (longMeans) {
+        final long mean = (long) means[i];
+        out.writeVLong(i == 0 ? BitUtil.zigZagEncode(mean) : mean - previous);
+        previous = mean;
+      } else if (floatMeans) {
+        out.writeInt(Float.floatToIntBits((float) means[i]));
+      } else {
+        out.writeLong(Double.doubleToLongBits(means[i]));
+      }
+      if (counts != null) {
+        out.writeVLong(counts[i]);
+      }
+    }
+    return out.toArrayCopy();
+  }
+
+  /**
+   * Serializes this sketch with {@link AVLTreeDigest#asSmallBytes}, the format of older versions,
+   * for coordinators that do not read {@link #toBytes()} yet.
+   */
+  byte[] toLegacyBytes() {
+    sort();
+    final AVLTreeDigest digest = new AVLTreeDigest(compression);
+    for (int i = 0; i < size; i++) {
+      digest.add(means[i], counts == null ? 1 : Math.toIntExact(counts[i]));
+    }
+    final ByteBuffer buf = ByteBuffer.allocate(digest.smallByteSize());
+    digest.asSmallBytes(buf);
+    return Arrays.copyOf(buf.array(), buf.position());
+  }
+
+  /** Reads a sketch written by {@link #toBytes()}. */
+  static PercentileSketch fromBytes(byte[] bytes, double compression) {
+    final PercentileSketch sketch = new PercentileSketch(compression);
+    sketch.addBytes(bytes);
+    return sketch;
+  }
+
+  /**
+   * Adds all values of a sketch written by {@link #toBytes()}, or of a digest serialized with
+   * {@link AVLTreeDigest#asSmallBytes} by an older version.
+   */
+  void addBytes(byte[] bytes) {
+    if (bytes[0] != ENCODING) {
+      for (Centroid centroid : AVLTreeDigest.fromBytes(ByteBuffer.wrap(bytes)).centroids()) {
+        add(centroid.mean(), centroid.count());
+      }
+      return;
+    }
+
+    final ByteArrayDataInput in = new ByteArrayDataInput(bytes, 1, bytes.length - 1);
+    final int flags = in.readByte();
+    final int numCentroids = in.readVInt();
+    long previous = 0;
+    for (int i = 0; i < numCentroids; i++) {
+      final double mean;
+      if ((flags & LONG_MEANS) != 0) {
+        previous = i == 0 ? BitUtil.zigZagDecode(in.readVLong()) : previous + in.readVLong();
+        mean = previous;
+      } else if ((flags & FLOAT_MEANS) != 0) {
+        mean = Float.intBitsToFloat(in.readInt());
+      } else {
+        mean = Double.longBitsToDouble(in.readLong());
+      }
+      add(mean, (flags & HAS_COUNTS) != 0 ? in.readVLong() : 1);
+    }
+  }
+}
@@ -0,0 +1,282 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.facet;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import com.carrotsearch.hppc.LongIntHashMap;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.queries.function.FunctionValues;
+import org.apache.lucene.queries.function.ValueSource;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.InPlaceMergeSorter;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.solr.schema.DatePointField;
+import org.apache.solr.search.CacheRegenerator;
+import org.apache.solr.search.QueryContext;
+import org.apache.solr.search.SolrCache;
+import org.apache.solr.search.SolrIndexSearcher;
+
+/**
+ * Pre-aggregated counts, and optionally sums, of the live documents of every segment per bucket
+ * of a date field whose type has a {@link DatePointField#getRollupInterval() rollup interval}.
+ * Buckets are aligned on the epoch, so the stats of any range made of whole buckets can be
+ * computed from the rollups without looking at the documents.
+ * <p>
+ * The rollup of a segment is built the first time it is needed, and then kept in the
+ * {@link SolrIndexSearcher#getRangeRollupCache() rangeRollupCache}. Deletions open new segment
+ * readers and so lead to new rollups, while the rollups of unchanged segments are carried over
+ * to new searchers by {@link #REGENERATOR}.
+ *
+ * @lucene.internal
+ */
+public final class RangeRollup {
+
+  /** Autowarms the rollups of the segments that the new searcher still has. */
+  public static final CacheRegenerator REGENERATOR = (newSearcher, newCache, oldCache, oldKey, oldVal) -> {
+    final Set<IndexReader.CacheKey> segments = new HashSet<>();
+    for (LeafReaderContext context : newSearcher.getTopReaderContext().leaves()) {
+      final IndexReader.CacheHelper cacheHelper = context.reader().getReaderCacheHelper();
+      if (cacheHelper != null) {
+        segments.add(cacheHelper.getKey());
+      }
+    }
+    if (segments.contains(((Key) oldKey).segment)) {
+      @SuppressWarnings({"unchecked"})
+      final SolrCache<Key,Object> cache = newCache;
+      cache.put((Key) oldKey, oldVal);
+    }
+    return true;
+  };
+
+  /** The key of a rollup of a segment, by field, interval and summed value source. */
+  public static final class Key implements Accountable {
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(Key.class);
+
+    final IndexReader.CacheKey segment;
+    final String name;
+
+    Key(IndexReader.CacheKey segment, String name) {
+      this.segment = segment;
+      this.name = name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      final Key key = (Key) o;
+      return segment.equals(key.segment) && name.equals(key.name);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(segment, name);
+    }
+
+    @Override
+    public long ramBytesUsed() {
+      return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(name);
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  /** The buckets of a segment that have documents, sorted, and their counts. */
+  private static final class Buckets implements Accountable {
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(Buckets.class);
+
+    final long[] keys;
+    final long[] counts;
+
+    Buckets(long[] keys, long[] counts) {
+      this.keys = keys;
+      this.counts = counts;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+      return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(keys) + RamUsageEstimator.sizeOf(counts);
+    }
+  }
+
+  private final long interval;
+  private final Buckets[] buckets;
+  private final double[][][] sums;
+
+  /**
+   * @param searcher the searcher to compute the rollups of
+   * @param qcontext the context to get the values to sum with
+   * @param field the single-valued date field with docValues to bucket documents on
+   * @param interval the interval of the buckets in milliseconds
+   * @param sumSources the values to sum, which must not depend on the request
+   */
+  RangeRollup(SolrIndexSearcher searcher, QueryContext qcontext, String field, long interval, ValueSource[] sumSources) throws IOException {
+    final List<LeafReaderContext> leaves = searcher.getTopReaderContext().leaves();
+    final SolrCache<Key,Object> cache = searcher.getRangeRollupCache();
+    this.interval = interval;
+    this.buckets = new Buckets[leaves.size()];
+    this.sums = new double[sumSources.length][leaves.size()][];
+    final String bucketsKey = field + ':' + interval;
+    for (LeafReaderContext context : leaves) {
+      final Buckets segmentBuckets = (Buckets) getOrBuild(cache, context.reader(), bucketsKey,
+          () -> buildBuckets(context.reader(), field, interval));
+      buckets[context.ord] = segmentBuckets;
+      for (int i = 0; i < sumSources.length; i++) {
+        final ValueSource sumSource = sumSources[i];
+        sums[i][context.ord] = (double[]) getOrBuild(cache, context.reader(), bucketsKey + ':' + sumSource.description(),
+            () -> buildSums(context, qcontext, field, interval, segmentBuckets, sumSource));
+      }
+    }
+  }
+
+  /** Returns whether the range from {@code low} inclusive to {@code high} exclusive is made of whole buckets. */
+  static boolean isAligned(long low, long high, long interval) {
+    return low % interval == 0 && high % interval == 0;
+  }
+
+  /** Returns the number of documents from {@code low} inclusive to {@code high} exclusive, which must be {@link #isAligned aligned}. */
+  long count(long low, long high) {
+    assert isAligned(low, high, interval);
+    long count = 0;
+    for (Buckets segmentBuckets : buckets) {
+      final int to = lowerBound(segmentBuckets.keys, high / interval);
+      for (int i = lowerBound(segmentBuckets.keys, low / interval); i < to; i++) {
+        count += segmentBuckets.counts[i];
+      }
+    }
+    return count;
+  }
+
+  /** Returns the sum of the given value source from {@code low} inclusive to {@code high} exclusive, which must be {@link #isAligned aligned}. */
+  double sum(int sumSource, long low, long high) {
+    assert isAligned(low, high, interval);
+    double sum = 0;
+    for (int segment = 0; segment < buckets.length; segment++) {
+      final long[] keys = buckets[segment].keys;
+      final double[] segmentSums = sums[sumSource][segment];
+      final int to = lowerBound(keys, high / interval);
+      for (int i = lowerBound(keys, low / interval); i < to; i++) {
+        sum += segmentSums[i];
+      }
+    }
+    return sum;
+  }
+
+  private static int lowerBound(long[] keys, long key) {
+    final int index = Arrays.binarySearch(keys, key);
+    return index >= 0 ? index : -1 - index;
+  }
+
+  private static Object getOrBuild(SolrCache<Key,Object> cache, LeafReader reader, String name, Supplier<Object> builder) {
+    final IndexReader.CacheHelper cacheHelper = reader.getReaderCacheHelper();
+    if (cache == null || cacheHelper == null) {
+      return builder.get();
+    }
+    final Key key = new Key(cacheHelper.getKey(), name);
+    Object value = cache.get(key);
+    if (value == null) {
+      // built outside of the cache, so that concurrent requests never wait on each other
+      value = builder.get();
+      cache.put(key, value);
+    }
+    return value;
+  }
+
+  private static Buckets buildBuckets(LeafReader reader, String field, long interval) {
+    try {
+      final LongIntHashMap slots = new LongIntHashMap();
+      long[] keys = new long[16];
+      long[] counts = new long[16];
+      final NumericDocValues values = DocValues.getNumeric(reader, field);
+      final Bits liveDocs = reader.getLiveDocs();
+      for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+        if (liveDocs != null && !liveDocs.get(doc)) {
+          continue;
+        }
+        final long key = Math.floorDiv(values.longValue(), interval);
+        int slot = slots.getOrDefault(key, -1);
+        if (slot < 0) {
+          slot = slots.size();
+          slots.put(key, slot);
+          keys = ArrayUtil.grow(keys, slot + 1);
+          counts = ArrayUtil.grow(counts, slot + 1);
+          keys[slot] = key;
+        }
+        counts[slot]++;
+      }
+
+      final long[] sortedKeys = ArrayUtil.copyOfSubArray(keys, 0, slots.size());
+      final long[] sortedCounts = ArrayUtil.copyOfSubArray(counts, 0, slots.size());
+      new InPlaceMergeSorter() {
+        @Override
+        protected void swap(int i, int j) {
+          long tmp = sortedKeys[i];
+          sortedKeys[i] = sortedKeys[j];
+          sortedKeys[j] = tmp;
+          tmp = sortedCounts[i];
+          sortedCounts[i] = sortedCounts[j];
+          sortedCounts[j] = tmp;
+        }
+
+        @Override
+        protected int compare(int i, int j) {
+          return Long.compare(sortedKeys[i], sortedKeys[j]);
+        }
+      }.sort(0, sortedKeys.length);
+      return new Buckets(sortedKeys, sortedCounts);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static double[] buildSums(LeafReaderContext context, QueryContext qcontext, String field, long interval,
+                                    Buckets buckets, ValueSource sumSource) {
+    try {
+      final double[] sums = new double[buckets.keys.length];
+      final FunctionValues sumValues = sumSource.getValues(qcontext, context);
+      final NumericDocValues values = DocValues.getNumeric(context.reader(), field);
+      final Bits liveDocs = context.reader().getLiveDocs();
+      for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+        if (liveDocs != null && !liveDocs.get(doc)) {
+          continue;
+        }
+        sums[Arrays.binarySearch(buckets.keys, Math.floorDiv(values.longValue(), interval))] += sumValues.doubleVal(doc);
+      }
+      return sums;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
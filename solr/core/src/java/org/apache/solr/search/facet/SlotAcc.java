@@ -150,6 +150,31 @@ public abstract class SlotAcc implements Closeable {
 
   public abstract void resize(Resizer resizer);
 
+  /**
+   * Returns true if {@link #merge} is supported, which allows segments to be collected
+   * concurrently, each thread using its own accumulator.
+   */
+  boolean isMergeable() {
+    return false;
+  }
+
+  /**
+   * Adds the state of {@code other}, an accumulator of the same class which collected
+   * a disjoint set of documents into the same slots, to this accumulator.
+   *
+   * @see #isMergeable()
+   */
+  void merge(SlotAcc other) {
+    throw new UnsupportedOperationException(getClass().getSimpleName() + " can't be merged");
+  }
+
+  /** Helper for {@link #merge} of sums: adds {@code other} to {@code result} slot by slot. */
+  static void addTo(double[] result, double[] other) {
+    for (int i = 0; i < result.length; i++) {
+      result[i] += other[i];
+    }
+  }
+
   @Override
   public void close() throws IOException {
   }
@@ -413,6 +438,16 @@ public abstract class SlotAcc implements Closeable {
       double val = values.doubleVal(doc); // todo: worth trying to share this value across multiple stats that need it?
       result[slotNum] += val;
     }
+
+    @Override
+    boolean isMergeable() {
+      return true;
+    }
+
+    @Override
+    void merge(SlotAcc other) {
+      addTo(result, ((SumSlotAcc) other).result);
+    }
   }
 
   static class SumsqSlotAcc extends DoubleFuncSlotAcc {
@@ -694,6 +729,19 @@ public abstract class SlotAcc implements Closeable {
       result[slot] += count;
     }
 
+    @Override
+    boolean isMergeable() {
+      return true;
+    }
+
+    @Override
+    void merge(SlotAcc other) {
+      final long[] otherResult = ((CountSlotArrAcc) other).result;
+      for (int i = 0; i < result.length; i++) {
+        result[i] += otherResult[i];
+      }
+    }
+
     @Override
     public long getCount(int slot) {
       return result[slot];
@@ -93,6 +93,16 @@ public class SumAgg extends SimpleAggValueSource {
       }
     }
 
+    @Override
+    boolean isMergeable() {
+      return true;
+    }
+
+    @Override
+    void merge(SlotAcc other) {
+      SlotAcc.addTo(result, ((SumSortedNumericAcc) other).result);
+    }
+
   }
 
   class SumSortedSetAcc extends DocValuesAcc.DoubleSortedSetDVAcc {
@@ -111,6 +121,16 @@ public class SumAgg extends SimpleAggValueSource {
         result[slot] += val;
       }
     }
+
+    @Override
+    boolean isMergeable() {
+      return true;
+    }
+
+    @Override
+    void merge(SlotAcc other) {
+      SlotAcc.addTo(result, ((SumSortedSetAcc) other).result);
+    }
   }
 
   class SumUnInvertedFieldAcc extends UnInvertedFieldAcc.DoubleUnInvertedFieldAcc {
@@ -131,6 +151,16 @@ public class SumAgg extends SimpleAggValueSource {
         throw new UncheckedIOException(e);
       }
     }
+
+    @Override
+    boolean isMergeable() {
+      return true;
+    }
+
+    @Override
+    void merge(SlotAcc other) {
+      SlotAcc.addTo(result, ((SumUnInvertedFieldAcc) other).result);
+    }
   }
 }
 
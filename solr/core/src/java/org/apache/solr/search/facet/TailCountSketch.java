@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.facet;
+
+import java.io.IOException;
+
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.ByteBuffersDataOutput;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.StringHelper;
+
+/**
+ * Upper bounds of the counts of the buckets that a shard did not return, which shards send along with
+ * the top buckets of a terms facet that uses {@code refine:"sketch"}.
+ * <p>
+ * The buckets that rank right after the returned ones, the "tail", are hashed into an array of cells
+ * which keep the highest count of their buckets, and any bucket that ranks even lower has a count of
+ * at most the {@code floor}. This lets the coordinator compute an upper bound of the count that a
+ * shard has for a bucket that it did not return, which is 0 if the shard doesn't have the bucket at
+ * all. The more cells, the fewer buckets share a cell and the tighter the bounds.
+ */
+final class TailCountSketch {
+
+  /** The minimum number of tail buckets that shards hash into a sketch. */
+  static final int MIN_TAIL_SIZE = 64;
+  /** The maximum number of tail buckets that shards hash into a sketch. */
+  static final int MAX_TAIL_SIZE = 1 << 14;
+
+  private final long floor;
+  private final long[] cells;
+
+  /**
+   * @param numTailBuckets the number of buckets that will be {@link #add added}
+   * @param floor an upper bound of the count of the buckets that were neither returned nor added
+   */
+  TailCountSketch(int numTailBuckets, long floor) {
+    this(floor, new long[Integer.highestOneBit(Math.max(1, numTailBuckets - 1)) << 1]);
+  }
+
+  private TailCountSketch(long floor, long[] cells) {
+    this.floor = floor;
+    this.cells = cells;
+  }
+
+  /** Returns the number of tail buckets that a shard should add for the given number of returned buckets. */
+  static int tailSize(int numReturnedBuckets) {
+    return (int) Math.min(MAX_TAIL_SIZE, Math.max(MIN_TAIL_SIZE, 4L * numReturnedBuckets));
+  }
+
+  private int cell(Object bucketVal) {
+    // hash the string form, which is the same on shards and on the coordinator for all bucket value types
+    final int hash = StringHelper.murmurhash3_x86_32(new BytesRef(FacetFieldProcessorByArray.valueObjToString(bucketVal)), 0);
+    return hash & (cells.length - 1);
+  }
+
+  /** Records the count of a bucket that is not returned. */
+  void add(Object bucketVal, long count) {
+    final int cell = cell(bucketVal);
+    cells[cell] = Math.max(cells[cell], count);
+  }
+
+  /** Returns an upper bound of the count of a bucket that was not returned. */
+  long upperBound(Object bucketVal) {
+    return Math.max(floor, cells[cell(bucketVal)]);
+  }
+
+  byte[] toBytes() throws IOException {
+    final ByteBuffersDataOutput out = new ByteBuffersDataOutput();
+    out.writeVLong(floor);
+    out.writeVInt(cells.length);
+    for (long count : cells) {
+      out.writeVLong(count);
+    }
+    return out.toArrayCopy();
+  }
+
+  static TailCountSketch fromBytes(byte[] bytes) {
+    final ByteArrayDataInput in = new ByteArrayDataInput(bytes);
+    final long floor = in.readVLong();
+    final long[] cells = new long[in.readVInt()];
+    for (int i = 0; i < cells.length; i++) {
+      cells[i] = in.readVLong();
+    }
+    return new TailCountSketch(floor, cells);
+  }
+}
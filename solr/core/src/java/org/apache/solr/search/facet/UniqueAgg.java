@@ -153,6 +153,26 @@ public class UniqueAgg extends StrAggValueSource {
 
     protected abstract void collectValues(int doc, LongSet set) throws IOException;
 
+    @Override
+    boolean isMergeable() {
+      return true;
+    }
+
+    @Override
+    void merge(SlotAcc other) {
+      final LongSet[] otherSets = ((BaseNumericAcc) other).sets;
+      for (int slot = 0; slot < sets.length; slot++) {
+        if (otherSets[slot] == null) continue;
+        if (sets[slot] == null) {
+          sets[slot] = otherSets[slot];
+        } else {
+          for (LongIterator it = otherSets[slot].iterator(); it.hasNext(); ) {
+            sets[slot].add(it.next());
+          }
+        }
+      }
+    }
+
     @Override
     public Object getValue(int slot) throws IOException {
       if (fcontext.isShard()) {
@@ -43,6 +43,23 @@ public abstract class UniqueBlockAgg extends UniqueAgg {
       }
     }
     
+    /**
+     * Blocks never span segments, so accumulators that collected distinct segments counted
+     * distinct blocks and their counts can simply be added.
+     */
+    @Override
+    boolean isMergeable() {
+      return true;
+    }
+
+    @Override
+    void merge(SlotAcc other) {
+      final int[] otherCounts = ((UniqueBlockSlotAcc) other).counts;
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] += otherCounts[i];
+      }
+    }
+
     @Override
     public void calcCounts() {
       // noop already done
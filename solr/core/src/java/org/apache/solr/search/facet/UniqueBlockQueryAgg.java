@@ -33,6 +33,9 @@ public class UniqueBlockQueryAgg extends UniqueBlockAgg {
 
     private Query query;
     private BitSet parentBitSet;
+    private int docBase;
+    // parent of the block of the last collected doc, so that docs of a block only look for it once
+    private int blockParent;
 
     private UniqueBlockQuerySlotAcc(FacetContext fcontext, Query query, int numSlots)
         throws IOException { //
@@ -43,15 +46,21 @@ public class UniqueBlockQueryAgg extends UniqueBlockAgg {
     @Override
     public void setNextReader(LeafReaderContext readerContext) throws IOException {
       this.parentBitSet = getCachedBitSetProducer(fcontext.req, query).getBitSet(readerContext);
+      this.docBase = readerContext.docBase;
+      this.blockParent = -1;
     }
 
     @Override
     public void collect(int doc, int slotNum, IntFunction<SlotContext> slotContext) {
       if (parentBitSet != null) {
-        int ord = parentBitSet.nextSetBit(doc);
-        if (ord != DocIdSetIterator.NO_MORE_DOCS) {
-          collectOrdToSlot(slotNum, ord);
-        } 
+        // docs are collected in order, all slots of a doc before the next doc
+        if (doc > blockParent) {
+          blockParent = parentBitSet.nextSetBit(doc);
+        }
+        if (blockParent != DocIdSetIterator.NO_MORE_DOCS) {
+          // use top level doc ids, so that parents of different segments never look the same
+          collectOrdToSlot(slotNum, docBase + blockParent);
+        }
       }
     }
   }
@@ -51,6 +51,24 @@ abstract class UniqueSlotAcc extends SlotAcc {
     }
   }
 
+  @Override
+  boolean isMergeable() {
+    return true;
+  }
+
+  @Override
+  void merge(SlotAcc other) {
+    final FixedBitSet[] otherArr = ((UniqueSlotAcc) other).arr;
+    for (int slot = 0; slot < arr.length; slot++) {
+      if (otherArr[slot] == null) continue;
+      if (arr[slot] == null) {
+        arr[slot] = otherArr[slot];
+      } else {
+        arr[slot].or(otherArr[slot]);
+      }
+    }
+  }
+
   @Override
   public Object getValue(int slot) throws IOException {
     if (fcontext.isShard()) {
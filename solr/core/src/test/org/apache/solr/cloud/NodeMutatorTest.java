@@ -17,13 +17,19 @@
 package org.apache.solr.cloud;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.solr.SolrTestCaseJ4Test;
 import org.apache.solr.cloud.overseer.NodeMutator;
 import org.apache.solr.cloud.overseer.ZkWriteCommand;
 import org.apache.solr.common.cloud.ClusterState;
+import org.apache.solr.common.cloud.DocCollection;
+import org.apache.solr.common.cloud.DocRouter;
 import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.common.cloud.Slice;
 import org.apache.solr.common.cloud.ZkNodeProps;
 import org.apache.solr.common.cloud.ZkStateReader;
 import org.junit.Test;
@@ -91,4 +97,21 @@ public class NodeMutatorTest extends SolrTestCaseJ4Test {
     }
     reader.close();
   }
+
+  @Test
+  public void downNodeLeavesPerReplicaStateCollections() {
+    Map<String, Object> replicaProps = new HashMap<>();
+    replicaProps.put(ZkStateReader.NODE_NAME_PROP, NODE1);
+    replicaProps.put(ZkStateReader.CORE_NAME_PROP, "prs_shard1_replica_n1");
+    replicaProps.put(ZkStateReader.STATE_PROP, Replica.State.ACTIVE.toString());
+    Replica replica = new Replica("core_node1", replicaProps, "prs", "shard1");
+    Slice slice = new Slice("shard1", Collections.singletonMap("core_node1", replica), null, "prs");
+    DocCollection prs = new DocCollection("prs", Collections.singletonMap("shard1", slice),
+        Collections.singletonMap(ZkStateReader.PER_REPLICA_STATE, "true"), DocRouter.DEFAULT, 0);
+    ClusterState clusterState = new ClusterState(Collections.singleton(NODE1), Collections.singletonMap("prs", prs));
+
+    // the node marks these replicas down itself, a late DOWNNODE must not override the states they published since
+    ZkNodeProps props = new ZkNodeProps(ZkStateReader.NODE_NAME_PROP, NODE1);
+    assertTrue(new NodeMutator().downNode(clusterState, props).isEmpty());
+  }
 }
@@ -103,6 +103,7 @@ class SegmentTerminateEarlyTestState {
     final QueryResponse rsp = cloudSolrClient.query(query);
     // check correctness of the results count
     TestSegmentSorting.assertEquals("numFound", numDocs/2, rsp.getResults().getNumFound());
+    TestSegmentSorting.assertTrue("numFoundExact", rsp.getResults().getNumFoundExact());
     // check correctness of the first result
     if (rsp.getResults().getNumFound() > 0) {
       final SolrDocument solrDocument0 = rsp.getResults().get(0);
@@ -149,6 +150,8 @@ class SegmentTerminateEarlyTestState {
         rsp.getResponseHeader().get(SolrQueryResponse.RESPONSE_HEADER_SEGMENT_TERMINATED_EARLY_KEY));
     TestSegmentSorting.assertTrue("responseHeader.segmentTerminatedEarly missing/false in "+rsp.getResponseHeader(),
         Boolean.TRUE.equals(rsp.getResponseHeader().get(SolrQueryResponse.RESPONSE_HEADER_SEGMENT_TERMINATED_EARLY_KEY)));
+    // the hit count of a request that terminated early is a lower bound
+    TestSegmentSorting.assertFalse("numFoundExact", rsp.getResults().getNumFoundExact());
     // check shards info
     final Object shardsInfo = rsp.getResponse().get(ShardParams.SHARDS_INFO);
     if (!Boolean.TRUE.equals(shardsInfoWanted)) {
@@ -183,6 +186,7 @@ class SegmentTerminateEarlyTestState {
     final QueryResponse rsp = cloudSolrClient.query(query);
     // check correctness of the results count
     TestSegmentSorting.assertEquals("numFound", numDocs/2, rsp.getResults().getNumFound());
+    TestSegmentSorting.assertTrue("numFoundExact", rsp.getResults().getNumFoundExact());
     // check correctness of the first result
     if (rsp.getResults().getNumFound() > 0) {
       final SolrDocument solrDocument0 = rsp.getResults().get(0);
@@ -214,6 +218,34 @@ class SegmentTerminateEarlyTestState {
     }
   }
 
+  void queryTimestampDescendingMinExactCount(CloudSolrClient cloudSolrClient) throws Exception {
+    TestSegmentSorting.assertFalse(maxTimestampDocKeys.isEmpty());
+    TestSegmentSorting.assertTrue("numDocs="+numDocs+" is not even", (numDocs%2)==0);
+    final Long oddFieldValue = (long) (maxTimestampDocKeys.iterator().next().intValue() % 2);
+    final SolrQuery query = new SolrQuery(ODD_FIELD +":"+oddFieldValue);
+    query.setSort(TIMESTAMP_FIELD, SolrQuery.ORDER.desc);
+    query.setFields(KEY_FIELD, ODD_FIELD, TIMESTAMP_FIELD);
+    query.setRows(1);
+    // CommonParams.SEGMENT_TERMINATE_EARLY parameter intentionally absent, the index sort is detected
+    query.set(CommonParams.MIN_EXACT_COUNT, 1);
+    final QueryResponse rsp = cloudSolrClient.query(query);
+    // check correctness of the results count
+    TestSegmentSorting.assertTrue("numFound", 1 <= rsp.getResults().getNumFound());
+    TestSegmentSorting.assertTrue("numFound", rsp.getResults().getNumFound() <= numDocs/2);
+    if (rsp.getResults().getNumFoundExact()) {
+      TestSegmentSorting.assertEquals("numFound", numDocs/2, rsp.getResults().getNumFound());
+    }
+    // check correctness of the first result
+    final SolrDocument solrDocument0 = rsp.getResults().get(0);
+    final Integer idAsInt = Integer.parseInt(solrDocument0.getFieldValue(KEY_FIELD).toString());
+    TestSegmentSorting.assertTrue
+      (KEY_FIELD +"="+idAsInt+" of ("+solrDocument0+") is not in maxTimestampDocKeys("+maxTimestampDocKeys+")",
+       maxTimestampDocKeys.contains(idAsInt));
+    // check segmentTerminatedEarly flag
+    TestSegmentSorting.assertNull("responseHeader.segmentTerminatedEarly present in "+rsp.getResponseHeader(),
+        rsp.getResponseHeader().get(SolrQueryResponse.RESPONSE_HEADER_SEGMENT_TERMINATED_EARLY_KEY));
+  }
+
   void queryTimestampDescendingSegmentTerminateEarlyYesGrouped(CloudSolrClient cloudSolrClient) throws Exception {
     TestSegmentSorting.assertFalse(maxTimestampDocKeys.isEmpty());
     TestSegmentSorting.assertTrue("numDocs="+numDocs+" is not even", (numDocs%2)==0);
@@ -256,6 +288,8 @@ class SegmentTerminateEarlyTestState {
     final QueryResponse rsp = cloudSolrClient.query(query);
     // check correctness of the results count
     TestSegmentSorting.assertEquals("numFound", numDocs/2, rsp.getResults().getNumFound());
+    // all hits are counted when segments can't terminate early
+    TestSegmentSorting.assertTrue("numFoundExact", rsp.getResults().getNumFoundExact());
     // check correctness of the first result
     if (rsp.getResults().getNumFound() > 0) {
       final SolrDocument solrDocument0 = rsp.getResults().get(0);
@@ -110,6 +110,7 @@ public class TestSegmentSorting extends SolrCloudTestCase {
     // CommonParams.SEGMENT_TERMINATE_EARLY parameter now present
     tstes.queryTimestampDescendingSegmentTerminateEarlyYes(cloudSolrClient);
     tstes.queryTimestampDescendingSegmentTerminateEarlyNo(cloudSolrClient);
+    tstes.queryTimestampDescendingMinExactCount(cloudSolrClient);
     
     // CommonParams.SEGMENT_TERMINATE_EARLY parameter present but it won't be used
     tstes.queryTimestampDescendingSegmentTerminateEarlyYesGrouped(cloudSolrClient);
@@ -117,6 +118,21 @@ public class TestSegmentSorting extends SolrCloudTestCase {
     
   }
 
+  @Test
+  public void testSegmentTerminateEarlyThenExactCount() throws Exception {
+
+    final SegmentTerminateEarlyTestState tstes = new SegmentTerminateEarlyTestState(random());
+    final CloudSolrClient cloudSolrClient = cluster.getSolrClient();
+
+    tstes.addDocuments(cloudSolrClient, 10, 10, true);
+    tstes.addDocuments(cloudSolrClient, 2, 10, false);
+
+    // the lower-bound hit count of the first request is in the queryResultCache, the
+    // same query without segmentTerminateEarly must not be served from it
+    tstes.queryTimestampDescendingSegmentTerminateEarlyYes(cloudSolrClient);
+    tstes.queryTimestampDescending(cloudSolrClient);
+  }
+
   /** 
    * Verify that atomic updates against our (DVO) segment sort field doesn't cause errors.
    * In this situation, the updates should *NOT* be done inplace, because that would
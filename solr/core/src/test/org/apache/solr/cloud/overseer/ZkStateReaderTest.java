@@ -19,6 +19,8 @@ package org.apache.solr.cloud.overseer;
 import java.nio.file.Path;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.lucene.util.IOUtils;
@@ -30,6 +32,9 @@ import org.apache.solr.cloud.ZkTestServer;
 import org.apache.solr.common.cloud.ClusterState;
 import org.apache.solr.common.cloud.DocCollection;
 import org.apache.solr.common.cloud.DocRouter;
+import org.apache.solr.common.cloud.PerReplicaStates;
+import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.common.cloud.Slice;
 import org.apache.solr.common.cloud.SolrZkClient;
 import org.apache.solr.common.cloud.ZkStateReader;
 import org.apache.solr.common.util.TimeSource;
@@ -174,4 +179,71 @@ public class ZkStateReaderTest extends SolrTestCaseJ4 {
 
     }
   }
+
+  public void testPerReplicaStates() throws Exception {
+    Path zkDir = createTempDir("testPerReplicaStates");
+
+    ZkTestServer server = new ZkTestServer(zkDir);
+
+    SolrZkClient zkClient = null;
+    ZkStateReader reader = null;
+
+    try {
+      server.run();
+
+      zkClient = new SolrZkClient(server.getZkAddress(), OverseerTest.DEFAULT_CONNECTION_TIMEOUT);
+      ZkController.createClusterZkNodes(zkClient);
+
+      reader = new ZkStateReader(zkClient);
+      reader.createClusterStateWatchersAndUpdate();
+      reader.registerCore("c1");
+
+      zkClient.makePath(ZkStateReader.COLLECTIONS_ZKNODE + "/c1", true);
+
+      Map<String, Object> replicaProps = new HashMap<>();
+      replicaProps.put(ZkStateReader.NODE_NAME_PROP, "node1:8983_solr");
+      replicaProps.put(ZkStateReader.CORE_NAME_PROP, "c1_shard1_replica_n1");
+      replicaProps.put(ZkStateReader.STATE_PROP, Replica.State.DOWN.toString());
+      Replica replica = new Replica("core_node1", replicaProps, "c1", "shard1");
+      Slice slice = new Slice("shard1", Collections.singletonMap("core_node1", replica), null, "c1");
+      DocCollection state = new DocCollection("c1", Collections.singletonMap("shard1", slice),
+          Collections.singletonMap(ZkStateReader.PER_REPLICA_STATE, "true"), DocRouter.DEFAULT, 0);
+      assertTrue(state.isPerReplicaState());
+
+      ZkStateWriter writer = new ZkStateWriter(reader, new Stats());
+      ZkWriteCommand wc = new ZkWriteCommand("c1", state,
+          Collections.singletonMap("core_node1", Replica.State.RECOVERING));
+      writer.enqueueUpdate(reader.getClusterState(), Collections.singletonList(wc), null);
+      writer.writePendingUpdates();
+
+      // the state written by the overseer is stored as a per-replica state too, and takes precedence
+      String path = ZkStateReader.getCollectionPath("c1");
+      assertEquals(Collections.singletonList("core_node1:0:recovering"), zkClient.getChildren(path, null, true));
+      reader.waitForState("c1", TIMEOUT, TimeUnit.SECONDS,
+          (n, c) -> c != null && c.getReplica("core_node1").getState() == Replica.State.RECOVERING);
+      int stateVersion = reader.getClusterState().getCollection("c1").getZNodeVersion();
+
+      // replicas update their state without writing state.json, readers pick the change up from the children
+      PerReplicaStates.persist(path, Collections.singletonMap("core_node1", Replica.State.ACTIVE), zkClient);
+      List<String> children = zkClient.getChildren(path, null, true);
+      assertEquals(Collections.singletonList("core_node1:1:active"), children);
+      reader.waitForState("c1", TIMEOUT, TimeUnit.SECONDS,
+          (n, c) -> c != null && c.getReplica("core_node1").getState() == Replica.State.ACTIVE);
+      assertEquals(stateVersion, reader.getClusterState().getCollection("c1").getZNodeVersion());
+
+      // setting the same state again is a no-op
+      PerReplicaStates.persist(path, Collections.singletonMap("core_node1", Replica.State.ACTIVE), zkClient);
+      assertEquals(children, zkClient.getChildren(path, null, true));
+
+      // older versions of a replica's state are ignored, and cleaned up by its next update
+      PerReplicaStates states = PerReplicaStates.fromChildren(0, List.of("core_node1:1:active", "core_node1:0:down", "junk"));
+      assertEquals(Replica.State.ACTIVE, states.get("core_node1").state);
+      assertEquals(1, states.get("core_node1").version);
+      assertEquals(3, states.updateOps(path, Collections.singletonMap("core_node1", Replica.State.DOWN),
+          zkClient.getZkACLProvider()).size());
+    } finally {
+      IOUtils.close(reader, zkClient);
+      server.shutdown();
+    }
+  }
 }
@@ -21,6 +21,7 @@ import java.nio.file.Path;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.lucene.util.IOUtils;
@@ -36,6 +37,8 @@ import org.apache.solr.common.cloud.DocRouter;
 import org.apache.solr.common.cloud.Slice;
 import org.apache.solr.common.cloud.SolrZkClient;
 import org.apache.solr.common.cloud.ZkStateReader;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
 import org.apache.solr.common.util.Utils;
 import org.apache.zookeeper.KeeperException;
 import org.junit.AfterClass;
@@ -144,6 +147,57 @@ public class ZkStateWriterTest extends SolrTestCaseJ4 {
     }
   }
 
+  public void testConcurrentCollectionWrites() throws Exception {
+    Path zkDir = createTempDir("testConcurrentCollectionWrites");
+
+    ZkTestServer server = new ZkTestServer(zkDir);
+
+    SolrZkClient zkClient = null;
+    ExecutorService executor = ExecutorUtil.newMDCAwareFixedThreadPool(3, new SolrNamedThreadFactory("testStateWriter"));
+
+    try {
+      server.run();
+
+      zkClient = new SolrZkClient(server.getZkAddress(), OverseerTest.DEFAULT_CONNECTION_TIMEOUT);
+      ZkController.createClusterZkNodes(zkClient);
+
+      try (ZkStateReader reader = new ZkStateReader(zkClient)) {
+        reader.createClusterStateWatchersAndUpdate();
+
+        ZkStateWriter writer = new ZkStateWriter(reader, new Stats(), executor);
+
+        int numCollections = atLeast(5);
+        ClusterState clusterState = reader.getClusterState();
+        for (int round = 0; round < 3; round++) {
+          for (int i = 0; i < numCollections; i++) {
+            String name = "c" + i;
+            if (round == 0) {
+              zkClient.makePath(ZkStateReader.COLLECTIONS_ZKNODE + "/" + name, true);
+            }
+            int version = round == 0 ? 0 : clusterState.getCollection(name).getZNodeVersion();
+            ZkWriteCommand wc = new ZkWriteCommand(name, new DocCollection(name, new HashMap<>(),
+                Collections.singletonMap("round", round), DocRouter.DEFAULT, version));
+            clusterState = writer.enqueueUpdate(clusterState, Collections.singletonList(wc), null);
+          }
+          clusterState = writer.writePendingUpdates();
+        }
+
+        for (int i = 0; i < numCollections; i++) {
+          String name = "c" + i;
+          // each collection was created once then updated twice, and the cluster state tracks its latest version
+          assertEquals(2, clusterState.getCollection(name).getZNodeVersion());
+          @SuppressWarnings({"rawtypes"})
+          Map map = (Map) Utils.fromJSON(zkClient.getData(ZkStateReader.getCollectionPath(name), null, null, true));
+          assertEquals(2L, ((Map) map.get(name)).get("round"));
+        }
+      }
+    } finally {
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+      IOUtils.close(zkClient);
+      server.shutdown();
+    }
+  }
+
   public void testExternalModification() throws Exception {
     Path zkDir = createTempDir("testExternalModification");
 
@@ -66,6 +66,7 @@ public class TestSolrXml extends SolrTestCaseJ4 {
     PluginInfo[] backupRepoConfigs = cfg.getBackupRepositoryPlugins();
 
     assertEquals("maxBooleanClauses", (Integer) 42, cfg.getBooleanQueryMaxClauseCount());
+    assertEquals("automatonCacheSize", (Integer) 500, cfg.getAutomatonCacheSize());
     assertEquals("core admin handler class", "testAdminHandler", cfg.getCoreAdminHandlerClass());
     assertEquals("collection handler class", "testCollectionsHandler", cfg.getCollectionsHandlerClass());
     assertEquals("info handler class", "testInfoHandler", cfg.getInfoHandlerClass());
@@ -140,6 +141,7 @@ public class TestSolrXml extends SolrTestCaseJ4 {
 
     NodeConfig cfg = SolrXmlConfig.fromString(solrHome, solrXml);
     assertNull("maxBooleanClauses", cfg.getBooleanQueryMaxClauseCount()); // default is null
+    assertNull("automatonCacheSize", cfg.getAutomatonCacheSize()); // default is null
     assertEquals("leaderVoteWait", 180000, cfg.getCloudConfig().getLeaderVoteWait());
   }
 
@@ -17,10 +17,12 @@
 package org.apache.solr.handler;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FilenameFilter;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -34,11 +36,15 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.zip.Adler32;
 
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
@@ -764,6 +770,117 @@ public class TestReplicationHandler extends SolrTestCaseJ4 {
     return slave;
   }
 
+  @Test
+  public void testResumeInterruptedFileDownload() throws Exception {
+    slave.setTestPort(masterJetty.getLocalPort());
+    slave.copyConfigFile(CONF_DIR + "solrconfig-slave1.xml", "solrconfig.xml");
+    slaveJetty.stop();
+    slaveJetty = createAndStartJetty(slave);
+    slaveClient.close();
+    slaveClient = createNewSolrClient(slaveJetty.getLocalPort());
+
+    // a few MB of stored values, so that some files are longer than a packet
+    final int numDocs = 3000;
+    List<SolrInputDocument> docs = new ArrayList<>();
+    for (int i = 0; i < numDocs; i++) {
+      SolrInputDocument doc = new SolrInputDocument();
+      doc.addField("id", i);
+      doc.addField("name", TestUtil.randomSimpleString(random(), 2000, 2000));
+      docs.add(doc);
+    }
+    masterClient.add(docs);
+    masterClient.commit();
+
+    // the stream of the first file that is longer than a packet breaks in the middle of its second packet
+    final int packetLength = 4 + 8 + ReplicationHandler.PACKET_SZ; // size, checksum and bytes
+    final AtomicReference<String> interruptedFile = new AtomicReference<>();
+    final List<Long> resumeOffsets = Collections.synchronizedList(new ArrayList<>());
+    final IndexFetcher.FileStreamWrapper originalWrapper = IndexFetcher.testFileStreamWrapper;
+    try {
+      // the resumed stream returns other bytes than the file has, with valid packet checksums
+      IndexFetcher.testFileStreamWrapper = (fileName, offset, in) -> {
+        if (offset > 0 && fileName.equals(interruptedFile.get())) {
+          resumeOffsets.add(offset);
+          byte[] bytes = in.readAllBytes();
+          int size = ((bytes[0] & 0xff) << 24) | ((bytes[1] & 0xff) << 16) | ((bytes[2] & 0xff) << 8) | (bytes[3] & 0xff);
+          bytes[12] ^= 1;
+          Adler32 checksum = new Adler32();
+          checksum.update(bytes, 12, size);
+          for (int i = 0; i < 8; i++) {
+            bytes[4 + i] = (byte) (checksum.getValue() >>> (56 - 8 * i));
+          }
+          return new ByteArrayInputStream(bytes);
+        }
+        return new BreakingInputStream(in, packetLength + packetLength / 2,
+            () -> interruptedFile.compareAndSet(null, fileName));
+      };
+      assertEquals(ReplicationHandler.ERR_STATUS, fetchIndexAndWait().get("status"));
+      assertNotNull("no file is longer than a packet", interruptedFile.get());
+      assertEquals(Collections.singletonList((long) ReplicationHandler.PACKET_SZ), resumeOffsets);
+      assertEquals(0, numFound(query("*:*", slaveClient)));
+
+      // the resumed stream is not altered this time
+      interruptedFile.set(null);
+      resumeOffsets.clear();
+      IndexFetcher.testFileStreamWrapper = (fileName, offset, in) -> {
+        if (offset > 0) {
+          resumeOffsets.add(offset);
+          return in;
+        }
+        return new BreakingInputStream(in, packetLength + packetLength / 2,
+            () -> interruptedFile.compareAndSet(null, fileName));
+      };
+      assertEquals(ReplicationHandler.OK_STATUS, fetchIndexAndWait().get("status"));
+      assertEquals(Collections.singletonList((long) ReplicationHandler.PACKET_SZ), resumeOffsets);
+      assertEquals(numDocs, numFound(query("*:*", slaveClient)));
+    } finally {
+      IndexFetcher.testFileStreamWrapper = originalWrapper;
+    }
+  }
+
+  private NamedList<Object> fetchIndexAndWait() throws Exception {
+    SolrQuery q = new SolrQuery();
+    q.add("qt", "/replication")
+        .add("wait", "true")
+        .add("command", "fetchindex")
+        .add(ReplicationHandler.FETCH_THREADS, Integer.toString(TestUtil.nextInt(random(), 1, 4)))
+        .add("masterUrl", buildUrl(masterJetty.getLocalPort()) + "/" + DEFAULT_TEST_CORENAME + ReplicationHandler.PATH);
+    return slaveClient.query(q).getResponse();
+  }
+
+  /** Fails once it has read a number of bytes, if a condition is then true. */
+  private static class BreakingInputStream extends FilterInputStream {
+    private final long breakAt;
+    private final BooleanSupplier shouldBreak;
+    private long read;
+
+    BreakingInputStream(InputStream in, long breakAt, BooleanSupplier shouldBreak) {
+      super(in);
+      this.breakAt = breakAt;
+      this.shouldBreak = shouldBreak;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (read < breakAt) {
+        len = (int) Math.min(len, breakAt - read);
+      } else if (shouldBreak.getAsBoolean()) {
+        throw new IOException("Simulated broken stream");
+      }
+      int n = in.read(b, off, len);
+      if (n > 0) {
+        read += n;
+      }
+      return n;
+    }
+  }
+
   @Test
   public void doTestIndexFetchWithMasterUrl() throws Exception {
     //change solrconfig on slave
@@ -794,8 +911,9 @@ public class TestReplicationHandler extends SolrTestCaseJ4 {
     SolrDocumentList masterQueryResult = (SolrDocumentList) masterQueryRsp.get("response");
     assertEquals(nDocs, masterQueryResult.getNumFound());
 
-    // index fetch
-    String masterUrl = buildUrl(slaveJetty.getLocalPort()) + "/" + DEFAULT_TEST_CORENAME + ReplicationHandler.PATH+"?command=fetchindex&masterUrl=";
+    // index fetch, possibly downloading several files at once
+    String masterUrl = buildUrl(slaveJetty.getLocalPort()) + "/" + DEFAULT_TEST_CORENAME + ReplicationHandler.PATH+"?command=fetchindex"
+        + "&" + ReplicationHandler.FETCH_THREADS + "=" + TestUtil.nextInt(random(), 1, 4) + "&masterUrl=";
     masterUrl += buildUrl(masterJetty.getLocalPort()) + "/" + DEFAULT_TEST_CORENAME + ReplicationHandler.PATH;
     URL url = new URL(masterUrl);
     InputStream stream = url.openStream();
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler.component;
+
+import java.util.Collections;
+
+import org.apache.solr.BaseDistributedSearchTestCase;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.embedded.JettySolrRunner;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.params.ShardParams;
+import org.apache.solr.handler.component.TrackingShardHandlerFactory.RequestTrackingQueue;
+import org.apache.solr.handler.component.TrackingShardHandlerFactory.ShardRequestAndParams;
+import org.junit.Test;
+
+/**
+ * Tests that a shard request hedged because its replica is slow is sent with the score of the top documents
+ * merged from the other shards, and still returns the same top documents.
+ *
+ * @see QueryComponent
+ * @see HttpShardHandler
+ */
+public class DistributedHedgedQueryTest extends BaseDistributedSearchTestCase {
+
+  public DistributedHedgedQueryTest() {
+    stress = 0;
+  }
+
+  @Override
+  protected String getSolrXml() {
+    return "solr-trackingshardhandler.xml";
+  }
+
+  @Test
+  @ShardsFixed(num = 2)
+  public void test() throws Exception {
+    del("*:*");
+    for (int i = 0; i < 100; i++) {
+      index(id, i, "a_t", String.join(" ", Collections.nCopies(1 + i % 7, "a")) + (i % 3 == 0 ? " b" : ""));
+    }
+    commit();
+
+    // the first shard has the same url twice, so that its request can be hedged
+    String slowShard = shardsArr[0] + "|" + shardsArr[0];
+    SolrClient coordinator = clients.get(1);
+    ModifiableSolrParams params = params("q", "a_t:a a_t:b", "fl", "id,score", "rows", "5",
+        CommonParams.MIN_EXACT_COUNT, "1", ShardParams.SHARDS, slowShard + "," + shardsArr[1],
+        ShardParams.SHARDS_HEDGE, "false");
+    SolrDocumentList expected = coordinator.query(params).getResults();
+    assertEquals(5, expected.size());
+
+    for (JettySolrRunner jetty : jettys) {
+      HttpShardHandlerFactory factory = (HttpShardHandlerFactory) jetty.getCoreContainer().getShardHandlerFactory();
+      factory.hedgingPolicy = new ShardHedgingPolicy(true, 0.5, 500, 1, 1);
+      factory.hedgingPolicy.recordLatency(DEFAULT_TEST_CORENAME, 1);
+    }
+    // the first request to the first shard is slow, its hedge is not
+    JettySolrRunner.DebugFilter slowFilter = jettys.get(0).getDebugFilter();
+    long numRequests = slowFilter.getTotalRequests();
+    slowFilter.addDelay("slow replica", 1, 3000);
+
+    RequestTrackingQueue trackingQueue = new RequestTrackingQueue();
+    TrackingShardHandlerFactory.setTrackingQueue(jettys, trackingQueue);
+    try {
+      params.set(ShardParams.SHARDS_HEDGE, "true");
+      SolrDocumentList results = coordinator.query(params).getResults();
+      assertTrue("the request to the slow replica should have been hedged",
+          slowFilter.getTotalRequests() - numRequests > 2);
+
+      // the score bound doesn't change the top documents
+      assertEquals(expected.size(), results.size());
+      for (int i = 0; i < expected.size(); i++) {
+        assertEquals(expected.get(i).getFieldValue("id"), results.get(i).getFieldValue("id"));
+        assertEquals(expected.get(i).getFieldValue("score"), results.get(i).getFieldValue("score"));
+      }
+
+      // the hedge asked for what can still make the top documents
+      ShardRequestAndParams topIdsRequest = null;
+      for (ShardRequestAndParams request : trackingQueue.getAllRequests().get(slowShard)) {
+        if ((request.sreq.purpose & ShardRequest.PURPOSE_GET_TOP_IDS) != 0) {
+          topIdsRequest = request;
+        }
+      }
+      assertNotNull(topIdsRequest);
+      assertNotNull(topIdsRequest.sreq.resendListener);
+      ModifiableSolrParams resent = new ModifiableSolrParams();
+      topIdsRequest.sreq.resendListener.accept(resent);
+      float lastScore = (Float) results.get(results.size() - 1).getFieldValue("score");
+      assertEquals(Math.nextDown(lastScore), Float.parseFloat(resent.get(ShardParams.DISTRIB_MIN_SCORE)), 0f);
+    } finally {
+      TrackingShardHandlerFactory.setTrackingQueue(jettys, null);
+      slowFilter.unsetDelay();
+    }
+  }
+}
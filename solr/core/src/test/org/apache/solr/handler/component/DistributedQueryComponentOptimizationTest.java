@@ -146,6 +146,36 @@ public class DistributedQueryComponentOptimizationTest extends SolrCloudTestCase
 
   }
 
+  @Test
+  public void testSinglePassMaxDocs() throws Exception {
+    String maxDocs = ShardParams.DISTRIB_SINGLE_PASS_MAX_DOCS;
+    // 5 rows from each of the 3 shards, and payload is read from docValues
+    QueryResponse rsp = assertSinglePass(true, "fl", "id,payload", "rows", "5", maxDocs, "15");
+    assertFieldValues(rsp.getResults(), id, "7", "1", "6", "4", "2");
+    assertEquals(rsp.getResults().getNumFound(),
+        assertSinglePass(false, "fl", "id,payload", "rows", "5").getResults().getNumFound());
+
+    // too many documents to fetch
+    assertSinglePass(false, "fl", "id,payload", "rows", "6", maxDocs, "15");
+    // test_sS is only stored
+    assertSinglePass(false, "fl", "id,payload,test_sS", "rows", "5", maxDocs, "15");
+    // explicitly disabled
+    assertSinglePass(false, "fl", "id,payload", "rows", "5", maxDocs, "15", ShardParams.DISTRIB_SINGLE_PASS, "false");
+  }
+
+  private QueryResponse assertSinglePass(boolean expected, String... params) throws Exception {
+    SolrQuery query = new SolrQuery("q", "*:*", "sort", "payload asc", "debug", "track");
+    for (int i = 0; i < params.length; i += 2) {
+      query.set(params[i], params[i + 1]);
+    }
+    QueryResponse rsp = cluster.getSolrClient().query(COLLECTION, query);
+    @SuppressWarnings({"unchecked"})
+    SimpleOrderedMap<Object> track = (SimpleOrderedMap<Object>) rsp.getDebugMap().get("track");
+    assertNotNull(track.get("EXECUTE_QUERY"));
+    assertEquals("single pass expected to be " + expected + " for " + query, expected, track.get("GET_FIELDS") == null);
+    return rsp;
+  }
+
   @Test
   public void testWildcardFieldList() throws Exception {
 
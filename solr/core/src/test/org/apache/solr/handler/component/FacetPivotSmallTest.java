@@ -16,6 +16,8 @@
  */
 package org.apache.solr.handler.component;
 
+import java.util.Arrays;
+
 import org.apache.solr.SolrTestCaseJ4;
 import org.apache.solr.common.params.FacetParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
@@ -490,6 +492,86 @@ public class FacetPivotSmallTest extends SolrTestCaseJ4 {
     assertU(commit());
   }
 
+  /**
+   * pivots on string fields with docValues collect all levels at once, and must match the pivots
+   * computed one value at a time on the same values in fields without docValues
+   */
+  public void testDocValuesPivotsMatchPerValuePivots() throws Exception {
+    final int numDocs = atLeast(100);
+    for (int i = 0; i < numDocs; i++) {
+      final String place = "p" + random().nextInt(6);
+      final String company = "c" + random().nextInt(8);
+      final String[] doc = {"id", Integer.toString(i),
+          "place_s", place, "place_s_dv", place,
+          "company_s", company, "company_s_dv", company};
+      if (random().nextInt(10) == 0) {
+        // missing values
+        assertU(adoc("id", Integer.toString(i), "company_s", company, "company_s_dv", company));
+      } else if (random().nextBoolean()) {
+        final String cat = "t" + random().nextInt(4);
+        final String otherCat = "t" + random().nextInt(4);
+        final String[] withCats = new String[doc.length + 8];
+        System.arraycopy(doc, 0, withCats, 0, doc.length);
+        System.arraycopy(new String[] {"cat_ss", cat, "cat_ss", otherCat, "cat_docValues", cat, "cat_docValues", otherCat},
+            0, withCats, doc.length, 8);
+        assertU(adoc(withCats));
+      } else {
+        assertU(adoc(doc));
+      }
+      if (random().nextInt(20) == 0) {
+        assertU(commit()); // more segments
+      }
+    }
+    assertU(commit());
+
+    for (String[] options : new String[][] {
+        {}, {"facet.limit", "2"}, {"facet.sort", "index", "facet.offset", "1"}, {"facet.missing", "true"},
+        {"facet.pivot.mincount", "3", "facet.missing", "true"}, {"f.company_s.facet.limit", "1", "f.company_s_dv.facet.limit", "1"},
+        {"facet.limit", "0", "facet.missing", "true"}, {"fq", "company_s:c1 OR place_s:p2"}}) {
+      for (String fields : new String[] {"place_s,company_s", "company_s,place_s,cat_ss", "cat_ss,company_s,place_s"}) {
+        final String dvFields = fields.replace("_s", "_s_dv").replace("cat_s_dvs", "cat_docValues");
+        final ModifiableSolrParams params = params("q", "*:*", "facet", "true", "rows", "0", "omitHeader", "true");
+        for (int i = 0; i < options.length; i += 2) {
+          params.add(options[i], options[i + 1]);
+        }
+        final String pivot = "{!key=p threads=" + (random().nextInt(4) - 1) + "}";
+        final String expected = h.query(req(SolrParams.wrapDefaults(params("facet.pivot", pivot + fields), params)));
+        final String actual = h.query(req(SolrParams.wrapDefaults(params("facet.pivot", pivot + dvFields), params)))
+            .replace("_s_dv<", "_s<").replace("cat_docValues<", "cat_ss<");
+        assertEquals(params + " " + fields, expected, actual);
+      }
+    }
+  }
+
+  /**
+   * pivots with more distinct paths than the docValues collection may count are computed one value
+   * at a time instead, with the same response
+   */
+  public void testDocValuesPivotsFallBackOnTooManyPaths() throws Exception {
+    for (int i = 0; i < 50; i++) {
+      assertU(adoc("id", Integer.toString(i), "place_s_dv", "p" + (i % 7), "company_s_dv", "c" + (i % 11)));
+    }
+    assertU(commit());
+
+    // 7 places and 50 pairs of a place and a company, 57 paths in all
+    final ModifiableSolrParams params = params("q", "*:*", "facet", "true", "rows", "0", "omitHeader", "true",
+        "facet.limit", "3", "facet.pivot", "place_s_dv,company_s_dv");
+    final String expected = h.query(req(params));
+    System.setProperty(DocValuesPivotFacets.MAX_PATHS_PROP, "20");
+    try {
+      h.getCore().withSearcher(searcher -> {
+        final DocValuesPivotFacets dvPivots =
+            DocValuesPivotFacets.create(searcher, Arrays.asList("place_s_dv", "company_s_dv"), params, params);
+        assertNotNull(dvPivots);
+        assertNull(dvPivots.process(searcher.getLiveDocSet(), 0, Runnable::run));
+        return null;
+      });
+      assertEquals(expected, h.query(req(params)));
+    } finally {
+      System.clearProperty(DocValuesPivotFacets.MAX_PATHS_PROP);
+    }
+  }
+
   private void index() {
     // NOTE: we use the literal (4 character) string "null" as a company name
     // to help ensure there isn't any bugs where the literal string is treated as if it
@@ -135,6 +135,42 @@ public class TestHttpShardHandlerFactory extends SolrTestCaseJ4 {
     }
   }
   
+  @Test
+  public void testHedgingPolicy() {
+    ShardHedgingPolicy policy = new ShardHedgingPolicy(true, 0.9, 5, 0.5, 10);
+    assertEquals("no latencies yet", -1, policy.getDelayMs("c1"));
+    for (int i = 1; i <= 100; i++) {
+      policy.recordLatency("c1", i);
+    }
+    policy.recordLatency("c2", 1);
+    assertEquals(-1, policy.getDelayMs("c2"));
+    long delay = policy.getDelayMs("c1");
+    assertTrue("delay " + delay + " should be the 90th percentile", delay >= 85 && delay <= 95);
+    for (int i = 0; i < 10; i++) {
+      policy.recordLatency("c2", 1);
+    }
+    assertEquals("delay should not be below the minimum", 5, policy.getDelayMs("c2"));
+
+    // one hedge per two requests
+    assertFalse(policy.tryHedge());
+    policy.requestSent();
+    assertFalse(policy.tryHedge());
+    policy.requestSent();
+    assertTrue(policy.tryHedge());
+    assertFalse(policy.tryHedge());
+    // the budget is capped, hedges can't be saved up indefinitely
+    for (int i = 0; i < 1000; i++) {
+      policy.requestSent();
+    }
+    int hedges = 0;
+    while (policy.tryHedge()) {
+      hedges++;
+    }
+    assertEquals(10, hedges);
+
+    expectThrows(IllegalArgumentException.class, () -> new ShardHedgingPolicy(true, 1, 5, 0.5, 10));
+  }
+
   @Test
   public void testLiveNodesToHostUrl() throws Exception {
     Set<String> liveNodes = new HashSet<>(Arrays.asList(new String[]{
@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler.component;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.impl.LBSolrClient;
+import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.params.ShardParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.core.PluginInfo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests how {@link HttpShardHandler} hedges the requests to a slow replica, with replicas that are mocked by
+ * {@link MockShardHandlerFactory}.
+ */
+public class TestHttpShardHandlerHedging extends SolrTestCase {
+
+  private static final String SLOW = "http://slow:8983/solr/c1_shard1_replica_n1";
+  private static final String FAST = "http://fast:8983/solr/c1_shard1_replica_n2";
+  private static final String SHARD = SLOW + "|" + FAST;
+
+  private MockShardHandlerFactory factory;
+  private ShardRequest sreq;
+
+  @Before
+  public void setUpFactory() {
+    factory = new MockShardHandlerFactory();
+    factory.init(new PluginInfo("shardHandlerFactory", Collections.emptyMap()));
+    // hedge after 50ms, every request may be hedged
+    factory.hedgingPolicy = new ShardHedgingPolicy(true, 0.5, 50, 1, 1);
+    factory.hedgingPolicy.recordLatency("c1", 1);
+
+    sreq = new ShardRequest();
+    sreq.shards = new String[] {SHARD};
+    sreq.actualShards = sreq.shards;
+  }
+
+  @After
+  public void closeFactory() {
+    factory.close();
+  }
+
+  private HttpShardHandler newShardHandler() {
+    HttpShardHandler shardHandler = (HttpShardHandler) factory.getShardHandler();
+    shardHandler.hedgedCollection = "c1";
+    return shardHandler;
+  }
+
+  @Test
+  public void testSlowReplicaIsHedged() throws Exception {
+    CountDownLatch slowCancelled = new CountDownLatch(1);
+    factory.replicas = url -> {
+      if (url.equals(SLOW)) {
+        try {
+          new CountDownLatch(1).await();
+        } catch (InterruptedException e) {
+          slowCancelled.countDown();
+          throw e;
+        }
+      }
+      return new NamedList<>();
+    };
+
+    HttpShardHandler shardHandler = newShardHandler();
+    shardHandler.submit(sreq, SHARD, new ModifiableSolrParams());
+    ShardResponse rsp = shardHandler.takeCompletedOrError();
+    assertNull(rsp.getException());
+    assertEquals(FAST, rsp.getShardAddress());
+    assertEquals(1, sreq.responses.size());
+    assertTrue("the slow attempt should have been cancelled", slowCancelled.await(30, TimeUnit.SECONDS));
+
+    // the cancelled attempt is not returned as another response
+    assertNull(shardHandler.takeCompletedIncludingErrors());
+    assertEquals(1, sreq.responses.size());
+    assertEquals(2, factory.attempts.get());
+  }
+
+  @Test
+  public void testHedgeIsSentWithResendParams() throws Exception {
+    sreq.resendListener = params -> params.set(ShardParams.DISTRIB_MIN_SCORE, "1.5");
+    factory.replicas = url -> {
+      if (url.equals(SLOW)) {
+        new CountDownLatch(1).await();
+      }
+      return new NamedList<>();
+    };
+
+    HttpShardHandler shardHandler = newShardHandler();
+    ModifiableSolrParams params = new ModifiableSolrParams();
+    shardHandler.submit(sreq, SHARD, params);
+    assertEquals(FAST, shardHandler.takeCompletedOrError().getShardAddress());
+    assertEquals("1.5", factory.params.get(FAST).get(ShardParams.DISTRIB_MIN_SCORE));
+    // only the hedge got them
+    assertNull(params.get(ShardParams.DISTRIB_MIN_SCORE));
+  }
+
+  @Test
+  public void testErrorIsIgnoredWhileAnotherAttemptRuns() throws Exception {
+    CountDownLatch hedged = new CountDownLatch(1);
+    CountDownLatch slowFailed = new CountDownLatch(1);
+    factory.replicas = url -> {
+      if (url.equals(SLOW)) {
+        hedged.await();
+        slowFailed.countDown();
+        throw new SolrServerException("slow replica failed");
+      }
+      hedged.countDown();
+      slowFailed.await();
+      // let the error of the slow replica be taken first
+      Thread.sleep(100);
+      return new NamedList<>();
+    };
+
+    HttpShardHandler shardHandler = newShardHandler();
+    shardHandler.submit(sreq, SHARD, new ModifiableSolrParams());
+    ShardResponse rsp = shardHandler.takeCompletedOrError();
+    assertNull(rsp.getException());
+    assertEquals(FAST, rsp.getShardAddress());
+    assertEquals(1, sreq.responses.size());
+    assertNull(shardHandler.takeCompletedIncludingErrors());
+  }
+
+  @Test
+  public void testErrorIsReturnedWhenAllAttemptsFail() throws Exception {
+    CountDownLatch hedged = new CountDownLatch(1);
+    factory.replicas = url -> {
+      if (url.equals(SLOW)) {
+        hedged.await();
+        throw new SolrServerException("slow replica failed");
+      }
+      hedged.countDown();
+      throw new SolrServerException("fast replica failed");
+    };
+
+    HttpShardHandler shardHandler = newShardHandler();
+    shardHandler.submit(sreq, SHARD, new ModifiableSolrParams());
+    ShardResponse rsp = shardHandler.takeCompletedIncludingErrors();
+    assertNotNull(rsp.getException());
+    assertEquals(2, factory.attempts.get());
+    assertEquals(1, sreq.responses.size());
+    assertNull(shardHandler.takeCompletedIncludingErrors());
+  }
+
+  @Test
+  public void testNotHedgedWithoutBudget() throws Exception {
+    factory.hedgingPolicy = new ShardHedgingPolicy(true, 0.5, 50, 0, 1);
+    factory.hedgingPolicy.recordLatency("c1", 1);
+    factory.replicas = url -> {
+      if (url.equals(SLOW)) {
+        Thread.sleep(200);
+      }
+      return new NamedList<>();
+    };
+
+    HttpShardHandler shardHandler = newShardHandler();
+    shardHandler.submit(sreq, SHARD, new ModifiableSolrParams());
+    ShardResponse rsp = shardHandler.takeCompletedOrError();
+    assertNull(rsp.getException());
+    assertEquals(SLOW, rsp.getShardAddress());
+    assertEquals(1, factory.attempts.get());
+  }
+
+  interface MockReplicas {
+    /** @return the response of the replica with the given url */
+    NamedList<Object> respond(String url) throws Exception;
+  }
+
+  /** Sends the shard requests to the first of their urls through {@link MockReplicas}, instead of over http. */
+  static class MockShardHandlerFactory extends HttpShardHandlerFactory {
+    final AtomicInteger attempts = new AtomicInteger();
+    // the params of the request sent to each url
+    final Map<String, SolrParams> params = new ConcurrentHashMap<>();
+    volatile MockReplicas replicas;
+
+    @Override
+    public LBSolrClient.Rsp makeLoadBalancedRequest(QueryRequest req, List<String> urls)
+        throws SolrServerException, IOException {
+      attempts.incrementAndGet();
+      final String url = urls.get(0);
+      params.put(url, req.getParams());
+      final NamedList<Object> response;
+      try {
+        response = replicas.respond(url);
+      } catch (SolrServerException | IOException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new SolrServerException(e);
+      }
+      return new LBSolrClient.Rsp() {
+        {
+          server = url;
+          rsp = response;
+        }
+      };
+    }
+  }
+}
@@ -25,15 +25,20 @@ import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.SortedDocValuesField;
 import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.MultiDocValues.MultiSortedDocValues;
 import org.apache.lucene.index.MultiDocValues.MultiSortedSetDocValues;
 import org.apache.lucene.index.MultiTerms;
 import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.TestUtil;
@@ -124,6 +129,71 @@ public class TestSlowCompositeReaderWrapper extends SolrTestCase {
     dir.close();
   }
 
+  public void testOrdMapsAreReused() throws Exception {
+    Directory dir = newDirectory();
+    // no random config, which could flush a segment that the deletion below would drop
+    IndexWriter w = new IndexWriter(dir, new IndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE));
+    for (String id : new String[] {"1", "2"}) {
+      Document doc = new Document();
+      doc.add(new StringField("id", id, Field.Store.NO));
+      doc.add(new SortedSetDocValuesField("sorted_set", new BytesRef("a" + id)));
+      w.addDocument(doc);
+    }
+    w.flush();
+    Document doc = new Document();
+    doc.add(new StringField("id", "3", Field.Store.NO));
+    doc.add(new SortedSetDocValuesField("sorted_set", new BytesRef("b")));
+    w.addDocument(doc);
+    DirectoryReader reader = DirectoryReader.open(w);
+    assertTrue(reader.leaves().size() > 1);
+    SlowCompositeReaderWrapper slowWrapper = (SlowCompositeReaderWrapper) SlowCompositeReaderWrapper.wrap(reader);
+    assertEquals(MultiSortedSetDocValues.class, slowWrapper.getSortedSetDocValues("sorted_set").getClass());
+    assertEquals(1, slowWrapper.getNumOrdinalMapBuilds());
+    assertTrue(slowWrapper.getOrdinalMapsRamBytesUsed() > 0);
+
+    // deletions don't change the segments' terms
+    w.deleteDocuments(new Term("id", "1"));
+    DirectoryReader reader2 = DirectoryReader.openIfChanged(reader, w);
+    assertNotNull(reader2);
+    SlowCompositeReaderWrapper slowWrapper2 = (SlowCompositeReaderWrapper) SlowCompositeReaderWrapper.wrap(reader2);
+    assertEquals(1, slowWrapper2.reuseOrdinalMaps(slowWrapper));
+    assertSame(slowWrapper.cachedOrdMaps.get("sorted_set"), slowWrapper2.cachedOrdMaps.get("sorted_set"));
+    SortedSetDocValues values = slowWrapper2.getSortedSetDocValues("sorted_set");
+    assertEquals(0, slowWrapper2.getNumOrdinalMapBuilds());
+    assertEquals(1, slowWrapper2.getNumReusedOrdinalMaps());
+    assertEquals(3, values.getValueCount());
+    assertTrue(values.advanceExact(2));
+    assertEquals(new BytesRef("b"), values.lookupOrd(values.nextOrd()));
+
+    // but new segments do, the map is then built from the previous one
+    doc = new Document();
+    doc.add(new StringField("id", "4", Field.Store.NO));
+    doc.add(new SortedSetDocValuesField("sorted_set", new BytesRef("a0")));
+    w.addDocument(doc);
+    DirectoryReader reader3 = DirectoryReader.openIfChanged(reader2, w);
+    assertNotNull(reader3);
+    SlowCompositeReaderWrapper slowWrapper3 = (SlowCompositeReaderWrapper) SlowCompositeReaderWrapper.wrap(reader3);
+    assertEquals(0, slowWrapper3.reuseOrdinalMaps(slowWrapper2));
+    values = slowWrapper3.getSortedSetDocValues("sorted_set");
+    assertEquals(1, slowWrapper3.getNumOrdinalMapBuilds());
+    assertEquals(1, slowWrapper3.getNumIncrementalOrdinalMapBuilds());
+    assertEquals(4, values.getValueCount());
+    final String[] expectedTerms = new String[] {"a0", "a1", "a2", "b"};
+    for (int ord = 0; ord < expectedTerms.length; ord++) {
+      assertEquals(new BytesRef(expectedTerms[ord]), values.lookupOrd(ord));
+    }
+    assertTrue(values.advanceExact(2));
+    assertEquals(3, values.nextOrd());
+    assertTrue(values.advanceExact(3));
+    assertEquals(0, values.nextOrd());
+
+    reader.close();
+    reader2.close();
+    reader3.close();
+    w.close();
+    dir.close();
+  }
+
   public void testTermsAreCached() throws IOException {
     Directory dir = newDirectory();
     RandomIndexWriter w = new RandomIndexWriter(random(), dir, newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE));
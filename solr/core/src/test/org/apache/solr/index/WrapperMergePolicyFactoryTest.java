@@ -19,6 +19,7 @@ package org.apache.solr.index;
 import org.apache.lucene.index.MergePolicy;
 import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.TieredMergePolicy;
+import org.apache.lucene.index.TimePartitionedMergePolicy;
 import org.apache.lucene.index.UpgradeIndexMergePolicy;
 import org.apache.solr.SolrTestCaseJ4;
 import org.apache.solr.core.SolrResourceLoader;
@@ -107,6 +108,24 @@ public class WrapperMergePolicyFactoryTest extends SolrTestCaseJ4 {
     }
   }
 
+  public void testTimePartitionedMergePolicyFactory() {
+    final MergePolicyFactoryArgs args = new MergePolicyFactoryArgs();
+    args.add(TimePartitionedMergePolicyFactory.FIELD, "timestamp");
+    args.add(TimePartitionedMergePolicyFactory.PARTITION_SIZE, 3600000L);
+    args.add(WrapperMergePolicyFactory.WRAPPED_PREFIX, "wrapped");
+    args.add("wrapped.class", LogByteSizeMergePolicyFactory.class.getName());
+    final MergePolicy mp = new TimePartitionedMergePolicyFactory(resourceLoader, args, null).getMergePolicy();
+    assertSame(mp.getClass(), TimePartitionedMergePolicy.class);
+    final TimePartitionedMergePolicy tpmp = (TimePartitionedMergePolicy) mp;
+    assertEquals("timestamp", tpmp.getField());
+    assertEquals(3600000L, tpmp.getPartitionSize());
+
+    final MergePolicyFactoryArgs missingSize = new MergePolicyFactoryArgs();
+    missingSize.add(TimePartitionedMergePolicyFactory.FIELD, "timestamp");
+    expectThrows(IllegalArgumentException.class,
+        () -> new TimePartitionedMergePolicyFactory(resourceLoader, missingSize, null));
+  }
+
   private static class DefaultingWrapperMergePolicyFactory extends WrapperMergePolicyFactory {
 
     DefaultingWrapperMergePolicyFactory(SolrResourceLoader resourceLoader, MergePolicyFactoryArgs wrapperArgs, IndexSchema schema) {
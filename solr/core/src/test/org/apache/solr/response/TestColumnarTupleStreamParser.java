@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.response;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.client.solrj.io.stream.ColumnarTupleStreamParser;
+import org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter;
+import org.apache.solr.common.IteratorWriter;
+import org.apache.solr.common.MapWriter;
+import org.apache.solr.common.util.ByteArrayUtf8CharSequence;
+
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.apache.solr.common.util.Utils.makeMap;
+
+public class TestColumnarTupleStreamParser extends SolrTestCase {
+
+  public void testRoundTrip() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    // the export writers reuse the char sequence of string fields across docs
+    ByteArrayUtf8CharSequence utf8 = new ByteArrayUtf8CharSequence(new byte[0], 0, 0);
+    try (ColumnarTupleWriter writer = new ColumnarTupleWriter(out, 3)) {
+      writer.writeMap(m -> {
+        m.put("responseHeader", singletonMap("status", 0));
+        m.put("response", (MapWriter) mw -> {
+          mw.put("numFound", 5);
+          mw.put("docs", (IteratorWriter) iw -> {
+            for (int i = 0; i < 5; i++) {
+              final int id = i;
+              iw.add((MapWriter) ew -> {
+                byte[] s = ("str" + id).getBytes(StandardCharsets.UTF_8);
+                ew.put("id", utf8.reset(s, 0, s.length, null));
+                ew.put("l", (long) id);
+                if (id != 1) ew.put("f", id + 0.5f);
+                ew.put("b", id % 2 == 0);
+                ew.put("dt", new Date(id * 1000L));
+                if (id == 3) {
+                  ew.put("m", "x");
+                } else if (id == 4) {
+                  // a value of another type in the same batch
+                  ew.put("m", (IteratorWriter) w -> w.add(1).add(2));
+                }
+              });
+            }
+          });
+        });
+      });
+    }
+
+    try (ColumnarTupleStreamParser parser = new ColumnarTupleStreamParser(new ByteArrayInputStream(out.toByteArray()))) {
+      for (int i = 0; i < 5; i++) {
+        Map<String, Object> tuple = parser.next();
+        assertEquals("str" + i, tuple.get("id"));
+        assertEquals((long) i, tuple.get("l"));
+        assertEquals(i == 1 ? null : i + 0.5d, tuple.get("f"));
+        assertEquals(i % 2 == 0, tuple.get("b"));
+        assertEquals(new Date(i * 1000L).toInstant().toString(), tuple.get("dt"));
+        if (i == 3) {
+          assertEquals("x", tuple.get("m"));
+        } else if (i == 4) {
+          assertEquals(Arrays.asList(1L, 2L), tuple.get("m"));
+        } else {
+          assertFalse(tuple.containsKey("m"));
+        }
+      }
+      assertNull(parser.next());
+      assertNull(parser.next());
+    }
+
+    try (ColumnarTupleStreamParser parser = new ColumnarTupleStreamParser(new ByteArrayInputStream(out.toByteArray()),
+        new HashSet<>(Arrays.asList("l", "m")))) {
+      for (int i = 0; i < 5; i++) {
+        Map<String, Object> tuple = parser.next();
+        assertEquals(i < 3 ? Collections.singleton("l") : new HashSet<>(Arrays.asList("l", "m")), tuple.keySet());
+        assertEquals((long) i, tuple.get("l"));
+      }
+      assertNull(parser.next());
+    }
+  }
+
+  public void testException() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ColumnarTupleWriter writer = new ColumnarTupleWriter(out)) {
+      writer.writeMap(m -> m.put("responseHeader", singletonMap("status", 400))
+          .put("response", makeMap("numFound", 0, "docs", singletonList(singletonMap("EXCEPTION", "boom")))));
+    }
+    try (ColumnarTupleStreamParser parser = new ColumnarTupleStreamParser(new ByteArrayInputStream(out.toByteArray()))) {
+      assertEquals(singletonMap("EXCEPTION", "boom"), parser.next());
+      assertNull(parser.next());
+    }
+  }
+}
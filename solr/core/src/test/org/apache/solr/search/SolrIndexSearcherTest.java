@@ -248,6 +248,46 @@ public class SolrIndexSearcherTest extends SolrTestCaseJ4 {
     });
   }
 
+  public void testMinCompetitiveScore() throws IOException {
+    h.getCore().withSearcher(searcher -> {
+      QueryCommand cmd = createBasicQueryCommand(1, 10, "field4_t", "0");
+      cmd.setFlags(SolrIndexSearcher.GET_SCORES | SolrIndexSearcher.NO_CHECK_QCACHE | SolrIndexSearcher.NO_SET_QCACHE);
+      QueryResult expected = new QueryResult();
+      searcher.search(expected, cmd);
+      DocList expectedDocs = expected.getDocList();
+      assertEquals(10, expectedDocs.size());
+
+      // a minimum score that all the top hits reach doesn't change them
+      DocIterator it = expectedDocs.iterator();
+      float lastScore = 0;
+      while (it.hasNext()) {
+        it.nextDoc();
+        lastScore = it.score();
+      }
+      cmd.setMinCompetitiveScore(Math.nextDown(lastScore));
+      QueryResult qr = new QueryResult();
+      searcher.search(qr, cmd);
+      DocList docs = qr.getDocList();
+      assertEquals(expectedDocs.size(), docs.size());
+      DocIterator expectedIt = expectedDocs.iterator();
+      DocIterator actualIt = docs.iterator();
+      while (expectedIt.hasNext()) {
+        assertEquals(expectedIt.nextDoc(), actualIt.nextDoc());
+        assertEquals(expectedIt.score(), actualIt.score(), 0f);
+      }
+      assertEquals(TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO, docs.hitCountRelation());
+
+      // not before as many hits were counted as must be counted exactly
+      cmd.setMinExactCount(NUM_DOCS);
+      assertMatchesEqual(NUM_DOCS, searcher, cmd);
+
+      // only used when the hit count may be approximate
+      cmd.setMinExactCount(Integer.MAX_VALUE);
+      assertMatchesEqual(NUM_DOCS, searcher, cmd);
+      return null;
+    });
+  }
+
   private QueryCommand createBasicQueryCommand(int minExactCount, int length, String field, String q) {
     QueryCommand cmd = new QueryCommand();
     cmd.setMinExactCount(minExactCount);
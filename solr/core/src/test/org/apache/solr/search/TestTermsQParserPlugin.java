@@ -108,7 +108,9 @@ public class TestTermsQParserPlugin extends SolrTestCaseJ4 {
         new TermsParams("docValuesTermsFilterTopLevel", true),
         new TermsParams("docValuesTermsFilterTopLevel", false),
         new TermsParams("docValuesTermsFilterPerSegment", true),
-        new TermsParams("docValuesTermsFilterPerSegment", false)
+        new TermsParams("docValuesTermsFilterPerSegment", false),
+        new TermsParams("indexOrDocValuesTermsFilter", true),
+        new TermsParams("indexOrDocValuesTermsFilter", false)
     };
 
     for (TermsParams method : methods) {
@@ -267,6 +267,11 @@ public class TestJsonFacetErrors extends SolrTestCaseHS {
         req("q", "*:*", "rows", "0", "json.facet", "{cat_s:{type:terms,field:cat_s,sort:[\"count desc\"]}}"),
         SolrException.ErrorCode.BAD_REQUEST);
 
+    assertQEx("Should fail as the sketch is too large",
+        "'sketchSize' must be at most 1048576, got 2000000000 , path=facet/f",
+        req("q", "*:*", "rows", "0", "json.facet", "{f:{type:terms, field:cat_s, method:sketch, sketchSize:2000000000}}"),
+        SolrException.ErrorCode.BAD_REQUEST);
+
     assertQEx("Should fail as facet is not of type map",
         "Expected Map for 'facet', received ArrayList=[{}]",
         req("q", "*:*", "rows", "0", "json.facet", "[{}]"), SolrException.ErrorCode.BAD_REQUEST);
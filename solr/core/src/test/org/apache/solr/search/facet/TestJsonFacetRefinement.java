@@ -133,7 +133,7 @@ public class TestJsonFacetRefinement extends SolrTestCaseHS {
     return ob.getObject();
   }
 
-  void doTestRefine(String facet, String... responsesAndTests) throws Exception {
+  void doTestRefine(String facet, Object... responsesAndTests) throws Exception {
     SolrQueryRequest req = req();
     try {
       int nShards = responsesAndTests.length / 2;
@@ -145,7 +145,7 @@ public class TestJsonFacetRefinement extends SolrTestCaseHS {
       FacetMerger merger = null;
       FacetMerger.Context ctx = new FacetMerger.Context(nShards);
       for (int i = 0; i < nShards; i++) {
-        Object response = fromJSON(responsesAndTests[i]);
+        Object response = responsesAndTests[i] instanceof String ? fromJSON((String) responsesAndTests[i]) : responsesAndTests[i];
         if (i == 0) {
           merger = facetRequest.createFacetMerger(response);
         }
@@ -156,7 +156,7 @@ public class TestJsonFacetRefinement extends SolrTestCaseHS {
       for (int i = 0; i < nShards; i++) {
         ctx.setShard("s" + i);
         Object refinement = merger.getRefinement(ctx);
-        String tests = responsesAndTests[nShards + i];
+        String tests = (String) responsesAndTests[nShards + i];
         match(refinement, 1e-5, tests);
       }
 
@@ -823,6 +823,107 @@ public class TestJsonFacetRefinement extends SolrTestCaseHS {
     }
   }
 
+  @Test
+  public void testSketchRefinement() throws Exception {
+    initServers();
+    final Client client = servers.getClient(random().nextInt());
+    client.queryDefaults().set("shards", servers.getShards(), "debugQuery", Boolean.toString(random().nextBoolean()));
+
+    List<SolrClient> clients = client.getClientProvider().all();
+    assertTrue(clients.size() >= 3); // we only use 2, but assert 3 to also test empty shard
+    final SolrClient c0 = clients.get(0);
+    final SolrClient c1 = clients.get(1);
+
+    client.deleteByQuery("*:*", null);
+    int id = 0;
+
+    // shard1: A=3,B=2,X=1
+    for (String cat : new String[] {"A", "A", "A", "B", "B", "X"}) {
+      c0.add(sdoc("id", id++, "cat_s", cat));
+    }
+    // shard2: C=4,B=2,A=1
+    for (String cat : new String[] {"C", "C", "C", "C", "B", "B", "A"}) {
+      c1.add(sdoc("id", id++, "cat_s", cat));
+    }
+    client.commit();
+
+    // each shard only returns its top bucket and bounds of the others: "C" gets refined if shard1 may have it,
+    // "A" isn't complete and can't be returned
+    for (String refine : new String[] {"true", "sketch"}) {
+      client.testJQ(params("q", "*:*", "rows", "0", "json.facet", "{"
+                           + " cat:{ type:terms, field:cat_s, limit:1, overrequest:0, refine:" + refine + " }"
+                           + "}")
+                    , "facets=={ count: "+id+","
+                    + "  cat:{ buckets:[ {val:C,count:4} ] }"
+                    + "}"
+                    );
+    }
+
+    // shard2 may have "A" since it had a tail bucket with a count of 1, refining it
+    // ties it with "C" and pushes it into the top bucket
+    for (String refine : new String[] {"true", "sketch"}) {
+      client.testJQ(params("q", "*:*", "rows", "0", "json.facet", "{"
+                           + " cat:{ type:terms, field:cat_s, limit:1, overrequest:0, overrefine:1, refine:" + refine + " }"
+                           + "}")
+                    , "facets=={ count: "+id+","
+                    + "  cat:{ buckets:[ {val:A,count:4} ] }"
+                    + "}"
+                    );
+    }
+  }
+
+  /**
+   * Parses a shard response and adds a tail sketch to its facet "x", as shards do with refine:sketch
+   */
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private static Object withTail(String response, TailCountSketch tail) throws IOException {
+    SimpleOrderedMap res = (SimpleOrderedMap) fromJSON(response);
+    ((SimpleOrderedMap) res.get("x")).add("tail", tail.toBytes());
+    return res;
+  }
+
+  @Test
+  public void testSketchMerge() throws Exception {
+    TailCountSketch tail0 = new TailCountSketch(TailCountSketch.MIN_TAIL_SIZE, 1);
+    tail0.add("x3", 3);
+    TailCountSketch tail1 = new TailCountSketch(TailCountSketch.MIN_TAIL_SIZE, 1);
+    tail1.add("x1", 4);
+    String shard0 = "{x: {buckets:[{val:x1, count:10}, {val:x2, count:4}], more:true } }";
+    String shard1 = "{x: {buckets:[{val:x3, count:9}, {val:x4, count:5}], more:true } }";
+
+    // all buckets that the shards didn't return are refined without the sketch
+    doTestRefine("{x : {type:terms, field:X, limit:2, overrefine:2, refine:true} }",
+        withTail(shard0, tail0),
+        withTail(shard1, tail1),
+        "=={x:{_l:[x3,x4]}}",
+        "=={x:{_l:[x1,x2]}}"
+    );
+
+    // x4 and x2 have counts of at most 5+3 and 4+4 on all shards, they can't reach the count of 9 of x3 at the limit
+    doTestRefine("{x : {type:terms, field:X, limit:2, overrefine:2, refine:sketch} }",
+        withTail(shard0, tail0),
+        withTail(shard1, tail1),
+        "=={x:{_l:[x3]}}",
+        "=={x:{_l:[x1]}}"
+    );
+
+    // shard1 doesn't have x1, so it doesn't get any refinement request
+    doTestRefine("{x : {type:terms, field:X, limit:2, overrefine:2, refine:sketch} }",
+        withTail(shard0, tail0),
+        withTail(shard1, new TailCountSketch(TailCountSketch.MIN_TAIL_SIZE, 0)),
+        "=={x:{_l:[x3]}}",
+        null
+    );
+
+    // shards that don't return a sketch, eg. with other sorts, are refined as with refine:true
+    doTestRefine("{x : {type:terms, field:X, limit:2, overrefine:2, refine:sketch} }",
+        shard0,
+        shard1,
+        "=={x:{_l:[x3,x4]}}",
+        "=={x:{_l:[x1,x2]}}"
+    );
+  }
+
   @AwaitsFix(bugUrl="https://issues.apache.org/jira/browse/SOLR-12556")
   @Test
   public void testProcessEmptyRefinement() throws Exception {
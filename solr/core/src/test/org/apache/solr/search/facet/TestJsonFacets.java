@@ -17,6 +17,7 @@
 package org.apache.solr.search.facet;
 
 import java.nio.ByteBuffer;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -30,6 +31,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import com.carrotsearch.randomizedtesting.annotations.ParametersFactory;
 import com.tdunning.math.stats.AVLTreeDigest;
 import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
 import org.apache.solr.JSONTestUtil;
 import org.apache.solr.SolrTestCaseHS;
 import org.apache.solr.client.solrj.SolrClient;
@@ -272,6 +274,124 @@ public class TestJsonFacets extends SolrTestCaseHS {
              );
   }
 
+  public void testMultiThreadedCollection() throws Exception {
+    Client client = Client.localClient();
+    client.deleteByQuery("*:*", null);
+    final int numDocs = atLeast(100);
+    for (int i = 0; i < numDocs; i++) {
+      client.add(sdoc("id", Integer.toString(i),
+                      "cat_s", "c" + random().nextInt(10),
+                      "tags_ss", "t" + random().nextInt(20), "tags_ss", "t" + random().nextInt(20),
+                      "num_i", Integer.toString(random().nextInt(1000)),
+                      "nums_is", Integer.toString(random().nextInt(100)), "nums_is", Integer.toString(random().nextInt(100))), null);
+      if (random().nextInt(10) == 0) {
+        client.commit(); // create more segments
+      }
+    }
+    client.commit();
+
+    final String stats = "facet: { x:'sum(num_i)', y:'sum(nums_is)', u:'unique(tags_ss)', v:'unique(num_i)', h:'hll(num_i)' }";
+    for (String field : new String[] {"cat_s", "tags_ss"}) {
+      for (String sortAndLimit : new String[] {"limit:-1", "limit:3", "limit:3, sort:'x desc'", "limit:3, sort:'u desc'",
+          "limit:3, sort:'h desc'", "limit:-1, prefix:t1"}) {
+        final String facet = "{f:{type:terms, method:dv, field:" + field + ", " + sortAndLimit + ", %s " + stats + "}}";
+        assertSameFacets(facet, "", "threads:" + TestUtil.nextInt(random(), 2, 8) + ",");
+      }
+    }
+  }
+
+  public void testSketchMethod() throws Exception {
+    Client client = Client.localClient();
+    client.deleteByQuery("*:*", null);
+    // a few heavy hitters, hidden in a long tail of values that occur once
+    final String[] heavy = new String[] {"h1", "h2", "h3"};
+    final int[] heavyCounts = new int[] {50, 40, 30};
+    int id = 0;
+    for (int h = 0; h < heavy.length; h++) {
+      for (int i = 0; i < heavyCounts[h]; i++) {
+        client.add(sdoc("id", Integer.toString(id++), "cat_s", heavy[h], "tags_ss", heavy[h], "tags_ss", "tail" + id,
+                        "num_i", Integer.toString(-h), "nums_is", Integer.toString(-h), "nums_is", Integer.toString(id)), null);
+      }
+    }
+    final int numTail = 300;
+    for (int i = 0; i < numTail; i++) {
+      client.add(sdoc("id", Integer.toString(id++), "cat_s", "tail" + id, "tags_ss", "tail" + id,
+                      "num_i", Integer.toString(id), "nums_is", Integer.toString(id)), null);
+      if (random().nextInt(50) == 0) {
+        client.commit(); // create more segments
+      }
+    }
+    client.commit();
+
+    // at most 540 values per field, so values occurring more than 540/20 times must be found with a sketch of 20
+    for (String field : new String[] {"cat_s", "tags_ss", "num_i", "nums_is"}) {
+      for (String options : new String[] {"limit:3", "limit:3, sketchSize:20", "limit:2, offset:1, sketchSize:20",
+          "limit:3, sketchSize:20, facet:{x:'sum(num_i)'}", "limit:3, sketchSize:20, missing:true",
+          "limit:5", "limit:5, mincount:2", "limit:3, sort:'x desc', prelim_sort:'count desc', facet:{x:'sum(num_i)'}"}) {
+        final String facet = "{f:{type:terms, field:" + field + ", " + options + ", method:%s}}";
+        assertSameFacets(facet, "dv", "sketch");
+      }
+    }
+
+    // the sketch is bounded by sketchSize rather than by the 303 unique values, and still finds the values that
+    // occur more than 420/20 times
+    for (String field : new String[] {"cat_s", "num_i"}) {
+      assertJQ(req("q", "*:*", "rows", "0", "debugQuery", "true",
+          "json.facet", "{f:{type:terms, field:" + field + ", limit:3, sketchSize:20, method:sketch}}")
+          , "/facets/f/buckets/[0]/count==50"
+          , "/facets/f/buckets/[1]/count==40"
+          , "/facets/f/buckets/[2]/count==30"
+          , "/debug/facet-trace/sub-facet/[0]/processor=='FacetFieldProcessorBySketch'"
+          , "/debug/facet-trace/sub-facet/[0]/sketchSize==20"
+          , "/debug/facet-trace/sub-facet/[0]/sketchEvicted==true"
+      );
+    }
+    // the default size depends on the requested buckets
+    assertJQ(req("q", "*:*", "rows", "0", "debugQuery", "true",
+        "json.facet", "{f:{type:terms, field:cat_s, limit:100, method:sketch}}")
+        , "/debug/facet-trace/sub-facet/[0]/sketchSize==1600"
+        , "/debug/facet-trace/sub-facet/[0]/sketchEvicted==false"
+    );
+  }
+
+  public void testRangeRollup() throws Exception {
+    Client client = Client.localClient();
+    client.deleteByQuery("*:*", null);
+    final long start = Instant.parse("2020-01-01T00:00:00Z").toEpochMilli();
+    final int numDocs = atLeast(200);
+    for (int i = 0; i < numDocs; i++) {
+      // three hours of documents, starting one hour before the facets
+      final String when = Instant.ofEpochMilli(start - 3600_000L + random().nextInt(3 * 3600_000)).toString();
+      client.add(sdoc("id", Integer.toString(i), "when_dtr", when, "when_dtd", when,
+                      "cat_s", "c" + random().nextInt(3), "num_i", Integer.toString(random().nextInt(1000))), null);
+      if (random().nextInt(20) == 0) {
+        client.commit(); // create more segments
+      }
+    }
+    client.deleteByQuery("cat_s:c0 AND num_i:[0 TO 100]", null);
+    client.commit();
+
+    // when_dtr has a rollup interval of one minute, so all but the unaligned ranges are computed from rollups
+    for (String options : new String[] {"gap:'+1MINUTE'", "gap:'+15MINUTES'", "gap:'+1HOUR', other:all",
+        "gap:'+7MINUTES', hardend:true, facet:{x:'sum(num_i)'}", "gap:'+90SECONDS', facet:{x:'sum(num_i)'}",
+        "gap:'+10MINUTES', include:edge, facet:{x:'sum(num_i)', y:'sum(num_i)'}", "gap:'+1HOUR', facet:{x:'avg(num_i)'}",
+        "gap:'+1HOUR', facet:{x:'sum(num_i)', c:{type:terms, field:cat_s}}"}) {
+      final String facet = "{f:{type:range, field:%s, start:'2020-01-01T00:00:00Z', end:'2020-01-01T02:00:00Z', " + options + "}}";
+      for (String fq : new String[] {"*:*", "cat_s:c1"}) {
+        final String expected = h.query(req("q", "*:*", "fq", fq, "rows", "0", "omitHeader", "true",
+            "json.facet", String.format(Locale.ROOT, facet, "when_dtd")));
+        final String actual = h.query(req("q", "*:*", "fq", fq, "rows", "0", "omitHeader", "true",
+            "json.facet", String.format(Locale.ROOT, facet, "when_dtr")));
+        assertEquals(facet, expected, actual);
+      }
+    }
+    // the rollups are kept in the rangeRollupCache of the searcher
+    h.getCore().withSearcher(searcher -> {
+      assertTrue(searcher.getRangeRollupCache().size() > 0);
+      return null;
+    });
+  }
+
   public void testBehaviorEquivilenceOfUninvertibleFalse() throws Exception {
     Client client = Client.localClient();
     indexSimple(client);
@@ -3206,6 +3326,7 @@ public class TestJsonFacets extends SolrTestCaseHS {
     parent = sdoc("id", "1", "type_s","book", "book_s","A", "v_t","q");
     client.add(parent, null);
 
+    client.commit(); // each book in its own segment, to also check merging of per-thread counts
     parent = sdoc("id", "2", "type_s","book", "book_s","B", "v_t","q w");
     parent.addChildDocument( sdoc("id","2.1", "type_s","page", "page_s","a", "v_t","x y z")  );
     parent.addChildDocument( sdoc("id","2.2", "type_s","page", "page_s","a", "v_t","x1   z")  );
@@ -3215,6 +3336,7 @@ public class TestJsonFacets extends SolrTestCaseHS {
     parent.addChildDocument( sdoc("id","2.6", "type_s","page", "page_s","c", "v_t","    z" )  );
     client.add(parent, null);
 
+    client.commit();
     parent = sdoc("id", "3", "type_s","book", "book_s","C", "v_t","q w e");
     parent.addChildDocument( sdoc("id","3.1", "type_s","page", "page_s","b", "v_t","x y  ") );
     parent.addChildDocument( sdoc("id","3.2", "type_s","page", "page_s","d", "v_t","x    ")  );
@@ -3222,6 +3344,7 @@ public class TestJsonFacets extends SolrTestCaseHS {
     parent.addChildDocument( sdoc("id","3.4", "type_s","page", "page_s","f", "v_t","    z")  );
     client.add(parent, null);
 
+    client.commit();
     parent = sdoc("id", "4", "type_s","book", "book_s","D", "v_t","e");
     client.add(parent, null);
 
@@ -3264,6 +3387,33 @@ public class TestJsonFacets extends SolrTestCaseHS {
             "    ]}" +
             "}"
     );
+
+    // with threads, segments are collected concurrently and the block counts of each thread get merged
+    client.testJQ(params(p, "q", "type_s:page"
+        , "json.facet", "{" +
+            "  pages: {" +
+            "    type:terms," +
+            "    field:page_s," +
+            "    method:dv," +
+            "    threads:" + TestUtil.nextInt(random(), 2, 4) + "," +
+            "    limit:-1," +
+            "    facet: {" +
+            "           via_field:\"uniqueBlock(_root_)\","+
+            "           via_query:\"uniqueBlock({!v=type_s:book})\" }"+
+            "  }" +
+            "}" )
+        , "facets=={ count:10," +
+            "pages:{" +
+            "    buckets:[ " +
+            "     {val:a, count:3, via_field:1, via_query:1}," +
+            "     {val:b, count:2, via_field:2, via_query:2}," +
+            "     {val:c, count:2, via_field:1, via_query:1}," +
+            "     {val:d, count:1, via_field:1, via_query:1}," +
+            "     {val:e, count:1, via_field:1, via_query:1}," +
+            "     {val:f, count:1, via_field:1, via_query:1}" +
+            "    ]}" +
+            "}"
+    );
   }
 
   /**
@@ -22,6 +22,7 @@ import java.util.Map;
 import org.apache.lucene.queries.function.valuesource.IntFieldSource;
 
 import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.SolrException;
 import org.apache.solr.common.util.Utils;
 import org.apache.solr.request.SolrQueryRequest;
 import org.junit.BeforeClass;
@@ -121,4 +122,24 @@ public class TestJsonFacetsStatsParsing extends SolrTestCaseJ4 {
       assertNull(x.localParams.get("yaz"));
     }
   }
+
+  @SuppressWarnings({"unchecked"})
+  public void testPercentileCompression() throws Exception {
+    try (SolrQueryRequest req = req()) {
+      final FacetRequest fr = FacetRequest.parse
+        (req, (Map<String,Object>) ObjectBuilder.fromJSON
+         ("{ p1:'percentile(foo_i,50)', p2:{type:func, func:'percentile(foo_i,50)', compression:20} }"));
+
+      final Map<String, AggValueSource> stats = fr.getFacetStats();
+      final PercentileAgg p1 = (PercentileAgg) stats.get("p1");
+      final PercentileAgg p2 = (PercentileAgg) stats.get("p2");
+      assertEquals(PercentileSketch.DEFAULT_COMPRESSION, p1.compression, 0d);
+      assertEquals(20d, p2.compression, 0d);
+      assertFalse(p1.equals(p2));
+
+      expectThrows(SolrException.class, () -> FacetRequest.parse
+        (req, (Map<String,Object>) ObjectBuilder.fromJSON
+         ("{ p:{type:func, func:'percentile(foo_i,50)', compression:0} }")));
+    }
+  }
 }
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.facet;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.tdunning.math.stats.AVLTreeDigest;
+import org.apache.lucene.util.TestUtil;
+import org.apache.solr.SolrTestCase;
+
+public class TestPercentileSketch extends SolrTestCase {
+
+  private static final double[] QUANTILES = new double[] {0, 0.001, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999, 1};
+
+  /** linear interpolation between the closest ranks */
+  private static double exactQuantile(double[] sortedValues, double q) {
+    final double index = q * (sortedValues.length - 1);
+    final int lo = (int) index;
+    final int hi = Math.min(lo + 1, sortedValues.length - 1);
+    return sortedValues[lo] + (sortedValues[hi] - sortedValues[lo]) * (index - lo);
+  }
+
+  public void testEmpty() throws Exception {
+    PercentileSketch sketch = new PercentileSketch(PercentileSketch.DEFAULT_COMPRESSION);
+    assertEquals(0, sketch.count());
+    assertTrue(Double.isNaN(sketch.quantile(0.5)));
+    assertEquals(0, PercentileSketch.fromBytes(sketch.toBytes(), PercentileSketch.DEFAULT_COMPRESSION).count());
+  }
+
+  public void testSmallSketchesAreExact() throws Exception {
+    final int numValues = atLeast(1) + random().nextInt(400);
+    final double[] values = new double[numValues];
+    PercentileSketch sketch = new PercentileSketch(PercentileSketch.DEFAULT_COMPRESSION);
+    for (int i = 0; i < numValues; i++) {
+      values[i] = random().nextBoolean() ? random().nextInt(1000) : random().nextGaussian();
+      sketch.add(values[i]);
+    }
+    Arrays.sort(values);
+    assertEquals(numValues, sketch.count());
+    PercentileSketch copy = PercentileSketch.fromBytes(sketch.toBytes(), PercentileSketch.DEFAULT_COMPRESSION);
+    for (double q : QUANTILES) {
+      assertEquals(exactQuantile(values, q), sketch.quantile(q), 1e-9);
+      assertEquals(sketch.quantile(q), copy.quantile(q), 0d);
+    }
+  }
+
+  public void testAccuracy() throws Exception {
+    final int numValues = atLeast(10000);
+    final double[] values = new double[numValues];
+    final PercentileSketch[] parts = new PercentileSketch[TestUtil.nextInt(random(), 1, 5)];
+    for (int i = 0; i < parts.length; i++) {
+      parts[i] = new PercentileSketch(PercentileSketch.DEFAULT_COMPRESSION);
+    }
+    for (int i = 0; i < numValues; i++) {
+      values[i] = random().nextGaussian() * 1000;
+      parts[random().nextInt(parts.length)].add(values[i]);
+    }
+    Arrays.sort(values);
+
+    // merge like shards do, through the binary format
+    PercentileSketch merged = new PercentileSketch(PercentileSketch.DEFAULT_COMPRESSION);
+    for (PercentileSketch part : parts) {
+      merged.addBytes(part.toBytes());
+    }
+    assertEquals(numValues, merged.count());
+    assertTrue(merged.toBytes().length < 16 * PercentileSketch.DEFAULT_COMPRESSION * 5);
+    for (double q : QUANTILES) {
+      final double estimate = merged.quantile(q);
+      int rank = Arrays.binarySearch(values, estimate);
+      if (rank < 0) {
+        rank = -1 - rank;
+      }
+      assertEquals("q=" + q, q, (double) rank / numValues, 0.01);
+    }
+  }
+
+  public void testLowerCompressionUsesLessSpace() throws Exception {
+    PercentileSketch precise = new PercentileSketch(200);
+    PercentileSketch compact = new PercentileSketch(20);
+    for (int i = 0; i < 100000; i++) {
+      double value = random().nextDouble();
+      precise.add(value);
+      compact.add(value);
+    }
+    assertTrue(compact.toBytes().length < precise.toBytes().length);
+  }
+
+  public void testReadLegacyDigest() throws Exception {
+    AVLTreeDigest digest = new AVLTreeDigest(100);
+    PercentileSketch expected = new PercentileSketch(PercentileSketch.DEFAULT_COMPRESSION);
+    for (int i = 0; i < 50; i++) {
+      int value = random().nextInt(100);
+      digest.add(value);
+      expected.add(value);
+    }
+    digest.compress();
+    ByteBuffer buf = ByteBuffer.allocate(digest.smallByteSize());
+    digest.asSmallBytes(buf);
+
+    PercentileSketch sketch = PercentileSketch.fromBytes(Arrays.copyOf(buf.array(), buf.position()),
+        PercentileSketch.DEFAULT_COMPRESSION);
+    assertEquals(50, sketch.count());
+    for (double q : QUANTILES) {
+      assertEquals(expected.quantile(q), sketch.quantile(q), 1e-3);
+    }
+  }
+
+  public void testWriteLegacyDigest() throws Exception {
+    PercentileSketch sketch = new PercentileSketch(PercentileSketch.DEFAULT_COMPRESSION);
+    for (int i = 0; i < 50; i++) {
+      sketch.add(random().nextInt(100));
+    }
+
+    // what a coordinator of an older version reads
+    AVLTreeDigest digest = AVLTreeDigest.fromBytes(ByteBuffer.wrap(sketch.toLegacyBytes()));
+    assertEquals(50, digest.size());
+    PercentileSketch copy = PercentileSketch.fromBytes(sketch.toLegacyBytes(), PercentileSketch.DEFAULT_COMPRESSION);
+    for (double q : QUANTILES) {
+      assertEquals(sketch.quantile(q), copy.quantile(q), 1e-3);
+    }
+  }
+}
@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.solr.common.util.FastInputStream;
+import org.apache.solr.common.util.JavaBinCodec;
+
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.BATCH;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.BOOLEAN;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.DATE;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.DOUBLE;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.END;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.LONG;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.NULL;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.OBJECT;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.SCHEMA;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.STRING;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.VERSION;
+
+/**
+ * Reads the tuples written by {@link ColumnarTupleWriter}. Values are converted to the types the JSON parser
+ * would return, i.e. longs, doubles, booleans, strings and dates as ISO-8601 strings.
+ * <p>
+ * When it is given the fields to read, the columns of other fields are skipped without being decoded.
+ */
+public class ColumnarTupleStreamParser implements TupleStreamParser {
+
+  private final InputStream is;
+  private final FastInputStream fis;
+  private final Set<String> fields;
+
+  private final List<String> names = new ArrayList<>();
+  private final List<ColumnVector> columns = new ArrayList<>();
+  private int rows;
+  private int row;
+  private boolean ended;
+
+  public ColumnarTupleStreamParser(InputStream is) throws IOException {
+    this(is, null);
+  }
+
+  /**
+   * @param fields the fields to read, or null to read all of them
+   */
+  public ColumnarTupleStreamParser(InputStream is, Set<String> fields) throws IOException {
+    this.is = is;
+    this.fis = FastInputStream.wrap(is);
+    this.fields = fields;
+    byte version = fis.readByte();
+    if (version != VERSION) {
+      throw new IOException("Invalid version (expected " + VERSION + ", but " + version
+          + ") or the data is not in 'columnar' format");
+    }
+  }
+
+  @Override
+  public Map<String, Object> next() throws IOException {
+    while (row >= rows) {
+      if (ended || !readBatch()) {
+        ended = true;
+        return null;
+      }
+    }
+    Map<String, Object> tuple = new LinkedHashMap<>();
+    for (int i = 0; i < columns.size(); i++) {
+      ColumnVector column = columns.get(i);
+      if (column != null && column.isPresent(row)) {
+        tuple.put(names.get(i), column.get(row));
+      }
+    }
+    row++;
+    return tuple;
+  }
+
+  /**
+   * @return false if the end of the stream was reached
+   */
+  private boolean readBatch() throws IOException {
+    for (;;) {
+      byte record = fis.readByte();
+      switch (record) {
+        case SCHEMA:
+          for (int i = JavaBinCodec.readVInt(fis); i > 0; i--) {
+            byte[] name = new byte[JavaBinCodec.readVInt(fis)];
+            fis.readFully(name);
+            names.add(new String(name, StandardCharsets.UTF_8));
+            columns.add(null);
+          }
+          break;
+        case BATCH:
+          rows = JavaBinCodec.readVInt(fis);
+          row = 0;
+          int numColumns = JavaBinCodec.readVInt(fis);
+          for (int i = 0; i < columns.size(); i++) {
+            byte type = i < numColumns ? fis.readByte() : NULL;
+            if (type == NULL) {
+              columns.set(i, null);
+              continue;
+            }
+            int length = JavaBinCodec.readVInt(fis);
+            if (fields != null && !fields.contains(names.get(i))) {
+              fis.skipBytes(length);
+              columns.set(i, null);
+            } else {
+              columns.set(i, ColumnVector.read(fis, type, rows));
+            }
+          }
+          return true;
+        case END:
+          return false;
+        default:
+          throw new IOException("Unexpected record " + record + " in the 'columnar' format");
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    is.close();
+  }
+
+  /** The decoded values of a field in the current batch, indexed by row. */
+  private static class ColumnVector {
+    final byte type;
+    final byte[] present;
+    long[] longs;
+    double[] doubles;
+    Object[] objects;
+
+    ColumnVector(byte type, byte[] present) {
+      this.type = type;
+      this.present = present;
+    }
+
+    static ColumnVector read(FastInputStream fis, byte type, int rows) throws IOException {
+      byte[] present = new byte[(rows + 7) / 8];
+      fis.readFully(present);
+      ColumnVector column = new ColumnVector(type, present);
+      switch (type) {
+        case LONG:
+        case DATE:
+        case BOOLEAN:
+          column.longs = new long[rows];
+          break;
+        case DOUBLE:
+          column.doubles = new double[rows];
+          break;
+        case STRING:
+          column.objects = new Object[rows];
+          break;
+        case OBJECT: {
+          List<?> values = (List<?>) new JavaBinCodec().unmarshal(fis);
+          column.objects = new Object[rows];
+          for (int i = 0, v = 0; i < rows; i++) {
+            if (column.isPresent(i)) column.objects[i] = toJsonType(values.get(v++));
+          }
+          return column;
+        }
+        default:
+          throw new IOException("Unknown column type " + type);
+      }
+      for (int i = 0; i < rows; i++) {
+        if (!column.isPresent(i)) continue;
+        switch (type) {
+          case LONG:
+          case DATE:
+            column.longs[i] = fis.readLong();
+            break;
+          case BOOLEAN:
+            column.longs[i] = fis.readBoolean() ? 1 : 0;
+            break;
+          case DOUBLE:
+            column.doubles[i] = fis.readDouble();
+            break;
+          default:
+            byte[] bytes = new byte[JavaBinCodec.readVInt(fis)];
+            fis.readFully(bytes);
+            column.objects[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+      }
+      return column;
+    }
+
+    boolean isPresent(int row) {
+      return (present[row >>> 3] & (1 << (row & 7))) != 0;
+    }
+
+    Object get(int row) {
+      switch (type) {
+        case LONG:
+          return longs[row];
+        case DATE:
+          return Instant.ofEpochMilli(longs[row]).toString();
+        case BOOLEAN:
+          return longs[row] != 0;
+        case DOUBLE:
+          return doubles[row];
+        default:
+          return objects[row];
+      }
+    }
+
+    private static Object toJsonType(Object v) {
+      if (v instanceof Integer || v instanceof Short || v instanceof Byte) {
+        return ((Number) v).longValue();
+      }
+      if (v instanceof Float) {
+        return ((Float) v).doubleValue();
+      }
+      if (v instanceof Date) {
+        return ((Date) v).toInstant().toString();
+      }
+      if (v instanceof CharSequence) {
+        return v.toString();
+      }
+      if (v instanceof Collection) {
+        List<Object> values = new ArrayList<>(((Collection<?>) v).size());
+        for (Object o : (Collection<?>) v) {
+          values.add(toJsonType(o));
+        }
+        return values;
+      }
+      if (v instanceof Map) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (Map.Entry<?, ?> e : ((Map<?, ?>) v).entrySet()) {
+          map.put(String.valueOf(e.getKey()), toJsonType(e.getValue()));
+        }
+        return map;
+      }
+      return v;
+    }
+  }
+}
@@ -0,0 +1,435 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.solr.common.IteratorWriter;
+import org.apache.solr.common.MapWriter;
+import org.apache.solr.common.PushWriter;
+import org.apache.solr.common.util.FastOutputStream;
+import org.apache.solr.common.util.JavaBinCodec;
+import org.apache.solr.common.util.Utf8CharSequence;
+
+/**
+ * Writes tuples in batches of columns rather than as one map per tuple, to be read by
+ * {@link ColumnarTupleStreamParser}. This is the format of the <code>columnar</code> response type of
+ * <code>/export</code>.
+ * <p>
+ * The names of the fields are only sent the first time they are seen. Each batch then has, for each field, the
+ * type of its values in the batch, a bitmap of the tuples that have a value, and the values themselves in a
+ * primitive encoding when they all have the same type. The length of each column is written before it, so that
+ * a reader that doesn't need a field skips it without decoding it.
+ * <p>
+ * Only the docs of a response are written, in whichever map they are nested; the other entries are dropped.
+ */
+public class ColumnarTupleWriter implements PushWriter {
+
+  public static final int DEFAULT_BATCH_SIZE = 1000;
+
+  static final byte VERSION = 1;
+
+  // records
+  static final byte SCHEMA = 1;
+  static final byte BATCH = 2;
+  static final byte END = 3;
+
+  // column types
+  static final byte NULL = 0;
+  static final byte LONG = 1;
+  static final byte DOUBLE = 2;
+  static final byte BOOLEAN = 3;
+  static final byte DATE = 4;
+  static final byte STRING = 5;
+  static final byte OBJECT = 6;
+
+  private final FastOutputStream out;
+  private final int batchSize;
+
+  private final Map<String, Column> columns = new HashMap<>();
+  private final List<Column> schema = new ArrayList<>();
+  private int schemaSent;
+  private int rows;
+
+  private final ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+  private final FastOutputStream payload = new FastOutputStream(payloadBytes);
+
+  private final MapWriter.EntryWriter rowWriter = new MapWriter.EntryWriter() {
+    @Override
+    public MapWriter.EntryWriter put(CharSequence k, Object v) throws IOException {
+      if (v != null) {
+        column(k).put(rows, v);
+      }
+      return this;
+    }
+
+    @Override
+    public MapWriter.EntryWriter put(CharSequence k, int v) {
+      column(k).putLong(rows, v, LONG);
+      return this;
+    }
+
+    @Override
+    public MapWriter.EntryWriter put(CharSequence k, long v) {
+      column(k).putLong(rows, v, LONG);
+      return this;
+    }
+
+    @Override
+    public MapWriter.EntryWriter put(CharSequence k, float v) {
+      column(k).putDouble(rows, v);
+      return this;
+    }
+
+    @Override
+    public MapWriter.EntryWriter put(CharSequence k, double v) {
+      column(k).putDouble(rows, v);
+      return this;
+    }
+
+    @Override
+    public MapWriter.EntryWriter put(CharSequence k, boolean v) {
+      column(k).putLong(rows, v ? 1 : 0, BOOLEAN);
+      return this;
+    }
+  };
+
+  private final IteratorWriter.ItemWriter docWriter = new IteratorWriter.ItemWriter() {
+    @Override
+    public IteratorWriter.ItemWriter add(Object o) throws IOException {
+      addRow(o);
+      return this;
+    }
+  };
+
+  private final MapWriter.EntryWriter responseWriter = new MapWriter.EntryWriter() {
+    @Override
+    public MapWriter.EntryWriter put(CharSequence k, Object v) throws IOException {
+      if ("docs".contentEquals(k)) {
+        if (v instanceof IteratorWriter) {
+          writeIterator((IteratorWriter) v);
+        } else if (v instanceof Collection) {
+          for (Object o : (Collection<?>) v) {
+            addRow(o);
+          }
+        }
+      } else if (v instanceof MapWriter) {
+        ((MapWriter) v).writeMap(this);
+      } else if (v instanceof Map) {
+        for (Map.Entry<?, ?> e : ((Map<?, ?>) v).entrySet()) {
+          put(String.valueOf(e.getKey()), e.getValue());
+        }
+      }
+      return this;
+    }
+  };
+
+  public ColumnarTupleWriter(OutputStream os) throws IOException {
+    this(os, DEFAULT_BATCH_SIZE);
+  }
+
+  public ColumnarTupleWriter(OutputStream os, int batchSize) throws IOException {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+    }
+    this.out = FastOutputStream.wrap(os);
+    this.batchSize = batchSize;
+    out.writeByte(VERSION);
+  }
+
+  /** Writes the docs found in the given map, at any depth. */
+  @Override
+  public void writeMap(MapWriter mw) throws IOException {
+    mw.writeMap(responseWriter);
+  }
+
+  /** Writes each item as a tuple. */
+  @Override
+  public void writeIterator(IteratorWriter iw) throws IOException {
+    iw.writeIter(docWriter);
+  }
+
+  /** Adds a tuple, which is either a {@link MapWriter} or a {@link Map}. */
+  public void addRow(Object o) throws IOException {
+    if (o instanceof MapWriter) {
+      ((MapWriter) o).writeMap(rowWriter);
+    } else if (o instanceof Map) {
+      for (Map.Entry<?, ?> e : ((Map<?, ?>) o).entrySet()) {
+        rowWriter.put(String.valueOf(e.getKey()), e.getValue());
+      }
+    } else {
+      throw new IOException("Tuples must be maps, got " + (o == null ? null : o.getClass().getName()));
+    }
+    if (++rows == batchSize) {
+      writeBatch();
+    }
+  }
+
+  private Column column(CharSequence k) {
+    String name = k.toString();
+    Column column = columns.get(name);
+    if (column == null) {
+      column = new Column(name, batchSize);
+      columns.put(name, column);
+      schema.add(column);
+    }
+    return column;
+  }
+
+  private void writeBatch() throws IOException {
+    if (rows == 0) {
+      return;
+    }
+    if (schemaSent < schema.size()) {
+      out.writeByte(SCHEMA);
+      JavaBinCodec.writeVInt(schema.size() - schemaSent, out);
+      for (; schemaSent < schema.size(); schemaSent++) {
+        byte[] name = schema.get(schemaSent).name.getBytes(StandardCharsets.UTF_8);
+        JavaBinCodec.writeVInt(name.length, out);
+        out.write(name);
+      }
+    }
+    out.writeByte(BATCH);
+    JavaBinCodec.writeVInt(rows, out);
+    JavaBinCodec.writeVInt(schema.size(), out);
+    for (Column column : schema) {
+      out.writeByte(column.type);
+      if (column.type != NULL) {
+        payloadBytes.reset();
+        column.write(payload, rows);
+        payload.flushBuffer();
+        JavaBinCodec.writeVInt(payloadBytes.size(), out);
+        payloadBytes.writeTo(out);
+      }
+      column.reset();
+    }
+    rows = 0;
+  }
+
+  /** Writes the tuples of the last batch and the end of the stream, the underlying stream isn't closed. */
+  @Override
+  public void close() throws IOException {
+    writeBatch();
+    out.writeByte(END);
+    out.flushBuffer();
+  }
+
+  /**
+   * The values of one field in the current batch, indexed by row. The column keeps its primitive encoding as long
+   * as all the values have the same type, and falls back to {@link #OBJECT} otherwise.
+   */
+  private static class Column {
+    final String name;
+    final int capacity;
+    final BitSet present;
+    byte type = NULL;
+    long[] longs;
+    double[] doubles;
+    byte[][] strings;
+    Object[] objects;
+
+    Column(String name, int batchSize) {
+      this.name = name;
+      this.capacity = batchSize;
+      this.present = new BitSet(batchSize);
+    }
+
+    void put(int row, Object v) {
+      if (v instanceof Long || v instanceof Integer || v instanceof Short || v instanceof Byte) {
+        putLong(row, ((Number) v).longValue(), LONG);
+      } else if (v instanceof Double || v instanceof Float) {
+        putDouble(row, ((Number) v).doubleValue());
+      } else if (v instanceof Boolean) {
+        putLong(row, (Boolean) v ? 1 : 0, BOOLEAN);
+      } else if (v instanceof Date) {
+        putLong(row, ((Date) v).getTime(), DATE);
+      } else if (v instanceof CharSequence) {
+        putString(row, (CharSequence) v);
+      } else {
+        putObject(row, normalize(v));
+      }
+    }
+
+    /** Longs, booleans and dates all share the long values. */
+    void putLong(int row, long v, byte t) {
+      if (!setType(t)) {
+        putObject(row, t == BOOLEAN ? (Object) (v != 0) : t == DATE ? new Date(v) : (Object) v);
+        return;
+      }
+      if (longs == null) longs = new long[capacity];
+      longs[row] = v;
+      present.set(row);
+    }
+
+    void putDouble(int row, double v) {
+      if (!setType(DOUBLE)) {
+        putObject(row, v);
+        return;
+      }
+      if (doubles == null) doubles = new double[capacity];
+      doubles[row] = v;
+      present.set(row);
+    }
+
+    void putString(int row, CharSequence v) {
+      if (!setType(STRING)) {
+        putObject(row, v.toString());
+        return;
+      }
+      if (strings == null) strings = new byte[capacity][];
+      // export writers reuse their char sequences, so the bytes are copied
+      if (v instanceof Utf8CharSequence) {
+        Utf8CharSequence utf8 = (Utf8CharSequence) v;
+        byte[] bytes = new byte[utf8.size()];
+        for (int written = 0; written < bytes.length; ) {
+          written += utf8.write(written, bytes, written);
+        }
+        strings[row] = bytes;
+      } else {
+        strings[row] = v.toString().getBytes(StandardCharsets.UTF_8);
+      }
+      present.set(row);
+    }
+
+    void putObject(int row, Object v) {
+      if (type != OBJECT) {
+        if (objects == null) objects = new Object[capacity];
+        for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+          objects[i] = get(i);
+        }
+        type = OBJECT;
+      }
+      objects[row] = v;
+      present.set(row);
+    }
+
+    /**
+     * @return false if the column already has values of another type, in which case the value must be put as an
+     * object
+     */
+    private boolean setType(byte t) {
+      if (type == NULL) {
+        type = t;
+      }
+      return type == t;
+    }
+
+    private Object get(int row) {
+      switch (type) {
+        case LONG:
+          return longs[row];
+        case BOOLEAN:
+          return longs[row] != 0;
+        case DATE:
+          return new Date(longs[row]);
+        case DOUBLE:
+          return doubles[row];
+        case STRING:
+          return new String(strings[row], StandardCharsets.UTF_8);
+        default:
+          return objects[row];
+      }
+    }
+
+    void write(FastOutputStream os, int rows) throws IOException {
+      for (int i = 0; i < rows; i += 8) {
+        int b = 0;
+        for (int j = 0; j < 8 && i + j < rows; j++) {
+          if (present.get(i + j)) b |= 1 << j;
+        }
+        os.writeByte(b);
+      }
+      if (type == OBJECT) {
+        List<Object> values = new ArrayList<>(present.cardinality());
+        for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+          values.add(objects[i]);
+        }
+        new JavaBinCodec().marshal(values, os);
+        return;
+      }
+      for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+        switch (type) {
+          case LONG:
+          case DATE:
+            os.writeLong(longs[i]);
+            break;
+          case BOOLEAN:
+            os.writeBoolean(longs[i] != 0);
+            break;
+          case DOUBLE:
+            os.writeDouble(doubles[i]);
+            break;
+          case STRING:
+            JavaBinCodec.writeVInt(strings[i].length, os);
+            os.write(strings[i]);
+            break;
+          default:
+            throw new IllegalStateException("Unknown column type " + type);
+        }
+      }
+    }
+
+    void reset() {
+      type = NULL;
+      present.clear();
+      if (strings != null) Arrays.fill(strings, null);
+      if (objects != null) Arrays.fill(objects, null);
+    }
+
+    /** Copies values that may be reused by the caller, e.g. multi-valued fields of the export writers. */
+    private static Object normalize(Object v) {
+      if (v instanceof CharSequence) {
+        return v.toString();
+      }
+      if (v instanceof IteratorWriter) {
+        List<Object> values = new ArrayList<>();
+        ((IteratorWriter) v).toList(values);
+        v = values;
+      }
+      if (v instanceof Collection) {
+        List<Object> values = new ArrayList<>(((Collection<?>) v).size());
+        for (Object o : (Collection<?>) v) {
+          values.add(normalize(o));
+        }
+        return values;
+      }
+      if (v instanceof MapWriter) {
+        return normalize(((MapWriter) v).toMap(new LinkedHashMap<>()));
+      }
+      if (v instanceof Map) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (Map.Entry<?, ?> e : ((Map<?, ?>) v).entrySet()) {
+          map.put(String.valueOf(e.getKey()), normalize(e.getValue()));
+        }
+        return map;
+      }
+      return v;
+    }
+  }
+}
@@ -21,6 +21,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
 
 import org.apache.solr.client.solrj.io.Tuple;
 import org.apache.solr.client.solrj.io.comp.StreamComparator;
@@ -40,6 +42,12 @@ import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
  * You are expected to provide a set of fields for which the hash will be calculated from. If a tuple does
  * not contain a value (ie, null) for one of the fields the hash is being computed on then that tuple will 
  * not be considered a match to anything. Ie, all fields which are part of the hash must have a non-null value.
+ * <p>
+ * The number of hashed tuples kept in memory may be limited with <code>maxInMemory</code>. When the hashStream has
+ * more tuples, it is joined as a grace hash join: both streams are partitioned by hash to temporary files, each
+ * partition is joined on its own, and the joined tuples are merged back in the order of the fullStream. Each
+ * partition of the hashStream is still read into memory, so <code>maxInMemory</code> should be well below what
+ * fits in memory when the hashStream is much larger.
  * @since 6.0.0
 **/
 public class HashJoinStream extends TupleStream implements Expressible {
@@ -55,19 +63,43 @@ public class HashJoinStream extends TupleStream implements Expressible {
   protected Tuple workingFullTuple = null;
   protected String workingFullHash = null;
   protected int workngHashSetIdx = 0;
+
+  protected int maxInMemory = Integer.MAX_VALUE;
+
+  // set once the hashed tuples didn't fit in memory
+  private SpilledPartitions spilledHashed;
+  private SpilledPartitions spilledJoined;
+  private PriorityQueue<SpilledJoin> joined;
+  private Tuple eofTuple;
+
+  // the hash of spilled tuples, as computed before they were written, and the position in the fullStream of the
+  // tuples joined from spilled partitions
+  private static final String HASH = "_hashJoinHash_";
+  private static final String SEQ = "_hashJoinSeq_";
+  private static final int NUM_PARTITIONS = 32;
   
   public HashJoinStream(TupleStream fullStream, TupleStream hashStream, List<String> hashOn) throws IOException {
     init(fullStream, hashStream, hashOn);
   }
+
+  /**
+   * @param maxInMemory how many tuples of the hashStream are kept in memory, the hashStream is partitioned to
+   *                    temporary files if it has more
+   */
+  public HashJoinStream(TupleStream fullStream, TupleStream hashStream, List<String> hashOn, int maxInMemory) throws IOException {
+    init(fullStream, hashStream, hashOn);
+    setMaxInMemory(maxInMemory);
+  }
   
   public HashJoinStream(StreamExpression expression,StreamFactory factory) throws IOException {
     // grab all parameters out
     List<StreamExpression> streamExpressions = factory.getExpressionOperandsRepresentingTypes(expression, Expressible.class, TupleStream.class);
     StreamExpressionNamedParameter hashStreamExpression = factory.getNamedOperand(expression, "hashed");
     StreamExpressionNamedParameter onExpression = factory.getNamedOperand(expression, "on");
+    StreamExpressionNamedParameter maxInMemoryExpression = factory.getNamedOperand(expression, "maxInMemory");
     
     // validate expression contains only what we want.
-    if(expression.getParameters().size() != streamExpressions.size() + 2){
+    if(expression.getParameters().size() != streamExpressions.size() + 2 + (null == maxInMemoryExpression ? 0 : 1)){
       throw new IOException(String.format(Locale.ROOT,"Invalid expression %s - unknown operands found", expression));
     }
     
@@ -94,6 +126,23 @@ public class HashJoinStream extends TupleStream implements Expressible {
           factory.constructStream((StreamExpression)hashStreamExpression.getParameter()),
           hashOn
         );
+
+    if(null != maxInMemoryExpression){
+      String maxInMemoryStr = ((StreamExpressionValue)maxInMemoryExpression.getParameter()).getValue();
+      try{
+        setMaxInMemory(Integer.parseInt(maxInMemoryStr));
+      }
+      catch(IllegalArgumentException e){
+        throw new IOException(String.format(Locale.ROOT,"invalid expression %s - maxInMemory '%s' must be an integer greater than 0.",expression, maxInMemoryStr));
+      }
+    }
+  }
+
+  private void setMaxInMemory(int maxInMemory){
+    if(maxInMemory <= 0){
+      throw new IllegalArgumentException("maxInMemory must be greater than 0: " + maxInMemory);
+    }
+    this.maxInMemory = maxInMemory;
   }
   
   private void init(TupleStream fullStream, TupleStream hashStream, List<String> hashOn) throws IOException {
@@ -164,8 +213,15 @@ public class HashJoinStream extends TupleStream implements Expressible {
     }
     
     expression.addParameter(new StreamExpressionNamedParameter("on",sb.toString()));
+    addMaxInMemory(expression);
     return expression;   
   }
+
+  protected void addMaxInMemory(StreamExpression expression){
+    if(maxInMemory != Integer.MAX_VALUE){
+      expression.addParameter(new StreamExpressionNamedParameter("maxInMemory", Integer.toString(maxInMemory)));
+    }
+  }
   
   @Override
   public Explanation toExplanation(StreamFactory factory) throws IOException {
@@ -197,22 +253,152 @@ public class HashJoinStream extends TupleStream implements Expressible {
     hashStream.open();
     fullStream.open();
     
+    int numHashed = 0;
     Tuple tuple = hashStream.read();
     while(!tuple.EOF){
       String hash = computeHash(tuple, rightHashOn);
       if(null != hash){
-        if(hashedTuples.containsKey(hash)){
-          hashedTuples.get(hash).add(tuple);
+        if(null != spilledHashed){
+          spillHashed(hash, tuple);
         }
         else{
-          ArrayList<Tuple> set = new ArrayList<Tuple>();
-          set.add(tuple);
-          hashedTuples.put(hash, set);
+          if(hashedTuples.containsKey(hash)){
+            hashedTuples.get(hash).add(tuple);
+          }
+          else{
+            ArrayList<Tuple> set = new ArrayList<Tuple>();
+            set.add(tuple);
+            hashedTuples.put(hash, set);
+          }
+          if(++numHashed > maxInMemory){
+            spillHashedTuples();
+          }
         }
       }
       tuple = hashStream.read();
     }
   }
+
+  private void spillHashedTuples() throws IOException {
+    spilledHashed = new SpilledPartitions("hashJoin", NUM_PARTITIONS);
+    for(Map.Entry<String, List<Tuple>> entry : hashedTuples.entrySet()){
+      for(Tuple hashed : entry.getValue()){
+        spillHashed(entry.getKey(), hashed);
+      }
+    }
+    hashedTuples.clear();
+  }
+
+  private void spillHashed(String hash, Tuple tuple) throws IOException {
+    spilledHashed.add(spilledHashed.partition(hash.hashCode()), tuple, HASH, hash);
+  }
+
+  /**
+   * @return whether the tuples of the fullStream that have no match are returned
+   */
+  protected boolean returnsUnmatched(){
+    return false;
+  }
+
+  /**
+   * Reads the rest of the fullStream and joins it with the spilled hashStream, one partition at a time.
+   */
+  private void joinSpilled() throws IOException {
+    SpilledPartitions spilledFull = new SpilledPartitions("hashJoin", NUM_PARTITIONS);
+    try{
+      long seq = 0;
+      Tuple fullTuple = fullStream.read();
+      while(!fullTuple.EOF){
+        String fullHash = computeHash(fullTuple, leftHashOn);
+        if(null != fullHash || returnsUnmatched()){
+          final long fullSeq = seq;
+          spilledFull.add(null == fullHash ? 0 : spilledFull.partition(fullHash.hashCode()), fullTuple, ew -> {
+            ew.putIfNotNull(HASH, fullHash);
+            ew.put(SEQ, fullSeq);
+          });
+        }
+        ++seq;
+        fullTuple = fullStream.read();
+      }
+      eofTuple = fullTuple;
+
+      spilledJoined = new SpilledPartitions("hashJoin", NUM_PARTITIONS);
+      for(int partition = 0; partition < NUM_PARTITIONS; ++partition){
+        hashedTuples.clear();
+        try(TupleStreamParser parser = spilledHashed.read(partition)){
+          for(Map<String, Object> fields = null == parser ? null : parser.next(); null != fields; fields = parser.next()){
+            String hash = (String)fields.remove(HASH);
+            hashedTuples.computeIfAbsent(hash, k -> new ArrayList<>()).add(new Tuple(fields));
+          }
+        }
+        spilledHashed.delete(partition);
+
+        try(TupleStreamParser parser = spilledFull.read(partition)){
+          for(Map<String, Object> fields = null == parser ? null : parser.next(); null != fields; fields = parser.next()){
+            long fullSeq = ((Number)fields.remove(SEQ)).longValue();
+            String fullHash = (String)fields.remove(HASH);
+            Tuple full = new Tuple(fields);
+            List<Tuple> matches = null == fullHash ? null : hashedTuples.get(fullHash);
+            if(null == matches){
+              if(returnsUnmatched()){
+                spilledJoined.add(partition, full, ew -> ew.put(SEQ, fullSeq));
+              }
+              continue;
+            }
+            for(Tuple match : matches){
+              Tuple returnTuple = full.clone();
+              returnTuple.merge(match);
+              spilledJoined.add(partition, returnTuple, ew -> ew.put(SEQ, fullSeq));
+            }
+          }
+        }
+        spilledFull.delete(partition);
+      }
+      hashedTuples.clear();
+    }
+    finally{
+      spilledFull.close();
+    }
+
+    joined = new PriorityQueue<>(NUM_PARTITIONS, (a, b) -> Long.compare(a.seq, b.seq));
+    for(int partition = 0; partition < NUM_PARTITIONS; ++partition){
+      TupleStreamParser parser = spilledJoined.read(partition);
+      if(null != parser){
+        SpilledJoin spilledJoin = new SpilledJoin(parser);
+        if(spilledJoin.next()){
+          joined.add(spilledJoin);
+        }
+        else{
+          parser.close();
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the joined tuples of the spilled partitions, merged back in the order of the fullStream.
+   */
+  protected Tuple readSpilled() throws IOException {
+    if(null == joined){
+      joinSpilled();
+    }
+    SpilledJoin head = joined.poll();
+    if(null == head){
+      return eofTuple;
+    }
+    Tuple returnTuple = head.tuple;
+    if(head.next()){
+      joined.add(head);
+    }
+    else{
+      head.parser.close();
+    }
+    return returnTuple;
+  }
+
+  protected boolean isSpilled(){
+    return null != spilledHashed;
+  }
   
   protected String computeHash(Tuple tuple, List<String> hashOn){
     StringBuilder sb = new StringBuilder();
@@ -229,11 +415,37 @@ public class HashJoinStream extends TupleStream implements Expressible {
   }
 
   public void close() throws IOException {
-    hashStream.close();
-    fullStream.close();
+    try{
+      hashStream.close();
+      fullStream.close();
+    }
+    finally{
+      closeSpilled();
+    }
+  }
+
+  private void closeSpilled() throws IOException {
+    if(null != joined){
+      for(SpilledJoin spilledJoin : joined){
+        spilledJoin.parser.close();
+      }
+      joined = null;
+    }
+    if(null != spilledJoined){
+      spilledJoined.close();
+      spilledJoined = null;
+    }
+    if(null != spilledHashed){
+      spilledHashed.close();
+      spilledHashed = null;
+    }
+    eofTuple = null;
   }
 
   public Tuple read() throws IOException {
+    if(isSpilled()){
+      return readSpilled();
+    }
     
     findNextWorkingFullTuple:
     while(null == workingFullTuple){
@@ -284,4 +496,25 @@ public class HashJoinStream extends TupleStream implements Expressible {
   public int getCost() {
     return 0;
   }
+
+  /** The next tuple of a spilled partition of joined tuples. */
+  private static class SpilledJoin {
+    final TupleStreamParser parser;
+    Tuple tuple;
+    long seq;
+
+    SpilledJoin(TupleStreamParser parser){
+      this.parser = parser;
+    }
+
+    boolean next() throws IOException {
+      Map<String, Object> fields = parser.next();
+      if(null == fields){
+        return false;
+      }
+      seq = ((Number)fields.remove(SEQ)).longValue();
+      tuple = new Tuple(fields);
+      return true;
+    }
+  }
 }
@@ -41,16 +41,31 @@ import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
 import org.apache.solr.client.solrj.io.stream.metrics.Bucket;
 import org.apache.solr.client.solrj.io.stream.metrics.Metric;
 
+/**
+ * Rolls up the tuples of a stream by the values of the <code>over</code> fields, like a {@link RollupStream}, but
+ * without requiring the stream to be sorted on these fields. The metrics of every bucket are kept in memory until
+ * the stream was fully read.
+ * <p>
+ * The number of buckets kept in memory may be limited with <code>maxInMemory</code>. Once the limit is reached, the
+ * tuples of the buckets that are not in memory yet are partitioned by bucket to temporary files, and each partition
+ * is rolled up on its own after the buckets in memory were returned.
+ */
 public class HashRollupStream extends TupleStream implements Expressible {
 
   private static final long serialVersionUID = 1;
 
+  private static final int NUM_PARTITIONS = 32;
+
   private PushBackStream tupleStream;
   private Bucket[] buckets;
   private Metric[] metrics;
+  private int maxInMemory = Integer.MAX_VALUE;
 
 
   private Iterator<Tuple> tupleIterator;
+  private SpilledPartitions spilled;
+  private int spilledPartition;
+  private Tuple eofTuple;
 
   public HashRollupStream(TupleStream tupleStream,
                       Bucket[] buckets,
@@ -58,14 +73,27 @@ public class HashRollupStream extends TupleStream implements Expressible {
     init(tupleStream, buckets, metrics);
   }
 
+  /**
+   * @param maxInMemory how many buckets are kept in memory, the tuples of other buckets are partitioned to
+   *                    temporary files
+   */
+  public HashRollupStream(TupleStream tupleStream,
+                      Bucket[] buckets,
+                      Metric[] metrics,
+                      int maxInMemory) {
+    init(tupleStream, buckets, metrics);
+    setMaxInMemory(maxInMemory);
+  }
+
   public HashRollupStream(StreamExpression expression, StreamFactory factory) throws IOException {
     // grab all parameters out
     List<StreamExpression> streamExpressions = factory.getExpressionOperandsRepresentingTypes(expression, Expressible.class, TupleStream.class);
     List<StreamExpression> metricExpressions = factory.getExpressionOperandsRepresentingTypes(expression, Expressible.class, Metric.class);
     StreamExpressionNamedParameter overExpression = factory.getNamedOperand(expression, "over");
+    StreamExpressionNamedParameter maxInMemoryExpression = factory.getNamedOperand(expression, "maxInMemory");
 
     // validate expression contains only what we want.
-    if(expression.getParameters().size() != streamExpressions.size() + metricExpressions.size() + 1){
+    if(expression.getParameters().size() != streamExpressions.size() + metricExpressions.size() + 1 + (null == maxInMemoryExpression ? 0 : 1)){
       throw new IOException(String.format(Locale.ROOT,"Invalid expression %s - unknown operands found", expression));
     }
 
@@ -95,6 +123,23 @@ public class HashRollupStream extends TupleStream implements Expressible {
     }
 
     init(factory.constructStream(streamExpressions.get(0)), buckets, metrics);
+
+    if(null != maxInMemoryExpression){
+      String maxInMemoryStr = ((StreamExpressionValue)maxInMemoryExpression.getParameter()).getValue();
+      try{
+        setMaxInMemory(Integer.parseInt(maxInMemoryStr));
+      }
+      catch(IllegalArgumentException e){
+        throw new IOException(String.format(Locale.ROOT,"invalid expression %s - maxInMemory '%s' must be an integer greater than 0.",expression, maxInMemoryStr));
+      }
+    }
+  }
+
+  private void setMaxInMemory(int maxInMemory){
+    if(maxInMemory <= 0){
+      throw new IllegalArgumentException("maxInMemory must be greater than 0: " + maxInMemory);
+    }
+    this.maxInMemory = maxInMemory;
   }
 
   private List<FieldEqualitor> flattenEqualitor(StreamEqualitor equalitor){
@@ -149,6 +194,10 @@ public class HashRollupStream extends TupleStream implements Expressible {
       expression.addParameter(metric.toExpression(factory));
     }
 
+    if(maxInMemory != Integer.MAX_VALUE){
+      expression.addParameter(new StreamExpressionNamedParameter("maxInMemory", Integer.toString(maxInMemory)));
+    }
+
     return expression;
   }
 
@@ -186,11 +235,18 @@ public class HashRollupStream extends TupleStream implements Expressible {
   }
 
   public void close() throws IOException {
-    tupleStream.close();
-    tupleIterator = null;
+    try {
+      tupleStream.close();
+    } finally {
+      tupleIterator = null;
+      eofTuple = null;
+      if (spilled != null) {
+        spilled.close();
+        spilled = null;
+      }
+    }
   }
 
-  @SuppressWarnings({"unchecked"})
   public Tuple read() throws IOException {
     //On the first call to read build the tupleIterator.
     if(tupleIterator == null) {
@@ -198,53 +254,96 @@ public class HashRollupStream extends TupleStream implements Expressible {
       while (true) {
         Tuple tuple = tupleStream.read();
         if (tuple.EOF) {
-          @SuppressWarnings({"rawtypes"})
-          List tuples = new ArrayList();
-          for(Map.Entry<HashKey, Metric[]> entry : metricMap.entrySet()) {
-            Tuple t = new Tuple();
-            Metric[] finishedMetrics = entry.getValue();
-            for (Metric metric : finishedMetrics) {
-              t.put(metric.getIdentifier(), metric.getValue());
-            }
-
-            HashKey hashKey = entry.getKey();
-            for (int i = 0; i < buckets.length; i++) {
-              t.put(buckets[i].toString(), hashKey.getParts()[i]);
-            }
-            tuples.add(t);
-          }
-          tuples.add(tuple);
-          this.tupleIterator = tuples.iterator();
+          eofTuple = tuple;
+          this.tupleIterator = toTuples(metricMap);
+          spilledPartition = 0;
           break;
         }
 
-        Object[] bucketValues = new Object[buckets.length];
-        for (int i = 0; i < buckets.length; i++) {
-          bucketValues[i] = buckets[i].getBucketValue(tuple);
-        }
-
-        HashKey hashKey = new HashKey(bucketValues);
+        HashKey hashKey = getHashKey(tuple);
         Metric[] currentMetrics = metricMap.get(hashKey);
 
-        if (currentMetrics != null) {
-          for (Metric bucketMetric : currentMetrics) {
-            bucketMetric.update(tuple);
+        if (currentMetrics == null && metricMap.size() >= maxInMemory) {
+          // the bucket doesn't fit, its tuples are rolled up once the buckets in memory were returned
+          if (spilled == null) {
+            spilled = new SpilledPartitions("hashRollup", NUM_PARTITIONS);
           }
+          spilled.add(spilled.partition(hashKey.hashCode()), tuple);
         } else {
-          currentMetrics = new Metric[metrics.length];
-          for (int i = 0; i < metrics.length; i++) {
-            Metric bucketMetric = metrics[i].newInstance();
-            bucketMetric.update(tuple);
-            currentMetrics[i] = bucketMetric;
-          }
-          metricMap.put(hashKey, currentMetrics);
+          update(metricMap, hashKey, currentMetrics, tuple);
         }
       }
     }
 
+    while (!tupleIterator.hasNext()) {
+      if (spilled == null || spilledPartition == NUM_PARTITIONS) {
+        return eofTuple;
+      }
+      tupleIterator = rollupSpilled(spilledPartition++);
+    }
     return tupleIterator.next();
   }
 
+  private HashKey getHashKey(Tuple tuple) {
+    Object[] bucketValues = new Object[buckets.length];
+    for (int i = 0; i < buckets.length; i++) {
+      bucketValues[i] = buckets[i].getBucketValue(tuple);
+    }
+    return new HashKey(bucketValues);
+  }
+
+  private void update(Map<HashKey, Metric[]> metricMap, HashKey hashKey, Metric[] currentMetrics, Tuple tuple) {
+    if (currentMetrics != null) {
+      for (Metric bucketMetric : currentMetrics) {
+        bucketMetric.update(tuple);
+      }
+    } else {
+      currentMetrics = new Metric[metrics.length];
+      for (int i = 0; i < metrics.length; i++) {
+        Metric bucketMetric = metrics[i].newInstance();
+        bucketMetric.update(tuple);
+        currentMetrics[i] = bucketMetric;
+      }
+      metricMap.put(hashKey, currentMetrics);
+    }
+  }
+
+  private Iterator<Tuple> toTuples(Map<HashKey, Metric[]> metricMap) {
+    List<Tuple> tuples = new ArrayList<>(metricMap.size());
+    for(Map.Entry<HashKey, Metric[]> entry : metricMap.entrySet()) {
+      Tuple t = new Tuple();
+      Metric[] finishedMetrics = entry.getValue();
+      for (Metric metric : finishedMetrics) {
+        t.put(metric.getIdentifier(), metric.getValue());
+      }
+
+      HashKey hashKey = entry.getKey();
+      for (int i = 0; i < buckets.length; i++) {
+        t.put(buckets[i].toString(), hashKey.getParts()[i]);
+      }
+      tuples.add(t);
+    }
+    return tuples.iterator();
+  }
+
+  /**
+   * Rolls up the tuples of a spilled partition. All the buckets of a partition are kept in memory, whatever
+   * the limit.
+   */
+  private Iterator<Tuple> rollupSpilled(int partition) throws IOException {
+    Map<HashKey, Metric[]> metricMap = new HashMap<>();
+    try (TupleStreamParser parser = spilled.read(partition)) {
+      for (Map<String, Object> fields = parser == null ? null : parser.next(); fields != null; fields = parser.next()) {
+        Tuple tuple = new Tuple(fields);
+        HashKey hashKey = getHashKey(tuple);
+        update(metricMap, hashKey, metricMap.get(hashKey), tuple);
+      }
+    } finally {
+      spilled.delete(partition);
+    }
+    return toTuples(metricMap);
+  }
+
   public int getCost() {
     return 0;
   }
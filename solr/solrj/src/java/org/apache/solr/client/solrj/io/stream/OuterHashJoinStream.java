@@ -46,6 +46,10 @@ public class OuterHashJoinStream extends HashJoinStream implements Expressible {
     super(fullStream, hashStream, hashOn);
   }
   
+  public OuterHashJoinStream(TupleStream fullStream, TupleStream hashStream, List<String> hashOn, int maxInMemory) throws IOException {
+    super(fullStream, hashStream, hashOn, maxInMemory);
+  }
+  
   public OuterHashJoinStream(StreamExpression expression,StreamFactory factory) throws IOException {
     super(expression, factory);
   }
@@ -83,11 +87,20 @@ public class OuterHashJoinStream extends HashJoinStream implements Expressible {
       }
     }
     expression.addParameter(new StreamExpressionNamedParameter("on",sb.toString()));
+    addMaxInMemory(expression);
     
     return expression;   
   }
 
+  @Override
+  protected boolean returnsUnmatched(){
+    return true;
+  }
+
   public Tuple read() throws IOException {
+    if(isSpilled()){
+      return readSpilled();
+    }
     
     if(null == workingFullTuple){
       Tuple fullTuple = fullStream.read();
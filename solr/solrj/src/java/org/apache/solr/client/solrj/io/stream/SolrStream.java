@@ -21,9 +21,11 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.solr.client.solrj.SolrClient;
@@ -268,6 +270,24 @@ public class SolrStream extends TupleStream {
     return fields;
   }
 
+  /**
+   * @return the fields the columnar parser has to decode, the columns of the others are skipped, or null for all
+   */
+  private static Set<String> getColumnarFields(SolrParams requestParams) {
+    String fl = requestParams.get(CommonParams.FL);
+    // an expression run by /export returns the fields it computes, e.g. sum(a_i), rather than fl
+    if (fl == null || requestParams.get(StreamParams.EXPR) != null) {
+      return null;
+    }
+    Set<String> fields = new HashSet<>();
+    for (String field : fl.split(",")) {
+      fields.add(field.trim());
+    }
+    // errors are sent as a tuple with this field
+    fields.add(StreamParams.EXCEPTION);
+    return fields;
+  }
+
   // temporary...
   public TupleStreamParser constructParser(SolrClient server, SolrParams requestParams) throws IOException, SolrServerException {
     String p = requestParams.get("qt");
@@ -293,6 +313,8 @@ public class SolrStream extends TupleStream {
     this.closeableHttpResponse = (CloseableHttpResponse)genericResponse.get("closeableResponse");
     if (CommonParams.JAVABIN.equals(wt)) {
       return new JavabinTupleStreamParser(stream, true);
+    } else if (CommonParams.COLUMNAR.equals(wt)) {
+      return new ColumnarTupleStreamParser(stream, getColumnarFields(requestParams));
     } else {
       InputStreamReader reader = new InputStreamReader(stream, StandardCharsets.UTF_8);
       return new JSONTupleStream(reader);
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.common.MapWriter;
+import org.apache.solr.common.util.FastInputStream;
+import org.apache.solr.common.util.JavaBinCodec;
+
+/**
+ * Tuples written by partition to temporary files, for the streams that hash more tuples than they may keep in
+ * memory. Tuples are written with {@link JavaBinCodec}, so their values are read back with the types they had, e.g.
+ * ints and dates rather than longs and strings.
+ * <p>
+ * The files are created in the directory set by the <code>solr.streaming.spillDir</code> system property, or else in
+ * <code>java.io.tmpdir</code>.
+ */
+class SpilledPartitions implements Closeable {
+
+  static final String SPILL_DIR_PROP = "solr.streaming.spillDir";
+
+  private final String prefix;
+  private final Path[] files;
+  private final OutputStream[] outs;
+  private final JavaBinCodec[] writers;
+
+  SpilledPartitions(String prefix, int numPartitions) {
+    this.prefix = prefix;
+    this.files = new Path[numPartitions];
+    this.outs = new OutputStream[numPartitions];
+    this.writers = new JavaBinCodec[numPartitions];
+  }
+
+  /**
+   * @return the partition of a hash. The high bits of the mixed hash are used, so that the tuples of a partition
+   * are still spread over the buckets of a hash map when the partition is read back.
+   */
+  int partition(int hash) {
+    int h = hash * 0x9E3779B9;
+    return (int) (((h >>> 1) * (long) files.length) >>> 31);
+  }
+
+  void add(int partition, Tuple tuple) throws IOException {
+    writer(partition).writeMap(tuple.getFields());
+  }
+
+  /** Adds a tuple along with a value stored in the given field. */
+  void add(int partition, Tuple tuple, String field, Object value) throws IOException {
+    add(partition, tuple, ew -> ew.put(field, value));
+  }
+
+  /** Adds a tuple along with the fields written by <code>extra</code>. */
+  void add(int partition, Tuple tuple, MapWriter extra) throws IOException {
+    writer(partition).writeMap((MapWriter) ew -> {
+      for (Map.Entry<Object, Object> e : tuple.getFields().entrySet()) {
+        ew.put(String.valueOf(e.getKey()), e.getValue());
+      }
+      extra.writeMap(ew);
+    });
+  }
+
+  private JavaBinCodec writer(int partition) throws IOException {
+    if (writers[partition] == null) {
+      if (files[partition] != null) {
+        throw new IllegalStateException("Partition " + partition + " was already read");
+      }
+      files[partition] = Files.createTempFile(spillDir(), prefix, ".tuples");
+      outs[partition] = Files.newOutputStream(files[partition]);
+      writers[partition] = new JavaBinCodec(outs[partition], null);
+    }
+    return writers[partition];
+  }
+
+  private static Path spillDir() throws IOException {
+    String dir = System.getProperty(SPILL_DIR_PROP);
+    if (dir == null) {
+      return Paths.get(System.getProperty("java.io.tmpdir"));
+    }
+    return Files.createDirectories(Paths.get(dir));
+  }
+
+  /**
+   * Ends the writing of a partition.
+   *
+   * @return a parser for the tuples of the partition, or null if none were added to it
+   */
+  TupleStreamParser read(int partition) throws IOException {
+    if (files[partition] == null) {
+      return null;
+    }
+    if (writers[partition] != null) {
+      // a null marks the end of the partition
+      writers[partition].writeVal(null);
+      writers[partition].close();
+      outs[partition].close();
+      writers[partition] = null;
+      outs[partition] = null;
+    }
+    return new SpillReader(Files.newInputStream(files[partition]));
+  }
+
+  /** Deletes the file of a partition once it was read. */
+  void delete(int partition) throws IOException {
+    if (outs[partition] != null) {
+      outs[partition].close();
+      outs[partition] = null;
+      writers[partition] = null;
+    }
+    if (files[partition] != null) {
+      Files.deleteIfExists(files[partition]);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    IOException exception = null;
+    for (int i = 0; i < files.length; i++) {
+      try {
+        delete(i);
+      } catch (IOException e) {
+        if (exception == null) exception = e;
+      }
+    }
+    if (exception != null) {
+      throw exception;
+    }
+  }
+
+  /** Reads back the tuples of a partition, up to the null written at its end. */
+  private static class SpillReader extends JavaBinCodec implements TupleStreamParser {
+    private final InputStream is;
+    private final FastInputStream fis;
+
+    SpillReader(InputStream is) throws IOException {
+      this.is = is;
+      this.fis = initRead(is);
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked"})
+    public Map<String, Object> next() throws IOException {
+      return (Map<String, Object>) readVal(fis);
+    }
+
+    @Override
+    public void close() throws IOException {
+      is.close();
+    }
+  }
+}
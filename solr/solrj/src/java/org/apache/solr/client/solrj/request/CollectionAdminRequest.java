@@ -446,6 +446,7 @@ public abstract class CollectionAdminRequest<T extends CollectionAdminResponse>
 
     protected Properties properties;
     protected Boolean autoAddReplicas;
+    protected Boolean perReplicaState;
     protected String alias;
     protected String[] rule , snitch;
     protected String withCollection;
@@ -480,6 +481,7 @@ public abstract class CollectionAdminRequest<T extends CollectionAdminResponse>
     public Create setRouterField(String routerField) { this.routerField = routerField; return this; }
     public Create setMaxShardsPerNode(Integer numShards) { this.maxShardsPerNode = numShards; return this; }
     public Create setAutoAddReplicas(boolean autoAddReplicas) { this.autoAddReplicas = autoAddReplicas; return this; }
+    public Create setPerReplicaState(Boolean perReplicaState) { this.perReplicaState = perReplicaState; return this; }
     public Create setNrtReplicas(Integer nrtReplicas) { this.nrtReplicas = nrtReplicas; return this;}
     public Create setTlogReplicas(Integer tlogReplicas) { this.tlogReplicas = tlogReplicas; return this;}
     public Create setPullReplicas(Integer pullReplicas) { this.pullReplicas = pullReplicas; return this;}
@@ -503,6 +505,7 @@ public abstract class CollectionAdminRequest<T extends CollectionAdminResponse>
     public Integer getReplicationFactor() { return getNumNrtReplicas(); }
     public Integer getNumNrtReplicas() { return nrtReplicas; }
     public Boolean getAutoAddReplicas() { return autoAddReplicas; }
+    public Boolean getPerReplicaState() { return perReplicaState; }
     public Integer getNumTlogReplicas() {return tlogReplicas;}
     public Integer getNumPullReplicas() {return pullReplicas;}
 
@@ -572,6 +575,9 @@ public abstract class CollectionAdminRequest<T extends CollectionAdminResponse>
       if (autoAddReplicas != null) {
         params.set(ZkStateReader.AUTO_ADD_REPLICAS, autoAddReplicas);
       }
+      if (perReplicaState != null) {
+        params.set(ZkStateReader.PER_REPLICA_STATE, perReplicaState);
+      }
       if (properties != null) {
         addProperties(params, properties);
       }
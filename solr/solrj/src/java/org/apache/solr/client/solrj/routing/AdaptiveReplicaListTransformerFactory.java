@@ -0,0 +1,302 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.routing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+
+/**
+ * Factory for a {@link ReplicaListTransformer} that orders replicas by the latency they were observed to
+ * respond with, so that requests avoid replicas that are slowed down by GC, merges or load.
+ * <p>
+ * The caller sending the requests reports them with {@link #requestStarted(String)} and
+ * {@link #requestFinished(String, String, long, long, boolean)}. For each replica, an exponentially weighted
+ * moving average is kept of the response time, and of the service time reported by the replica itself
+ * (<code>QTime</code>), along with the number of requests currently outstanding. Replicas are then ranked as in
+ * C3 (Suresh et al., NSDI '15): <code>R - S + (1 + q)^3 * S</code> where <code>R</code> is the response time,
+ * <code>S</code> the service time and <code>q</code> the outstanding requests. The cubic term makes a replica with
+ * a growing backlog quickly lose its traffic, while the response time accounts for the network and queueing
+ * the replica doesn't see.
+ * <p>
+ * Replicas that were never used, or not for <code>staleMs</code>, are probed with one request at a time: they are
+ * ranked first while no request is outstanding on them, and otherwise as if they had the best score of the
+ * other replicas and the requests outstanding on them. Replicas with equal scores are shuffled. A replica that
+ * stops responding keeps its score, which grows with the requests left outstanding on it.
+ * <p>
+ * Requests are only worth tracking while replicas get ordered by this factory, see {@link #isActive()}. The stats
+ * of replicas are dropped once they are stale, so that replicas that are gone from the cluster don't stay around.
+ */
+public class AdaptiveReplicaListTransformerFactory implements ReplicaListTransformerFactory {
+
+  public static final String ALPHA = "alpha";
+  public static final String STALE_MS = "staleMs";
+  public static final String FAILURE_PENALTY_MS = "failurePenaltyMs";
+
+  private final double alpha;
+  private final long staleNanos;
+  private final long failurePenaltyMs;
+  private final Random random;
+
+  private final Map<String, ReplicaStats> stats = new ConcurrentHashMap<>();
+  // System.nanoTime() of the last time replicas were ordered, and of the last time stale stats were dropped
+  private volatile long lastUsed;
+  private volatile boolean used;
+  private volatile long lastPruned = System.nanoTime();
+
+  public AdaptiveReplicaListTransformerFactory() {
+    this(0.3, 10000, 1000, new Random());
+  }
+
+  /**
+   * @param alpha            the weight of the latest sample in the moving averages, between 0 and 1
+   * @param staleMs          after how long without a response the stats of a replica are ignored
+   * @param failurePenaltyMs the response time a failed request is counted as, if it didn't take longer
+   */
+  public AdaptiveReplicaListTransformerFactory(double alpha, long staleMs, long failurePenaltyMs, Random random) {
+    if (alpha <= 0 || alpha > 1) {
+      throw new IllegalArgumentException(ALPHA + " must be in (0, 1]: " + alpha);
+    }
+    this.alpha = alpha;
+    this.staleNanos = TimeUnit.MILLISECONDS.toNanos(staleMs);
+    this.failurePenaltyMs = failurePenaltyMs;
+    this.random = random;
+  }
+
+  public AdaptiveReplicaListTransformerFactory(NamedList<?> c) {
+    this(getDouble(c, ALPHA, 0.3), getLong(c, STALE_MS, 10000), getLong(c, FAILURE_PENALTY_MS, 1000), new Random());
+  }
+
+  private static double getDouble(NamedList<?> c, String name, double def) {
+    Object val = c.get(name);
+    return val == null ? def : val instanceof Number ? ((Number) val).doubleValue() : Double.parseDouble(val.toString());
+  }
+
+  private static long getLong(NamedList<?> c, String name, long def) {
+    Object val = c.get(name);
+    return val == null ? def : val instanceof Number ? ((Number) val).longValue() : Long.parseLong(val.toString());
+  }
+
+  @Override
+  public ReplicaListTransformer getInstance(String configSpec, SolrParams requestParams, ReplicaListTransformerFactory fallback) {
+    lastUsed = System.nanoTime();
+    used = true;
+    return this::transform;
+  }
+
+  /**
+   * @return true if replicas were ordered by this factory recently, so that requests should be reported to it
+   */
+  public boolean isActive() {
+    return used && System.nanoTime() - lastUsed <= staleNanos;
+  }
+
+  private void transform(List<?> choices) {
+    if (choices.size() < 2) {
+      return;
+    }
+    Collections.shuffle(choices, random);
+    long now = System.nanoTime();
+    Map<Object, Double> scores = new HashMap<>();
+    double bestScore = Double.POSITIVE_INFINITY;
+    for (Object choice : choices) {
+      ReplicaStats replicaStats = stats.get(key(choice));
+      double score = replicaStats == null ? Double.NaN : replicaStats.score(now, staleNanos);
+      if (!Double.isNaN(score)) {
+        bestScore = Math.min(bestScore, score);
+      }
+      scores.put(choice, score);
+    }
+    for (Object choice : choices) {
+      if (Double.isNaN(scores.get(choice))) {
+        ReplicaStats replicaStats = stats.get(key(choice));
+        int outstanding = replicaStats == null ? 0 : replicaStats.outstanding();
+        scores.put(choice, probeScore(outstanding, bestScore));
+      }
+    }
+    // stable, so that replicas with equal scores keep their shuffled order
+    choices.sort(Comparator.comparingDouble(scores::get));
+  }
+
+  /**
+   * The score of a replica without recent stats: first if no request is outstanding on it, so that a single request
+   * probes it, otherwise the best score of the other replicas with the queue term of its own outstanding requests.
+   */
+  private static double probeScore(int outstanding, double bestScore) {
+    if (outstanding == 0) {
+      return -1;
+    }
+    if (bestScore == Double.POSITIVE_INFINITY) {
+      // none of the replicas has recent stats
+      return outstanding;
+    }
+    double q = 1 + outstanding;
+    return Math.max(bestScore, 1) * q * q * q;
+  }
+
+  /** Reports that a request is being sent to the given url. */
+  public void requestStarted(String url) {
+    // atomically, so that the stats are not dropped as stale at the same time
+    stats.compute(key(url), (k, replicaStats) -> {
+      if (replicaStats == null) {
+        replicaStats = new ReplicaStats();
+      }
+      replicaStats.started();
+      return replicaStats;
+    });
+  }
+
+  /**
+   * Reports the outcome of a request reported with {@link #requestStarted(String)}.
+   *
+   * @param startedUrl   the url the request was reported as sent to
+   * @param respondedUrl the url that actually responded, may differ from the first when the request was retried
+   *                     on another replica, null if unknown
+   * @param elapsedMs    the time it took to get the response
+   * @param serviceMs    the time the replica reported it took to process the request, or -1 if unknown
+   */
+  public void requestFinished(String startedUrl, String respondedUrl, long elapsedMs, long serviceMs, boolean success) {
+    ReplicaStats started = stats.computeIfAbsent(key(startedUrl), k -> new ReplicaStats());
+    started.finished();
+    if (!success) {
+      started.update(Math.max(elapsedMs, failurePenaltyMs), -1, alpha);
+    } else {
+      ReplicaStats responded = started;
+      String respondedKey = respondedUrl == null ? null : key(respondedUrl);
+      if (respondedKey != null && !respondedKey.equals(key(startedUrl))) {
+        // the first replica failed before the request went to another one
+        started.update(failurePenaltyMs, -1, alpha);
+        responded = stats.computeIfAbsent(respondedKey, k -> new ReplicaStats());
+      }
+      responded.update(elapsedMs, serviceMs, alpha);
+    }
+    pruneStale();
+  }
+
+  /** Drops the stats of the replicas without outstanding requests that are stale, at most once every staleMs. */
+  private void pruneStale() {
+    long now = System.nanoTime();
+    if (now - lastPruned < staleNanos) {
+      return;
+    }
+    lastPruned = now;
+    for (String key : stats.keySet()) {
+      stats.computeIfPresent(key, (k, replicaStats) -> replicaStats.isIdle(now, staleNanos) ? null : replicaStats);
+    }
+  }
+
+  /**
+   * @return the stats and score of each replica seen so far, by url
+   */
+  public Map<String, Map<String, Object>> getStats() {
+    long now = System.nanoTime();
+    Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+    List<String> urls = new ArrayList<>(stats.keySet());
+    Collections.sort(urls);
+    for (String url : urls) {
+      ReplicaStats replicaStats = stats.get(url);
+      if (replicaStats != null) {
+        result.put(url, replicaStats.toMap(now, staleNanos));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Replicas may be identified by their core url, with or without a scheme, depending on whether they are
+   * choices or urls the requests were sent to.
+   */
+  private static String key(Object choice) {
+    String url = choice instanceof Replica ? ((Replica) choice).getCoreUrl() : choice.toString();
+    int schemeEnd = url.indexOf("://");
+    if (schemeEnd >= 0) {
+      url = url.substring(schemeEnd + 3);
+    }
+    return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+  }
+
+  private static class ReplicaStats {
+    private double responseMs = -1;
+    private double serviceMs = -1;
+    private int outstanding;
+    private long lastUpdate;
+    private long lastActivity = System.nanoTime();
+
+    synchronized void started() {
+      outstanding++;
+      lastActivity = System.nanoTime();
+    }
+
+    synchronized void finished() {
+      outstanding = Math.max(0, outstanding - 1);
+      lastActivity = System.nanoTime();
+    }
+
+    synchronized int outstanding() {
+      return outstanding;
+    }
+
+    synchronized boolean isIdle(long now, long staleNanos) {
+      return outstanding == 0 && now - lastActivity > staleNanos;
+    }
+
+    synchronized void update(long responseMs, long serviceMs, double alpha) {
+      this.responseMs = this.responseMs < 0 ? responseMs : alpha * responseMs + (1 - alpha) * this.responseMs;
+      if (serviceMs >= 0) {
+        this.serviceMs = this.serviceMs < 0 ? serviceMs : alpha * serviceMs + (1 - alpha) * this.serviceMs;
+      }
+      this.lastUpdate = System.nanoTime();
+      this.lastActivity = lastUpdate;
+    }
+
+    /**
+     * @return the C3 score, or NaN if there is nothing recent to go by
+     */
+    synchronized double score(long now, long staleNanos) {
+      if (responseMs < 0 || (outstanding == 0 && now - lastUpdate > staleNanos)) {
+        return Double.NaN;
+      }
+      // without service times, rank by response time and backlog alone
+      double service = serviceMs < 0 ? responseMs : Math.min(serviceMs, responseMs);
+      double q = 1 + outstanding;
+      return responseMs - service + q * q * q * service;
+    }
+
+    synchronized Map<String, Object> toMap(long now, long staleNanos) {
+      Map<String, Object> map = new LinkedHashMap<>();
+      map.put("responseTime", responseMs);
+      map.put("serviceTime", serviceMs);
+      map.put("outstanding", outstanding);
+      double score = score(now, staleNanos);
+      if (!Double.isNaN(score)) {
+        map.put("score", score);
+      }
+      return map;
+    }
+  }
+}
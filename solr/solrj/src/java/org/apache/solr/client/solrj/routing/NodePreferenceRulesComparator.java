@@ -36,7 +36,7 @@ import org.apache.solr.common.params.SolrParams;
    * to one bad node.
    *
    * Optional final preferenceRule is *not* used for pairwise sorting, but instead defines how "equivalent"
-   * replicas will be ordered (the base ordering). Defaults to "random"; may specify "stable".
+   * replicas will be ordered (the base ordering). Defaults to "random"; may specify "stable" or "adaptive".
    */
 public class NodePreferenceRulesComparator implements Comparator<Object> {
 
@@ -55,6 +55,13 @@ public class NodePreferenceRulesComparator implements Comparator<Object> {
   public NodePreferenceRulesComparator(final List<PreferenceRule> preferenceRules, final SolrParams requestParams,
       final String nodeName, final String localHostAddress, final NodesSysPropsCacher sysPropsCache,
       final ReplicaListTransformerFactory defaultRltFactory, final ReplicaListTransformerFactory stableRltFactory) {
+    this(preferenceRules, requestParams, nodeName, localHostAddress, sysPropsCache, defaultRltFactory, stableRltFactory, null);
+  }
+
+  public NodePreferenceRulesComparator(final List<PreferenceRule> preferenceRules, final SolrParams requestParams,
+      final String nodeName, final String localHostAddress, final NodesSysPropsCacher sysPropsCache,
+      final ReplicaListTransformerFactory defaultRltFactory, final ReplicaListTransformerFactory stableRltFactory,
+      final ReplicaListTransformerFactory adaptiveRltFactory) {
     this.sysPropsCache = sysPropsCache;
     this.preferenceRules = preferenceRules;
     this.nodeName = nodeName;
@@ -78,6 +85,11 @@ public class NodePreferenceRulesComparator implements Comparator<Object> {
         case ShardParams.REPLICA_STABLE:
           this.baseReplicaListTransformer = stableRltFactory.getInstance(parts.length == 1 ? null : parts[1], requestParams, RequestReplicaListTransformerGenerator.RANDOM_RLTF);
           break;
+        case ShardParams.REPLICA_ADAPTIVE:
+          // only the party sending the requests knows their latency, random otherwise
+          this.baseReplicaListTransformer = (adaptiveRltFactory == null ? RequestReplicaListTransformerGenerator.RANDOM_RLTF : adaptiveRltFactory)
+              .getInstance(parts.length == 1 ? null : parts[1], requestParams, RequestReplicaListTransformerGenerator.RANDOM_RLTF);
+          break;
         default:
           throw new IllegalArgumentException("Invalid base replica order spec");
       }
@@ -42,6 +42,7 @@ public class RequestReplicaListTransformerGenerator {
       (String configSpec, SolrParams requestParams, ReplicaListTransformerFactory fallback) -> shufflingReplicaListTransformer;
   private final ReplicaListTransformerFactory stableRltFactory;
   private final ReplicaListTransformerFactory defaultRltFactory;
+  private final ReplicaListTransformerFactory adaptiveRltFactory;
   private final String defaultShardPreferences;
   private final String nodeName;
   private final String localHostAddress;
@@ -64,6 +65,15 @@ public class RequestReplicaListTransformerGenerator {
   }
 
   public RequestReplicaListTransformerGenerator(ReplicaListTransformerFactory defaultRltFactory, ReplicaListTransformerFactory stableRltFactory, String defaultShardPreferences, String nodeName, String localHostAddress, NodesSysPropsCacher sysPropsCacher) {
+    this(defaultRltFactory, stableRltFactory, null, defaultShardPreferences, nodeName, localHostAddress, sysPropsCacher);
+  }
+
+  /**
+   * @param adaptiveRltFactory used for the "adaptive" base replica order, may be null if the latency of requests
+   *                           isn't tracked, in which case that order is random
+   */
+  public RequestReplicaListTransformerGenerator(ReplicaListTransformerFactory defaultRltFactory, ReplicaListTransformerFactory stableRltFactory, ReplicaListTransformerFactory adaptiveRltFactory, String defaultShardPreferences, String nodeName, String localHostAddress, NodesSysPropsCacher sysPropsCacher) {
+    this.adaptiveRltFactory = adaptiveRltFactory;
     this.defaultRltFactory = Optional.ofNullable(defaultRltFactory).orElse(RANDOM_RLTF);
     this.stableRltFactory = Optional.ofNullable(stableRltFactory).orElseGet(AffinityReplicaListTransformerFactory::new);
     this.defaultShardPreferences = Optional.ofNullable(defaultShardPreferences).orElse("");
@@ -106,7 +116,8 @@ public class RequestReplicaListTransformerGenerator {
               Optional.ofNullable(localHostAddress).orElse(this.localHostAddress),
               Optional.ofNullable(sysPropsCacher).orElse(this.sysPropsCacher),
               defaultRltFactory,
-              stableRltFactory);
+              stableRltFactory,
+              adaptiveRltFactory);
       ReplicaListTransformer baseReplicaListTransformer = replicaComp.getBaseReplicaListTransformer();
       if (replicaComp.getSortRules() == null) {
         // only applying base transformation
@@ -37,6 +37,7 @@ import org.noggit.JSONWriter;
 import static org.apache.solr.common.cloud.ZkStateReader.AUTO_ADD_REPLICAS;
 import static org.apache.solr.common.cloud.ZkStateReader.MAX_SHARDS_PER_NODE;
 import static org.apache.solr.common.cloud.ZkStateReader.NRT_REPLICAS;
+import static org.apache.solr.common.cloud.ZkStateReader.PER_REPLICA_STATE;
 import static org.apache.solr.common.cloud.ZkStateReader.PULL_REPLICAS;
 import static org.apache.solr.common.cloud.ZkStateReader.READ_ONLY;
 import static org.apache.solr.common.cloud.ZkStateReader.REPLICATION_FACTOR;
@@ -71,6 +72,9 @@ public class DocCollection extends ZkNodeProps implements Iterable<Slice> {
   private final Boolean autoAddReplicas;
   private final String policy;
   private final Boolean readOnly;
+  private final boolean perReplicaState;
+  // the replica states that were merged into the slices, if the collection keeps per-replica states
+  private PerReplicaStates perReplicaStates;
 
   public DocCollection(String name, Map<String, Slice> slices, Map<String, Object> props, DocRouter router) {
     this(name, slices, props, router, Integer.MAX_VALUE);
@@ -102,6 +106,8 @@ public class DocCollection extends ZkNodeProps implements Iterable<Slice> {
     this.autoAddReplicas = autoAddReplicas == null ? Boolean.FALSE : autoAddReplicas;
     Boolean readOnly = (Boolean) verifyProp(props, READ_ONLY);
     this.readOnly = readOnly == null ? Boolean.FALSE : readOnly;
+    Boolean perReplicaState = (Boolean) verifyProp(props, PER_REPLICA_STATE);
+    this.perReplicaState = perReplicaState == null ? false : perReplicaState;
     
     verifyProp(props, RULE);
     verifyProp(props, SNITCH);
@@ -155,6 +161,7 @@ public class DocCollection extends ZkNodeProps implements Iterable<Slice> {
         return Integer.parseInt(o.toString());
       case AUTO_ADD_REPLICAS:
       case READ_ONLY:
+      case PER_REPLICA_STATE:
         return Boolean.parseBoolean(o.toString());
       case "snitch":
       case "rule":
@@ -173,6 +180,54 @@ public class DocCollection extends ZkNodeProps implements Iterable<Slice> {
     return new DocCollection(getName(), slices, propMap, router, znodeVersion);
   }
 
+  /**
+   * Returns a copy of this collection with the replica states of the given per-replica states, which take
+   * precedence over the states of the replicas in state.json.
+   */
+  public DocCollection copyWith(PerReplicaStates perReplicaStates) {
+    Map<String, Slice> newSlices = new LinkedHashMap<>(slices.size());
+    for (Slice slice : slices.values()) {
+      Map<String, Replica> newReplicas = null;
+      for (Replica replica : slice) {
+        PerReplicaStates.State state = perReplicaStates.get(replica.getName());
+        if (state != null && state.state != replica.getState()) {
+          if (newReplicas == null) {
+            newReplicas = slice.getReplicasCopy();
+          }
+          Map<String, Object> props = replica.shallowCopy();
+          props.put(ZkStateReader.STATE_PROP, state.state.toString());
+          newReplicas.put(replica.getName(), new Replica(replica.getName(), props, name, slice.getName()));
+        }
+      }
+      newSlices.put(slice.getName(), newReplicas == null ? slice : new Slice(slice.getName(), newReplicas, slice.shallowCopy(), name));
+    }
+    DocCollection copy = new DocCollection(name, newSlices, propMap, router, znodeVersion);
+    copy.perReplicaStates = perReplicaStates;
+    return copy;
+  }
+
+  /**
+   * @return true if the states of the replicas are kept in child nodes of state.json
+   * @see PerReplicaStates
+   */
+  public boolean isPerReplicaState() {
+    return perReplicaState;
+  }
+
+  /**
+   * @return the per-replica states merged into this collection, or null
+   */
+  public PerReplicaStates getPerReplicaStates() {
+    return perReplicaStates;
+  }
+
+  /**
+   * @return the version of the per-replica states merged into this collection, or -1
+   */
+  public int getChildNodesVersion() {
+    return perReplicaStates == null ? -1 : perReplicaStates.getCVersion();
+  }
+
   /**
    * Return collection name.
    */
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.common.cloud;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.data.Stat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The states of the replicas of a collection created with {@link ZkStateReader#PER_REPLICA_STATE}.
+ * <p>
+ * Such collections keep the state of each replica in an empty child node of their state.json, named
+ * <code>&lt;replica&gt;:&lt;version&gt;:&lt;state&gt;</code>. A replica changes its state by creating the node of the
+ * next version and deleting the previous one in a single multi operation, so that a state change writes a few
+ * bytes instead of the whole state.json, and readers only list the children to pick it up. A state in a child
+ * node takes precedence over the state of the replica in state.json.
+ * <p>
+ * Instances are immutable.
+ */
+public class PerReplicaStates {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  public static final char SEPARATOR = ':';
+
+  private static final int MAX_ATTEMPTS = 10;
+
+  /** The state of one replica, as stored in the name of a child node. */
+  public static class State {
+    public final String replica;
+    public final int version;
+    public final Replica.State state;
+
+    public State(String replica, int version, Replica.State state) {
+      this.replica = replica;
+      this.version = version;
+      this.state = state;
+    }
+
+    /** @return the state encoded in the given child node name, or null if it is not a replica state */
+    public static State parse(String child) {
+      int versionStart = child.indexOf(SEPARATOR);
+      int stateStart = child.lastIndexOf(SEPARATOR);
+      if (versionStart <= 0 || stateStart == versionStart) {
+        return null;
+      }
+      try {
+        return new State(child.substring(0, versionStart),
+            Integer.parseInt(child.substring(versionStart + 1, stateStart)),
+            Replica.State.getState(child.substring(stateStart + 1)));
+      } catch (IllegalArgumentException e) {
+        return null;
+      }
+    }
+
+    /** @return the name of the child node that holds this state */
+    public String asChild() {
+      return replica + SEPARATOR + version + SEPARATOR + state.toString();
+    }
+
+    @Override
+    public String toString() {
+      return asChild();
+    }
+  }
+
+  private final int cversion;
+  private final Map<String, State> states;
+  // child nodes of older versions that were left over, they are deleted by the next update of their replica
+  private final Map<String, List<State>> stale;
+
+  private PerReplicaStates(int cversion, Map<String, State> states, Map<String, List<State>> stale) {
+    this.cversion = cversion;
+    this.states = states;
+    this.stale = stale;
+  }
+
+  /**
+   * @return the version of the list of children of state.json, which changes with every replica state change
+   */
+  public int getCVersion() {
+    return cversion;
+  }
+
+  /** @return the latest state of the replica, or null if the replica never stored its state in a child node */
+  public State get(String replica) {
+    return states.get(replica);
+  }
+
+  public Map<String, State> getStates() {
+    return Collections.unmodifiableMap(states);
+  }
+
+  /** Parses the names of the children of a state.json. */
+  public static PerReplicaStates fromChildren(int cversion, List<String> children) {
+    Map<String, State> states = new HashMap<>();
+    Map<String, List<State>> stale = new HashMap<>();
+    for (String child : children) {
+      State state = State.parse(child);
+      if (state == null) {
+        continue;
+      }
+      State other = states.get(state.replica);
+      if (other != null) {
+        State older = other.version < state.version ? other : state;
+        stale.computeIfAbsent(state.replica, k -> new ArrayList<>()).add(older);
+        if (older == state) {
+          continue;
+        }
+      }
+      states.put(state.replica, state);
+    }
+    return new PerReplicaStates(cversion, states, stale);
+  }
+
+  /**
+   * Reads the replica states stored as children of the given state.json path.
+   *
+   * @param watcher if not null, set as a watch on the children of the path
+   */
+  public static PerReplicaStates fetch(String path, SolrZkClient zkClient, Watcher watcher)
+      throws KeeperException, InterruptedException {
+    Stat stat = new Stat();
+    List<String> children = zkClient.getChildren(path, watcher, stat, true);
+    return fromChildren(stat.getCversion(), children);
+  }
+
+  /**
+   * @return the operations that store the given states, replacing the current nodes of these replicas
+   */
+  public List<Op> updateOps(String path, Map<String, Replica.State> newStates, ZkACLProvider aclProvider) {
+    List<Op> ops = new ArrayList<>();
+    for (Map.Entry<String, Replica.State> entry : newStates.entrySet()) {
+      String replica = entry.getKey();
+      State current = states.get(replica);
+      if (current != null && current.state == entry.getValue() && !stale.containsKey(replica)) {
+        continue;
+      }
+      State next = new State(replica, current == null ? 0 : current.version + 1, entry.getValue());
+      String nextPath = path + "/" + next.asChild();
+      ops.add(Op.create(nextPath, null, aclProvider.getACLsToAdd(nextPath), CreateMode.PERSISTENT));
+      if (current != null) {
+        ops.add(Op.delete(path + "/" + current.asChild(), -1));
+      }
+      for (State old : stale.getOrDefault(replica, Collections.emptyList())) {
+        ops.add(Op.delete(path + "/" + old.asChild(), -1));
+      }
+    }
+    return ops;
+  }
+
+  /**
+   * Stores the given replica states under the state.json at the given path. Concurrent updates of the same
+   * replicas make the multi operation fail, in which case the current states are read again and the update
+   * is retried.
+   */
+  public static void persist(String path, Map<String, Replica.State> newStates, SolrZkClient zkClient)
+      throws KeeperException, InterruptedException {
+    for (int attempt = 1; ; attempt++) {
+      List<Op> ops = fetch(path, zkClient, null).updateOps(path, newStates, zkClient.getZkACLProvider());
+      if (ops.isEmpty()) {
+        return;
+      }
+      try {
+        zkClient.multi(ops, true);
+        return;
+      } catch (KeeperException.NodeExistsException | KeeperException.NoNodeException e) {
+        if (attempt >= MAX_ATTEMPTS) {
+          throw e;
+        }
+        log.debug("Concurrent update of replica states under {}, retrying", path, e);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "PerReplicaStates{cversion=" + cversion + ", states=" + states.values() + "}";
+  }
+}
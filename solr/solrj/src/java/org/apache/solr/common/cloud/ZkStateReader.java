@@ -132,6 +132,7 @@ public class ZkStateReader implements SolrCloseable {
   public static final String NRT_REPLICAS = "nrtReplicas";
   public static final String TLOG_REPLICAS = "tlogReplicas";
   public static final String READ_ONLY = "readOnly";
+  public static final String PER_REPLICA_STATE = "perReplicaState";
 
   public static final String ROLES = "/roles.json";
 
@@ -1249,10 +1250,43 @@ public class ZkStateReader implements SolrCloseable {
             event, coll, liveNodes.size());
       }
 
-      refreshAndWatch();
+      if (EventType.NodeChildrenChanged.equals(event.getType())) {
+        refreshPerReplicaStatesAndWatch();
+      } else {
+        refreshAndWatch();
+      }
 
     }
 
+    /**
+     * Only reads the per-replica states of the collection, which changed without a change of state.json,
+     * and merges them into the cached collection state.
+     */
+    private void refreshPerReplicaStatesAndWatch() {
+      DocCollection current = watchedCollectionStates.get(coll);
+      if (current == null || !current.isPerReplicaState()) {
+        refreshAndWatch();
+        return;
+      }
+      try {
+        PerReplicaStates perReplicaStates = PerReplicaStates.fetch(getCollectionPath(coll), zkClient, this);
+        updateWatchedCollection(coll, current.copyWith(perReplicaStates));
+        synchronized (getUpdateLock()) {
+          constructState(Collections.singleton(coll));
+        }
+      } catch (KeeperException.NoNodeException e) {
+        // the collection got deleted, state.json's watch takes care of it
+      } catch (KeeperException.SessionExpiredException | KeeperException.ConnectionLossException e) {
+        log.warn("ZooKeeper watch triggered, but Solr cannot talk to ZK: [{}]", e.getMessage());
+      } catch (KeeperException e) {
+        log.error("Unwatched collection: [{}]", coll, e);
+        throw new ZooKeeperException(ErrorCode.SERVER_ERROR, "A ZK error has occurred", e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        log.error("Unwatched collection: [{}]", coll, e);
+      }
+    }
+
     /**
      * Refresh collection state from ZK and leave a watch for future changes.
      * As a side effect, updates {@link #clusterState} and {@link #watchedCollectionStates}
@@ -1457,7 +1491,12 @@ public class ZkStateReader implements SolrCloseable {
         byte[] data = zkClient.getData(collectionPath, watcher, stat, true);
         ClusterState state = ClusterState.createFromJson(stat.getVersion(), data, Collections.emptySet());
         ClusterState.CollectionRef collectionRef = state.getCollectionStates().get(coll);
-        return collectionRef == null ? null : collectionRef.get();
+        DocCollection collection = collectionRef == null ? null : collectionRef.get();
+        if (collection != null && collection.isPerReplicaState()) {
+          // the watch on the children of state.json picks up replica state changes
+          collection = collection.copyWith(PerReplicaStates.fetch(collectionPath, zkClient, watcher));
+        }
+        return collection;
       } catch (KeeperException.NoNodeException e) {
         if (watcher != null) {
           // Leave an exists watch in place in case a state.json is created later.
@@ -1834,7 +1873,9 @@ public class ZkStateReader implements SolrCloseable {
           break;
         }
       } else {
-        if (oldState.getZNodeVersion() >= newState.getZNodeVersion()) {
+        if (oldState.getZNodeVersion() > newState.getZNodeVersion()
+            || (oldState.getZNodeVersion() == newState.getZNodeVersion()
+            && oldState.getChildNodesVersion() >= newState.getChildNodesVersion())) {
           // no change to state, but we might have been triggered by the addition of a
           // state watcher, so run notifications
           updated = true;
@@ -284,6 +284,9 @@ public interface CommonParams {
 
   String JAVABIN = "javabin";
 
+  /** The batched, columnar format of tuples written by <code>/export</code> */
+  String COLUMNAR = "columnar";
+
   String JSON = "json";
 
   String PATH = "path";
@@ -60,6 +60,9 @@ public interface ShardParams {
   /** Shards sorting rules */
   String SHARDS_PREFERENCE = "shards.preference";
 
+  /** Whether slow shard requests should be sent again to another replica (boolean) */
+  String SHARDS_HEDGE = "shards.hedge";
+
   /** Replica type sort rule */
   String SHARDS_PREFERENCE_REPLICA_TYPE = "replica.type";
 
@@ -81,6 +84,9 @@ public interface ShardParams {
   /** Value denoting stable replica sort */
   String REPLICA_STABLE = "stable";
 
+  /** Value denoting replica sort by observed latency */
+  String REPLICA_ADAPTIVE = "adaptive";
+
   /** configure dividend param for stable replica sort */
   String ROUTING_DIVIDEND = "dividend";
 
@@ -91,6 +97,15 @@ public interface ShardParams {
 
   /** Force a single-pass distributed query? (true/false) */
   String DISTRIB_SINGLE_PASS = "distrib.singlePass";
+
+  /**
+   * Run a distributed query in a single pass when {@value #DISTRIB_SINGLE_PASS} isn't set, the requested fields
+   * all have docValues and at most this many documents would be fetched across shards (int, 0 to disable)
+   */
+  String DISTRIB_SINGLE_PASS_MAX_DOCS = "distrib.singlePass.maxDocs";
+
+  /** The score below which documents can't make the top documents of a distributed query (internal) */
+  String DISTRIB_MIN_SCORE = "distrib.minScore";
   
   /**
    * Throw an error from search requests when the {@value #SHARDS_TOLERANT} param
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.junit.Test;
+
+public class SpilledPartitionsTest extends SolrTestCase {
+
+  @Test
+  public void testTypesArePreserved() throws Exception {
+    Path spillDir = createTempDir().resolve("spill");
+    System.setProperty(SpilledPartitions.SPILL_DIR_PROP, spillDir.toString());
+    try (SpilledPartitions spilled = new SpilledPartitions("test", 4)) {
+      Map<String, Object> fields = new HashMap<>();
+      fields.put("a_i", 1);
+      fields.put("a_l", 2L);
+      fields.put("a_f", 1.5f);
+      fields.put("a_d", 2.5d);
+      fields.put("a_dt", new Date(1000L));
+      fields.put("a_s", "hello");
+      fields.put("a_ss", Arrays.asList("a", "b"));
+      spilled.add(1, new Tuple(fields));
+      spilled.add(1, new Tuple(fields), "extra", 3);
+      try (Stream<Path> files = Files.list(spillDir)) {
+        assertEquals(1, files.count());
+      }
+
+      try (TupleStreamParser parser = spilled.read(1)) {
+        assertEquals(fields, parser.next());
+        Map<String, Object> withExtra = parser.next();
+        assertEquals(3, withExtra.remove("extra"));
+        assertEquals(fields, withExtra);
+        assertNull(parser.next());
+      }
+      assertNull(spilled.read(0));
+
+      spilled.delete(1);
+      try (Stream<Path> files = Files.list(spillDir)) {
+        assertEquals(0, files.count());
+      }
+    } finally {
+      System.clearProperty(SpilledPartitions.SPILL_DIR_PROP);
+    }
+  }
+}
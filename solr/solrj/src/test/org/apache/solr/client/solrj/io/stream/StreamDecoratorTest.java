@@ -1377,8 +1377,29 @@ public class StreamDecoratorTest extends SolrCloudTestCase {
       assertTrue(avgf.doubleValue() == 6.5D);
       assertTrue(count.doubleValue() == 4);
 
+      // Only one bucket in memory, the tuples of the others are spilled to disk
+      expression = StreamExpressionParser.parse("sort(hashRollup("
+          + "search(" + COLLECTIONORALIAS + ", q=*:*, fl=\"a_s,a_i,a_f\", sort=\"a_s asc\"),"
+          + "over=\"a_s\","
+          + "sum(a_i),"
+          + "avg(a_f),"
+          + "count(*),"
+          + "maxInMemory=1"
+          + "), by=\"avg(a_f) asc\")");
+      stream = factory.constructStream(expression);
+      stream.setStreamContext(streamContext);
+      tuples = getTuples(stream);
 
-
+      assertEquals(3, tuples.size());
+      assertEquals("hello0", tuples.get(0).getString("a_s"));
+      assertEquals(17.0D, tuples.get(0).getDouble("sum(a_i)"), 0.0D);
+      assertEquals(4, tuples.get(0).getLong("count(*)").longValue());
+      assertEquals("hello4", tuples.get(1).getString("a_s"));
+      assertEquals(15.0D, tuples.get(1).getDouble("sum(a_i)"), 0.0D);
+      assertEquals(2, tuples.get(1).getLong("count(*)").longValue());
+      assertEquals("hello3", tuples.get(2).getString("a_s"));
+      assertEquals(38.0D, tuples.get(2).getDouble("sum(a_i)"), 0.0D);
+      assertEquals(4, tuples.get(2).getLong("count(*)").longValue());
     } finally {
       solrClientCache.close();
     }
@@ -2193,6 +2214,17 @@ public class StreamDecoratorTest extends SolrCloudTestCase {
       assert (tuples.size() == 8);
       assertOrder(tuples, 1, 1, 15, 15, 3, 4, 5, 7);
 
+      // Spilled to disk, in the same order
+      expression = StreamExpressionParser.parse("hashJoin("
+          + "search(collection1, q=\"side_s:left\", fl=\"id,join1_i,join2_s,ident_s\", sort=\"join1_i asc, join2_s asc, id asc\"),"
+          + "hashed=search(collection1, q=\"side_s:right\", fl=\"join1_i,join2_s,ident_s\", sort=\"join1_i asc, join2_s asc\"),"
+          + "on=\"join1_i, join2_s\", maxInMemory=2)");
+      stream = new HashJoinStream(expression, factory);
+      stream.setStreamContext(streamContext);
+      tuples = getTuples(stream);
+      assertEquals(8, tuples.size());
+      assertOrder(tuples, 1, 1, 15, 15, 3, 4, 5, 7);
+
       // Basic desc
       expression = StreamExpressionParser.parse("hashJoin("
           + "search(collection1, q=\"side_s:left\", fl=\"id,join1_i,join2_s,ident_s\", sort=\"join1_i desc, join2_s asc\"),"
@@ -2352,6 +2384,17 @@ public class StreamDecoratorTest extends SolrCloudTestCase {
       assert (tuples.size() == 10);
       assertOrder(tuples, 1, 1, 15, 15, 2, 3, 4, 5, 6, 7);
 
+      // Spilled to disk, in the same order
+      expression = StreamExpressionParser.parse("outerHashJoin("
+          + "search(collection1, q=\"side_s:left\", fl=\"id,join1_i,join2_s,ident_s\", sort=\"join1_i asc, join2_s asc, id asc\"),"
+          + "hashed=search(collection1, q=\"side_s:right\", fl=\"join1_i,join2_s,ident_s\", sort=\"join1_i asc, join2_s asc\"),"
+          + "on=\"join1_i, join2_s\", maxInMemory=2)");
+      stream = new OuterHashJoinStream(expression, factory);
+      stream.setStreamContext(streamContext);
+      tuples = getTuples(stream);
+      assertEquals(10, tuples.size());
+      assertOrder(tuples, 1, 1, 15, 15, 2, 3, 4, 5, 6, 7);
+
       // Basic desc
       expression = StreamExpressionParser.parse("outerHashJoin("
           + "search(collection1, q=\"side_s:left\", fl=\"id,join1_i,join2_s,ident_s\", sort=\"join1_i desc, join2_s asc\"),"
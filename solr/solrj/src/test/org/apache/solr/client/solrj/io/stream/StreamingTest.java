@@ -53,6 +53,7 @@ import org.apache.solr.cloud.SolrCloudTestCase;
 import org.apache.solr.common.cloud.DocCollection;
 import org.apache.solr.common.cloud.Replica;
 import org.apache.solr.common.cloud.ZkStateReader;
+import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.params.ShardParams;
 import org.apache.solr.common.params.SolrParams;
@@ -2522,16 +2523,17 @@ public void testParallelRankStream() throws Exception {
         )
         .commit(cluster.getSolrClient(), COLLECTIONORALIAS);
 
-    tryWithQt("/export");
-    tryWithQt("/select");
+    tryWithQt("/export", "json");
+    tryWithQt("/export", CommonParams.COLUMNAR);
+    tryWithQt("/select", "json");
   }
 
   // We should be getting the exact same thing back with both the export and select handlers, so test
-  private void tryWithQt(String which) throws IOException {
+  private void tryWithQt(String which, String wt) throws IOException {
     StreamContext streamContext = new StreamContext();
     SolrClientCache solrClientCache = new SolrClientCache();
     streamContext.setSolrClientCache(solrClientCache);
-    SolrParams sParams = StreamingTest.mapParams("q", "*:*", "qt", which, "fl",
+    SolrParams sParams = StreamingTest.mapParams("q", "*:*", "qt", which, "wt", wt, "fl",
         "id,i_sing,i_multi,l_sing,l_multi,f_sing,f_multi,d_sing,d_multi,dt_sing,dt_multi,s_sing,s_multi,b_sing,b_multi",
         "sort", "i_sing asc");
     try (CloudSolrStream stream = new CloudSolrStream(zkHost, COLLECTIONORALIAS, sParams)) {
@@ -2580,6 +2582,81 @@ public void testParallelRankStream() throws Exception {
 
   }
 
+  @Test
+  public void testColumnarExport() throws Exception {
+    new UpdateRequest()
+        .add(id, "0", "a_s", "hello0", "a_i", "0", "a_f", "1")
+        .add(id, "2", "a_s", "hello2", "a_i", "2", "a_f", "2")
+        .add(id, "3", "a_s", "hello3", "a_i", "3", "a_f", "3")
+        .add(id, "4", "a_s", "hello4", "a_i", "4", "a_f", "4")
+        .add(id, "1", "a_s", "hello1", "a_i", "1", "a_f", "5")
+        .add(id, "5", "a_i", "10", "a_f", "6")
+        .commit(cluster.getSolrClient(), COLLECTIONORALIAS);
+
+    StreamContext streamContext = new StreamContext();
+    SolrClientCache solrClientCache = new SolrClientCache();
+    streamContext.setSolrClientCache(solrClientCache);
+    try {
+      // the same tuples as with json, across shards
+      SolrParams sParams = mapParams("q", "*:*", "fl", "id,a_s,a_i,a_f", "sort", "a_i asc", "qt", "/export",
+          "wt", CommonParams.COLUMNAR);
+      CloudSolrStream stream = new CloudSolrStream(zkHost, COLLECTIONORALIAS, sParams);
+      stream.setStreamContext(streamContext);
+      List<Tuple> tuples = getTuples(stream);
+      assertEquals(6, tuples.size());
+      assertOrder(tuples, 0, 1, 2, 3, 4, 5);
+      assertEquals("hello3", tuples.get(3).getString("a_s"));
+      assertEquals(3L, tuples.get(3).get("a_i"));
+      assertEquals(3.0d, tuples.get(3).get("a_f"));
+      assertNull(tuples.get(5).get("a_s"));
+
+      // a single shard, with fewer fields than the json response of the same request
+      List<String> shardUrls = TupleStream.getShards(cluster.getZkServer().getZkAddress(), COLLECTIONORALIAS, streamContext);
+      for (String shardUrl : shardUrls) {
+        SolrStream solrStream = new SolrStream(shardUrl,
+            mapParams("q", "*:*", "fl", "id,a_i", "sort", "a_i asc", "qt", "/export", "wt", CommonParams.COLUMNAR));
+        solrStream.setStreamContext(streamContext);
+        List<Tuple> columnarTuples = getTuples(solrStream);
+        solrStream = new SolrStream(shardUrl,
+            mapParams("q", "*:*", "fl", "id,a_i", "sort", "a_i asc", "qt", "/export", "wt", "json"));
+        solrStream.setStreamContext(streamContext);
+        List<Tuple> jsonTuples = getTuples(solrStream);
+        assertEquals(jsonTuples.size(), columnarTuples.size());
+        for (int i = 0; i < jsonTuples.size(); i++) {
+          assertEquals(jsonTuples.get(i).getFields(), columnarTuples.get(i).getFields());
+        }
+
+        // an expression returns fields that are not in fl
+        String expr = "rollup(input(), over=\"a_s\", sum(a_i), count(*))";
+        solrStream = new SolrStream(shardUrl, mapParams("q", "a_s:*", "fl", "a_s,a_i", "sort", "a_s asc",
+            "qt", "/export", "expr", expr, "wt", CommonParams.COLUMNAR));
+        solrStream.setStreamContext(streamContext);
+        columnarTuples = getTuples(solrStream);
+        solrStream = new SolrStream(shardUrl, mapParams("q", "a_s:*", "fl", "a_s,a_i", "sort", "a_s asc",
+            "qt", "/export", "expr", expr, "wt", "json"));
+        solrStream.setStreamContext(streamContext);
+        jsonTuples = getTuples(solrStream);
+        assertEquals(jsonTuples.size(), columnarTuples.size());
+        for (int i = 0; i < jsonTuples.size(); i++) {
+          assertNotNull(columnarTuples.get(i).get("sum(a_i)"));
+          assertEquals(jsonTuples.get(i).getFields(), columnarTuples.get(i).getFields());
+        }
+      }
+
+      // errors get through
+      sParams = mapParams("q", "*:*", "fl", "a_s,a_i,a_f,score", "sort", "a_s asc", "qt", "/export",
+          "wt", CommonParams.COLUMNAR);
+      stream = new CloudSolrStream(zkHost, COLLECTIONORALIAS, sParams);
+      ExceptionStream estream = new ExceptionStream(stream);
+      estream.setStreamContext(streamContext);
+      Tuple t = getTuple(estream);
+      assertTrue(t.EOF);
+      assertTrue(t.EXCEPTION);
+    } finally {
+      solrClientCache.close();
+    }
+  }
+
   @Test
   public void testTupleStreamGetShardsPreference() throws Exception {
     StreamContext streamContext = new StreamContext();
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.params.ShardParams;
+import org.junit.Test;
+
+public class AdaptiveReplicaListTransformerFactoryTest extends SolrTestCase {
+
+  private static final String FAST = "http://host1:8983/solr/c1_shard1_replica_n1";
+  private static final String SLOW = "http://host2:8983/solr/c1_shard1_replica_n2";
+  private static final String UNKNOWN = "host3:8983/solr/c1_shard1_replica_n3";
+
+  @Test
+  public void testPrefersFastReplicas() {
+    AdaptiveReplicaListTransformerFactory factory = new AdaptiveReplicaListTransformerFactory(0.5, 60000, 1000, random());
+    ReplicaListTransformer rlt = factory.getInstance(null, new ModifiableSolrParams(), null);
+
+    // urls may be reported with or without a scheme
+    record(factory, "host1:8983/solr/c1_shard1_replica_n1/", 10, 5);
+    record(factory, SLOW, 200, 150);
+
+    List<String> choices = new ArrayList<>(Arrays.asList(SLOW, FAST));
+    rlt.transform(choices);
+    assertEquals(Arrays.asList(FAST, SLOW), choices);
+
+    // replicas without stats are tried first
+    choices = new ArrayList<>(Arrays.asList(SLOW, FAST, UNKNOWN));
+    rlt.transform(choices);
+    assertEquals(Arrays.asList(UNKNOWN, FAST, SLOW), choices);
+
+    // but only one request at a time probes them, the next ones rank them by the best score and their backlog
+    factory.requestStarted(UNKNOWN);
+    choices = new ArrayList<>(Arrays.asList(SLOW, UNKNOWN, FAST));
+    rlt.transform(choices);
+    assertEquals(Arrays.asList(FAST, UNKNOWN, SLOW), choices);
+    factory.requestFinished(UNKNOWN, UNKNOWN, 1000, 900, true);
+
+    // a backlog of outstanding requests makes the fast replica lose its rank
+    for (int i = 0; i < 3; i++) {
+      factory.requestStarted(FAST);
+    }
+    choices = new ArrayList<>(Arrays.asList(FAST, SLOW));
+    rlt.transform(choices);
+    assertEquals(Arrays.asList(SLOW, FAST), choices);
+    for (int i = 0; i < 3; i++) {
+      factory.requestFinished(FAST, FAST, 10, 5, true);
+    }
+    choices = new ArrayList<>(Arrays.asList(SLOW, FAST));
+    rlt.transform(choices);
+    assertEquals(Arrays.asList(FAST, SLOW), choices);
+
+    // failures count as slow responses
+    for (int i = 0; i < 5; i++) {
+      factory.requestStarted(FAST);
+      factory.requestFinished(FAST, null, 1, -1, false);
+    }
+    rlt.transform(choices);
+    assertEquals(Arrays.asList(SLOW, FAST), choices);
+
+    Map<String, Map<String, Object>> stats = factory.getStats();
+    assertEquals(new HashSet<>(Arrays.asList("host1:8983/solr/c1_shard1_replica_n1", "host2:8983/solr/c1_shard1_replica_n2",
+        UNKNOWN)), stats.keySet());
+    assertEquals(0, stats.get("host2:8983/solr/c1_shard1_replica_n2").get("outstanding"));
+  }
+
+  @Test
+  public void testReplicaBase() {
+    AdaptiveReplicaListTransformerFactory factory = new AdaptiveReplicaListTransformerFactory();
+    record(factory, SLOW, 200, 150);
+    record(factory, FAST, 10, 5);
+
+    RequestReplicaListTransformerGenerator generator = new RequestReplicaListTransformerGenerator(null, null, factory,
+        null, null, null, null);
+    ModifiableSolrParams params = new ModifiableSolrParams();
+    params.set(ShardParams.SHARDS_PREFERENCE, ShardParams.SHARDS_PREFERENCE_REPLICA_BASE + ":" + ShardParams.REPLICA_ADAPTIVE);
+    List<String> choices = new ArrayList<>(Arrays.asList(SLOW, FAST));
+    generator.getReplicaListTransformer(params).transform(choices);
+    assertEquals(Arrays.asList(FAST, SLOW), choices);
+  }
+
+  @Test
+  public void testStaleStatsAreDropped() throws Exception {
+    AdaptiveReplicaListTransformerFactory factory = new AdaptiveReplicaListTransformerFactory(0.5, 100, 1000, random());
+    assertFalse(factory.isActive());
+    factory.getInstance(null, new ModifiableSolrParams(), null);
+    assertTrue(factory.isActive());
+
+    record(factory, FAST, 10, 5);
+    factory.requestStarted(UNKNOWN);
+    Thread.sleep(200);
+    assertFalse(factory.isActive());
+
+    // replicas that are gone don't keep their stats, unless requests are still outstanding on them
+    record(factory, SLOW, 200, 150);
+    assertEquals(new HashSet<>(Arrays.asList(UNKNOWN, "host2:8983/solr/c1_shard1_replica_n2")),
+        factory.getStats().keySet());
+  }
+
+  private static void record(AdaptiveReplicaListTransformerFactory factory, String url, long elapsedMs, long qTime) {
+    factory.requestStarted(url);
+    factory.requestFinished(url, url, elapsedMs, qTime, true);
+  }
+}
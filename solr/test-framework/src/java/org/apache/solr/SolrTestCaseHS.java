@@ -31,6 +31,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Random;
@@ -261,6 +262,20 @@ public class SolrTestCaseHS extends SolrTestCaseJ4 {
     return getQueryResponse(client, "json", params);
   }
 
+  /**
+   * Asserts that a JSON facet over all the docs of the local test core gives the same response with two sets of
+   * options, e.g. with two facet methods.
+   *
+   * @param facet the json.facet param, where <code>%s</code> is replaced by the options
+   */
+  public static void assertSameFacets(String facet, String expectedOptions, String actualOptions) throws Exception {
+    final String expected = h.query(req("q", "*:*", "rows", "0", "omitHeader", "true",
+        "json.facet", String.format(Locale.ROOT, facet, expectedOptions)));
+    final String actual = h.query(req("q", "*:*", "rows", "0", "omitHeader", "true",
+        "json.facet", String.format(Locale.ROOT, facet, actualOptions)));
+    assertEquals(String.format(Locale.ROOT, facet, actualOptions), expected, actual);
+  }
+
   /** Adds a document using the specific client, or to the local test core if null.
    * Returns the version.  TODO: work in progress... version not always returned.  */
   public static Long add(SolrClient client, SolrInputDocument sdoc, ModifiableSolrParams params) throws Exception {